@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import java.util.Random;
+
+import core.images.*;
+
+/**
+ * Classe bsica para a implementao dos casos de medio de desempenho (benchmarks) do sistema Narciso. Cada caso
+ *  preparado pelo mtodo setUp para um tamanho e tipo de imagem, executado repetidamente atravs do mtodo run e
+ * encerrado pelo mtodo tearDown. As medies so efetuadas pela classe CBenchmarkRunner.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CBenchmarkRunner
+ */
+
+public abstract class CBenchmark
+{
+	/** Membro privado utilizado para armazenar o nome do caso de medio. */
+	private String m_sName;
+	
+	/**
+	 * Construtor da classe.
+	 * 
+	 * @param sName Nome do caso de medio.
+	 */
+	public CBenchmark(String sName)
+	{
+		m_sName = sName;
+	}
+	
+	/**
+	 * Mtodo getter do nome do caso de medio.
+	 * 
+	 * @return Nome do caso de medio.
+	 */
+	public String getName()
+	{
+		return m_sName;
+	}
+	
+	/**
+	 * Prepara o caso de medio para imagens quadradas do tamanho e tipo dados. O tempo gasto nesse mtodo no 
+	 * considerado nas medies.
+	 * 
+	 * @param iSize Largura e altura, em pixels, das imagens utilizadas.
+	 * @param bColored Indica se as imagens so coloridas (true) ou em escala de cinza (false).
+	 * @return True se o caso se aplica ao tamanho e tipo de imagem dados, false se deve ser ignorado.
+	 */
+	public abstract boolean setUp(int iSize, boolean bColored);
+	
+	/**
+	 * Executa uma vez o trecho medido. O objeto retornado  consumido pela rotina de medio, de modo que a
+	 * mquina virtual no possa descartar o processamento.
+	 * 
+	 * @return Objeto resultante do processamento.
+	 */
+	public abstract Object run();
+	
+	/**
+	 * Libera os recursos alocados pelo mtodo setUp. A implementao padro no faz nada.
+	 */
+	public void tearDown()
+	{
+	}
+	
+	/**
+	 * Mtodo esttico e protegido, utilizado para criar uma imagem com pixels aleatrios. O gerador  iniciado
+	 * com a semente dada, de modo que as execues sejam reproduzveis.
+	 * 
+	 * @param iSize Largura e altura da imagem, em pixels.
+	 * @param bColored Indica se a imagem  colorida (true) ou em escala de cinza (false).
+	 * @param lSeed Semente do gerador de nmeros aleatrios.
+	 * @return Objeto CImage com a imagem criada.
+	 */
+	protected static CImage createImage(int iSize, boolean bColored, long lSeed)
+	{
+		Random pRandom = new Random(lSeed);
+		CImage pImage = new CImage(iSize, iSize, bColored);
+		int aRow[] = new int[iSize];
+		
+		for(int Y = 0; Y < iSize; Y++)
+		{
+			for(int X = 0; X < iSize; X++)
+				aRow[X] = (bColored ? pRandom.nextInt() & 0xffffff : pRandom.nextInt(256));
+			
+			if(bColored)
+				pImage.setRGB(0, Y, iSize, 1, aRow);
+			else
+				pImage.setSamples(0, Y, iSize, 1, 0, aRow);
+		}
+		return pImage;
+	}
+}
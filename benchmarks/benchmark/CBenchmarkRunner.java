@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import core.batch.*;
+import core.errors.*;
+import core.images.*;
+import core.operations.*;
+
+/**
+ * Essa classe implementa a execuo dos casos de medio de desempenho (benchmarks) do sistema Narciso. So medidos:
+ * 
+ * <ul>
+ * <li>cada uma das operaes registradas no arquivo de operaes (operations.xml), com os parmetros do exemplo
+ * registrado;</li>
+ * <li>o acesso individual aos pixels (CImage.getPixel e CImage.setPixel);</li>
+ * <li>a construo de histogramas (CHistogram);</li>
+ * <li>a leitura e a gravao de arquivos em cada formato suportado (CFormat).</li>
+ * </ul>
+ * 
+ * Cada caso  executado para cada tamanho de imagem (por padro 256x256, 1024x1024 e 4096x4096) e para imagens
+ * coloridas e em escala de cinza. Aps um perodo de aquecimento da mquina virtual, o caso  executado
+ * repetidamente durante o perodo de medio, e so informados o tempo mdio por execuo, a vazo (execues
+ * por segundo), a quantidade de memria alocada por execuo e o nmero e o tempo das coletas de lixo ocorridas.
+ * 
+ * A memria alocada  obtida a partir dos contadores por thread da mquina virtual (quando disponveis), somados
+ * entre todas as threads existentes ao final da medio, de modo que o processamento efetuado pelos pools de
+ * threads das operaes tambm  considerado.
+ * 
+ * Utilizao (parmetros entre colchetes so opcionais), a partir do diretrio dos binrios:
+ * 
+ * <pre>
+ * java -Xmx3g -Djava.awt.headless=true -cp Narciso.jar;benchmarks benchmark.CBenchmarkRunner
+ *      [-operations operations.xml] [-sizes 256,1024,4096] [-modes color,gray] [-warmup ms] [-time ms]
+ *      [-filter texto] [-csv arquivo.csv]
+ * </pre>
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CBenchmark
+ */
+
+public class CBenchmarkRunner
+{
+	/** Membro privado utilizado para armazenar o nome do arquivo XML com as operaes a serem medidas. */
+	private String m_sOperationsFile;
+	
+	/** Membro privado utilizado para armazenar os tamanhos de imagem medidos. */
+	private int m_aSizes[];
+	
+	/** Membro privado utilizado para armazenar os tipos de imagem medidos (true para colorida). */
+	private boolean m_aModes[];
+	
+	/** Membro privado utilizado para armazenar o tempo de aquecimento de cada caso, em milissegundos. */
+	private long m_lWarmup;
+	
+	/** Membro privado utilizado para armazenar o tempo de medio de cada caso, em milissegundos. */
+	private long m_lTime;
+	
+	/** Membro privado utilizado para armazenar o texto de filtro dos nomes dos casos, ou null para todos. */
+	private String m_sFilter;
+	
+	/** Membro privado utilizado para armazenar o arquivo de gravao dos resultados, ou null. */
+	private String m_sCSVFile;
+	
+	/** Membro privado esttico utilizado para consumir os objetos resultantes dos casos medidos. */
+	private static volatile Object m_pSink;
+	
+	/**
+	 * Construtor da classe. Inicializa os valores padro dos parmetros.
+	 */
+	public CBenchmarkRunner()
+	{
+		m_sOperationsFile = "operations.xml";
+		m_aSizes = new int[] { 256, 1024, 4096 };
+		m_aModes = new boolean[] { true, false };
+		m_lWarmup = 2000;
+		m_lTime = 5000;
+		m_sFilter = null;
+		m_sCSVFile = null;
+	}
+	
+	/**
+	 * Mtodo principal da medio de desempenho.
+	 * 
+	 * @param args Matriz de strings com a lista de argumentos da linha de comando, conforme descrito na classe.
+	 */
+	public static void main(String args[])
+	{
+		System.setProperty("java.awt.headless", "true");
+		
+		CBenchmarkRunner pRunner = new CBenchmarkRunner();
+		if(!pRunner.parseArguments(args))
+		{
+			System.err.println("Utilizao: CBenchmarkRunner [-operations <operations.xml>] [-sizes 256,1024,4096] [-modes color,gray]");
+			System.err.println("            [-warmup ms] [-time ms] [-filter texto] [-csv arquivo.csv]");
+			System.exit(2);
+		}
+		System.exit(pRunner.run());
+	}
+	
+	/**
+	 * Interpreta os argumentos da linha de comando.
+	 * 
+	 * @param args Matriz de strings com os argumentos.
+	 * @return True se os argumentos so vlidos, false caso contrrio.
+	 */
+	public boolean parseArguments(String args[])
+	{
+		try
+		{
+			for(int i = 0; i < args.length; i += 2)
+			{
+				if(i + 1 >= args.length)
+					return false;
+				String sArg = args[i];
+				String sValue = args[i + 1];
+				
+				if(sArg.equals("-operations"))
+					m_sOperationsFile = sValue;
+				else if(sArg.equals("-sizes"))
+				{
+					String aValues[] = sValue.split(",");
+					m_aSizes = new int[aValues.length];
+					for(int j = 0; j < aValues.length; j++)
+					{
+						m_aSizes[j] = Integer.parseInt(aValues[j].trim());
+						if(m_aSizes[j] < 1)
+							return false;
+					}
+				}
+				else if(sArg.equals("-modes"))
+				{
+					String aValues[] = sValue.split(",");
+					m_aModes = new boolean[aValues.length];
+					for(int j = 0; j < aValues.length; j++)
+					{
+						if(aValues[j].trim().equals("color"))
+							m_aModes[j] = true;
+						else if(aValues[j].trim().equals("gray"))
+							m_aModes[j] = false;
+						else
+							return false;
+					}
+				}
+				else if(sArg.equals("-warmup"))
+					m_lWarmup = Long.parseLong(sValue);
+				else if(sArg.equals("-time"))
+					m_lTime = Long.parseLong(sValue);
+				else if(sArg.equals("-filter"))
+					m_sFilter = sValue;
+				else if(sArg.equals("-csv"))
+					m_sCSVFile = sValue;
+				else
+					return false;
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Executa todos os casos de medio selecionados.
+	 * 
+	 * @return Cdigo de sada do processo: 0 em caso de sucesso, ou 2 se ocorreu um erro de configurao.
+	 */
+	public int run()
+	{
+		Vector<CBenchmark> vBenchmarks = createBenchmarks();
+		if(vBenchmarks == null)
+			return 2;
+		
+		PrintWriter pCSV = null;
+		if(m_sCSVFile != null)
+		{
+			try
+			{
+				pCSV = new PrintWriter(new BufferedWriter(new FileWriter(m_sCSVFile)));
+			}
+			catch(IOException e)
+			{
+				System.err.println("No foi possvel criar o arquivo [" + m_sCSVFile + "]: " + e.getMessage());
+				return 2;
+			}
+			pCSV.println("benchmark;size;mode;iterations;ms/op;ops/s;bytes/op;gc.count;gc.ms");
+		}
+		
+		System.out.println(String.format("%-42s %6s %5s %8s %12s %10s %14s %6s %8s", "caso", "tam.", "tipo", "iter.", "ms/op", "ops/s", "bytes/op", "gc", "gc ms"));
+		
+		for(int iSize = 0; iSize < m_aSizes.length; iSize++)
+		{
+			for(int iMode = 0; iMode < m_aModes.length; iMode++)
+			{
+				for(int i = 0; i < vBenchmarks.size(); i++)
+				{
+					CBenchmark pBench = vBenchmarks.get(i);
+					String sResult = measure(pBench, m_aSizes[iSize], m_aModes[iMode]);
+					if(sResult != null && pCSV != null)
+					{
+						pCSV.println(sResult);
+						pCSV.flush();
+					}
+				}
+			}
+		}
+		
+		if(pCSV != null)
+			pCSV.close();
+		return 0;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria os casos de medio que atendem ao filtro configurado.
+	 * 
+	 * @return Vetor com os casos de medio, ou null se as operaes no puderam ser registradas.
+	 */
+	private Vector<CBenchmark> createBenchmarks()
+	{
+		Vector<CBenchmark> vAll = new Vector<CBenchmark>();
+		
+		int iRet = COperationFactory.registerOperationsFromFile(m_sOperationsFile);
+		if(iRet != CErrors.SUCCESS)
+		{
+			System.err.println("Erro ao registrar as operaes de [" + m_sOperationsFile + "]: " + CErrors.getErrorDescription(iRet));
+			return null;
+		}
+		
+		Vector<COperation> vOperations = COperationFactory.getRegisteredOperations();
+		for(int i = 0; i < vOperations.size(); i++)
+		{
+			COperation pOper = vOperations.get(i);
+			String sParamEx = COperationFactory.getParamExample(pOper.getName());
+			vAll.add(new COperationBenchmark(pOper, CBatchRunner.parseParams(sParamEx == null ? "" : sParamEx)));
+		}
+		
+		vAll.add(new CPixelAccessBenchmark(false));
+		vAll.add(new CPixelAccessBenchmark(true));
+		vAll.add(new CHistogramBenchmark());
+		
+		CFormatFactory.CFormatEnum aFormats[] = CFormatFactory.CFormatEnum.values();
+		for(int i = 0; i < aFormats.length; i++)
+		{
+			vAll.add(new CFormatBenchmark(aFormats[i], false));
+			vAll.add(new CFormatBenchmark(aFormats[i], true));
+		}
+		
+		Vector<CBenchmark> vRet = new Vector<CBenchmark>();
+		for(int i = 0; i < vAll.size(); i++)
+		{
+			if(m_sFilter == null || vAll.get(i).getName().indexOf(m_sFilter) >= 0)
+				vRet.add(vAll.get(i));
+		}
+		return vRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa o aquecimento e a medio de um caso, exibindo o
+	 * resultado.
+	 * 
+	 * @param pBench Caso de medio.
+	 * @param iSize Largura e altura das imagens.
+	 * @param bColored Tipo das imagens.
+	 * @return Linha com o resultado no formato CSV, ou null se o caso foi ignorado.
+	 */
+	private String measure(CBenchmark pBench, int iSize, boolean bColored)
+	{
+		String sMode = (bColored ? "color" : "gray");
+		String sLine;
+		
+		try
+		{
+			if(!pBench.setUp(iSize, bColored))
+			{
+				System.out.println(String.format("%-42s %6d %5s (no se aplica)", pBench.getName(), iSize, sMode));
+				return null;
+			}
+			
+			long lEnd = System.nanoTime() + m_lWarmup * 1000000L;
+			do
+				m_pSink = pBench.run();
+			while(System.nanoTime() < lEnd);
+			
+			System.gc();
+			long lGCCount = getGCCount();
+			long lGCTime = getGCTime();
+			long lBytes = getAllocatedBytes();
+			long lStart = System.nanoTime();
+			lEnd = lStart + m_lTime * 1000000L;
+			long lIter = 0;
+			long lNow;
+			do
+			{
+				m_pSink = pBench.run();
+				lIter++;
+				lNow = System.nanoTime();
+			}
+			while(lNow < lEnd);
+			
+			long lAllocated = getAllocatedBytes();
+			double dMillis = (lNow - lStart) / 1.0e6 / lIter;
+			long lBytesPerOp = (lBytes < 0 || lAllocated < 0 ? -1 : (lAllocated - lBytes) / lIter);
+			lGCCount = getGCCount() - lGCCount;
+			lGCTime = getGCTime() - lGCTime;
+			
+			System.out.println(String.format(Locale.US, "%-42s %6d %5s %8d %12.3f %10.2f %14s %6d %8d", pBench.getName(), iSize, sMode, lIter, dMillis, 1000.0 / dMillis, (lBytesPerOp < 0 ? "n/d" : String.valueOf(lBytesPerOp)), lGCCount, lGCTime));
+			sLine = String.format(Locale.US, "%s;%d;%s;%d;%.4f;%.4f;%d;%d;%d", pBench.getName(), iSize, sMode, lIter, dMillis, 1000.0 / dMillis, lBytesPerOp, lGCCount, lGCTime);
+		}
+		catch(OutOfMemoryError e)
+		{
+			System.out.println(String.format("%-42s %6d %5s (memria insuficiente)", pBench.getName(), iSize, sMode));
+			sLine = null;
+		}
+		catch(RuntimeException e)
+		{
+			System.out.println(String.format("%-42s %6d %5s (exceo: %s)", pBench.getName(), iSize, sMode, e));
+			sLine = null;
+		}
+		finally
+		{
+			m_pSink = null;
+			pBench.tearDown();
+		}
+		return sLine;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o total de memria alocada pelas threads existentes.
+	 * 
+	 * @return Nmero de bytes alocados, ou -1 se a mquina virtual no disponibiliza essa informao.
+	 */
+	private static long getAllocatedBytes()
+	{
+		ThreadMXBean pBean = ManagementFactory.getThreadMXBean();
+		if(!(pBean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		
+		com.sun.management.ThreadMXBean pSunBean = (com.sun.management.ThreadMXBean) pBean;
+		if(!pSunBean.isThreadAllocatedMemorySupported() || !pSunBean.isThreadAllocatedMemoryEnabled())
+			return -1;
+		
+		long aBytes[] = pSunBean.getThreadAllocatedBytes(pSunBean.getAllThreadIds());
+		long lTotal = 0;
+		for(int i = 0; i < aBytes.length; i++)
+		{
+			if(aBytes[i] > 0)
+				lTotal += aBytes[i];
+		}
+		return lTotal;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o nmero total de coletas de lixo ocorridas.
+	 * 
+	 * @return Nmero de coletas.
+	 */
+	private static long getGCCount()
+	{
+		long lTotal = 0;
+		Iterator<GarbageCollectorMXBean> it = ManagementFactory.getGarbageCollectorMXBeans().iterator();
+		while(it.hasNext())
+			lTotal += Math.max(0, it.next().getCollectionCount());
+		return lTotal;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o tempo total gasto em coletas de lixo.
+	 * 
+	 * @return Tempo em milissegundos.
+	 */
+	private static long getGCTime()
+	{
+		long lTotal = 0;
+		Iterator<GarbageCollectorMXBean> it = ManagementFactory.getGarbageCollectorMXBeans().iterator();
+		while(it.hasNext())
+			lTotal += Math.max(0, it.next().getCollectionTime());
+		return lTotal;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import java.io.*;
+
+import core.errors.*;
+import core.images.*;
+
+/**
+ * Caso de medio de desempenho da leitura ou gravao de imagens em arquivo, em um dos formatos suportados pela
+ * classe CFormatFactory. Os arquivos so gravados no diretrio temporrio do sistema. Na leitura, a imagem 
+ * renderizada a cada execuo, pois a decodificao do arquivo  adiada at a utilizao dos pixels.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CFormatFactory
+ */
+
+public class CFormatBenchmark extends CBenchmark
+{
+	/** Membro privado utilizado para armazenar o formato medido. */
+	private CFormatFactory.CFormatEnum m_eFormat;
+	
+	/** Membro privado utilizado para indicar se o caso mede a gravao (true) ou a leitura (false). */
+	private boolean m_bSave;
+	
+	/** Membro privado utilizado para armazenar a imagem gravada. */
+	private CImage m_pImage;
+	
+	/** Membro privado utilizado para armazenar o arquivo temporrio utilizado. */
+	private File m_fFile;
+	
+	/**
+	 * Construtor da classe.
+	 * 
+	 * @param eFormat Formato de arquivo medido.
+	 * @param bSave True para medir a gravao, false para medir a leitura.
+	 */
+	public CFormatBenchmark(CFormatFactory.CFormatEnum eFormat, boolean bSave)
+	{
+		super("CFormat." + (bSave ? "save:" : "load:") + CFormatFactory.getDefaultExtension(eFormat));
+		m_eFormat = eFormat;
+		m_bSave = bSave;
+	}
+	
+	/**
+	 * Cria a imagem e o arquivo temporrio. No caso da leitura, a imagem  gravada previamente no arquivo.
+	 * 
+	 * @param iSize Largura e altura, em pixels, da imagem.
+	 * @param bColored Indica se a imagem  colorida (true) ou em escala de cinza (false).
+	 * @return True se a imagem pde ser gravada no formato, false caso contrrio.
+	 */
+	public boolean setUp(int iSize, boolean bColored)
+	{
+		try
+		{
+			m_fFile = File.createTempFile("narciso-bench", "." + CFormatFactory.getDefaultExtension(m_eFormat));
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+		m_fFile.deleteOnExit();
+		
+		m_pImage = createImage(iSize, bColored, 1);
+		if(m_pImage.save(m_fFile.getPath(), m_eFormat) != CErrors.SUCCESS)
+		{
+			tearDown();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Grava ou l a imagem no arquivo temporrio.
+	 * 
+	 * @return Imagem gravada ou lida.
+	 */
+	public Object run()
+	{
+		if(m_bSave)
+		{
+			m_pImage.save(m_fFile.getPath(), m_eFormat);
+			return m_pImage;
+		}
+		
+		CImage pImage = new CImage(1, 1, true);
+		pImage.load(m_fFile.getPath(), m_eFormat);
+		pImage.render();
+		return pImage;
+	}
+	
+	/**
+	 * Libera a imagem e remove o arquivo temporrio.
+	 */
+	@Override
+	public void tearDown()
+	{
+		m_pImage = null;
+		if(m_fFile != null)
+			m_fFile.delete();
+		m_fFile = null;
+	}
+}
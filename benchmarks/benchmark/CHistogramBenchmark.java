@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import core.images.*;
+import core.info.*;
+
+/**
+ * Caso de medio de desempenho da construo de um histograma de 256 bins (classe CHistogram).
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CHistogram
+ */
+
+public class CHistogramBenchmark extends CBenchmark
+{
+	/** Membro privado utilizado para armazenar a imagem de entrada. */
+	private CImage m_pImage;
+	
+	/**
+	 * Construtor da classe.
+	 */
+	public CHistogramBenchmark()
+	{
+		super("CHistogram");
+	}
+	
+	/**
+	 * Cria a imagem de entrada.
+	 * 
+	 * @param iSize Largura e altura, em pixels, da imagem.
+	 * @param bColored Indica se a imagem  colorida (true) ou em escala de cinza (false).
+	 * @return Sempre true.
+	 */
+	public boolean setUp(int iSize, boolean bColored)
+	{
+		m_pImage = createImage(iSize, bColored, 1);
+		return true;
+	}
+	
+	/**
+	 * Constri o histograma da imagem.
+	 * 
+	 * @return Objeto CHistogram construdo.
+	 */
+	public Object run()
+	{
+		return new CHistogram(256, m_pImage);
+	}
+	
+	/**
+	 * Libera a imagem de entrada.
+	 */
+	@Override
+	public void tearDown()
+	{
+		m_pImage = null;
+	}
+}
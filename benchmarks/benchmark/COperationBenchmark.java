@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import java.util.*;
+
+import core.errors.*;
+import core.images.*;
+import core.operations.*;
+
+/**
+ * Caso de medio de desempenho da execuo de uma operao registrada no sistema Narciso. As imagens resultantes
+ * so renderizadas a cada execuo, de modo que o processamento das operaes baseadas no JAI (que  adiado at a
+ * utilizao dos pixels) seja efetivamente medido.
+ * 
+ * As operaes que requerem duas imagens (como as aritmticas e lgicas) so identificadas automaticamente na
+ * preparao, assim como as operaes que no se aplicam ao tipo de imagem (como a converso para escala de cinza
+ * de uma imagem j em escala de cinza), que so ignoradas.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see COperation
+ */
+
+public class COperationBenchmark extends CBenchmark
+{
+	/** Membro privado utilizado para armazenar a operao medida. */
+	private COperation m_pOperation;
+	
+	/** Membro privado utilizado para armazenar os parmetros de execuo da operao. */
+	private Properties m_pParams;
+	
+	/** Membro privado utilizado para armazenar as imagens de entrada da operao. */
+	private Vector<Object> m_vSource;
+	
+	/**
+	 * Construtor da classe.
+	 * 
+	 * @param pOperation Operao a ser medida.
+	 * @param pParams Parmetros de execuo da operao (normalmente obtidos do exemplo de parmetros registrado).
+	 */
+	public COperationBenchmark(COperation pOperation, Properties pParams)
+	{
+		super("op:" + pOperation.getClass().getSimpleName());
+		m_pOperation = pOperation;
+		m_pParams = pParams;
+	}
+	
+	/**
+	 * Prepara as imagens de entrada, executando a operao uma vez para determinar o nmero de imagens requerido
+	 * e se a operao se aplica ao tipo de imagem.
+	 * 
+	 * @param iSize Largura e altura, em pixels, das imagens utilizadas.
+	 * @param bColored Indica se as imagens so coloridas (true) ou em escala de cinza (false).
+	 * @return True se a operao pde ser executada, false caso contrrio.
+	 */
+	public boolean setUp(int iSize, boolean bColored)
+	{
+		m_vSource = new Vector<Object>();
+		m_vSource.add(createImage(iSize, bColored, 1));
+		
+		Properties pParams = new Properties();
+		pParams.putAll(m_pParams);
+		if(execute(pParams) != null)
+			return true;
+		
+		if(String.valueOf(CErrors.ERROR_WRONG_NUMBER_OF_SOURCES).equals(pParams.getProperty("error")))
+		{
+			m_vSource.add(createImage(iSize, bColored, 2));
+			pParams = new Properties();
+			pParams.putAll(m_pParams);
+			if(execute(pParams) != null)
+				return true;
+		}
+		
+		m_vSource = null;
+		return false;
+	}
+	
+	/**
+	 * Executa a operao sobre as imagens de entrada.
+	 * 
+	 * @return Vetor com os objetos resultantes.
+	 */
+	public Object run()
+	{
+		Properties pParams = new Properties();
+		pParams.putAll(m_pParams);
+		return execute(pParams);
+	}
+	
+	/**
+	 * Libera as imagens de entrada.
+	 */
+	@Override
+	public void tearDown()
+	{
+		m_vSource = null;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa a operao e renderiza as imagens resultantes.
+	 * 
+	 * @param pParams Parmetros de execuo.
+	 * @return Vetor com os objetos resultantes, ou null se ocorreu um erro.
+	 */
+	private Vector<Object> execute(Properties pParams)
+	{
+		Vector<Object> vResult = m_pOperation.execute(m_vSource, pParams);
+		if(vResult != null)
+		{
+			for(int i = 0; i < vResult.size(); i++)
+			{
+				if(vResult.get(i) instanceof CImage)
+					((CImage) vResult.get(i)).render();
+			}
+		}
+		return vResult;
+	}
+}
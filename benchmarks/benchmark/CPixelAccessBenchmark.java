@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package benchmark;
+
+import core.images.*;
+
+/**
+ * Caso de medio de desempenho do acesso individual aos pixels de uma imagem atravs dos mtodos getPixel e
+ * setPixel da classe CImage. Cada execuo percorre todos os pixels da imagem.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImage
+ */
+
+public class CPixelAccessBenchmark extends CBenchmark
+{
+	/** Membro privado utilizado para indicar se o caso mede a gravao (setPixel) ou a leitura (getPixel). */
+	private boolean m_bWrite;
+	
+	/** Membro privado utilizado para armazenar a imagem percorrida. */
+	private CImage m_pImage;
+	
+	/** Membro privado utilizado para armazenar o pixel gravado, no caso da medio de setPixel. */
+	private CPixel m_pPixel;
+	
+	/**
+	 * Construtor da classe.
+	 * 
+	 * @param bWrite True para medir o mtodo setPixel, false para medir o mtodo getPixel.
+	 */
+	public CPixelAccessBenchmark(boolean bWrite)
+	{
+		super(bWrite ? "CImage.setPixel" : "CImage.getPixel");
+		m_bWrite = bWrite;
+	}
+	
+	/**
+	 * Cria a imagem a ser percorrida.
+	 * 
+	 * @param iSize Largura e altura, em pixels, da imagem.
+	 * @param bColored Indica se a imagem  colorida (true) ou em escala de cinza (false).
+	 * @return Sempre true.
+	 */
+	public boolean setUp(int iSize, boolean bColored)
+	{
+		m_pImage = createImage(iSize, bColored, 1);
+		if(bColored)
+			m_pPixel = new CColorPixel(10, 20, 30);
+		else
+			m_pPixel = new CGrayScalePixel(128);
+		return true;
+	}
+	
+	/**
+	 * Percorre todos os pixels da imagem.
+	 * 
+	 * @return ltimo pixel lido (ou a prpria imagem, no caso da gravao).
+	 */
+	public Object run()
+	{
+		int iWidth = m_pImage.getWidth();
+		int iHeight = m_pImage.getHeight();
+		Object pLast = null;
+		
+		for(int Y = 0; Y < iHeight; Y++)
+		{
+			for(int X = 0; X < iWidth; X++)
+			{
+				if(m_bWrite)
+					m_pImage.setPixel(X, Y, m_pPixel);
+				else
+					pLast = m_pImage.getPixel(X, Y);
+			}
+		}
+		return (m_bWrite ? m_pImage : pLast);
+	}
+	
+	/**
+	 * Libera a imagem percorrida.
+	 */
+	@Override
+	public void tearDown()
+	{
+		m_pImage = null;
+	}
+}
@@ -0,0 +1 @@
+java -Xms256m -Xmx1024m -Djava.awt.headless=true -cp Narciso.jar core.batch.CBatchRunner %*
@@ -194,10 +194,11 @@ public class CCompareWindow extends JInternalFrame implements AdjustmentListener
 		final JPanel pLeftArea = new JPanel();
 		pLeftArea.setLayout(new BorderLayout());
 		m_pLeftScroll.setViewportView(pLeftArea);
+		pLImage.render();
 		m_pLDisplay = new ImageDisplay(pLImage.getPlanarImage());
 		pLeftArea.add(m_pLDisplay, BorderLayout.CENTER);
 
-		CHistogram pHist = new CHistogram(256, pLImage);
+		CHistogram pHist = CHistogram.getHistogram(256, pLImage);
 		m_aLDispHistogram = new ImageDisplay[pHist.getNumBands()];
 		for(int iBand = 0; iBand < pHist.getNumBands(); iBand++)
 		{
@@ -217,10 +218,11 @@ public class CCompareWindow extends JInternalFrame implements AdjustmentListener
 		final JPanel pRightArea = new JPanel();
 		pRightArea.setLayout(new BorderLayout());
 		m_pRightScroll.setViewportView(pRightArea);
+		pRImage.render();
 		m_pRDisplay = new ImageDisplay(pRImage.getPlanarImage());
 		pRightArea.add(m_pRDisplay, BorderLayout.CENTER);
 
-		pHist = new CHistogram(256, pRImage);
+		pHist = CHistogram.getHistogram(256, pRImage);
 		m_aRDispHistogram = new ImageDisplay[pHist.getNumBands()];
 		for(int iBand = 0; iBand < pHist.getNumBands(); iBand++)
 		{
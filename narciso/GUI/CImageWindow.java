@@ -26,6 +26,8 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 
@@ -50,7 +52,7 @@ import core.info.CHistogram;
 
 
 @SuppressWarnings("serial")
-public class CImageWindow extends JInternalFrame implements MouseListener, ChangeListener
+public class CImageWindow extends JInternalFrame implements MouseListener, ChangeListener, ActionListener
 {
 	/** Membro privado que armazena a imagem apresentada pela janela. */
 	private CImage m_pImage;
@@ -67,6 +69,9 @@ public class CImageWindow extends JInternalFrame implements MouseListener, Chang
 	/** Membro privado que armazena os objetos de exibio das imagens de grfico de histograma da imagem. */
 	private ImageDisplay m_aDispHistogram[];
 	
+	/** Membro privado que armazena a verso dos pixels da imagem apresentada (conforme CImage.getVersion). */
+	private long m_lVersion;
+	
 	/** Membro privado que armazena o texto do odmetro (coordenadas do pixel sobre mouse) para a imagem. */
 	private JLabel m_lblOdometer;
 
@@ -84,6 +89,15 @@ public class CImageWindow extends JInternalFrame implements MouseListener, Chang
 
 	/** Membro privado que armazena o objeto de alterao do zoom da lupa. */
 	private JSlider m_pZoomSlider;
+	
+	/** Membro privado que armazena o objeto de seleo da escala de exibio da imagem. */
+	private JComboBox<String> m_cbScale;
+	
+	/** Constante com as escalas de exibio da imagem disponveis para seleo. */
+	private static final double SCALES[] = { 1.0, 0.5, 0.25, 0.125, 0.0625, 0.03125 };
+	
+	/** Constante com os nomes das escalas de exibio da imagem disponveis para seleo. */
+	private static final String SCALE_NAMES[] = { "100%", "50%", "25%", "12,5%", "6,25%", "3,125%" };
 
 	/**
 	 * Construtor da classe.
@@ -110,19 +124,12 @@ public class CImageWindow extends JInternalFrame implements MouseListener, Chang
 		pImageArea.setLayout(new BorderLayout());
 		pScroll.setViewportView(pImageArea);
 		
+    	m_lVersion = pImage.getVersion();
+    	pImage.render();
     	m_pDisplay = new ImageDisplay(pImage.getPlanarImage());
     	pImageArea.add(m_pDisplay, BorderLayout.CENTER);
 
-		CHistogram pHist = new CHistogram(256, m_pImage);		
-		m_aDispHistogram = new ImageDisplay[pHist.getNumBands()];
-		for(int iBand = 0; iBand < pHist.getNumBands(); iBand++)
-		{
-			PlanarImage pTemp = pHist.createHistogramImage(iBand, 89, 30, null, false).getPlanarImage();
-			m_aDispHistogram[iBand] = new ImageDisplay(pTemp);
-			m_pDisplay.add(m_aDispHistogram[iBand]);
-			m_aDispHistogram[iBand].setBounds(5, 5 + (iBand * pTemp.getHeight() + 5), pTemp.getWidth(), pTemp.getHeight());
-			m_aDispHistogram[iBand].setVisible(false);
-		}
+		createHistograms(false);
     	
 		final JPanel panel = new JPanel();
 		panel.setLayout(new BorderLayout());
@@ -191,6 +198,13 @@ public class CImageWindow extends JInternalFrame implements MouseListener, Chang
 		pRightPanel.setLayout(flowLayout_1);
 		panel.add(pRightPanel, BorderLayout.CENTER);
 		
+		m_cbScale = new JComboBox<String>(SCALE_NAMES);
+		m_cbScale.setName("scale");
+		m_cbScale.setToolTipText("Escala de exibio da imagem");
+		m_cbScale.setPreferredSize(new Dimension(80, 16));
+		m_cbScale.addActionListener(this);
+		pRightPanel.add(m_cbScale);
+		
 		m_lblOdometer = m_pDisplay.getOdometer();
 		pRightPanel.add(m_lblOdometer);
 		//
@@ -314,6 +328,73 @@ public class CImageWindow extends JInternalFrame implements MouseListener, Chang
 		}
 	}
 	
+	/**
+	 * Mtodo utilizado para a captura do evento de seleo da escala de exibio da imagem. Escalas menores
+	 * do que 100% so exibidas a partir de verses reduzidas da imagem, de modo que apenas os pixels
+	 * necessrios para a exibio so processados.
+	 * 
+	 * @param e Objeto ActionEvent com o evento ocorrido.
+	 */
+	public void actionPerformed(ActionEvent e)
+	{
+		if(e.getSource() == m_cbScale)
+		{
+			m_pDisplay.setScale(SCALES[m_cbScale.getSelectedIndex()]);
+			if(m_pMagnifier != null)
+				m_pMagnifier.repaint();
+		}
+	}
+	
+	/**
+	 * Atualiza a exibio da imagem e dos seus histogramas, caso os pixels da imagem tenham sido alterados desde
+	 * a ltima exibio. Os ladrilhos (tiles) j convertidos pelo objeto de exibio so descartados, de modo que
+	 * as alteraes feitas diretamente nos pixels da imagem tambm sejam apresentadas.
+	 */
+	public void refresh()
+	{
+		long lVersion = m_pImage.getVersion();
+		if(lVersion == m_lVersion)
+			return;
+		m_lVersion = lVersion;
+		
+		m_pImage.render();
+		PlanarImage pImage = m_pImage.getPlanarImage();
+		if(pImage == m_pDisplay.getImage())
+			m_pDisplay.flushTiles();
+		else
+			m_pDisplay.set(pImage);
+		
+		createHistograms(m_aDispHistogram.length > 0 && m_aDispHistogram[0].isVisible());
+		if(m_pMagnifier != null)
+			m_pMagnifier.repaint();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria (ou recria) os objetos de exibio dos grficos de
+	 * histograma de cada banda da imagem, sobrepostos ao objeto de exibio da imagem.
+	 * 
+	 * @param bVisible Indica se os grficos devem ser exibidos.
+	 */
+	private void createHistograms(boolean bVisible)
+	{
+		if(m_aDispHistogram != null)
+		{
+			for(int iBand = 0; iBand < m_aDispHistogram.length; iBand++)
+				m_pDisplay.remove(m_aDispHistogram[iBand]);
+		}
+		
+		CHistogram pHist = CHistogram.getHistogram(256, m_pImage);		
+		m_aDispHistogram = new ImageDisplay[pHist.getNumBands()];
+		for(int iBand = 0; iBand < pHist.getNumBands(); iBand++)
+		{
+			PlanarImage pTemp = pHist.createHistogramImage(iBand, 89, 30, null, false).getPlanarImage();
+			m_aDispHistogram[iBand] = new ImageDisplay(pTemp);
+			m_pDisplay.add(m_aDispHistogram[iBand]);
+			m_aDispHistogram[iBand].setBounds(5, 5 + (iBand * pTemp.getHeight() + 5), pTemp.getWidth(), pTemp.getHeight());
+			m_aDispHistogram[iBand].setVisible(bVisible);
+		}
+	}
+	
 	/**
 	 * Mtodo getter para obteno do objeto da imagem em exibio.
 	 * @return Objeto CImage com a imagem em exibio.
@@ -137,6 +137,10 @@ public class CMagnifier extends JComponent
 		g2D.setColor(getBackground());
 		g2D.fillRect(0, 0, getWidth(), getHeight());
 		
+		// A imagem do objeto de exibio pode ter sido substituda aps a alterao dos pixels
+		if(m_pParent instanceof ImageDisplay)
+			m_pImage = ((ImageDisplay) m_pParent).getImage();
+		
 		if(m_pImage != null)
 		{
 			Dimension pDim = getSize();
@@ -146,8 +150,10 @@ public class CMagnifier extends JComponent
 			int iWidth = (int)((float) pDim.width / m_fMagnification + .5F) + 1;
 			int iHeight = (int)((float) pDim.height / m_fMagnification + .5F) + 1;
 			
-			int x = pPoint.x + (pDim.width - iWidth)/2 - pInsets.left;
-			int y = pPoint.y + (pDim.height - iHeight)/2 - pInsets.top;
+			// O centro da lupa  convertido para coordenadas da imagem, que pode estar exibida em outra escala
+			double dScale = (m_pParent instanceof ImageDisplay ? ((ImageDisplay) m_pParent).getScale() : 1.0);
+			int x = (int) ((pPoint.x + pDim.width/2 - pInsets.left) / dScale) - iWidth/2;
+			int y = (int) ((pPoint.y + pDim.height/2 - pInsets.top) / dScale) - iHeight/2;
 			
 			if(x < 0)
 				x = 0;
@@ -404,7 +404,8 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 	
 	/**
 	 * Mtodo protegido utilizado para executar uma operao registrada com o nome e texto de parmetros
-	 * informados.  utilizado pela janela quando o usurio executa uma operao simples. 
+	 * informados.  utilizado pela janela quando o usurio executa uma operao simples. A execuo ocorre em
+	 * segundo plano, acompanhada pela janela COperationProgressDialog.
 	 * @param sName Nome da operao a ser executada.
 	 * @param sParams Texto com os parmetros e seus respectivos valores. Segue o formato esperado pelo mtodo parseParams. 
 	 */
@@ -419,7 +420,7 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 				int i;
 				Properties pParams = parseParams(sParams);
 				Vector<CThumbnail> vThumbs = pWindow.getMarkedThumbs();
-				Vector<Object> vResult, vSource = new Vector<Object>();
+				Vector<Object> vSource = new Vector<Object>();
 				
 				for(i = 0; i < vThumbs.size(); i++)
 				{
@@ -427,22 +428,7 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 					vSource.add((Object) pImage);
 				}
 					
-				vResult = pOper.execute(vSource, pParams);
-				
-				if(vResult != null)
-				{
-					for(i = 0; i < vResult.size(); i++)
-					{
-						CImage pImage = (CImage) vResult.get(i);
-						pWindow.addImage(pImage);
-					}
-				}
-				else
-				{
-					int iError = Integer.parseInt((String) pParams.get("error"));
-					String sMsg = CErrors.getErrorDescription(iError);
-					JOptionPane.showMessageDialog(null, "Erro na execuo da operao [" + sName + "].\nDetalhes do erro:\nCdigo [" + iError + "]\nMensagem [" + sMsg + "]", "Erro", JOptionPane.ERROR_MESSAGE);
-				}
+				COperationProgressDialog.execute(pOper, vSource, pParams, "Erro na execuo da operao [" + sName + "].");
 			}
 		}
 		catch(Exception ex)
@@ -452,7 +438,8 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 	}
 	
 	/**
-	 * Mtodo protegido utilizado para executar um roteiro criado pelo usurio.  utilizado pela janela quando o usurio executa um roteiro de operaes. 
+	 * Mtodo protegido utilizado para executar um roteiro criado pelo usurio.  utilizado pela janela quando o usurio executa um roteiro de operaes.
+	 * A execuo ocorre em segundo plano, acompanhada pela janela COperationProgressDialog. 
 	 * @param aOper Matriz bidimensional com os nomes das operaes selecionadas e seus respectivos nmeros de iteraes.
 	 * @param sParams Texto com os parmetros e seus respectivos valores. Segue o formato esperado pelo mtodo parseParams. 
 	 */
@@ -483,7 +470,7 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 			
 			Properties pParams = parseParams(sParams);
 			Vector<CThumbnail> vThumbs = pWindow.getMarkedThumbs();
-			Vector<Object> vResult, vSource = new Vector<Object>();
+			Vector<Object> vSource = new Vector<Object>();
 				
 			for(i = 0; i < vThumbs.size(); i++)
 			{
@@ -491,22 +478,7 @@ public class COperationDialog extends JDialog implements ActionListener, ListSel
 				vSource.add((Object) pImage);
 			}
 					
-			vResult = pMacroOper.execute(vSource, pParams);
-				
-			if(vResult != null)
-			{
-				for(i = 0; i < vResult.size(); i++)
-				{
-					CImage pImage = (CImage) vResult.get(i);
-					pWindow.addImage(pImage);
-				}
-			}
-			else
-			{
-				int iError = Integer.parseInt((String) pParams.get("error"));
-				String sMsg = CErrors.getErrorDescription(iError);
-				JOptionPane.showMessageDialog(null, "Erro na execuo da operao em roteiro.\nDetalhes do erro:\nCdigo [" + iError + "]\nMensagem [" + sMsg + "]", "Erro", JOptionPane.ERROR_MESSAGE);
-			}
+			COperationProgressDialog.execute(pMacroOper, vSource, pParams, "Erro na execuo da operao em roteiro.");
 		}
 		catch(Exception ex)
 		{
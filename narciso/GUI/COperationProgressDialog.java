@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package GUI;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.*;
+
+import core.errors.*;
+import core.images.*;
+import core.operations.*;
+
+/**
+ * Classe utilizada para implementar a janela de acompanhamento da execuo de operaes e roteiros. A operao 
+ * executada em uma thread de segundo plano, de modo que a interface grfica continue respondendo durante o
+ * processamento. A janela exibe a etapa corrente (no caso de roteiros) e o nmero de imagens j processadas, e
+ * permite o cancelamento da execuo. As imagens resultantes so adicionadas  janela de miniaturas  medida que
+ * o processamento de cada imagem  concludo.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see IOperationMonitor
+ */
+
+@SuppressWarnings("serial")
+public class COperationProgressDialog extends JDialog implements ActionListener, IOperationMonitor
+{
+	/** Membro privado utilizado para conter o objeto de exibio da etapa corrente da execuo. */
+	private JLabel m_lblStep;
+	
+	/** Membro privado utilizado para conter o objeto de exibio do nmero de imagens processadas. */
+	private JProgressBar m_pbImages;
+	
+	/** Membro privado utilizado para conter o boto de cancelamento da execuo. */
+	private JButton m_btCancel;
+	
+	/** Membro privado utilizado para armazenar a tarefa de execuo em segundo plano. */
+	private COperationWorker m_pWorker;
+	
+	/** Membro privado utilizado para indicar que o usurio solicitou o cancelamento da execuo. */
+	private volatile boolean m_bCancelled = false;
+	
+	/**
+	 * Mtodo pblico e esttico utilizado para executar uma operao (ou roteiro) em segundo plano, exibindo a
+	 * janela de acompanhamento. O mtodo retorna imediatamente aps o incio da execuo.
+	 * 
+	 * @param pOper Objeto COperation com a operao a ser executada.
+	 * @param vSource Vetor com os objetos-fonte da operao.
+	 * @param pParams Objeto Properties com os parmetros da operao.
+	 * @param sErrorMessage Texto exibido no incio da mensagem de erro, caso a execuo falhe.
+	 */
+	public static void execute(COperation pOper, Vector<Object> vSource, Properties pParams, String sErrorMessage)
+	{
+		COperationProgressDialog pDlg = new COperationProgressDialog(pOper.getName(), vSource.size());
+		pDlg.m_pWorker = new COperationWorker(pDlg, pOper, vSource, pParams, sErrorMessage);
+		pParams.put(COperation.MONITOR_PARAM, pDlg);
+		pDlg.setVisible(true);
+		pDlg.m_pWorker.execute();
+	}
+	
+	/**
+	 * Construtor da classe.
+	 * 
+	 * @param sName Nome da operao em execuo.
+	 * @param iImages Nmero de imagens a serem processadas.
+	 */
+	public COperationProgressDialog(String sName, int iImages)
+	{
+		super();
+		setName("pOperationProgressDialog");
+		setModal(false);
+		setResizable(false);
+		setTitle("Executando Operao");
+		setBounds(100, 100, 400, 130);
+		setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+		
+		Toolkit tk = Toolkit.getDefaultToolkit();
+		Dimension screenSize = tk.getScreenSize();
+		setLocation((screenSize.width -  getSize().width) / 2, (screenSize.height - getSize().height) / 2);		
+		
+		final JPanel panel = new JPanel();
+		panel.setLayout(new GridLayout(2, 1, 5, 5));
+		panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 5, 10));
+		getContentPane().add(panel, BorderLayout.CENTER);
+		
+		m_lblStep = new JLabel();
+		m_lblStep.setText("Executando: " + sName);
+		panel.add(m_lblStep);
+		
+		m_pbImages = new JProgressBar(0, Math.max(iImages, 1));
+		m_pbImages.setStringPainted(true);
+		m_pbImages.setString("0 de " + iImages + " imagem(ns)");
+		panel.add(m_pbImages);
+		
+		final JPanel panel_1 = new JPanel();
+		final FlowLayout flowLayout = new FlowLayout();
+		flowLayout.setAlignment(FlowLayout.RIGHT);
+		panel_1.setLayout(flowLayout);
+		getContentPane().add(panel_1, BorderLayout.SOUTH);
+		
+		m_btCancel = new JButton();
+		m_btCancel.setName("cancel");
+		m_btCancel.setText("Cancelar");
+		m_btCancel.setPreferredSize(new Dimension(90, 25));
+		m_btCancel.addActionListener(this);
+		panel_1.add(m_btCancel);
+	}
+	
+	/**
+	 * Mtodo utilizado para capturar o acionamento do boto de cancelamento.
+	 * @param e Objeto ActionEvent com o evento ocorrido.
+	 */
+	public void actionPerformed(ActionEvent e)
+	{
+		m_bCancelled = true;
+		m_btCancel.setEnabled(false);
+		m_lblStep.setText("Cancelando...");
+	}
+	
+	/**
+	 * Indica se o usurio solicitou o cancelamento da execuo.
+	 * 
+	 * @return True se a execuo deve ser cancelada, false caso contrrio.
+	 */
+	public boolean isCancelled()
+	{
+		return m_bCancelled;
+	}
+	
+	/**
+	 * Exibe a etapa corrente do roteiro na janela de acompanhamento. Pode ser chamado a partir de qualquer thread.
+	 * 
+	 * @param sOperation Nome da operao da etapa.
+	 * @param iStep ndice da etapa (iniciando em 1).
+	 * @param iSteps Nmero total de etapas do roteiro.
+	 */
+	public void stepStarted(String sOperation, int iStep, int iSteps)
+	{
+		SwingUtilities.invokeLater(new CStepUpdate(this, "Executando: " + sOperation + " (etapa " + iStep + " de " + iSteps + ")"));
+	}
+	
+	/**
+	 * Publica os objetos resultantes de uma imagem concluda e atualiza o nmero de imagens processadas. Pode ser
+	 * chamado a partir de qualquer thread.
+	 * 
+	 * @param vResult Vetor com os objetos resultantes.
+	 * @param iDone Nmero de imagens j concludas.
+	 * @param iTotal Nmero total de imagens.
+	 */
+	public void resultAvailable(Vector<Object> vResult, int iDone, int iTotal)
+	{
+		m_pWorker.publishResult(vResult);
+		SwingUtilities.invokeLater(new CProgressUpdate(this, iDone, iTotal));
+	}
+	
+	/**
+	 * Classe interna para a implementao da execuo da operao em segundo plano.
+	 */
+	private static class COperationWorker extends SwingWorker<Vector<Object>, Vector<Object>>
+	{
+		/** Membro privado utilizado para armazenar a janela de acompanhamento. */
+		private COperationProgressDialog m_pDialog;
+		
+		/** Membro privado utilizado para armazenar a operao a ser executada. */
+		private COperation m_pOper;
+		
+		/** Membro privado utilizado para armazenar os objetos-fonte da operao. */
+		private Vector<Object> m_vSource;
+		
+		/** Membro privado utilizado para armazenar os parmetros da operao. */
+		private Properties m_pParams;
+		
+		/** Membro privado utilizado para armazenar o texto inicial da mensagem de erro. */
+		private String m_sErrorMessage;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pDialog Janela de acompanhamento.
+		 * @param pOper Operao a ser executada.
+		 * @param vSource Objetos-fonte da operao.
+		 * @param pParams Parmetros da operao.
+		 * @param sErrorMessage Texto inicial da mensagem de erro.
+		 */
+		public COperationWorker(COperationProgressDialog pDialog, COperation pOper, Vector<Object> vSource, Properties pParams, String sErrorMessage)
+		{
+			m_pDialog = pDialog;
+			m_pOper = pOper;
+			m_vSource = vSource;
+			m_pParams = pParams;
+			m_sErrorMessage = sErrorMessage;
+		}
+		
+		/**
+		 * Executa a operao na thread de segundo plano.
+		 * 
+		 * @return Vetor com os objetos resultantes, ou null se ocorreu um erro.
+		 */
+		@Override
+		protected Vector<Object> doInBackground()
+		{
+			return m_pOper.executeParallel(m_vSource, m_pParams);
+		}
+		
+		/**
+		 * Adiciona  janela de miniaturas as imagens resultantes j concludas e atualiza as janelas de imagem
+		 * alteradas. Executado na thread de eventos.
+		 * 
+		 * @param lResults Lista com os vetores de objetos resultantes publicados desde a ltima chamada.
+		 */
+		@Override
+		protected void process(List<Vector<Object>> lResults)
+		{
+			CThumbnailWindow pWindow = CWindowManager.getThumbnailWindow();
+			for(int i = 0; i < lResults.size(); i++)
+			{
+				Vector<Object> vResult = lResults.get(i);
+				for(int j = 0; j < vResult.size(); j++)
+				{
+					if(vResult.get(j) instanceof CImage)
+						pWindow.addImage((CImage) vResult.get(j));
+				}
+			}
+			CWindowManager.refreshImageWindows();
+		}
+		
+		/**
+		 * Encerra a janela de acompanhamento, atualiza as janelas de imagem alteradas e exibe o erro ocorrido, se
+		 * houver. Executado na thread de eventos.
+		 */
+		@Override
+		protected void done()
+		{
+			m_pDialog.dispose();
+			CWindowManager.refreshImageWindows();
+			
+			Vector<Object> vResult;
+			try
+			{
+				vResult = get();
+			}
+			catch(InterruptedException e)
+			{
+				return;
+			}
+			catch(ExecutionException e)
+			{
+				if(e.getCause() instanceof Exception)
+					CExceptionDialog.showException((Exception) e.getCause());
+				else
+					CExceptionDialog.showException(e);
+				return;
+			}
+			
+			if(vResult != null)
+				return;
+			
+			String sError = m_pParams.getProperty("error");
+			int iError = (sError == null ? CErrors.ERROR_UNEXPECTED_ERROR : Integer.parseInt(sError));
+			if(iError == CErrors.ERROR_OPERATION_CANCELLED)
+				JOptionPane.showMessageDialog(null, "A execuo foi cancelada. As imagens j concludas foram mantidas.", "Aviso", JOptionPane.INFORMATION_MESSAGE);
+			else
+			{
+				String sMsg = CErrors.getErrorDescription(iError);
+				JOptionPane.showMessageDialog(null, m_sErrorMessage + "\nDetalhes do erro:\nCdigo [" + iError + "]\nMensagem [" + sMsg + "]", "Erro", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+		
+		/**
+		 * Publica os objetos resultantes de uma imagem concluda, para sua adio  janela de miniaturas.
+		 * 
+		 * @param vResult Vetor com os objetos resultantes.
+		 */
+		@SuppressWarnings("unchecked")
+		public void publishResult(Vector<Object> vResult)
+		{
+			publish(vResult);
+		}
+	}
+	
+	/**
+	 * Classe interna para a atualizao, na thread de eventos, do texto da etapa corrente.
+	 */
+	private static class CStepUpdate implements Runnable
+	{
+		/** Membro privado utilizado para armazenar a janela de acompanhamento. */
+		private COperationProgressDialog m_pDialog;
+		
+		/** Membro privado utilizado para armazenar o texto da etapa. */
+		private String m_sText;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pDialog Janela de acompanhamento.
+		 * @param sText Texto da etapa.
+		 */
+		public CStepUpdate(COperationProgressDialog pDialog, String sText)
+		{
+			m_pDialog = pDialog;
+			m_sText = sText;
+		}
+		
+		/**
+		 * Atualiza o texto da etapa, exceto se o cancelamento j tiver sido solicitado.
+		 */
+		public void run()
+		{
+			if(m_pDialog.m_btCancel.isEnabled())
+				m_pDialog.m_lblStep.setText(m_sText);
+		}
+	}
+	
+	/**
+	 * Classe interna para a atualizao, na thread de eventos, do nmero de imagens processadas.
+	 */
+	private static class CProgressUpdate implements Runnable
+	{
+		/** Membro privado utilizado para armazenar a janela de acompanhamento. */
+		private COperationProgressDialog m_pDialog;
+		
+		/** Membro privado utilizado para armazenar o nmero de imagens concludas. */
+		private int m_iDone;
+		
+		/** Membro privado utilizado para armazenar o nmero total de imagens. */
+		private int m_iTotal;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pDialog Janela de acompanhamento.
+		 * @param iDone Nmero de imagens concludas.
+		 * @param iTotal Nmero total de imagens.
+		 */
+		public CProgressUpdate(COperationProgressDialog pDialog, int iDone, int iTotal)
+		{
+			m_pDialog = pDialog;
+			m_iDone = iDone;
+			m_iTotal = iTotal;
+		}
+		
+		/**
+		 * Atualiza a barra de progresso.
+		 */
+		public void run()
+		{
+			m_pDialog.m_pbImages.setMaximum(Math.max(m_iTotal, 1));
+			m_pDialog.m_pbImages.setValue(m_iDone);
+			m_pDialog.m_pbImages.setString(m_iDone + " de " + m_iTotal + " imagem(ns)");
+		}
+	}
+}
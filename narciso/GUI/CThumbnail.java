@@ -27,6 +27,7 @@ import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.*;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 import core.images.*;
@@ -55,6 +56,12 @@ public class CThumbnail extends JPanel implements MouseListener
 	/** Membro privado utilizado para armazenar o estado indicadivo de miniatura selecionada ou no. */
 	private boolean m_bChecked;
 	
+	/** Constante com o tamanho, em pixels, da miniatura. */
+	private static final int THUMBNAIL_SIZE = 100;
+	
+	/** Membro privado utilizado para armazenar a tarefa de gerao da miniatura em andamento. */
+	private CThumbnailWorker m_pWorker;
+	
 	/**
 	 * Construtor da classe.
 	 * @param pThumbnailWindow Objeto da janela de miniaturas onde a miniatura ser exibida.
@@ -68,7 +75,7 @@ public class CThumbnail extends JPanel implements MouseListener
 		addMouseListener(this);
 		
 		notifyImageChange(pImage);
-		setPreferredSize(new Dimension(100, 100));
+		setPreferredSize(new Dimension(THUMBNAIL_SIZE, THUMBNAIL_SIZE));
 		
 		setToolTipText("Clique para marcar/desmarcar e duplo clique para abrir");
 		setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
@@ -85,7 +92,8 @@ public class CThumbnail extends JPanel implements MouseListener
 	
 	/**
 	 * Mtodo pblico utilizado para notificar a miniatura quando ocorrerem mudanas na imagem original,
-	 * de modo que uma nova miniatura possa ser preparada.
+	 * de modo que uma nova miniatura possa ser preparada. A miniatura  gerada em segundo plano (pela classe
+	 * CThumbnailGenerator), e exibida quando estiver pronta.
 	 * @param pImage Novo objeto CImage com a imagem a ser miniaturizada.
 	 */
 	public void notifyImageChange(CImage pImage)
@@ -93,9 +101,10 @@ public class CThumbnail extends JPanel implements MouseListener
 		try
 		{
 			m_pImage = pImage;
-			BufferedImage pBuffer = m_pImage.getPlanarImage().getAsBufferedImage();
-			ImageIcon pIcon = new ImageIcon(pBuffer);
-			m_pThumbnail = new ImageIcon(pIcon.getImage().getScaledInstance(100, 100, Image.SCALE_DEFAULT));
+			if(m_pWorker != null)
+				m_pWorker.cancel(false);
+			m_pWorker = new CThumbnailWorker(this, pImage);
+			m_pWorker.execute();
 		}
 		catch(Exception ex)
 		{
@@ -141,7 +150,12 @@ public class CThumbnail extends JPanel implements MouseListener
 		try
 		{
 			super.paintComponent(g);
-			g.drawImage(m_pThumbnail.getImage(), 0, 0, null);
+			if(m_pThumbnail != null)
+			{
+				int x = (getWidth() - m_pThumbnail.getIconWidth()) / 2;
+				int y = (getHeight() - m_pThumbnail.getIconHeight()) / 2;
+				m_pThumbnail.paintIcon(this, g, x, y);
+			}
 			if(m_bChecked)
 			{
 				Graphics2D g2 = (Graphics2D) g;
@@ -224,4 +238,68 @@ public class CThumbnail extends JPanel implements MouseListener
 	 * obrigao de implementao da interface de mouse, requerida para a captura do evento mouseClicked. 
 	 */
 	public void mouseDragged(MouseEvent arg0) {}
-}
\ No newline at end of file
+
+	/**
+	 * Classe interna para a implementao da gerao da miniatura em segundo plano.
+	 */
+	private static class CThumbnailWorker extends SwingWorker<BufferedImage, Void>
+	{
+		/** Membro privado utilizado para armazenar o objeto da miniatura a ser atualizado. */
+		private CThumbnail m_pOwner;
+		
+		/** Membro privado utilizado para armazenar a imagem a ser miniaturizada. */
+		private CImage m_pImage;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pOwner Objeto da miniatura a ser atualizado.
+		 * @param pImage Objeto CImage com a imagem a ser miniaturizada.
+		 */
+		public CThumbnailWorker(CThumbnail pOwner, CImage pImage)
+		{
+			m_pOwner = pOwner;
+			m_pImage = pImage;
+		}
+		
+		/**
+		 * Gera a miniatura na thread de segundo plano.
+		 * 
+		 * @return Objeto BufferedImage com a miniatura.
+		 */
+		@Override
+		protected BufferedImage doInBackground()
+		{
+			return CThumbnailGenerator.getInstance().getThumbnail(m_pImage, THUMBNAIL_SIZE);
+		}
+		
+		/**
+		 * Exibe a miniatura gerada, se a imagem da miniatura no foi alterada nesse meio tempo. Executado na
+		 * thread de eventos.
+		 */
+		@Override
+		protected void done()
+		{
+			if(isCancelled() || m_pOwner.m_pWorker != this)
+				return;
+			m_pOwner.m_pWorker = null;
+			
+			try
+			{
+				m_pOwner.m_pThumbnail = new ImageIcon(get());
+				m_pOwner.repaint();
+			}
+			catch(InterruptedException e)
+			{
+				return;
+			}
+			catch(ExecutionException e)
+			{
+				if(e.getCause() instanceof Exception)
+					CExceptionDialog.showException((Exception) e.getCause());
+				else
+					CExceptionDialog.showException(e);
+			}
+		}
+	}
+}
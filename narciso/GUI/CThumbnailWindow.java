@@ -158,6 +158,7 @@ public class CThumbnailWindow extends JInternalFrame implements KeyListener
 			{
 				if ( m_sWindowName.compareToIgnoreCase(m_sImageString)==0 )
 				{
+					m_aAllInternalWindow.get(i).refresh();
 					((JInternalFrame) m_aAllInternalWindow.get(i)).moveToFront();
 					((JInternalFrame) m_aAllInternalWindow.get(i)).setSelected(true);	
 					m_bExistsImageWindow = true ;								
@@ -121,6 +121,17 @@ public class CWindowManager
 		return pRet ;
 	}
 
+	/**
+	 * Mtodo utilizado para atualizar a exibio das janelas de imagem abertas cujas imagens tenham sido
+	 * alteradas (por exemplo, por uma operao que altera diretamente os pixels das imagens de origem).
+	 */
+	public static void refreshImageWindows()
+	{
+		Vector<CImageWindow> vWindows = getOpenedImageWindow();
+		for(int i = 0; i < vWindows.size(); i++)
+			vWindows.get(i).refresh();
+	}
+	
 	/**
 	 * Mtodo utilizado para exibir a janela de dilogo de execuo de operaes ou roteiros.
 	 */
@@ -35,6 +35,8 @@ import java.awt.*;
 import java.awt.image.*;
 import java.awt.event.*;
 import java.awt.geom.*;
+import java.awt.image.renderable.ParameterBlock;
+import java.util.*;
 import javax.media.jai.*;
 import javax.swing.*;
 
@@ -48,6 +50,14 @@ import javax.swing.*;
  * 1, 2, 3, 4, and TYPE_USHORT of band 1, 2, 3 images can be displayed
  * using this widget.
  *
+ * <p> Converted tiles are kept in a bounded LRU cache, so repaints and
+ * panning only convert the tiles that were not displayed recently.  When
+ * brightness is enabled, the lookup table is applied once per tile and the
+ * result is cached; changing the brightness discards the cached tiles.
+ * Views scaled below 100% are drawn from a pyramid of 2:1 area-averaged
+ * versions of the source, built on demand, so only about as many source
+ * pixels as screen pixels are touched per paint.
+ *
  * @author Daniel Rice
  * @author Dennis Sigel
  */
@@ -95,13 +105,30 @@ public class ImageDisplay extends JComponent
     protected boolean brightnessEnabled = false;
     protected int brightness = 0;
     protected byte[] lutData;
+    protected LookupOp lookup = null;
+
+    /** Display scale (1.0 is 100%) */
+    protected double scale = 1.0;
+
+    /** Multi-resolution pyramid; level k is the source reduced by 2^k. */
+    protected ArrayList<PlanarImage> pyramid = new ArrayList<PlanarImage>();
+
+    /** Converted tiles, keyed by pyramid level and tile indices. */
+    protected TileCache tileCache = new TileCache(DEFAULT_TILE_CACHE_SIZE);
+
+    /** Default tile cache capacity, in bytes. */
+    public static final long DEFAULT_TILE_CACHE_SIZE = Math.min(64L << 20, Runtime.getRuntime().maxMemory() / 16);
 
     /** Initializes the ImageDisplay. */
     private synchronized void initialize() {
+        pyramid.clear();
+        tileCache.clear();
         if ( source == null ) return;
 
-        componentWidth  = source.getWidth();
-        componentHeight = source.getHeight();
+        pyramid.add(source);
+
+        componentWidth  = getScaledWidth();
+        componentHeight = getScaledHeight();
 
         setPreferredSize(new Dimension(componentWidth, componentHeight));
 
@@ -243,8 +270,8 @@ public class ImageDisplay extends JComponent
             w = width;
             h = height;
         } else {
-            w = source.getWidth();
-            h = source.getHeight();
+            w = getScaledWidth();
+            h = getScaledHeight();
 
             if ( width < w ) {
                 w = width;
@@ -267,20 +294,112 @@ public class ImageDisplay extends JComponent
         super.setLocation(x, y);
     }
 
-    private final int XtoTileX(int x) {
-        return (int) Math.floor((double) (x - tileGridXOffset)/tileWidth);
+    /**
+     * Sets the display scale.  Values below 1.0 zoom out, using the
+     * pyramid level closest to (and not smaller than) the requested
+     * scale; values above 1.0 zoom in with nearest neighbor sampling.
+     *
+     * @param s the new scale, greater than zero (1.0 is 100%).
+     */
+    public void setScale(double s) {
+        if ( s <= 0 ) {
+            throw new IllegalArgumentException("scale must be positive");
+        }
+
+        if ( s != scale ) {
+            scale = s;
+            if ( source != null ) {
+                componentWidth  = getScaledWidth();
+                componentHeight = getScaledHeight();
+                setPreferredSize(new Dimension(componentWidth, componentHeight));
+                revalidate();
+            }
+            repaint();
+        }
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Sets the capacity of the converted tile cache.
+     *
+     * @param bytes the capacity in bytes; 0 disables the cache.
+     */
+    public synchronized void setTileCacheSize(long bytes) {
+        tileCache.setCapacity(bytes);
+    }
+
+    public synchronized long getTileCacheSize() {
+        return tileCache.getCapacity();
+    }
+
+    /**
+     * Discards the converted tiles and the pyramid, so the next paint
+     * reads the source again.  Must be called when the pixels of the
+     * source image are changed in place.
+     */
+    public synchronized void flushTiles() {
+        initialize();
+        repaint();
+    }
+
+    private final int getScaledWidth() {
+        return Math.max(1, (int) Math.ceil(source.getWidth()*scale));
+    }
+
+    private final int getScaledHeight() {
+        return Math.max(1, (int) Math.ceil(source.getHeight()*scale));
+    }
+
+    /** Returns the pyramid level to be drawn for the current scale. */
+    private final int getLevel() {
+        int level = 0;
+
+        // palette indices can not be averaged
+        if ( colorModel instanceof IndexColorModel ) {
+            return level;
+        }
+
+        double levelScale = 1.0;
+        while ( levelScale/2 >= scale ) {
+            PlanarImage im = getPyramidImage(level);
+            if ( im.getWidth() < 2 || im.getHeight() < 2 ) {
+                break;
+            }
+            levelScale /= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /** Returns (building it if needed) the given pyramid level. */
+    private final PlanarImage getPyramidImage(int level) {
+        while ( pyramid.size() <= level ) {
+            ParameterBlock pb = new ParameterBlock();
+            pb.addSource(pyramid.get(pyramid.size() - 1));
+            pb.add(0.5);
+            pb.add(0.5);
+            pyramid.add(JAI.create("SubsampleAverage", pb, null));
+        }
+        return pyramid.get(level);
+    }
+
+    private static final int XtoTileX(PlanarImage im, int x) {
+        return (int) Math.floor((double) (x - im.getTileGridXOffset())/im.getTileWidth());
     }
 
-    private final int YtoTileY(int y) {
-        return (int) Math.floor((double) (y - tileGridYOffset)/tileHeight);
+    private static final int YtoTileY(PlanarImage im, int y) {
+        return (int) Math.floor((double) (y - im.getTileGridYOffset())/im.getTileHeight());
     }
 
-    private final int TileXtoX(int tx) {
-        return tx*tileWidth + tileGridXOffset;
+    private static final int TileXtoX(PlanarImage im, int tx) {
+        return tx*im.getTileWidth() + im.getTileGridXOffset();
     }
 
-    private final int TileYtoY(int ty) {
-        return ty*tileHeight + tileGridYOffset;
+    private static final int TileYtoY(PlanarImage im, int ty) {
+        return ty*im.getTileHeight() + im.getTileGridYOffset();
     }
 
     @SuppressWarnings("unused")
@@ -304,9 +423,16 @@ public class ImageDisplay extends JComponent
         if ( brightnessEnabled == true ) {
             biop = new AffineTransformOp(new AffineTransform(),
                                          AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+            lookup = new LookupOp(new ByteLookupTable(0, lutData), null);
         } else {
             biop = null;
+            lookup = null;
         }
+
+        synchronized (this) {
+            tileCache.clear();
+        }
+        repaint();
     }
 
     public final boolean getBrightnessEnabled() {
@@ -315,22 +441,75 @@ public class ImageDisplay extends JComponent
 
     public final void setBrightness(int b) {
         if ( b != brightness && brightnessEnabled == true ) {
+            brightness = b;
             for ( int i = 0; i < 256; i++ ) {
                 lutData[i] = clampByte(i+b);
             }
 
+            // the lookup is applied once per tile: converted tiles are stale now
+            synchronized (this) {
+                lookup = new LookupOp(new ByteLookupTable(0, lutData), null);
+                tileCache.clear();
+            }
             repaint();
         }
     }
 
+    /**
+     * Returns the displayable version of a tile of a pyramid level,
+     * converting it (and applying the brightness lookup table) only if
+     * it is not in the tile cache.
+     */
+    private BufferedImage getDisplayTile(int level, PlanarImage im, int ti, int tj) {
+        TileKey key = new TileKey(level, ti, tj);
+        BufferedImage bi = tileCache.get(key);
+        if ( bi != null ) {
+            return bi;
+        }
+
+        Raster tile = im.getTile(ti, tj);
+        if ( tile == null ) {
+            return null;
+        }
+
+        DataBuffer dataBuffer = tile.getDataBuffer();
+
+        SampleModel sm = im.getSampleModel();
+        WritableRaster wr = tile.createWritableRaster(sm, dataBuffer, null);
+
+        ColorModel cm = (im.getColorModel() != null ? im.getColorModel() : colorModel);
+        bi = new BufferedImage(cm,
+                               wr,
+                               cm.isAlphaPremultiplied(),
+                               null);
+
+        // correctly handles band offsets
+        if ( brightnessEnabled == true ) {
+            sm = sm.createCompatibleSampleModel(tile.getWidth(), tile.getHeight());
+
+            WritableRaster raster = RasterFactory.createWritableRaster(sm, null);
+
+            BufferedImage bimg = new BufferedImage(cm,
+                                                   raster,
+                                                   cm.isAlphaPremultiplied(),
+                                                   null);
+
+            lookup.filter(bi, bimg);
+            bi = bimg;
+        }
+
+        tileCache.put(key, bi);
+        return bi;
+    }
+
     /**
      * Paint the image onto a Graphics object.  The painting is
-     * performed tile-by-tile, and includes a grey region covering the
-     * unused portion of image tiles as well as the general
-     * background.  At this point the image must be byte data.
+     * performed tile-by-tile, only for the tiles of the displayed
+     * pyramid level that intersect the clipping region, and includes a
+     * grey region covering the unused portion of image tiles as well as
+     * the general background.  At this point the image must be byte data.
      */
-    @SuppressWarnings("static-access")
-	public synchronized void paintComponent(Graphics g) {
+    public synchronized void paintComponent(Graphics g) {
 
         Graphics2D g2D = null;
         if (g instanceof Graphics2D) {
@@ -359,80 +538,74 @@ public class ImageDisplay extends JComponent
         // clear the background (clip it) [minimal optimization here]
         if ( transX > 0 ||
              transY > 0 ||
-             transX < (componentWidth-source.getWidth()) ||
-             transY < (componentHeight-source.getHeight())) {
+             transX < (componentWidth-getScaledWidth()) ||
+             transY < (componentHeight-getScaledHeight())) {
             g2D.setColor(getBackground());
             g2D.fillRect(0, 0, componentWidth, componentHeight);
         }
 
-        clipBounds.translate(-transX, -transY);
+        Insets insets = getInsets();
+
+        // Select the pyramid level; the remaining scale factor is at most 2.
+        int level = getLevel();
+        PlanarImage im = getPyramidImage(level);
+        double levelScale = scale*(1 << level);
+
+        // Translate the clipping rectangle into level coordinates.
+        double x0 = (clipBounds.x - transX - insets.left)/levelScale;
+        double y0 = (clipBounds.y - transY - insets.top)/levelScale;
+        double x1 = (clipBounds.x + clipBounds.width - transX - insets.left)/levelScale;
+        double y1 = (clipBounds.y + clipBounds.height - transY - insets.top)/levelScale;
+
+        int minTX = im.getMinTileX();
+        int maxTX = im.getMinTileX() + im.getNumXTiles() - 1;
+        int minTY = im.getMinTileY();
+        int maxTY = im.getMinTileY() + im.getNumYTiles() - 1;
 
         // Determine the extent of the clipping region in tile coordinates.
         int txmin, txmax, tymin, tymax;
         int ti, tj;
 
-        txmin = XtoTileX(clipBounds.x);
-        txmin = Math.max(txmin, minTileX);
-        txmin = Math.min(txmin, maxTileX);
+        txmin = XtoTileX(im, (int) Math.floor(x0));
+        txmin = Math.max(txmin, minTX);
+        txmin = Math.min(txmin, maxTX);
 
-        txmax = XtoTileX(clipBounds.x + clipBounds.width - 1);
-        txmax = Math.max(txmax, minTileX);
-        txmax = Math.min(txmax, maxTileX);
+        txmax = XtoTileX(im, (int) Math.ceil(x1) - 1);
+        txmax = Math.max(txmax, minTX);
+        txmax = Math.min(txmax, maxTX);
 
-        tymin = YtoTileY(clipBounds.y);
-        tymin = Math.max(tymin, minTileY);
-        tymin = Math.min(tymin, maxTileY);
+        tymin = YtoTileY(im, (int) Math.floor(y0));
+        tymin = Math.max(tymin, minTY);
+        tymin = Math.min(tymin, maxTY);
 
-        tymax = YtoTileY(clipBounds.y + clipBounds.height - 1);
-        tymax = Math.max(tymax, minTileY);
-        tymax = Math.min(tymax, maxTileY);
-        Insets insets = getInsets();
+        tymax = YtoTileY(im, (int) Math.ceil(y1) - 1);
+        tymax = Math.max(tymax, minTY);
+        tymax = Math.min(tymax, maxTY);
+
+        if ( levelScale < 1.0 ) {
+            g2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                 RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        } else {
+            g2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                 RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        }
 
         // Loop over tiles within the clipping region
         for (tj = tymin; tj <= tymax; tj++) {
             for (ti = txmin; ti <= txmax; ti++) {
-                int tx = TileXtoX(ti);
-                int ty = TileYtoY(tj);
-
-                Raster tile = source.getTile(ti, tj);
-                if ( tile != null ) {
-                    DataBuffer dataBuffer = tile.getDataBuffer();
-
-                    WritableRaster wr = tile.createWritableRaster(sampleModel,
-                                                                  dataBuffer,
-                                                                  null);
-
-                    BufferedImage bi = new BufferedImage(colorModel,
-                                                         wr,
-                                                         colorModel.isAlphaPremultiplied(),
-                                                         null);
+                int tx = TileXtoX(im, ti);
+                int ty = TileYtoY(im, tj);
 
-                    // correctly handles band offsets
-                    if ( brightnessEnabled == true ) {
-                        SampleModel sm = sampleModel.createCompatibleSampleModel(tile.getWidth(),
-                                                                                 tile.getHeight());
+                BufferedImage bi = getDisplayTile(level, im, ti, tj);
+                if ( bi != null ) {
+                    AffineTransform transform;
 
-                        WritableRaster raster = RasterFactory.createWritableRaster(sm, null);
+                    transform = AffineTransform.getTranslateInstance(transX + insets.left,
+                                                                     transY + insets.top);
+                    transform.scale(levelScale, levelScale);
+                    transform.translate(tx, ty);
 
-                        BufferedImage bimg = new BufferedImage(colorModel,
-                                                               raster,
-                                                               colorModel.isAlphaPremultiplied(),
-                                                               null);
-
-                        // don't move this code
-                        ByteLookupTable lutTable = new ByteLookupTable(0, lutData);
-                        LookupOp lookup = new LookupOp(lutTable, null);
-                        lookup.filter(bi, bimg);
-
-                        g2D.drawImage(bimg, biop, tx+transX+insets.left, ty+transY+insets.top);
-                    } else {
-                        AffineTransform transform;
-
-                        transform = AffineTransform.getTranslateInstance(tx + transX + insets.left,
-                                                                         ty + transY + insets.top);
-
-                        g2D.drawRenderedImage(bi, transform);
-                    }
+                    g2D.drawImage(bi, transform, null);
                 }
             }
         }
@@ -451,7 +624,7 @@ public class ImageDisplay extends JComponent
 		int mods = e.getModifiers();
 
         if ( odometer != null ) {
-             String output = " (" + p.x + ", " + p.y + ")";
+             String output = " (" + (int) (p.x/scale) + ", " + (int) (p.y/scale) + ")";
              odometer.setText(output);
         }
     }
@@ -460,7 +633,7 @@ public class ImageDisplay extends JComponent
         Point p = e.getPoint();
 
         if ( odometer != null ) {
-             String output = " (" + p.x + ", " + p.y + ")";
+             String output = " (" + (int) (p.x/scale) + ", " + (int) (p.y/scale) + ")";
              odometer.setText(output);
         }
     }
@@ -472,7 +645,7 @@ public class ImageDisplay extends JComponent
         Point p = e.getPoint();
 
         if ( odometer != null ) {
-             String output = " (" + p.x + ", " + p.y + ")";
+             String output = " (" + (int) (p.x/scale) + ", " + (int) (p.y/scale) + ")";
              odometer.setText(output);
         }
     }
@@ -480,5 +653,84 @@ public class ImageDisplay extends JComponent
     public final void mouseDragged(MouseEvent e) {
         mousePressed(e);
     }
-}
 
+    /** Key of a converted tile: pyramid level and tile indices. */
+    private static final class TileKey {
+        private final int level;
+        private final int tx;
+        private final int ty;
+
+        TileKey(int level, int tx, int ty) {
+            this.level = level;
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        public boolean equals(Object o) {
+            if ( !(o instanceof TileKey) ) {
+                return false;
+            }
+            TileKey k = (TileKey) o;
+            return k.level == level && k.tx == tx && k.ty == ty;
+        }
+
+        public int hashCode() {
+            return (level*31 + tx)*31 + ty;
+        }
+    }
+
+    /**
+     * LRU cache of converted tiles, bounded by the approximate number of
+     * bytes held by its tiles.
+     */
+    @SuppressWarnings("serial")
+    protected static final class TileCache extends LinkedHashMap<TileKey, BufferedImage> {
+        private long capacity;
+        private long size = 0;
+
+        TileCache(long capacity) {
+            super(64, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        long getCapacity() {
+            return capacity;
+        }
+
+        void setCapacity(long bytes) {
+            capacity = Math.max(0, bytes);
+            trim();
+        }
+
+        public BufferedImage put(TileKey key, BufferedImage bi) {
+            if ( capacity == 0 ) {
+                return null;
+            }
+            BufferedImage old = super.put(key, bi);
+            if ( old != null ) {
+                size -= bytes(old);
+            }
+            size += bytes(bi);
+            trim();
+            return old;
+        }
+
+        public void clear() {
+            super.clear();
+            size = 0;
+        }
+
+        private void trim() {
+            Iterator<BufferedImage> it = values().iterator();
+            while ( size > capacity && it.hasNext() ) {
+                size -= bytes(it.next());
+                it.remove();
+            }
+        }
+
+        private static long bytes(BufferedImage bi) {
+            DataBuffer db = bi.getRaster().getDataBuffer();
+            return (long) db.getSize()*db.getNumBanks()*DataBuffer.getDataTypeSize(db.getDataType())/8;
+        }
+    }
+}
@@ -29,6 +29,8 @@ import javax.swing.*;
 import core.errors.*;
 import core.images.*;
 import java.io.*;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 import GUI.*;
 import GUI.filechoosers.*;
 
@@ -57,6 +59,8 @@ public class CFileLoadAction extends AbstractAction
 	
 	/**
 	 * Captura o evento de execuo da ao (clique em menu ou boto, pressionamento de tecla de atalho, etc).
+	 * Os arquivos selecionados so carregados em segundo plano por CImageLoader, e cada imagem  adicionada 
+	 * janela de miniaturas assim que  carregada.
 	 * @param e Objeto ActionEvent com o evento ocorrido.
 	 */
 	public void actionPerformed(ActionEvent e)
@@ -67,24 +71,14 @@ public class CFileLoadAction extends AbstractAction
 			int iRet = pDlg.showDialog();
 	        if(iRet == JFileChooser.APPROVE_OPTION)
 	        {
-	        	File fFile = pDlg.getSelectedFile();
-	        	CFormatFactory.CFormatEnum eFormat = CUtils.getFormatFactoryEnum(fFile);
-	        	if(eFormat == null)
+	        	Vector<String> vFiles = pDlg.getSelectedFiles();
+	        	if(vFiles.size() == 0)
 	        	{
-	        		JOptionPane.showMessageDialog(null, "O formato do arquivo " + fFile.getPath() + " no  reconhecido pelo Narciso.", "Formato Invlido", JOptionPane.ERROR_MESSAGE);
+	        		JOptionPane.showMessageDialog(null, "Nenhum arquivo de imagem reconhecido pelo Narciso foi selecionado.", "Formato Invlido", JOptionPane.ERROR_MESSAGE);
 	        		return;
 	        	}
 	        	
-	        	CImage pImage = new CImage(10, 10, true);
-	        	iRet = pImage.load(fFile.getPath(), eFormat);
-	        	if(iRet != CErrors.SUCCESS)
-	        	{
-	        		JOptionPane.showMessageDialog(null, "Ocorreu um erro no carregamento do arquivo " + fFile.getPath() + ".\nMensagem de erro: " + CErrors.getErrorDescription(iRet), "Erro no Carregamento do Arquivo", JOptionPane.ERROR_MESSAGE);
-	        		return;
-	        	}
-
-	        	CThumbnailWindow pWindow = CWindowManager.getThumbnailWindow();
-	        	pWindow.addImage(pImage);
+	        	CImageLoader.getInstance().load(vFiles, new CLoadListener());
 	        }
 		}
 		catch(Exception ex)
@@ -92,4 +86,123 @@ public class CFileLoadAction extends AbstractAction
 			CExceptionDialog.showException(ex);
 		}
 	}
+	
+	/**
+	 * Classe privada utilizada para receber as imagens carregadas em segundo plano e repass-las  thread de
+	 * eventos. Os erros de carregamento so acumulados e exibidos em uma nica mensagem ao final.
+	 */
+	private static class CLoadListener implements IImageLoadListener
+	{
+		/** Membro privado utilizado para armazenar as mensagens dos arquivos que no puderam ser carregados. */
+		private Vector<String> m_vErrors = new Vector<String>();
+		
+		/** Membro privado utilizado para contar os arquivos cujas notificaes j foram tratadas. */
+		private AtomicInteger m_pHandled = new AtomicInteger(0);
+		
+		/**
+		 * Recebe uma imagem carregada e a adiciona  janela de miniaturas.
+		 * 
+		 * @param sFile Nome do arquivo carregado.
+		 * @param pImage Objeto CImage com a imagem carregada.
+		 * @param iDone Nmero de arquivos j concludos.
+		 * @param iTotal Nmero total de arquivos.
+		 */
+		public void imageLoaded(String sFile, CImage pImage, int iDone, int iTotal)
+		{
+			SwingUtilities.invokeLater(new CAddImage(pImage));
+			if(m_pHandled.incrementAndGet() == iTotal)
+				finished();
+		}
+		
+		/**
+		 * Recebe a notificao de um arquivo que no pde ser carregado.
+		 * 
+		 * @param sFile Nome do arquivo.
+		 * @param iError Cdigo de erro do carregamento.
+		 * @param iDone Nmero de arquivos j concludos.
+		 * @param iTotal Nmero total de arquivos.
+		 */
+		public void imageFailed(String sFile, int iError, int iDone, int iTotal)
+		{
+			m_vErrors.add(sFile + ": " + CErrors.getErrorDescription(iError));
+			if(m_pHandled.incrementAndGet() == iTotal)
+				finished();
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Exibe os erros acumulados, se houver algum.  chamado
+		 * uma nica vez, aps o tratamento das notificaes de todos os arquivos.
+		 */
+		private void finished()
+		{
+			if(m_vErrors.size() > 0)
+				SwingUtilities.invokeLater(new CShowErrors(m_vErrors));
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para adicionar uma imagem  janela de miniaturas na thread de eventos.
+	 */
+	private static class CAddImage implements Runnable
+	{
+		/** Membro privado utilizado para armazenar a imagem a ser adicionada. */
+		private CImage m_pImage;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pImage Objeto CImage com a imagem a ser adicionada.
+		 */
+		public CAddImage(CImage pImage)
+		{
+			m_pImage = pImage;
+		}
+		
+		/**
+		 * Adiciona a imagem  janela de miniaturas.
+		 */
+		public void run()
+		{
+			CThumbnailWindow pWindow = CWindowManager.getThumbnailWindow();
+			pWindow.addImage(m_pImage);
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para exibir os erros de carregamento na thread de eventos.
+	 */
+	private static class CShowErrors implements Runnable
+	{
+		/** Membro privado utilizado para armazenar as mensagens de erro. */
+		private Vector<String> m_vErrors;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param vErrors Vetor com as mensagens de erro.
+		 */
+		public CShowErrors(Vector<String> vErrors)
+		{
+			m_vErrors = vErrors;
+		}
+		
+		/**
+		 * Exibe as mensagens de erro.
+		 */
+		public void run()
+		{
+			StringBuffer sMsg = new StringBuffer("Ocorreram erros no carregamento dos arquivos:");
+			int iCount = 0;
+			for(String sError: m_vErrors)
+			{
+				if(++iCount > 20)
+				{
+					sMsg.append("\n(e mais " + (m_vErrors.size() - 20) + " arquivos)");
+					break;
+				}
+				sMsg.append("\n" + sError);
+			}
+			JOptionPane.showMessageDialog(null, sMsg.toString(), "Erro no Carregamento dos Arquivos", JOptionPane.ERROR_MESSAGE);
+		}
+	}
 }
\ No newline at end of file
@@ -25,10 +25,11 @@ package GUI.filechoosers;
 import javax.swing.*;
 import java.beans.*;
 import java.awt.*;
-import java.awt.image.renderable.ParameterBlock;
-import java.awt.image.renderable.RenderableImage;
+import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.media.jai.*;
+import java.util.concurrent.ExecutionException;
+
+import core.images.*;
 
 /**
  * Classe utilizada para a construo da janela de seleo de arquivos do sistema Narciso. Esta classe
@@ -47,6 +48,12 @@ public class CImagePreview extends JComponent implements PropertyChangeListener
 	
 	/** Membro privado utilizado para armazenar o objeto File para manipulao do arquivo selecioando. */
     private File m_fFile = null;
+    
+    /** Membro privado utilizado para armazenar a tarefa de gerao da miniatura em andamento. */
+    private CPreviewWorker m_pWorker = null;
+    
+    /** Constante com o tamanho, em pixels, da miniatura (preview). */
+    private static final int PREVIEW_SIZE = 150;
 
     /**
      * Construtor da classe.
@@ -59,51 +66,25 @@ public class CImagePreview extends JComponent implements PropertyChangeListener
     }
 
     /**
-     * Mtodo utilizado para carregar o arquivo de imagem selecionado, para a exibio do preview.
+     * Mtodo utilizado para carregar o arquivo de imagem selecionado, para a exibio do preview. A miniatura 
+     * gerada em segundo plano (pela classe CThumbnailGenerator), e exibida quando estiver pronta.
      */
     public void loadImage()
     {
         if (m_fFile == null)
         {
         	m_pThumbnail = null;
+        	m_pWorker = null;
             return;
         }
 
-        PlanarImage pTemp = JAI.create("fileload", m_fFile.getPath());
-        
-        ParameterBlock pPB = new ParameterBlock();
-        pPB.addSource(pTemp);
-        pPB.add(null);
-        pPB.add(null);
-        pPB.add(null);
-        pPB.add(null);
-        pPB.add(null);
-        RenderableImage pRend = JAI.createRenderable("renderable", pPB);
-        
-        pPB = new ParameterBlock();
-        pPB.addSource(pRend);
-                
-        int iFixed = 150;
-        double dPercent;
-        int iWidth = pTemp.getWidth();
-        int iHeight = pTemp.getHeight();
-        
-        if(iWidth > iHeight) // Se  mais alta do que larga
-        {
-        	dPercent = (iFixed * 100.0 / iHeight);
-        	iHeight = iFixed;
-        	iWidth = (int) (iWidth * (dPercent / 100.0));
-        }
-        else // Se  mais larga do que alta
-        {
-        	dPercent = (iFixed * 100.0 / iWidth);
-        	iWidth = iFixed;
-        	iHeight = (int) (iHeight * (dPercent / 100.0));        	
-        }
-        
-        PlanarImage pTarget = (PlanarImage) pRend.createScaledRendering(iWidth, iHeight, null);
+        if (m_pWorker != null && m_pWorker.getFile().equals(m_fFile))
+        	return;
         
-        m_pThumbnail = new ImageIcon(pTarget.getAsBufferedImage());
+        if (m_pWorker != null)
+        	m_pWorker.cancel(false);
+        m_pWorker = new CPreviewWorker(this, m_fFile);
+        m_pWorker.execute();
     }
 
     /**
@@ -162,4 +143,78 @@ public class CImagePreview extends JComponent implements PropertyChangeListener
             m_pThumbnail.paintIcon(this, g, x, y);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Classe interna para a implementao da gerao da miniatura (preview) em segundo plano.
+     */
+    private static class CPreviewWorker extends SwingWorker<BufferedImage, Void>
+    {
+    	/** Membro privado utilizado para armazenar o componente de preview a ser atualizado. */
+    	private CImagePreview m_pPreview;
+    	
+    	/** Membro privado utilizado para armazenar o arquivo da imagem. */
+    	private File m_fFile;
+    	
+    	/**
+    	 * Construtor da classe.
+    	 * 
+    	 * @param pPreview Componente de preview a ser atualizado.
+    	 * @param fFile Arquivo da imagem.
+    	 */
+    	public CPreviewWorker(CImagePreview pPreview, File fFile)
+    	{
+    		m_pPreview = pPreview;
+    		m_fFile = fFile;
+    	}
+    	
+    	/**
+    	 * Mtodo getter do arquivo da imagem.
+    	 * 
+    	 * @return Objeto File com o arquivo da imagem.
+    	 */
+    	public File getFile()
+    	{
+    		return m_fFile;
+    	}
+    	
+    	/**
+    	 * Gera a miniatura na thread de segundo plano.
+    	 * 
+    	 * @return Objeto BufferedImage com a miniatura, ou null se o arquivo no pode ser carregado.
+    	 */
+    	@Override
+    	protected BufferedImage doInBackground()
+    	{
+    		return CThumbnailGenerator.getInstance().getThumbnail(m_fFile.getPath(), PREVIEW_SIZE);
+    	}
+    	
+    	/**
+    	 * Exibe a miniatura gerada, se o arquivo selecionado no foi alterado nesse meio tempo. Executado na
+    	 * thread de eventos.
+    	 */
+    	@Override
+    	protected void done()
+    	{
+    		if(isCancelled() || m_pPreview.m_pWorker != this)
+    			return;
+    		
+    		BufferedImage pThumbnail;
+    		try
+    		{
+    			pThumbnail = get();
+    		}
+    		catch(InterruptedException e)
+    		{
+    			return;
+    		}
+    		catch(ExecutionException e)
+    		{
+    			// Arquivos que no podem ser lidos simplesmente no tm preview
+    			pThumbnail = null;
+    		}
+    		
+    		m_pPreview.m_pThumbnail = (pThumbnail == null ? null : new ImageIcon(pThumbnail));
+    		m_pPreview.repaint();
+    	}
+    }
+}
@@ -23,13 +23,16 @@
 package GUI.filechoosers;
 
 import java.io.*;
+import java.util.*;
 
 import javax.swing.*;
 
 import core.config.CConfiguration;
+import core.images.CFormatFactory;
 
 /**
- * Classe utilizada para a construo da janela de seleo de arquivos do sistema Narciso.
+ * Classe utilizada para a construo da janela de seleo de arquivos do sistema Narciso. Permite a seleo de vrios
+ * arquivos e de diretrios, cujos arquivos de imagem so todos carregados.
  * 
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
@@ -52,6 +55,8 @@ public class CLoadImageFileChooser
         pFC.setAcceptAllFileFilterUsed(false);
         pFC.setFileView(new CImageFileView());
         pFC.setAccessory(new CImagePreview(pFC));
+        pFC.setMultiSelectionEnabled(true);
+        pFC.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
    }
 
     /**
@@ -76,4 +81,42 @@ public class CLoadImageFileChooser
     {
     	return pFC.getSelectedFile();
     }
+    
+    /**
+     * Mtodo getter utilizado para obter todos os arquivos de imagem selecionados pelo usurio. Os diretrios
+     * selecionados so substitudos pelos arquivos de imagem neles contidos, sem incluir os subdiretrios. O formato
+     * dos arquivos dos diretrios  reconhecido pelo seu contedo (apenas os primeiros bytes so lidos).
+     * 
+     * @return Vetor com os nomes (incluindo diretrio completo) dos arquivos selecionados.
+     */
+    public Vector<String> getSelectedFiles()
+    {
+    	File[] aSelected = pFC.getSelectedFiles();
+    	if(aSelected == null || aSelected.length == 0)
+    		aSelected = new File[] { pFC.getSelectedFile() };
+    	
+    	CFormatFactory pFactory = CFormatFactory.getInstance();
+    	Vector<String> vRet = new Vector<String>();
+    	for(File fFile: aSelected)
+    	{
+    		if(fFile == null)
+    			continue;
+    		
+    		if(fFile.isDirectory())
+    		{
+    			File[] aFiles = fFile.listFiles();
+    			if(aFiles == null)
+    				continue;
+    			Arrays.sort(aFiles);
+    			for(File fChild: aFiles)
+    			{
+    				if(fChild.isFile() && pFactory.getFormatByContent(fChild.getPath()) != null)
+    					vRet.add(fChild.getPath());
+    			}
+    		}
+    		else
+    			vRet.add(fFile.getPath());
+    	}
+    	return vRet;
+    }
 }
\ No newline at end of file
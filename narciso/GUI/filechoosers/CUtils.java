@@ -92,19 +92,7 @@ public class CUtils
      */
     public static CFormatFactory.CFormatEnum getFormatFactoryEnum(File fFile)
     {
-    	String sExt = getExtension(fFile);
-    	if(sExt.equals(BMP))
-    		return CFormatFactory.CFormatEnum.BITMAP;
-    	else if(sExt.equals(GIF))
-    		return CFormatFactory.CFormatEnum.GIF;
-    	else if(sExt.equals(JPEG) || sExt.equals(JPG))
-    		return CFormatFactory.CFormatEnum.JPEG;
-    	else if(sExt.equals(TIFF) || sExt.equals(TIF))
-    		return CFormatFactory.CFormatEnum.TIFF;
-    	else if(sExt.equals(PNG))
-    		return CFormatFactory.CFormatEnum.PNG;
-    	else
-    		return null;
+    	return CFormatFactory.getFormatByExtension(fFile.getName());
     }
     
     /**
@@ -0,0 +1,884 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.batch;
+
+import java.awt.Rectangle;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import core.errors.*;
+import core.exporting.*;
+import core.images.*;
+import core.operations.*;
+
+/**
+ * Essa classe implementa o processamento em lote (batch) do sistema Narciso, sem a utilizao da interface grfica.
+ * Ela registra as operaes definidas em um arquivo XML (como o operations.xml), carrega um roteiro de operaes
+ * previamente salvo e o executa sobre todas as imagens de um diretrio (ou que atendam a um padro de nomes),
+ * gravando as imagens resultantes em um diretrio de sada e exibindo ao final as medidas de vazo obtidas.
+ * 
+ * Utilizao (parmetros entre colchetes so opcionais):
+ * 
+ * <pre>
+ * java -Djava.awt.headless=true -cp Narciso.jar core.batch.CBatchRunner -macro roteiro.xml -input entrada
+ *      -output saida [-operations operations.xml] [-params nome=valor,...] [-format png] [-threads N] [-pipelined]
+ *      [-metrics medicoes.csv] [-region x,y,largura,altura] [-subsampling N] [-encode nome=valor,...]
+ * </pre>
+ * 
+ * O parmetro -input aceita um diretrio (todas as imagens de formato conhecido so processadas) ou um padro de
+ * nomes no ltimo componente do caminho (por exemplo, "entrada/*.png" ou "entrada/img_??.tif"). O formato de cada
+ * arquivo  reconhecido pelo seu contedo, e no pela extenso do nome, de modo que os arquivos que no so de
+ * imagem so descartados sem nenhuma tentativa de decodificao. O parmetro
+ * -metrics habilita as medies de execuo das operaes e grava ao final o seu resumo (por operao e etapa
+ * do roteiro) no arquivo CSV informado. Os parmetros -region e -subsampling fazem com que apenas uma regio de
+ * cada imagem de entrada e/ou uma verso reduzida por amostragem seja carregada (e processada), sem a decodificao
+ * dos demais pixels sempre que o formato permitir.
+ * 
+ * O parmetro -pipelined executa os roteiros independentes por imagem em modo de encadeamento (veja
+ * CMacroOperation.setPipelined): em vez de distribuir as imagens entre as threads configuradas, cada etapa do
+ * roteiro  executada por uma thread prpria, e as imagens (em grupos de at PIPELINE_GROUP_SIZE) passam de uma
+ * etapa  seguinte. Nesse modo, o parmetro -threads no  utilizado.
+ * 
+ * As imagens resultantes so gravadas em segundo plano (CImageWriter), enquanto as imagens seguintes so
+ * processadas. O parmetro -encode informa os parmetros de codificao do formato de gravao (por exemplo,
+ * "quality=90" para JPEG, "compression=6" para PNG ou "compression=deflate,tilesize=256" para TIFF).
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see COperationFactory
+ * @see CMacroOperation
+ * @see CFormatFactory
+ */
+
+public class CBatchRunner
+{
+	/** Membro privado utilizado para armazenar o nome do arquivo XML com as operaes a serem registradas. */
+	private String m_sOperationsFile;
+	
+	/** Membro privado utilizado para armazenar o nome do arquivo XML com o roteiro de operaes. */
+	private String m_sMacroFile;
+	
+	/** Membro privado utilizado para armazenar o diretrio ou padro de nomes das imagens de entrada. */
+	private String m_sInput;
+	
+	/** Membro privado utilizado para armazenar o diretrio de gravao das imagens resultantes. */
+	private String m_sOutputDir;
+	
+	/**
+	 * Nmero mximo de imagens carregadas e enviadas em conjunto ao roteiro no modo de encadeamento (pipeline), de
+	 * modo a limitar a memria ocupada pelas imagens de entrada e pelos resultados ainda no gravados.
+	 */
+	private static final int PIPELINE_GROUP_SIZE = 16;
+	
+	/** Membro privado utilizado para armazenar os parmetros das operaes, no formato nome=valor,nome=valor. */
+	private String m_sParams;
+	
+	/** Membro privado utilizado para armazenar o formato de gravao, ou null para manter o formato de cada entrada (PNG para os formatos adicionais e os que no permitem gravao). */
+	private CFormatFactory.CFormatEnum m_eFormat;
+	
+	/** Membro privado utilizado para armazenar o nmero de threads de processamento. */
+	private int m_iThreads;
+	
+	/** Membro privado utilizado para indicar se o roteiro deve ser executado em modo de encadeamento (pipeline). */
+	private boolean m_bPipelined;
+	
+	/** Membro privado utilizado para armazenar o arquivo de gravao do resumo das medies, ou null. */
+	private String m_sMetricsFile;
+	
+	/** Membro privado utilizado para armazenar a regio das imagens de entrada a ser carregada, ou null. */
+	private Rectangle m_pRegion;
+	
+	/** Membro privado utilizado para armazenar o fator de amostragem (subsampling) das imagens de entrada. */
+	private int m_iSubsampling;
+	
+	/** Membro privado utilizado para armazenar os parmetros de codificao das imagens gravadas. */
+	private Properties m_pEncodeParams;
+	
+	/** Membro privado utilizado para armazenar os resultados cuja gravao ainda no foi confirmada. */
+	private Vector<CPendingResult> m_vPending;
+	
+	/** Membro privado utilizado para contar as imagens processadas com sucesso. */
+	private AtomicInteger m_iProcessed;
+	
+	/** Membro privado utilizado para contar as imagens cujo processamento falhou. */
+	private AtomicInteger m_iFailed;
+	
+	/** Membro privado utilizado para acumular o nmero de pixels das imagens de entrada processadas. */
+	private AtomicLong m_lPixels;
+	
+	/**
+	 * Construtor da classe. Inicializa os valores padro dos parmetros.
+	 */
+	public CBatchRunner()
+	{
+		m_sOperationsFile = "operations.xml";
+		m_sMacroFile = null;
+		m_sInput = null;
+		m_sOutputDir = null;
+		m_sParams = "";
+		m_eFormat = null;
+		m_iThreads = Runtime.getRuntime().availableProcessors();
+		m_bPipelined = false;
+		m_sMetricsFile = null;
+		m_pRegion = null;
+		m_iSubsampling = 1;
+		m_pEncodeParams = new Properties();
+		m_vPending = new Vector<CPendingResult>();
+		m_iProcessed = new AtomicInteger(0);
+		m_iFailed = new AtomicInteger(0);
+		m_lPixels = new AtomicLong(0);
+	}
+	
+	/**
+	 * Mtodo principal do processamento em lote.
+	 * 
+	 * @param args Matriz de strings com a lista de argumentos da linha de comando, conforme descrito na classe.
+	 */
+	public static void main(String args[])
+	{
+		System.setProperty("java.awt.headless", "true");
+		
+		CBatchRunner pRunner = new CBatchRunner();
+		if(!pRunner.parseArguments(args))
+		{
+			printUsage();
+			System.exit(2);
+		}
+		
+		int iRet = pRunner.run();
+		System.exit(iRet);
+	}
+	
+	/**
+	 * Mtodo utilizado para exibir a forma de utilizao do processamento em lote.
+	 */
+	private static void printUsage()
+	{
+		System.err.println("Utilizao: CBatchRunner -macro <roteiro.xml> -input <diretrio|padro> -output <diretrio>");
+		System.err.println("            [-operations <operations.xml>] [-params nome=valor,...] [-format bmp|jpg|png|tif]");
+		System.err.println("            [-threads N] [-pipelined] [-metrics <medicoes.csv>]");
+		System.err.println("            [-region x,y,largura,altura] [-subsampling N] [-encode nome=valor,...]");
+	}
+	
+	/**
+	 * Interpreta os argumentos da linha de comando.
+	 * 
+	 * @param args Matriz de strings com os argumentos.
+	 * @return True se os argumentos so vlidos, false caso contrrio.
+	 */
+	public boolean parseArguments(String args[])
+	{
+		for(int i = 0; i < args.length; i++)
+		{
+			String sArg = args[i];
+			if(sArg.equals("-pipelined"))
+			{
+				m_bPipelined = true;
+				continue;
+			}
+			
+			if(i + 1 >= args.length)
+				return false;
+			String sValue = args[++i];
+			
+			if(sArg.equals("-macro"))
+				m_sMacroFile = sValue;
+			else if(sArg.equals("-input"))
+				m_sInput = sValue;
+			else if(sArg.equals("-output"))
+				m_sOutputDir = sValue;
+			else if(sArg.equals("-operations"))
+				m_sOperationsFile = sValue;
+			else if(sArg.equals("-params"))
+				m_sParams = sValue;
+			else if(sArg.equals("-metrics"))
+				m_sMetricsFile = sValue;
+			else if(sArg.equals("-encode"))
+				m_pEncodeParams = parseParams(sValue);
+			else if(sArg.equals("-format"))
+			{
+				m_eFormat = CFormatFactory.getFormatByExtension("imagem." + sValue);
+				if(m_eFormat == null || !CFormatFactory.getInstance().getFormat(m_eFormat).canSave())
+					return false;
+			}
+			else if(sArg.equals("-region"))
+			{
+				m_pRegion = parseRegion(sValue);
+				if(m_pRegion == null)
+					return false;
+			}
+			else if(sArg.equals("-subsampling"))
+			{
+				try
+				{
+					m_iSubsampling = Integer.parseInt(sValue);
+				}
+				catch(NumberFormatException e)
+				{
+					return false;
+				}
+				if(m_iSubsampling < 1)
+					return false;
+			}
+			else if(sArg.equals("-threads"))
+			{
+				try
+				{
+					m_iThreads = Integer.parseInt(sValue);
+				}
+				catch(NumberFormatException e)
+				{
+					return false;
+				}
+				if(m_iThreads < 1)
+					return false;
+			}
+			else
+				return false;
+		}
+		
+		return m_sMacroFile != null && m_sInput != null && m_sOutputDir != null;
+	}
+	
+	/**
+	 * Executa o processamento em lote com os parmetros configurados.
+	 * 
+	 * @return Cdigo de sada do processo: 0 se todas as imagens foram processadas com sucesso, 1 se ocorreram
+	 * falhas no processamento de imagens e 2 se ocorreu um erro de configurao.
+	 */
+	public int run()
+	{
+		int iRet = COperationFactory.registerOperationsFromFile(m_sOperationsFile);
+		if(iRet != CErrors.SUCCESS)
+		{
+			System.err.println("Erro ao registrar as operaes de [" + m_sOperationsFile + "]: " + CErrors.getErrorDescription(iRet));
+			return 2;
+		}
+		
+		CMacroOperation pMacro = new CMacroOperation("BatchMacroOperation", "");
+		iRet = pMacro.loadFromFile(m_sMacroFile);
+		if(iRet != CErrors.SUCCESS)
+		{
+			System.err.println("Erro ao carregar o roteiro [" + m_sMacroFile + "]: " + CErrors.getErrorDescription(iRet));
+			return 2;
+		}
+		pMacro.setPipelined(m_bPipelined);
+		
+		File fOutput = new File(m_sOutputDir);
+		if(!fOutput.isDirectory() && !fOutput.mkdirs())
+		{
+			System.err.println("No foi possvel criar o diretrio de sada [" + m_sOutputDir + "]");
+			return 2;
+		}
+		
+		Vector<File> vFiles = listInputFiles(m_sInput);
+		if(vFiles == null || vFiles.size() == 0)
+		{
+			System.err.println("Nenhuma imagem encontrada em [" + m_sInput + "]");
+			return 2;
+		}
+		
+		if(m_sMetricsFile != null)
+			COperation.setMetricsSink(CMetricsRegistry.getInstance());
+		
+		Properties pParams = parseParams(m_sParams);
+		long lStart = System.nanoTime();
+		
+		if(pMacro.isImageIndependent() && m_bPipelined)
+			runPipelined(pMacro, vFiles, pParams);
+		else if(pMacro.isImageIndependent())
+			runPerImage(pMacro, vFiles, pParams);
+		else
+		{
+			if(m_bPipelined)
+				System.out.println("O modo de encadeamento (-pipelined) no se aplica a esse roteiro.");
+			System.out.println("O roteiro contm operaes que dependem de mais de uma imagem; as imagens sero processadas em conjunto.");
+			runAll(pMacro, vFiles, pParams);
+		}
+		waitPending();
+		
+		double dSeconds = (System.nanoTime() - lStart) / 1.0e9;
+		int iProcessed = m_iProcessed.get();
+		System.out.println(String.format(Locale.US, "Imagens processadas: %d, falhas: %d, tempo total: %.3f s", iProcessed, m_iFailed.get(), dSeconds));
+		if(dSeconds > 0)
+			System.out.println(String.format(Locale.US, "Vazo: %.2f imagens/s, %.2f megapixels/s", iProcessed / dSeconds, m_lPixels.get() / 1.0e6 / dSeconds));
+		
+		if(m_sMetricsFile != null)
+		{
+			iRet = new CMetricsCSVExporter().exportSummary(CMetricsRegistry.getInstance(), m_sMetricsFile);
+			if(iRet != CErrors.SUCCESS)
+				System.err.println("Erro ao gravar as medies em [" + m_sMetricsFile + "]: " + CErrors.getErrorDescription(iRet));
+		}
+		
+		return m_iFailed.get() == 0 ? 0 : 1;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa o roteiro separadamente para cada imagem, distribuindo
+	 * as imagens entre as threads de um pool com o nmero de threads configurado.
+	 * 
+	 * @param pMacro Roteiro a ser executado.
+	 * @param vFiles Arquivos das imagens de entrada.
+	 * @param pParams Parmetros das operaes.
+	 */
+	private void runPerImage(CMacroOperation pMacro, Vector<File> vFiles, Properties pParams)
+	{
+		ExecutorService pPool = Executors.newFixedThreadPool(m_iThreads);
+		for(int i = 0; i < vFiles.size(); i++)
+			pPool.execute(new CImageJob(this, pMacro, vFiles.get(i), pParams));
+		
+		pPool.shutdown();
+		try
+		{
+			while(!pPool.awaitTermination(1, TimeUnit.MINUTES))
+				;
+		}
+		catch(InterruptedException e)
+		{
+			pPool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa o roteiro em modo de encadeamento (veja
+	 * CMacroOperation.setPipelined), enviando as imagens ao roteiro em grupos de at PIPELINE_GROUP_SIZE imagens.
+	 * Cada etapa do roteiro  executada por uma thread prpria, e os resultados de cada imagem so gravados 
+	 * medida que chegam ao final do encadeamento (veja CPipelineMonitor).
+	 * 
+	 * @param pMacro Roteiro a ser executado.
+	 * @param vFiles Arquivos das imagens de entrada.
+	 * @param pParams Parmetros das operaes.
+	 */
+	private void runPipelined(CMacroOperation pMacro, Vector<File> vFiles, Properties pParams)
+	{
+		for(int iFirst = 0; iFirst < vFiles.size(); iFirst += PIPELINE_GROUP_SIZE)
+		{
+			long lStart = System.nanoTime();
+			Vector<File> vLoaded = new Vector<File>();
+			Vector<Object> vSource = new Vector<Object>();
+			for(int i = iFirst; i < Math.min(iFirst + PIPELINE_GROUP_SIZE, vFiles.size()); i++)
+			{
+				CImage pImage = loadImage(vFiles.get(i));
+				if(pImage == null)
+					continue;
+				vLoaded.add(vFiles.get(i));
+				vSource.add(pImage);
+			}
+			if(vSource.size() == 0)
+				continue;
+			
+			CPipelineMonitor pMonitor = new CPipelineMonitor(this, vLoaded, vSource, lStart);
+			Properties pGroupParams = new Properties();
+			pGroupParams.putAll(pParams);
+			pGroupParams.put(COperation.MONITOR_PARAM, pMonitor);
+			
+			Vector<Object> vResult;
+			try
+			{
+				vResult = pMacro.executeParallel(vSource, pGroupParams);
+			}
+			catch(RuntimeException e)
+			{
+				System.err.println("Erro no processamento de [" + vLoaded.get(Math.min(pMonitor.getDone(), vLoaded.size() - 1)).getPath() + "]: " + e);
+				vResult = null;
+			}
+			
+			if(vResult == null)
+			{
+				if(pGroupParams.getProperty("error") != null)
+					reportError(vLoaded.get(Math.min(pMonitor.getDone(), vLoaded.size() - 1)).getPath(), pGroupParams);
+				m_iFailed.addAndGet(vSource.size() - pMonitor.getDone());
+			}
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Carrega todas as imagens e executa o roteiro uma nica vez
+	 * sobre o conjunto, utilizado quando o roteiro no  independente por imagem.
+	 * 
+	 * @param pMacro Roteiro a ser executado.
+	 * @param vFiles Arquivos das imagens de entrada.
+	 * @param pParams Parmetros das operaes.
+	 */
+	private void runAll(CMacroOperation pMacro, Vector<File> vFiles, Properties pParams)
+	{
+		Vector<Object> vSource = new Vector<Object>();
+		long lPixels = 0;
+		for(int i = 0; i < vFiles.size(); i++)
+		{
+			CImage pImage = loadImage(vFiles.get(i));
+			if(pImage == null)
+				continue;
+			vSource.add(pImage);
+			lPixels += (long) pImage.getWidth() * pImage.getHeight();
+		}
+		
+		Vector<Object> vResult = pMacro.execute(vSource, pParams);
+		if(vResult == null)
+		{
+			reportError("roteiro", pParams);
+			m_iFailed.addAndGet(vSource.size());
+			return;
+		}
+		
+		saveResults(vResult, "resultado", m_eFormat == null ? CFormatFactory.CFormatEnum.PNG : m_eFormat, vSource.size(), lPixels);
+	}
+	
+	/**
+	 * Processa uma nica imagem: carrega, executa o roteiro e grava os resultados.
+	 * 
+	 * @param pMacro Roteiro a ser executado.
+	 * @param fFile Arquivo da imagem de entrada.
+	 * @param pParams Parmetros das operaes. Uma cpia  utilizada na execuo.
+	 */
+	protected void processImage(CMacroOperation pMacro, File fFile, Properties pParams)
+	{
+		long lStart = System.nanoTime();
+		CImage pImage = loadImage(fFile);
+		if(pImage == null)
+			return;
+		
+		Properties pImageParams = new Properties();
+		pImageParams.putAll(pParams);
+		
+		Vector<Object> vSource = new Vector<Object>(1);
+		vSource.add(pImage);
+		
+		Vector<Object> vResult;
+		try
+		{
+			vResult = pMacro.execute(vSource, pImageParams);
+		}
+		catch(RuntimeException e)
+		{
+			System.err.println("Erro no processamento de [" + fFile.getPath() + "]: " + e);
+			m_iFailed.incrementAndGet();
+			return;
+		}
+		
+		if(vResult == null)
+		{
+			reportError(fFile.getPath(), pImageParams);
+			m_iFailed.incrementAndGet();
+			return;
+		}
+		
+		saveImageResults(vResult, fFile, pImage, lStart);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Solicita a gravao dos resultados do roteiro para uma nica
+	 * imagem de entrada, com o nome do arquivo de entrada (sem extenso) e o formato de gravao configurado (ou o
+	 * formato do arquivo de entrada, se nenhum foi configurado, ou PNG se o formato de entrada no permite gravao).
+	 * 
+	 * @param vResult Vetor com os objetos resultantes do roteiro.
+	 * @param fFile Arquivo da imagem de entrada.
+	 * @param pImage Imagem de entrada.
+	 * @param lStart Instante (em nanossegundos, conforme System.nanoTime) do incio do processamento da imagem.
+	 */
+	private void saveImageResults(Vector<Object> vResult, File fFile, CImage pImage, long lStart)
+	{
+		String sName = fFile.getName();
+		int iPos = sName.lastIndexOf('.');
+		if(iPos > 0)
+			sName = sName.substring(0, iPos);
+		
+		CFormatFactory.CFormatEnum eFormat = m_eFormat;
+		if(eFormat == null)
+			eFormat = CFormatFactory.detectFormat(fFile.getPath());
+		if(eFormat == null)
+			eFormat = CFormatFactory.getFormatByExtension(fFile.getName());
+		if(eFormat == null || !CFormatFactory.getInstance().getFormat(eFormat).canSave())
+			eFormat = CFormatFactory.CFormatEnum.PNG;
+		
+		saveResults(vResult, sName, eFormat, 1, (long) pImage.getWidth() * pImage.getHeight());
+		System.out.println(String.format(Locale.US, "%s: %d imagem(ns) gerada(s) em %.1f ms", fFile.getPath(), vResult.size(), (System.nanoTime() - lStart) / 1.0e6));
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Carrega uma imagem, contabilizando a falha se necessrio.
+	 * 
+	 * @param fFile Arquivo da imagem.
+	 * @return Objeto CImage com a imagem carregada, ou null se ocorreu um erro.
+	 */
+	private CImage loadImage(File fFile)
+	{
+		CImage pImage = new CImage(1, 1, true);
+		int iRet = pImage.load(fFile.getPath(), m_pRegion, m_iSubsampling);
+		if(iRet != CErrors.SUCCESS)
+		{
+			System.err.println("Erro ao carregar [" + fFile.getPath() + "]: " + CErrors.getErrorDescription(iRet));
+			m_iFailed.incrementAndGet();
+			return null;
+		}
+		return pImage;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Solicita a gravao em segundo plano das imagens resultantes no
+	 * diretrio de sada. Se houver mais de uma imagem, os arquivos so numerados segundo a ordem dos resultados. As
+	 * imagens de entrada s so contabilizadas como processadas quando a gravao  confirmada (mtodo waitPending).
+	 * 
+	 * @param vResult Vetor com os objetos resultantes do roteiro.
+	 * @param sName Nome base dos arquivos (sem extenso).
+	 * @param eFormat Formato de gravao.
+	 * @param iSources Nmero de imagens de entrada que originaram os resultados.
+	 * @param lPixels Nmero de pixels das imagens de entrada que originaram os resultados.
+	 */
+	private void saveResults(Vector<Object> vResult, String sName, CFormatFactory.CFormatEnum eFormat, int iSources, long lPixels)
+	{
+		CPendingResult pPending = new CPendingResult(iSources, lPixels);
+		String sExt = CFormatFactory.getDefaultExtension(eFormat);
+		for(int i = 0; i < vResult.size(); i++)
+		{
+			if(!(vResult.get(i) instanceof CImage))
+				continue;
+			
+			String sFile = sName;
+			if(vResult.size() > 1)
+				sFile += "_" + (i + 1);
+			sFile = new File(m_sOutputDir, sFile + "." + sExt).getPath();
+			
+			pPending.m_vFiles.add(sFile);
+			pPending.m_vSaves.add(((CImage) vResult.get(i)).saveAsync(sFile, eFormat, m_pEncodeParams));
+		}
+		m_vPending.add(pPending);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Aguarda o trmino das gravaes solicitadas, contabilizando as
+	 * imagens de entrada processadas com sucesso e as que falharam.
+	 */
+	private void waitPending()
+	{
+		for(int i = 0; i < m_vPending.size(); i++)
+		{
+			CPendingResult pPending = m_vPending.get(i);
+			boolean bSuccess = true;
+			for(int j = 0; j < pPending.m_vSaves.size(); j++)
+			{
+				String sFile = pPending.m_vFiles.get(j);
+				int iRet;
+				try
+				{
+					iRet = pPending.m_vSaves.get(j).get().intValue();
+				}
+				catch(ExecutionException e)
+				{
+					System.err.println("Erro ao gravar [" + sFile + "]: " + e.getCause());
+					bSuccess = false;
+					continue;
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if(iRet != CErrors.SUCCESS)
+				{
+					System.err.println("Erro ao gravar [" + sFile + "]: " + CErrors.getErrorDescription(iRet));
+					bSuccess = false;
+				}
+			}
+			
+			if(bSuccess)
+			{
+				m_iProcessed.addAndGet(pPending.m_iSources);
+				m_lPixels.addAndGet(pPending.m_lPixels);
+			}
+			else
+				m_iFailed.addAndGet(pPending.m_iSources);
+		}
+		m_vPending.clear();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Exibe o erro ocorrido na execuo do roteiro.
+	 * 
+	 * @param sSource Descrio da origem do erro.
+	 * @param pParams Parmetros da execuo, contendo o cdigo de erro.
+	 */
+	private static void reportError(String sSource, Properties pParams)
+	{
+		String sError = pParams.getProperty("error");
+		int iError = CErrors.ERROR_UNEXPECTED_ERROR;
+		if(sError != null)
+			iError = Integer.parseInt(sError);
+		System.err.println("Erro na execuo do roteiro em [" + sSource + "]: cdigo [" + iError + "] " + CErrors.getErrorDescription(iError));
+	}
+	
+	/**
+	 * Obtm a lista de arquivos de imagem de entrada a partir de um diretrio ou de um padro de nomes. Apenas os
+	 * arquivos cujo contedo  de um formato reconhecido so includos.
+	 * 
+	 * @param sInput Diretrio ou padro de nomes (no ltimo componente do caminho).
+	 * @return Vetor com os arquivos encontrados, em ordem alfabtica, ou null se o diretrio no existir.
+	 */
+	public static Vector<File> listInputFiles(String sInput)
+	{
+		File fInput = new File(sInput);
+		File fDir;
+		PathMatcher pMatcher = null;
+		
+		if(fInput.isDirectory())
+			fDir = fInput;
+		else
+		{
+			fDir = fInput.getAbsoluteFile().getParentFile();
+			pMatcher = FileSystems.getDefault().getPathMatcher("glob:" + fInput.getName());
+		}
+		
+		File aFiles[] = (fDir == null ? null : fDir.listFiles());
+		if(aFiles == null)
+			return null;
+		Arrays.sort(aFiles);
+		
+		CFormatFactory pFactory = CFormatFactory.getInstance();
+		Vector<File> vRet = new Vector<File>();
+		for(int i = 0; i < aFiles.length; i++)
+		{
+			if(!aFiles[i].isFile())
+				continue;
+			if(pMatcher != null && !pMatcher.matches(Paths.get(aFiles[i].getName())))
+				continue;
+			if(pFactory.getFormatByContent(aFiles[i].getPath()) == null)
+				continue;
+			vRet.add(aFiles[i]);
+		}
+		return vRet;
+	}
+	
+	/**
+	 * Interpreta um texto de parmetros no formato nome=valor, separados por vrgulas, conforme utilizado
+	 * na janela de operaes e nos exemplos de parmetros do arquivo de operaes.
+	 * 
+	 * @param sParams Texto com os parmetros.
+	 * @return Objeto Properties com os parmetros interpretados.
+	 */
+	public static Properties parseParams(String sParams)
+	{
+		Properties pProps = new Properties();
+		StringTokenizer pTokens = new StringTokenizer(sParams, ",");
+		while(pTokens.hasMoreTokens())
+		{
+			String sParam = pTokens.nextToken().trim();
+			if(sParam.length() == 0)
+				continue;
+			
+			int iEqPos = sParam.indexOf('=');
+			if(iEqPos >= 0)
+				pProps.put(sParam.substring(0, iEqPos), sParam.substring(iEqPos + 1));
+			else
+				pProps.put(sParam, "");
+		}
+		return pProps;
+	}
+	
+	/**
+	 * Interpreta a regio das imagens de entrada a ser carregada, no formato x,y,largura,altura.
+	 * 
+	 * @param sRegion Texto com a regio.
+	 * @return Objeto Rectangle com a regio, ou null se o texto no est no formato esperado.
+	 */
+	public static Rectangle parseRegion(String sRegion)
+	{
+		String aValues[] = sRegion.split(",");
+		if(aValues.length != 4)
+			return null;
+		
+		try
+		{
+			Rectangle pRegion = new Rectangle(Integer.parseInt(aValues[0].trim()), Integer.parseInt(aValues[1].trim()),
+					Integer.parseInt(aValues[2].trim()), Integer.parseInt(aValues[3].trim()));
+			return (pRegion.x < 0 || pRegion.y < 0 || pRegion.isEmpty() ? null : pRegion);
+		}
+		catch(NumberFormatException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Classe interna para a implementao da tarefa de processamento de uma imagem pelo pool de threads.
+	 */
+	private static class CImageJob implements Runnable
+	{
+		/** Membro privado utilizado para armazenar o processador em lote. */
+		private CBatchRunner m_pRunner;
+		
+		/** Membro privado utilizado para armazenar o roteiro a ser executado. */
+		private CMacroOperation m_pMacro;
+		
+		/** Membro privado utilizado para armazenar o arquivo da imagem. */
+		private File m_fFile;
+		
+		/** Membro privado utilizado para armazenar os parmetros das operaes. */
+		private Properties m_pParams;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pRunner Processador em lote.
+		 * @param pMacro Roteiro a ser executado.
+		 * @param fFile Arquivo da imagem.
+		 * @param pParams Parmetros das operaes.
+		 */
+		public CImageJob(CBatchRunner pRunner, CMacroOperation pMacro, File fFile, Properties pParams)
+		{
+			m_pRunner = pRunner;
+			m_pMacro = pMacro;
+			m_fFile = fFile;
+			m_pParams = pParams;
+		}
+		
+		/**
+		 * Processa a imagem.
+		 */
+		public void run()
+		{
+			m_pRunner.processImage(m_pMacro, m_fFile, m_pParams);
+		}
+	}
+	
+	/**
+	 * Classe interna para o acompanhamento da execuo do roteiro em modo de encadeamento, que solicita a gravao
+	 * dos resultados de cada imagem assim que eles so notificados pelo roteiro (na ordem original das imagens).
+	 */
+	private static class CPipelineMonitor implements IOperationMonitor
+	{
+		/** Membro privado utilizado para armazenar o processador em lote. */
+		private CBatchRunner m_pRunner;
+		
+		/** Membro privado utilizado para armazenar os arquivos das imagens enviadas ao roteiro. */
+		private Vector<File> m_vFiles;
+		
+		/** Membro privado utilizado para armazenar as imagens enviadas ao roteiro, na mesma ordem dos arquivos. */
+		private Vector<Object> m_vImages;
+		
+		/** Membro privado utilizado para armazenar o instante do incio do processamento do grupo de imagens. */
+		private long m_lStart;
+		
+		/** Membro privado utilizado para contar as imagens cujos resultados j foram notificados. */
+		private volatile int m_iDone;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pRunner Processador em lote.
+		 * @param vFiles Arquivos das imagens enviadas ao roteiro.
+		 * @param vImages Imagens enviadas ao roteiro, na mesma ordem dos arquivos.
+		 * @param lStart Instante (em nanossegundos, conforme System.nanoTime) do incio do processamento do grupo.
+		 */
+		public CPipelineMonitor(CBatchRunner pRunner, Vector<File> vFiles, Vector<Object> vImages, long lStart)
+		{
+			m_pRunner = pRunner;
+			m_vFiles = vFiles;
+			m_vImages = vImages;
+			m_lStart = lStart;
+			m_iDone = 0;
+		}
+		
+		/**
+		 * Mtodo getter do nmero de imagens cujos resultados j foram notificados.
+		 * 
+		 * @return Nmero de imagens concludas.
+		 */
+		public int getDone()
+		{
+			return m_iDone;
+		}
+		
+		/**
+		 * Mtodo da interface IOperationMonitor. O processamento em lote no  cancelado.
+		 * 
+		 * @return Sempre false.
+		 */
+		public boolean isCancelled()
+		{
+			return false;
+		}
+		
+		/**
+		 * Mtodo da interface IOperationMonitor. O incio das etapas no  exibido.
+		 * 
+		 * @param sOperation Nome da operao da etapa.
+		 * @param iStep ndice da etapa (iniciando em 1).
+		 * @param iSteps Nmero total de etapas do roteiro.
+		 */
+		public void stepStarted(String sOperation, int iStep, int iSteps)
+		{
+		}
+		
+		/**
+		 * Mtodo da interface IOperationMonitor, que solicita a gravao dos resultados de uma imagem.
+		 * 
+		 * @param vResult Vetor com os objetos resultantes do processamento da imagem.
+		 * @param iDone Nmero de imagens j concludas (o ndice da imagem concluda mais um).
+		 * @param iTotal Nmero total de imagens.
+		 */
+		public void resultAvailable(Vector<Object> vResult, int iDone, int iTotal)
+		{
+			m_pRunner.saveImageResults(vResult, m_vFiles.get(iDone - 1), (CImage) m_vImages.get(iDone - 1), m_lStart);
+			m_iDone = iDone;
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para armazenar as gravaes solicitadas para os resultados de uma execuo do roteiro,
+	 * at a confirmao do seu trmino.
+	 */
+	private static class CPendingResult
+	{
+		/** Membro utilizado para armazenar os nomes dos arquivos gravados. */
+		Vector<String> m_vFiles;
+		
+		/** Membro utilizado para armazenar os resultados das gravaes, na mesma ordem dos arquivos. */
+		Vector<Future<Integer>> m_vSaves;
+		
+		/** Membro utilizado para armazenar o nmero de imagens de entrada que originaram os resultados. */
+		int m_iSources;
+		
+		/** Membro utilizado para armazenar o nmero de pixels das imagens de entrada. */
+		long m_lPixels;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param iSources Nmero de imagens de entrada que originaram os resultados.
+		 * @param lPixels Nmero de pixels das imagens de entrada.
+		 */
+		public CPendingResult(int iSources, long lPixels)
+		{
+			m_vFiles = new Vector<String>();
+			m_vSaves = new Vector<Future<Integer>>();
+			m_iSources = iSources;
+			m_lPixels = lPixels;
+		}
+	}
+}
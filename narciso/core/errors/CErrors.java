@@ -81,6 +81,12 @@ public abstract class CErrors {
 	/** Membro pblico e esttico representando o cdigo de erro que indica que um tipo de propriedade invlido foi utilizado. */
 	public static final int ERROR_INVALID_PROPERTY_TYPE = 12;
 	
+	/** Membro pblico e esttico representando o cdigo de erro que indica que a execuo de uma operao foi cancelada pelo usurio. */
+	public static final int ERROR_OPERATION_CANCELLED = 13;
+	
+	/** Membro pblico e esttico representando o cdigo de erro que indica erro na gravao de um arquivo. */
+	public static final int ERROR_WRITING_FILE = 14;
+	
 	/**
 	 * Retorna uma mensagem de texto (apenas no idioma Portugus) para o cdigo de erro dado.
 	 * @param iError Cdigo de erro para obteno da mensagem descritiva.
@@ -116,6 +122,10 @@ public abstract class CErrors {
 				return "um erro interno ao sistema (inesperado) aconteceu (por favor contacte os desenvolvedores)";
 			case ERROR_INVALID_PROPERTY_TYPE:
 				return "um tipo de propriedade invlido foi utilizado";
+			case ERROR_OPERATION_CANCELLED:
+				return "a execuo da operao foi cancelada pelo usurio";
+			case ERROR_WRITING_FILE:
+				return "erro na gravao do arquivo";
 			default:
 				return "erro desconhecido";
 		}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.exporting;
+
+import java.io.*;
+import java.util.*;
+
+import core.errors.*;
+import core.operations.*;
+
+/**
+ * Essa classe implementa a exportao das medies de execuo das operaes, mantidas em um CMetricsRegistry,
+ * para o formato CSV. Assim como na exportao das propriedades de imagens (CCSVExporter), os valores so
+ * separados por ponto-e-vrgula (;). Os tempos so gravados em milissegundos, com ponto decimal.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CMetricsRegistry
+ * @see CCSVExporter
+ */
+
+public class CMetricsCSVExporter
+{
+	/**
+	 * Mtodo utilizado para exportar o resumo das medies do registro dado para o arquivo dado, no formato CSV.
+	 * Cada linha corresponde a uma operao (ou etapa de roteiro), com os valores acumulados de todas as suas
+	 * execues.
+	 * 
+	 * @param pRegistry Objeto CMetricsRegistry com as medies.
+	 * @param sFile Nome do arquivo a ser gerado.
+	 * 
+	 * @return Retorna CErrors.SUCCESS se a exportao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	public int exportSummary(CMetricsRegistry pRegistry, String sFile)
+	{
+		Vector<COperationMetrics> vSummary = pRegistry.getSummary();
+		PrintStream pPS = null;
+		try
+		{
+			pPS = new PrintStream(new BufferedOutputStream(new FileOutputStream(sFile)));
+			pPS.println("Roteiro;Etapa;Operao;Execues;Erros;Tempo total (ms);Tempo mdio (ms);Pixels de entrada;Megapixels/s;Bytes alocados;Objetos resultantes;Pixels resultantes;Bytes resultantes");
+			
+			for(int i = 0; i < vSummary.size(); i++)
+			{
+				COperationMetrics pMetrics = vSummary.get(i);
+				double dMillis = pMetrics.getElapsed() / 1.0e6;
+				double dMPixels = (pMetrics.getElapsed() > 0 ? pMetrics.getPixelsIn() * 1.0e3 / pMetrics.getElapsed() : 0);
+				
+				pPS.println(getParent(pMetrics) + ";" + pMetrics.getStep() + ";" + pMetrics.getOperation() + ";" + pMetrics.getCount() + ";" + pMetrics.getErrors() + ";" +
+						formatDouble(dMillis) + ";" + formatDouble(dMillis / pMetrics.getCount()) + ";" + pMetrics.getPixelsIn() + ";" + formatDouble(dMPixels) + ";" +
+						pMetrics.getAllocated() + ";" + pMetrics.getResults() + ";" + pMetrics.getPixelsOut() + ";" + pMetrics.getBytesOut());
+			}
+			
+			pPS.flush();
+			return (pPS.checkError() ? CErrors.ERROR_READING_FILE : CErrors.SUCCESS);
+		}
+		catch(IOException e)
+		{
+			return CErrors.ERROR_READING_FILE;
+		}
+		finally
+		{
+			if(pPS != null)
+				pPS.close();
+		}
+	}
+	
+	/**
+	 * Mtodo utilizado para exportar as medies individuais do registro dado para o arquivo dado, no formato CSV.
+	 * Cada linha corresponde a uma execuo de operao, na ordem em que foram registradas.
+	 * 
+	 * @param pRegistry Objeto CMetricsRegistry com as medies.
+	 * @param sFile Nome do arquivo a ser gerado.
+	 * 
+	 * @return Retorna CErrors.SUCCESS se a exportao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	public int exportRecords(CMetricsRegistry pRegistry, String sFile)
+	{
+		Vector<COperationMetrics> vRecords = pRegistry.getRecords();
+		PrintStream pPS = null;
+		try
+		{
+			pPS = new PrintStream(new BufferedOutputStream(new FileOutputStream(sFile)));
+			pPS.println("Incio (ms);Roteiro;Etapa;Operao;Tempo (ms);Fontes;Pixels de entrada;Objetos resultantes;Pixels resultantes;Bytes resultantes;Bytes alocados;Erro");
+			
+			for(int i = 0; i < vRecords.size(); i++)
+			{
+				COperationMetrics pMetrics = vRecords.get(i);
+				pPS.println(pMetrics.getStartTime() + ";" + getParent(pMetrics) + ";" + pMetrics.getStep() + ";" + pMetrics.getOperation() + ";" +
+						formatDouble(pMetrics.getElapsed() / 1.0e6) + ";" + pMetrics.getSources() + ";" + pMetrics.getPixelsIn() + ";" + pMetrics.getResults() + ";" +
+						pMetrics.getPixelsOut() + ";" + pMetrics.getBytesOut() + ";" + pMetrics.getAllocated() + ";" + (pMetrics.getErrors() > 0 ? "sim" : "no"));
+			}
+			
+			pPS.flush();
+			return (pPS.checkError() ? CErrors.ERROR_READING_FILE : CErrors.SUCCESS);
+		}
+		catch(IOException e)
+		{
+			return CErrors.ERROR_READING_FILE;
+		}
+		finally
+		{
+			if(pPS != null)
+				pPS.close();
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o nome do roteiro de uma medio para exportao.
+	 * 
+	 * @param pMetrics Medio.
+	 * @return Nome do roteiro, ou um texto vazio se a operao no foi executada como etapa de um roteiro.
+	 */
+	private static String getParent(COperationMetrics pMetrics)
+	{
+		return (pMetrics.getParent() == null ? "" : pMetrics.getParent());
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Formata um valor real com trs casas decimais.
+	 * 
+	 * @param dValue Valor a ser formatado.
+	 * @return Texto com o valor formatado.
+	 */
+	private static String formatDouble(double dValue)
+	{
+		return String.format(Locale.US, "%.3f", dValue);
+	}
+}
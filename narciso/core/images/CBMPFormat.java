@@ -24,6 +24,7 @@ package core.images;
 
 import java.awt.image.renderable.*;
 import java.io.*;
+import java.util.Properties;
 import core.errors.*;
 import com.sun.media.jai.codec.*;
 import javax.media.jai.*;
@@ -86,12 +87,21 @@ public class CBMPFormat extends CFormat
 	@Override
 	public int save(PlanarImage pImage, String sFile)
 	{
-		ParameterBlock pPB = new ParameterBlock() ;
-		pPB.addSource(pImage) ;
-		pPB.add(sFile) ;
-		pPB.add("bmp") ;
-		pPB.add(new BMPEncodeParam());
-		JAI.create("filestore",pPB);
-		return CErrors.SUCCESS;
+		return save(pImage, sFile, null);
+	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para implementar a gravao do arquivo de imagem com o nome dado, no formato Bitmap,
+	 * com os parmetros de codificao dados. O formato Bitmap no possui parmetros de codificao.
+	 *
+	 * @param pImage Objeto PlanarImage (JAI) contendo a imagem a ser gravada.
+	 * @param sFile Nome do arquivo de imagem a ser gravado.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	@Override
+	public int save(PlanarImage pImage, String sFile, Properties pParams)
+	{
+		return write(pImage, sFile, "bmp", pParams, false);
 	}
 }
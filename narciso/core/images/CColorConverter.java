@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+/**
+ * CColorConverter  a classe utilitria para a converso de cores entre os formatos RGB e HLS (matiz, luminosidade
+ * e saturao), tanto para valores individuais quanto para linhas inteiras de uma imagem. As converses individuais
+ * so as mesmas utilizadas pela classe CColorPixel, que delega a elas seus clculos.
+ * 
+ * Na converso de linhas, os trs planos so obtidos de tabelas pr-calculadas. A luminosidade e a saturao dependem
+ * exclusivamente dos valores mximo e mnimo dos componentes RGB de cada pixel, e por isso as suas tabelas reproduzem
+ * exatamente os resultados obtidos atravs da classe CColorPixel. A matiz  indexada pelo componente de valor mximo,
+ * pela diferena entre os valores mximo e mnimo e pela diferena entre os outros dois componentes; como o clculo
+ * em CColorPixel depende (por arredondamento) dos valores absolutos dos componentes, cerca de 0,7% das cores tm o
+ * plano de matiz diferente em um nvel de um dos componentes.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ * 
+ * @see CColorPixel
+ */
+
+public class CColorConverter
+{
+	/**
+	 * Construtor privado, pois a classe possui apenas mtodos estticos.
+	 */
+	private CColorConverter()
+	{
+	}
+	
+	/**
+	 * Calcula a matiz das cores RGB dadas.
+	 * 
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 * @return Valor da matiz, no intervalo de 0.0 a (2.0 * Math.PI).
+	 */
+	public static double getHue(final int iRed, final int iGreen, final int iBlue)
+	{
+		double dR = iRed / 255.0;
+		double dG = iGreen / 255.0;
+		double dB = iBlue / 255.0;
+
+		double dMin = Math.min(Math.min(dR, dG), dB);
+		double dMax = Math.max(Math.max(dR, dG), dB);
+		double dDelta = dMax - dMin;
+		
+		if(dDelta == 0)
+			return 0.0;
+		else if(dMax == dR)
+		{
+			if(dG >= dB)
+				return (Math.PI / 3.0) * ((dG - dB) / dDelta); 
+			else
+				return (Math.PI / 3.0) * ((dG - dB) / dDelta) + (2.0 * Math.PI);
+		}
+		else if(dMax == dG)
+			return (Math.PI / 3.0) * ((dB - dR) / dDelta) + ((2.0 / 3.0) * Math.PI);
+		else // dMax == dB
+			return (Math.PI / 3.0) * ((dR - dG) / dDelta) + ((4.0 / 3.0) * Math.PI);
+	}
+	
+	/**
+	 * Calcula a luminosidade das cores RGB dadas.
+	 * 
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 * @return Valor da luminosidade, no intervalo de 0.0 a 1.0.
+	 */
+	public static double getLightness(final int iRed, final int iGreen, final int iBlue)
+	{
+		return lightness(Math.max(Math.max(iRed, iGreen), iBlue), Math.min(Math.min(iRed, iGreen), iBlue));
+	}
+	
+	/**
+	 * Calcula a saturao das cores RGB dadas.
+	 * 
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 * @return Valor da saturao, no intervalo de 0.0 a 1.0.
+	 */
+	public static double getSaturation(final int iRed, final int iGreen, final int iBlue)
+	{
+		return saturation(Math.max(Math.max(iRed, iGreen), iBlue), Math.min(Math.min(iRed, iGreen), iBlue));
+	}
+	
+	/**
+	 * Converte os valores HLS dados para o formato RGB.
+	 * 
+	 * @param dHue Valor para a matiz, no intervalo de 0.0 a (2.0 * Math.PI).
+	 * @param dLightness Valor para a luminosidade, no intervalo de 0.0 a 1.0.
+	 * @param dSaturation Valor para a saturao, no intervalo de 0.0 a 1.0.
+	 * @return Valor das cores empacotadas no formato utilizado pela classe BufferedImage (0xAARRGGBB, com alfa sempre
+	 * igual a 255).
+	 */
+	public static int toRGB(final double dHue, final double dLightness, final double dSaturation)
+	{
+		double dTemp2;
+		
+		if(dLightness < 0.5)
+			dTemp2 = dLightness * (1.0 + dSaturation);
+		else
+			dTemp2 = dLightness + dSaturation - (dLightness * dSaturation);
+		
+		double dTemp1 = 2.0 * dLightness - dTemp2;
+		
+		double dNormHue = dHue / (2.0 * Math.PI);
+		
+		int iRed = (int) (hueToComponent(dTemp1, dTemp2, dNormHue + (1.0 / 3.0)) * 255.0);
+		int iGreen = (int) (hueToComponent(dTemp1, dTemp2, dNormHue) * 255.0);
+		int iBlue = (int) (hueToComponent(dTemp1, dTemp2, dNormHue - (1.0 / 3.0)) * 255.0);
+		
+		return 0xff000000 | (iRed << 16) | (iGreen << 8) | iBlue;
+	}
+	
+	/**
+	 * Converte uma linha de pixels RGB nos trs planos de exibio dos componentes HLS, da mesma forma que a operao
+	 * de extrao de componentes HLS: o plano de matiz contm cada pixel com a sua matiz, luminosidade 0.5 e
+	 * saturao 1.0; o plano de luminosidade contm a luminosidade do pixel com matiz (2.0 * Math.PI) e saturao
+	 * 1.0; e o plano de saturao contm a saturao do pixel com matiz (2.0 * Math.PI) e luminosidade 0.5.
+	 * 
+	 * @param aRGB Vetor com as cores dos pixels empacotadas no formato 0xAARRGGBB (o componente alfa  ignorado).
+	 * @param iCount Nmero de pixels a serem convertidos, a partir do incio dos vetores.
+	 * @param aHue Vetor para o retorno do plano de matiz, no formato 0xAARRGGBB.
+	 * @param aLightness Vetor para o retorno do plano de luminosidade, no formato 0xAARRGGBB.
+	 * @param aSaturation Vetor para o retorno do plano de saturao, no formato 0xAARRGGBB.
+	 */
+	public static void toHLSPlanes(final int aRGB[], final int iCount, final int aHue[], final int aLightness[], final int aSaturation[])
+	{
+		int aLightnessTable[] = CHLSTables.LIGHTNESS;
+		int aSaturationTable[] = CHLSTables.SATURATION;
+		int aHueTable[] = CHLSTables.HUE;
+		
+		for(int x = 0; x < iCount; x++)
+		{
+			int iRed = (aRGB[x] >> 16) & 0xff;
+			int iGreen = (aRGB[x] >> 8) & 0xff;
+			int iBlue = aRGB[x] & 0xff;
+			
+			int iMax = Math.max(Math.max(iRed, iGreen), iBlue);
+			int iMin = Math.min(Math.min(iRed, iGreen), iBlue);
+			int iIndex = (iMax << 8) | iMin;
+			
+			aHue[x] = aHueTable[hueIndex(iRed, iGreen, iBlue, iMax, iMin)];
+			aLightness[x] = aLightnessTable[iIndex];
+			aSaturation[x] = aSaturationTable[iIndex];
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula o ndice da tabela do plano de matiz para as cores RGB
+	 * dadas: o componente de valor mximo (0 para vermelho, 1 para verde e 2 para azul, nessa ordem de precedncia),
+	 * a diferena entre os valores mximo e mnimo e a diferena entre os outros dois componentes (deslocada de 255).
+	 * 
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 * @param iMax Valor mximo dos componentes.
+	 * @param iMin Valor mnimo dos componentes.
+	 * @return ndice da tabela do plano de matiz.
+	 */
+	private static int hueIndex(final int iRed, final int iGreen, final int iBlue, final int iMax, final int iMin)
+	{
+		int iSector, iDiff;
+		if(iMax == iRed)
+		{
+			iSector = 0;
+			iDiff = iGreen - iBlue;
+		}
+		else if(iMax == iGreen)
+		{
+			iSector = 1;
+			iDiff = iBlue - iRed;
+		}
+		else
+		{
+			iSector = 2;
+			iDiff = iRed - iGreen;
+		}
+		return (((iSector << 8) | (iMax - iMin)) << 9) + iDiff + 255;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula a luminosidade a partir dos valores mximo e mnimo
+	 * dos componentes RGB.
+	 * 
+	 * @param iMax Valor mximo dos componentes, no intervalo de 0 a 255.
+	 * @param iMin Valor mnimo dos componentes, no intervalo de 0 a 255.
+	 * @return Valor da luminosidade, no intervalo de 0.0 a 1.0.
+	 */
+	private static double lightness(final int iMax, final int iMin)
+	{
+		return (iMax / 255.0 + iMin / 255.0) / 2.0;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula a saturao a partir dos valores mximo e mnimo
+	 * dos componentes RGB.
+	 * 
+	 * @param iMax Valor mximo dos componentes, no intervalo de 0 a 255.
+	 * @param iMin Valor mnimo dos componentes, no intervalo de 0 a 255.
+	 * @return Valor da saturao, no intervalo de 0.0 a 1.0.
+	 */
+	private static double saturation(final int iMax, final int iMin)
+	{
+		double dMax = iMax / 255.0;
+		double dMin = iMin / 255.0;
+		double dDelta = dMax - dMin;
+		double dLightness = (dMax + dMin) / 2.0;
+		
+		if(dLightness <= 0)
+			return 0.0;
+		else if(dLightness <= 0.5)
+			return dDelta / (dLightness * 2.0);
+		else
+			return dDelta / (2.0 - (dLightness * 2.0));
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula o valor (no intervalo de 0.0 a 1.0) de um componente
+	 * do formato RGB a partir dos valores intermedirios da converso HLS para RGB.
+	 * 
+	 * @param dTemp1 Primeiro valor intermedirio da converso.
+	 * @param dTemp2 Segundo valor intermedirio da converso.
+	 * @param dTemp3 Matiz normalizada e deslocada para o componente desejado.
+	 * @return Valor do componente, no intervalo de 0.0 a 1.0.
+	 */
+	private static double hueToComponent(final double dTemp1, final double dTemp2, double dTemp3)
+	{
+		if(dTemp3 < 0)
+			dTemp3 += 1.0;
+		else if(dTemp3 > 1)
+			dTemp3 -= 1.0;
+		
+		if(dTemp3 < (1.0 / 6.0))
+			return dTemp1 + ((dTemp2 - dTemp1) * 6.0 * dTemp3);
+		else if(dTemp3 < (1.0 / 2.0))
+			return dTemp2;
+		else if(dTemp3 < (2.0 / 3.0))
+			return dTemp1 + ((dTemp2 - dTemp1) * ((2.0 / 3.0) - dTemp3) * 6.0);
+		else
+			return dTemp3;
+	}
+	
+	/**
+	 * Classe interna com as tabelas de converso para os planos de matiz (indexada conforme o mtodo hueIndex), de
+	 * luminosidade e de saturao (indexadas por (mximo << 8) | mnimo dos componentes RGB). As tabelas (de 1,5 MB
+	 * para a matiz e de 256 KB para as demais) s so calculadas no primeiro uso.
+	 */
+	private static class CHLSTables
+	{
+		/** Tabela com as cores do plano de luminosidade. */
+		private static final int LIGHTNESS[] = new int[256 * 256];
+		
+		/** Tabela com as cores do plano de saturao. */
+		private static final int SATURATION[] = new int[256 * 256];
+		
+		/** Tabela com as cores do plano de matiz. */
+		private static final int HUE[] = new int[3 * 256 * 512];
+		
+		static
+		{
+			/*
+			 * A matiz de cada entrada  calculada da mesma forma que em getHue, a partir das diferenas normalizadas.
+			 * Nos tons de cinza (diferena nula entre os valores mximo e mnimo) a matiz  zero.
+			 */
+			
+			for(int iSector = 0; iSector < 3; iSector++)
+			{
+				for(int iDelta = 0; iDelta < 256; iDelta++)
+				{
+					for(int iDiff = -iDelta; iDiff <= iDelta; iDiff++)
+					{
+						double dHue;
+						if(iDelta == 0)
+							dHue = 0.0;
+						else
+						{
+							dHue = (Math.PI / 3.0) * ((double) iDiff / iDelta) + ((2.0 / 3.0) * Math.PI) * iSector;
+							if(dHue < 0)
+								dHue += 2.0 * Math.PI;
+						}
+						HUE[(((iSector << 8) | iDelta) << 9) + iDiff + 255] = toRGB(dHue, 0.5, 1.0);
+					}
+				}
+			}
+			
+			for(int iMax = 0; iMax < 256; iMax++)
+			{
+				for(int iMin = 0; iMin <= iMax; iMin++)
+				{
+					int iIndex = (iMax << 8) | iMin;
+					LIGHTNESS[iIndex] = toRGB(2.0 * Math.PI, lightness(iMax, iMin), 1.0);
+					SATURATION[iIndex] = toRGB(2.0 * Math.PI, 0.5, saturation(iMax, iMin));
+				}
+			}
+		}
+	}
+}
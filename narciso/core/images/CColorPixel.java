@@ -36,6 +36,7 @@ package core.images;
  * @see CPixel
  * @see CImage
  * @see CImageObject
+ * @see CColorConverter
  *
  */
 
@@ -50,6 +51,12 @@ public class CColorPixel extends CPixel
 	/** Membro privado utilizado para armazenar o valor da cor azul no formato RGB */
 	private int m_iBlue;
 	
+	/**
+	 * Membro privado utilizado para indicar que os valores no formato HLS esto desatualizados em relao aos valores
+	 * RGB. A converso de RGB para HLS s  efetuada quando algum dos valores HLS  efetivamente consultado.
+	 */
+	private boolean m_bHLSOutdated;
+	
 	/** 
 	 * Construtor principal da classe CColorPixel. Recebe como parmetros os valores para as cores formadoras do pixel,
 	 * no formato RGB.
@@ -76,6 +83,17 @@ public class CColorPixel extends CPixel
 		setHLS(dHue, dLightness, dSaturation);
 	}
 	
+	/** 
+	 * Construtor alternativo da classe CColorPixel. Recebe como parmetro o valor das cores formadoras do pixel
+	 * empacotadas em um nico inteiro, no formato utilizado pela classe BufferedImage (0xAARRGGBB).
+	 * 
+	 * @param iRGB Valor das cores empacotadas. O componente alfa  ignorado.
+	 */
+	public CColorPixel(final int iRGB)
+	{
+		setRGB(iRGB);
+	}
+	
 	/**
 	 * Mtodo setter da classe que permite alterar simultneamente os valores dos trs componentes do formato
 	 * RGB: vermelho, verde e azul. 
@@ -101,7 +119,32 @@ public class CColorPixel extends CPixel
 		else
 			m_iBlue = iBlue;
 		
-		updateHLSFromRGB();
+		m_bHLSOutdated = true;
+	}
+	
+	/**
+	 * Mtodo setter da classe que permite alterar simultneamente os valores dos trs componentes do formato
+	 * RGB a partir de um nico inteiro, no formato utilizado pela classe BufferedImage (0xAARRGGBB).
+	 * 
+	 * @param iRGB Valor das cores empacotadas. O componente alfa  ignorado.
+	 */
+	public void setRGB(final int iRGB)
+	{
+		m_iRed = (iRGB >> 16) & 0xff;
+		m_iGreen = (iRGB >> 8) & 0xff;
+		m_iBlue = iRGB & 0xff;
+		m_bHLSOutdated = true;
+	}
+	
+	/**
+	 * Mtodo getter que retorna os valores dos trs componentes do formato RGB empacotados em um nico inteiro,
+	 * no formato utilizado pela classe BufferedImage (0xAARRGGBB, com alfa sempre igual a 255).
+	 * 
+	 * @return Valor das cores empacotadas.
+	 */
+	public int getRGB()
+	{
+		return 0xff000000 | (m_iRed << 16) | (m_iGreen << 8) | m_iBlue;
 	}
 	
 	/**
@@ -115,6 +158,7 @@ public class CColorPixel extends CPixel
 	public void setHLS(final double dHue, final double dLightness, final double dSaturation)
 	{
 		super.setHLS(dHue, dLightness, dSaturation);
+		m_bHLSOutdated = false;
 		updateRGBFromHLS();
 	}
 	
@@ -132,7 +176,7 @@ public class CColorPixel extends CPixel
 		else
 			m_iRed = iValue;
 		
-		updateHLSFromRGB();
+		m_bHLSOutdated = true;
 	}
 	 
 	/**
@@ -159,7 +203,7 @@ public class CColorPixel extends CPixel
 		else
 			m_iGreen = iValue;
 		
-		updateHLSFromRGB();
+		m_bHLSOutdated = true;
 	}
 	 
 	/**
@@ -186,7 +230,7 @@ public class CColorPixel extends CPixel
 		else
 			m_iBlue = iValue;
 		
-		updateHLSFromRGB();
+		m_bHLSOutdated = true;
 	}
 	 
 	/**
@@ -207,6 +251,7 @@ public class CColorPixel extends CPixel
 	 */
 	public void setHue(double dHue)
 	{
+		updateHLSFromRGB();
 		super.setHue(dHue);
 		updateRGBFromHLS();
 	}
@@ -219,6 +264,7 @@ public class CColorPixel extends CPixel
 	 */
 	public void setLightness(double dLightness)
 	{
+		updateHLSFromRGB();
 		super.setLightness(dLightness);
 		updateRGBFromHLS();
 	}
@@ -231,10 +277,44 @@ public class CColorPixel extends CPixel
 	 */
 	public void setSaturation(double dSaturation)
 	{
+		updateHLSFromRGB();
 		super.setSaturation(dSaturation);
 		updateRGBFromHLS();
 	}
 
+	/**
+	 * Mtodo getter sobrecarregado da matiz para o pixel. Efetua a converso de RGB para HLS apenas se necessrio.
+	 * 
+	 * @return Valor atual da matiz do pixel, no intervalo de 0.0 a (2.0 * Math.PI).
+	 */
+	public double getHue()
+	{
+		updateHLSFromRGB();
+		return m_dHue;
+	}
+	
+	/**
+	 * Mtodo getter sobrecarregado da luminosidade para o pixel. Efetua a converso de RGB para HLS apenas se necessrio.
+	 * 
+	 * @return Valor atual da luminosidade do pixel, no intervalo de 0.0 a 1.0.
+	 */
+	public double getLightness()
+	{
+		updateHLSFromRGB();
+		return m_dLightness;
+	}
+	
+	/**
+	 * Mtodo getter sobrecarregado da saturao para o pixel. Efetua a converso de RGB para HLS apenas se necessrio.
+	 * 
+	 * @return Valor atual da saturao do pixel, no intervalo de 0.0 a 1.0.
+	 */
+	public double getSaturation()
+	{
+		updateHLSFromRGB();
+		return m_dSaturation;
+	}
+
 	/**
 	 * Gera uma instncia da classe CGrayScalePixel contendo o pixel atual convertido para escala de cinza.
 	 * A converso  baseada diretamente no valor de luminosidade do pixel atual.
@@ -243,45 +323,40 @@ public class CColorPixel extends CPixel
 	 */
 	public CGrayScalePixel toGrayScale()
 	{
-		return new CGrayScalePixel((int) (m_dLightness * 255.0));
+		return new CGrayScalePixel((int) (getLightness() * 255.0));
+	}
+
+	/**
+	 * Calcula o valor de brilho em escala de cinza para as cores RGB dadas, sem a necessidade de criao de objetos.
+	 * O resultado  o mesmo obtido pelo mtodo toGrayScale em um pixel com as cores informadas, e por isso  indicado
+	 * para rotinas que percorrem todos os pixels de uma imagem.
+	 * 
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 * @return Valor do brilho, no intervalo de 0 a 255.
+	 */
+	public static int toGrayScale(final int iRed, final int iGreen, final int iBlue)
+	{
+		double dMin = Math.min(Math.min(iRed, iGreen), iBlue) / 255.0;
+		double dMax = Math.max(Math.max(iRed, iGreen), iBlue) / 255.0;
+		return (int) (((dMax + dMin) / 2.0) * 255.0);
 	}
 
 	/**
 	 * Mtodo privado de utilizao interna da classe.  utilizado para atualizar os valores  do formato HLS quando
-	 * o valor de qualquer componente do formato RGB  atualizado.
+	 * o valor de qualquer componente do formato RGB  atualizado. A converso s  efetuada se os valores HLS
+	 * estiverem desatualizados.
 	 */
 	private void updateHLSFromRGB()
 	{
-		double dR = m_iRed / 255.0;
-		double dG = m_iGreen / 255.0;
-		double dB = m_iBlue / 255.0;
-
-		double dMin = Math.min(Math.min(dR, dG), dB);
-		double dMax = Math.max(Math.max(dR, dG), dB);
-		double dDelta = dMax - dMin;
-
-		m_dLightness = (dMax + dMin) / 2.0;
-
-		if(m_dLightness <= 0)
-			m_dSaturation = 0.0;
-		else if(m_dLightness <= 0.5)
-			m_dSaturation = dDelta / (m_dLightness * 2.0);
-		else
-			m_dSaturation = dDelta / (2.0 - (m_dLightness * 2.0));
-				
-		if(dDelta == 0)
-			m_dHue = 0.0;
-		else if(dMax == dR)
-		{
-			if(dG >= dB)
-				m_dHue = (Math.PI / 3.0) * ((dG - dB) / dDelta); 
-			else
-				m_dHue = (Math.PI / 3.0) * ((dG - dB) / dDelta) + (2.0 * Math.PI);
-		}
-		else if(dMax == dG)
-			m_dHue = (Math.PI / 3.0) * ((dB - dR) / dDelta) + ((2.0 / 3.0) * Math.PI);
-		else // dMax == dB
-			m_dHue = (Math.PI / 3.0) * ((dR - dG) / dDelta) + ((4.0 / 3.0) * Math.PI);
+		if(!m_bHLSOutdated)
+			return;
+		m_bHLSOutdated = false;
+		
+		m_dHue = CColorConverter.getHue(m_iRed, m_iGreen, m_iBlue);
+		m_dLightness = CColorConverter.getLightness(m_iRed, m_iGreen, m_iBlue);
+		m_dSaturation = CColorConverter.getSaturation(m_iRed, m_iGreen, m_iBlue);
 	}
 	
 	/**
@@ -290,43 +365,9 @@ public class CColorPixel extends CPixel
 	 */
 	private void updateRGBFromHLS()
 	{
-		double dTemp2;
-		
-		if(m_dLightness < 0.5)
-			dTemp2 = m_dLightness * (1.0 + m_dSaturation);
-		else
-			dTemp2 = m_dLightness + m_dSaturation - (m_dLightness * m_dSaturation);
-		
-		double dTemp1 = 2.0 * m_dLightness - dTemp2;
-		
-		double dHue = m_dHue / (2.0 * Math.PI);
-		
-		double aTemp3[] = new double[3];
-		double aRGB[] = new double[3];
-		
-		aTemp3[0] = dHue + (1.0 / 3.0);
-		aTemp3[1] = dHue;
-		aTemp3[2] = dHue - (1.0 / 3.0);
-		
-		for(int i = 0; i < 3; i++)
-		{
-			if(aTemp3[i] < 0)
-				aTemp3[i] += 1.0;
-			else if(aTemp3[i] > 1)
-				aTemp3[i] -= 1.0;
-			
-			if(aTemp3[i] < (1.0 / 6.0))
-				aRGB[i] = dTemp1 + ((dTemp2 - dTemp1) * 6.0 * aTemp3[i]);
-			else if(aTemp3[i] < (1.0 / 2.0))
-				aRGB[i] = dTemp2;
-			else if(aTemp3[i] < (2.0 / 3.0))
-				aRGB[i] = dTemp1 + ((dTemp2 - dTemp1) * ((2.0 / 3.0) - aTemp3[i]) * 6.0);
-			else
-				aRGB[i] = aTemp3[i];
-		}
-		
-		m_iRed = (int) (aRGB[0] * 255.0);
-		m_iGreen = (int) (aRGB[1] * 255.0);
-		m_iBlue = (int) (aRGB[2] * 255.0);
-	}	
-}
\ No newline at end of file
+		int iRGB = CColorConverter.toRGB(m_dHue, m_dLightness, m_dSaturation);
+		m_iRed = (iRGB >> 16) & 0xff;
+		m_iGreen = (iRGB >> 8) & 0xff;
+		m_iBlue = iRGB & 0xff;
+	}
+}
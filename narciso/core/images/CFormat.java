@@ -22,7 +22,35 @@
  
 package core.images;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Properties;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.media.jai.PlanarImage;
+import javax.media.jai.TiledImage;
+
+import core.errors.CErrors;
 
 /**
  * CFormat  a classe bsica abstrata para a manipulao de arquivos de imagens (carregamento e gravao) em
@@ -30,6 +58,14 @@ import javax.media.jai.PlanarImage;
  * manipulao do nome do ltimo arquivo carregado/gravado para facilitar as operaes em uma
  * interface grfica, por exemplo. 
  * 
+ * Alm do carregamento completo, a classe implementa o carregamento de apenas uma regio da imagem e/ou de uma
+ * verso reduzida por amostragem (subsampling), atravs dos leitores do Image I/O do Java, que decodificam apenas
+ * os dados necessrios (por exemplo, apenas os blocos e faixas de um arquivo TIFF que interceptam a regio). Os
+ * formatos sem leitor Image I/O disponvel so carregados por completo e ento recortados e reduzidos.
+ * 
+ * A gravao tambm  efetuada atravs do Image I/O (mtodo write), com parmetros de codificao especficos de
+ * cada formato (como a qualidade da compresso JPEG) informados no formato nome=valor.
+ * 
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
  * @version 1.0
@@ -44,6 +80,9 @@ import javax.media.jai.PlanarImage;
 
 public abstract class CFormat
 {
+	/** Constante com o tamanho (em bytes) do buffer utilizado na gravao dos arquivos. */
+	protected static final int WRITE_BUFFER_SIZE = 256 * 1024;
+	
 	/**
 	 * Mtodo abstrato com o propsito de implementar a gravao de uma imagem ou objeto de imagem em um formato especfico.
 	 *  definido na classe CFormat como abstract, e deve ser implementado por cada uma das classes herdadas.
@@ -54,6 +93,31 @@ public abstract class CFormat
 	 */
 	public abstract int save(PlanarImage pImage, String sFile);
 	
+	/**
+	 * Mtodo utilizado para a gravao de uma imagem com parmetros de codificao especficos do formato. A
+	 * implementao padro ignora os parmetros e utiliza o mtodo save(PlanarImage, String).
+	 * 
+	 * @param pImage Objeto da classe PlanarImage com a imagem a ser gravada.
+	 * @param sFile Nome do arquivo para gravao.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	public int save(PlanarImage pImage, String sFile, Properties pParams)
+	{
+		return save(pImage, sFile);
+	}
+	
+	/**
+	 * Mtodo utilizado para indicar se o formato permite a gravao de imagens. A implementao padro retorna
+	 * true, e deve ser sobrescrita pelas classes herdadas dos formatos suportados apenas para leitura.
+	 * 
+	 * @return True se as imagens podem ser gravadas no formato, false caso contrrio.
+	 */
+	public boolean canSave()
+	{
+		return true;
+	}
+	
 	/**
 	 * Mtodo abstrato com o propsito de implementar o carregamento de uma imagem de um formato especfico.
 	 *  definido na classe CFormat como abstract, e deve ser implementado por cada uma das classes herdadas.
@@ -62,4 +126,289 @@ public abstract class CFormat
 	 * @return Objeto PlanarImage com a imagem lida, ou nulo (null) se a imagem no pode ser carregada.
 	 */
 	public abstract PlanarImage load(String sFile);
+	
+	/**
+	 * Mtodo utilizado para carregar apenas uma regio de uma imagem e/ou uma verso reduzida por amostragem
+	 * (subsampling), na qual apenas um a cada iSubsampling pixels de cada linha e coluna  lido. A regio  dada
+	 * nas coordenadas da imagem completa, e a imagem retornada tem origem nas coordenadas (0, 0).
+	 * 
+	 * @param sFile Nome do arquivo para carregamento.
+	 * @param pRegion Regio da imagem a ser carregada, ou null para a imagem inteira. A regio  limitada s
+	 * dimenses da imagem.
+	 * @param iSubsampling Fator de amostragem. O valor 1 carrega todos os pixels da regio.
+	 * @return Objeto PlanarImage com a imagem lida, ou nulo (null) se a imagem no pode ser carregada ou se a regio
+	 * no intercepta a imagem.
+	 */
+	public PlanarImage load(String sFile, Rectangle pRegion, int iSubsampling)
+	{
+		if(pRegion == null && iSubsampling <= 1)
+			return load(sFile);
+		iSubsampling = Math.max(iSubsampling, 1);
+		
+		ImageInputStream pStream = null;
+		ImageReader pReader = null;
+		try
+		{
+			pStream = ImageIO.createImageInputStream(new File(sFile));
+			pReader = (pStream == null ? null : getReader(pStream));
+			if(pReader != null)
+			{
+				Rectangle pBounds = new Rectangle(0, 0, pReader.getWidth(0), pReader.getHeight(0));
+				if(pRegion != null)
+				{
+					pBounds = pBounds.intersection(pRegion);
+					if(pBounds.isEmpty())
+						return null;
+				}
+				
+				ImageReadParam pParam = pReader.getDefaultReadParam();
+				pParam.setSourceRegion(pBounds);
+				pParam.setSourceSubsampling(iSubsampling, iSubsampling, 0, 0);
+				BufferedImage pImage = pReader.read(0, pParam);
+				return PlanarImage.wrapRenderedImage(pImage);
+			}
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+		finally
+		{
+			if(pReader != null)
+				pReader.dispose();
+			if(pStream != null)
+			{
+				try
+				{
+					pStream.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+		}
+		
+		/*
+		 * No h leitor Image I/O para o formato: a imagem  carregada por completo, e a regio  copiada com a
+		 * mesma amostragem efetuada pelos leitores (o primeiro pixel de cada grupo de iSubsampling pixels).
+		 */
+		
+		PlanarImage pImage = load(sFile);
+		if(pImage == null)
+			return null;
+		
+		Rectangle pBounds = pImage.getBounds();
+		if(pRegion != null)
+		{
+			pBounds = pBounds.intersection(new Rectangle(pRegion.x + pBounds.x, pRegion.y + pBounds.y, pRegion.width, pRegion.height));
+			if(pBounds.isEmpty())
+				return null;
+		}
+		
+		Raster pData = pImage.getData(pBounds);
+		int iWidth = (pBounds.width + iSubsampling - 1) / iSubsampling;
+		int iHeight = (pBounds.height + iSubsampling - 1) / iSubsampling;
+		int iBands = pData.getNumBands();
+		WritableRaster pTarget = pData.createCompatibleWritableRaster(iWidth, iHeight);
+		
+		double aRow[] = null;
+		double aTarget[] = new double[iWidth * iBands];
+		for(int y = 0; y < iHeight; y++)
+		{
+			aRow = pData.getPixels(pBounds.x, pBounds.y + y * iSubsampling, pBounds.width, 1, aRow);
+			for(int x = 0; x < iWidth; x++)
+				System.arraycopy(aRow, x * iSubsampling * iBands, aTarget, x * iBands, iBands);
+			pTarget.setPixels(0, y, iWidth, 1, aTarget);
+		}
+		
+		TiledImage pResult = new TiledImage(0, 0, iWidth, iHeight, 0, 0, pTarget.getSampleModel(), pImage.getColorModel());
+		pResult.setData(pTarget);
+		return pResult;
+	}
+	
+	/**
+	 * Mtodo utilizado para obter as dimenses de uma imagem sem decodificar os seus pixels, sempre que houver um
+	 * leitor Image I/O disponvel para o formato.
+	 * 
+	 * @param sFile Nome do arquivo da imagem.
+	 * @return Objeto Dimension com a largura e a altura da imagem, ou nulo (null) se a imagem no pode ser lida.
+	 */
+	public Dimension getDimension(String sFile)
+	{
+		ImageInputStream pStream = null;
+		ImageReader pReader = null;
+		try
+		{
+			pStream = ImageIO.createImageInputStream(new File(sFile));
+			pReader = (pStream == null ? null : getReader(pStream));
+			if(pReader != null)
+				return new Dimension(pReader.getWidth(0), pReader.getHeight(0));
+		}
+		catch(Exception e)
+		{
+			return null;
+		}
+		finally
+		{
+			if(pReader != null)
+				pReader.dispose();
+			if(pStream != null)
+			{
+				try
+				{
+					pStream.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+		}
+		
+		PlanarImage pImage = load(sFile);
+		return (pImage == null ? null : new Dimension(pImage.getWidth(), pImage.getHeight()));
+	}
+	
+	/**
+	 * Mtodo utilizado para calcular o maior fator de amostragem (subsampling) que mantm a largura e a altura de
+	 * uma imagem com pelo menos o tamanho mnimo dado.  utilizado na gerao de miniaturas, de modo que apenas os
+	 * pixels necessrios sejam lidos antes do redimensionamento final.
+	 * 
+	 * @param iWidth Largura em pixels da imagem.
+	 * @param iHeight Altura em pixels da imagem.
+	 * @param iMinSize Tamanho mnimo, em pixels, da largura e da altura aps a amostragem.
+	 * @return Fator de amostragem, maior ou igual a 1.
+	 */
+	public static int getSubsampling(int iWidth, int iHeight, int iMinSize)
+	{
+		if(iMinSize <= 0)
+			return 1;
+		return Math.max(1, Math.min(iWidth, iHeight) / iMinSize);
+	}
+	
+	/**
+	 * Mtodo utilizado pelas classes filhas para gravar uma imagem atravs de um escritor Image I/O do formato de
+	 * nome dado. Os parmetros de codificao so aplicados pelo mtodo configure. A imagem  obtida do objeto
+	 * dado faixa a faixa (ou bloco a bloco) pelo escritor, e os dados codificados so gravados atravs de um
+	 * buffer. Se a gravao falhar, o arquivo incompleto  removido.
+	 * 
+	 * @param pImage Imagem a ser gravada.
+	 * @param sFile Nome do arquivo para gravao.
+	 * @param sFormatName Nome do formato para o Image I/O (por exemplo, "png").
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @param bRandomAccess Valor lgico (true ou false) indicando se o escritor precisa de acesso aleatrio ao
+	 * arquivo (como no formato TIFF, cujos ndices so atualizados aps a gravao dos dados). Se false, os dados
+	 * so gravados sequencialmente.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, CErrors.ERROR_INVALID_TYPE se a
+	 * imagem no pode ser codificada no formato, CErrors.ERROR_INVALID_PARAMETER se um parmetro de codificao 
+	 * invlido ou CErrors.ERROR_WRITING_FILE se ocorreu um erro na gravao do arquivo.
+	 */
+	protected int write(RenderedImage pImage, String sFile, String sFormatName, Properties pParams, boolean bRandomAccess)
+	{
+		Iterator<ImageWriter> it = ImageIO.getImageWritersByFormatName(sFormatName);
+		ImageWriter pWriter = null;
+		while(it.hasNext() && pWriter == null)
+		{
+			ImageWriter pCandidate = it.next();
+			if(pCandidate.getOriginatingProvider().canEncodeImage(pImage))
+				pWriter = pCandidate;
+		}
+		if(pWriter == null)
+			return CErrors.ERROR_INVALID_TYPE;
+		
+		ImageWriteParam pParam = pWriter.getDefaultWriteParam();
+		try
+		{
+			configure(pParam, (pParams == null ? new Properties() : pParams));
+		}
+		catch(IllegalArgumentException e)
+		{
+			pWriter.dispose();
+			return CErrors.ERROR_INVALID_PARAMETER;
+		}
+		
+		OutputStream pStream = null;
+		ImageOutputStream pOutput = null;
+		boolean bSuccess = false;
+		try
+		{
+			if(bRandomAccess)
+			{
+				RandomAccessFile pFile = new RandomAccessFile(sFile, "rw");
+				pFile.setLength(0);
+				pOutput = new FileImageOutputStream(pFile);
+			}
+			else
+			{
+				pStream = new BufferedOutputStream(new FileOutputStream(sFile), WRITE_BUFFER_SIZE);
+				pOutput = new MemoryCacheImageOutputStream(pStream);
+			}
+			
+			pWriter.setOutput(pOutput);
+			pWriter.write(null, new IIOImage(pImage, null, null), pParam);
+			pOutput.close();
+			pOutput = null;
+			if(pStream != null)
+			{
+				pStream.close();
+				pStream = null;
+			}
+			bSuccess = true;
+		}
+		catch(IOException e)
+		{
+			return CErrors.ERROR_WRITING_FILE;
+		}
+		catch(RuntimeException e)
+		{
+			return CErrors.ERROR_WRITING_FILE;
+		}
+		finally
+		{
+			pWriter.dispose();
+			try
+			{
+				if(pOutput != null)
+					pOutput.close();
+				if(pStream != null)
+					pStream.close();
+			}
+			catch(IOException e)
+			{
+			}
+			if(!bSuccess)
+				new File(sFile).delete();
+		}
+		
+		return CErrors.SUCCESS;
+	}
+	
+	/**
+	 * Mtodo utilizado pelas classes filhas para aplicar os parmetros de codificao do formato aos parmetros do
+	 * escritor Image I/O. A implementao padro no utiliza nenhum parmetro.
+	 * 
+	 * @param pParam Parmetros do escritor Image I/O a serem configurados.
+	 * @param pParams Parmetros de codificao (nome=valor) informados na gravao.
+	 * @throws IllegalArgumentException Se um parmetro de codificao contm um valor invlido.
+	 */
+	protected void configure(ImageWriteParam pParam, Properties pParams)
+	{
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm um leitor Image I/O para a imagem do fluxo dado, com
+	 * o fluxo j configurado como a sua entrada.
+	 * 
+	 * @param pStream Fluxo de leitura da imagem.
+	 * @return Objeto ImageReader para a leitura da imagem, ou null se no h leitor disponvel para o formato.
+	 */
+	private static ImageReader getReader(ImageInputStream pStream)
+	{
+		Iterator<ImageReader> it = ImageIO.getImageReaders(pStream);
+		if(!it.hasNext())
+			return null;
+		
+		ImageReader pReader = it.next();
+		pReader.setInput(pStream, true, true);
+		return pReader;
+	}
 }
\ No newline at end of file
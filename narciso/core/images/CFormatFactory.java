@@ -22,6 +22,7 @@
  
 package core.images;
 
+import java.io.*;
 import java.util.*;
 
 /**
@@ -29,6 +30,12 @@ import java.util.*;
  * Segue o padro de design Abstract Factory, e  utilizada pelo sistema quando precisa ler ou gravar um arquivo de imagem,
  * abstraindo a necessidade do sistema de conhecer como os formatos so lidos ou gravados.
  * 
+ * O formato de um arquivo existente pode ser obtido pela extenso do seu nome ou pelo seu contedo: nesse caso,
+ * apenas os primeiros bytes do arquivo so lidos e comparados com as assinaturas (nmeros mgicos) dos formatos
+ * conhecidos, de modo que um arquivo com extenso incorreta  carregado pelo formato correto e um arquivo que no
+ *  de imagem  descartado sem nenhuma tentativa de decodificao. Formatos adicionais podem ser reconhecidos
+ * atravs de provedores (IFormatProvider) registrados como servios do Java.
+ * 
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
  * @version 1.0
@@ -39,6 +46,7 @@ import java.util.*;
  * @see CTIFFFormat
  * @see CPNGFormat
  * @see CImage
+ * @see IFormatProvider
  *
  */
 
@@ -46,9 +54,31 @@ public class CFormatFactory {
 	
 	/** Membro publico esttico e final utilizado para enumerar os tipos de imagens passveis de manipulao em arquivo pela classe. */
 	public static enum CFormatEnum { BITMAP, JPEG, GIF, TIFF, PNG };
+	
+	/** Membro publico esttico e final com o nmero de bytes do cabealho lido dos arquivos para a deteco do formato. */
+	public static final int HEADER_SIZE = 16;
+	
+	/** Membro privado esttico e final com as assinaturas (nmeros mgicos) dos formatos conhecidos. */
+	private static final CSignature[] SIGNATURES = {
+		new CSignature(CFormatEnum.PNG, new int[] { 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A }),
+		new CSignature(CFormatEnum.JPEG, new int[] { 0xFF, 0xD8, 0xFF }),
+		new CSignature(CFormatEnum.TIFF, new int[] { 'I', 'I', 42, 0 }),
+		new CSignature(CFormatEnum.TIFF, new int[] { 'M', 'M', 0, 42 }),
+		new CSignature(CFormatEnum.GIF, new int[] { 'G', 'I', 'F', '8' }),
+		new CSignature(CFormatEnum.BITMAP, new int[] { 'B', 'M' })
+	};
+	
+	/** Membro privado esttico utilizado para armazenar um buffer de leitura de cabealhos por thread, reaproveitado a cada deteco. */
+	private static final ThreadLocal<byte[]> m_pHeaderBuffer = new CHeaderBuffer();
 
 	/** Membro privado utilizado para armazenar as instncias especficas criadas pelo factory para cada formato suportado pelo sistema. */
 	private Map<CFormatEnum, CFormat> m_aFormats; 
+	
+	/** Membro privado utilizado para armazenar os provedores de formatos adicionais registrados como servios. */
+	private Vector<IFormatProvider> m_vProviders;
+	
+	/** Membro privado utilizado para armazenar as instncias criadas pelos provedores de formatos adicionais. */
+	private Map<IFormatProvider, CFormat> m_aProviderFormats;
 
 	/** Membro privado esttico utilizado para armazenar uma instncia nica (singleton) da classe. */
 	private static CFormatFactory m_pInstance;
@@ -59,6 +89,23 @@ public class CFormatFactory {
 	protected CFormatFactory()
 	{
 		m_aFormats = new HashMap<CFormatEnum, CFormat>();
+		m_aProviderFormats = new HashMap<IFormatProvider, CFormat>();
+		m_vProviders = new Vector<IFormatProvider>();
+		
+		Iterator<IFormatProvider> pIt = ServiceLoader.load(IFormatProvider.class).iterator();
+		while(true)
+		{
+			try
+			{
+				if(!pIt.hasNext())
+					break;
+				m_vProviders.add(pIt.next());
+			}
+			catch(ServiceConfigurationError e)
+			{
+				// Provedor invlido ou no instancivel:  ignorado, mantendo os demais
+			}
+		}
 	}
 
 	/**
@@ -66,7 +113,7 @@ public class CFormatFactory {
 	 * 
 	 * @return Objeto da classe CFormatFactory com a instncia nica.
 	 */
-	public static CFormatFactory getInstance()
+	public static synchronized CFormatFactory getInstance()
 	{
 		if(m_pInstance == null)
 			m_pInstance = new CFormatFactory();
@@ -81,7 +128,7 @@ public class CFormatFactory {
 	 * @param eFormat Enumerao indicativa do formato a ser obtido.
 	 * @return Instncia da classe de formato concreta, abstraida pela classe CFormat.
 	 */
-	public CFormat getFormat(CFormatEnum eFormat)
+	public synchronized CFormat getFormat(CFormatEnum eFormat)
 	{
 		CFormat pRet = m_aFormats.get(eFormat);
 		
@@ -105,4 +152,248 @@ public class CFormatFactory {
 		
 		return pRet;
 	}
+	
+	/**
+	 * Mtodo utilizado para obter a classe de formato capaz de carregar um arquivo de imagem existente, de acordo
+	 * com o seu contedo. Os formatos conhecidos (CFormatEnum) so verificados antes dos provedores de formatos
+	 * adicionais.
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo).
+	 * @return Instncia da classe de formato concreta, abstraida pela classe CFormat, ou null se o arquivo no
+	 * puder ser lido ou o seu contedo no for reconhecido.
+	 */
+	public CFormat getFormatByContent(String sFile)
+	{
+		byte[] aHeader = m_pHeaderBuffer.get();
+		int iLength = readHeader(sFile, aHeader);
+		if(iLength <= 0)
+			return null;
+		
+		CFormatEnum eFormat = matchSignature(aHeader, iLength);
+		if(eFormat != null)
+			return getFormat(eFormat);
+		
+		for(IFormatProvider pProvider: m_vProviders)
+		{
+			if(pProvider.matches(aHeader, iLength))
+				return getProviderFormat(pProvider);
+		}
+		return null;
+	}
+	
+	/**
+	 * Mtodo utilizado para obter o formato de um arquivo de imagem de acordo com o seu contedo, dentre os formatos
+	 * conhecidos (CFormatEnum). Apenas os primeiros HEADER_SIZE bytes do arquivo so lidos.
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo).
+	 * @return Formato do arquivo, conforme definio em CFormatEnum, ou null se o arquivo no puder ser lido ou o seu
+	 * contedo no corresponder a nenhum dos formatos conhecidos.
+	 */
+	public static CFormatEnum detectFormat(String sFile)
+	{
+		byte[] aHeader = m_pHeaderBuffer.get();
+		int iLength = readHeader(sFile, aHeader);
+		if(iLength <= 0)
+			return null;
+		return matchSignature(aHeader, iLength);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm (criando na primeira utilizao) a instncia da classe
+	 * de formato de um provedor de formatos adicionais.
+	 * 
+	 * @param pProvider Objeto IFormatProvider com o provedor.
+	 * @return Instncia da classe de formato do provedor.
+	 */
+	private synchronized CFormat getProviderFormat(IFormatProvider pProvider)
+	{
+		CFormat pRet = m_aProviderFormats.get(pProvider);
+		if(pRet == null)
+		{
+			pRet = pProvider.createFormat();
+			m_aProviderFormats.put(pProvider, pRet);
+		}
+		return pRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. L os primeiros bytes de um arquivo no buffer dado.
+	 * 
+	 * @param sFile Nome do arquivo.
+	 * @param aBuffer Vetor de bytes para a leitura (com pelo menos HEADER_SIZE posies).
+	 * @return Nmero de bytes lidos, ou -1 se o arquivo no pde ser lido.
+	 */
+	private static int readHeader(String sFile, byte[] aBuffer)
+	{
+		InputStream pStream = null;
+		try
+		{
+			pStream = new FileInputStream(sFile);
+			int iLength = 0;
+			while(iLength < HEADER_SIZE)
+			{
+				int iRead = pStream.read(aBuffer, iLength, HEADER_SIZE - iLength);
+				if(iRead < 0)
+					break;
+				iLength += iRead;
+			}
+			return iLength;
+		}
+		catch(IOException e)
+		{
+			return -1;
+		}
+		finally
+		{
+			if(pStream != null)
+			{
+				try
+				{
+					pStream.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Compara um cabealho com as assinaturas dos formatos conhecidos.
+	 * 
+	 * @param aHeader Vetor com os primeiros bytes do arquivo.
+	 * @param iLength Nmero de bytes vlidos no vetor.
+	 * @return Formato cuja assinatura corresponde ao cabealho, ou null se nenhuma corresponder.
+	 */
+	private static CFormatEnum matchSignature(byte[] aHeader, int iLength)
+	{
+		for(CSignature pSignature: SIGNATURES)
+		{
+			if(pSignature.matches(aHeader, iLength))
+				return pSignature.getFormat();
+		}
+		return null;
+	}
+	
+	/**
+	 * Mtodo utilizado para obter o formato de um arquivo de imagem de acordo com a extenso de seu nome. A
+	 * comparao da extenso no diferencia letras maisculas e minsculas.
+	 * 
+	 * @param sFile Nome do arquivo (com ou sem o diretrio).
+	 * @return Formato do arquivo, conforme definio em CFormatEnum, ou null se a extenso no for reconhecida.
+	 */
+	public static CFormatEnum getFormatByExtension(String sFile)
+	{
+		int iSep = Math.max(sFile.lastIndexOf('/'), sFile.lastIndexOf('\\'));
+		int iPos = sFile.lastIndexOf('.');
+		if(iPos <= iSep + 1 || iPos >= sFile.length() - 1)
+			return null;
+		
+		String sExt = sFile.substring(iPos + 1).toLowerCase();
+		if(sExt.equals("bmp"))
+			return CFormatEnum.BITMAP;
+		else if(sExt.equals("gif"))
+			return CFormatEnum.GIF;
+		else if(sExt.equals("jpeg") || sExt.equals("jpg"))
+			return CFormatEnum.JPEG;
+		else if(sExt.equals("tiff") || sExt.equals("tif"))
+			return CFormatEnum.TIFF;
+		else if(sExt.equals("png"))
+			return CFormatEnum.PNG;
+		else
+			return null;
+	}
+	
+	/**
+	 * Mtodo utilizado para obter a extenso padro dos arquivos de imagem do formato dado.
+	 * 
+	 * @param eFormat Formato da imagem, conforme definio em CFormatEnum.
+	 * @return Texto da extenso (sem o ponto), ou null se o formato for invlido.
+	 */
+	public static String getDefaultExtension(CFormatEnum eFormat)
+	{
+		if(eFormat == CFormatEnum.BITMAP)
+			return "bmp";
+		else if(eFormat == CFormatEnum.GIF)
+			return "gif";
+		else if(eFormat == CFormatEnum.JPEG)
+			return "jpg";
+		else if(eFormat == CFormatEnum.TIFF)
+			return "tif";
+		else if(eFormat == CFormatEnum.PNG)
+			return "png";
+		else
+			return null;
+	}
+	
+	/**
+	 * Classe privada utilizada para armazenar a assinatura (nmero mgico) que inicia os arquivos de um formato.
+	 */
+	private static class CSignature
+	{
+		/** Membro privado utilizado para armazenar o formato da assinatura. */
+		private CFormatEnum m_eFormat;
+		
+		/** Membro privado utilizado para armazenar os bytes da assinatura. */
+		private byte[] m_aMagic;
+		
+		/**
+		 * Construtor da classe CSignature.
+		 * 
+		 * @param eFormat Formato da assinatura.
+		 * @param aMagic Vetor com os valores (de 0 a 255) dos bytes da assinatura.
+		 */
+		public CSignature(CFormatEnum eFormat, int[] aMagic)
+		{
+			m_eFormat = eFormat;
+			m_aMagic = new byte[aMagic.length];
+			for(int i = 0; i < aMagic.length; i++)
+				m_aMagic[i] = (byte) aMagic[i];
+		}
+		
+		/**
+		 * Verifica se um cabealho inicia com a assinatura.
+		 * 
+		 * @param aHeader Vetor com os primeiros bytes do arquivo.
+		 * @param iLength Nmero de bytes vlidos no vetor.
+		 * @return True se o cabealho inicia com a assinatura, false caso contrrio.
+		 */
+		public boolean matches(byte[] aHeader, int iLength)
+		{
+			if(iLength < m_aMagic.length)
+				return false;
+			for(int i = 0; i < m_aMagic.length; i++)
+			{
+				if(aHeader[i] != m_aMagic[i])
+					return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * Mtodo getter do formato da assinatura.
+		 * 
+		 * @return Formato da assinatura, conforme definio em CFormatEnum.
+		 */
+		public CFormatEnum getFormat()
+		{
+			return m_eFormat;
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para criar o buffer de leitura de cabealhos de cada thread.
+	 */
+	private static class CHeaderBuffer extends ThreadLocal<byte[]>
+	{
+		/**
+		 * Cria o buffer de leitura de cabealhos da thread atual.
+		 * 
+		 * @return Vetor de bytes com HEADER_SIZE posies.
+		 */
+		protected byte[] initialValue()
+		{
+			return new byte[HEADER_SIZE];
+		}
+	}
 }
\ No newline at end of file
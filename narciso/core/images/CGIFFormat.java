@@ -22,6 +22,7 @@
  
 package core.images;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.FileInputStream;
 import java.io.InputStream;
@@ -87,7 +88,7 @@ public class CGIFFormat extends CFormat
 	 * <b>ATENO: Devido ao fato de que o formato GIF no  um formato aberto, e sim protegido por direitos de utilizao,
 	 * o sistema Narciso no implementa a gravao de imagens nesse formato. Mesmo assim o mtodo foi implementado seguindo
 	 * a interface padro definida em CFormat de modo a manter a padronizao. Se executado, esse mtodo exibe uma janela de 
-	 * dilogo informado que o formato GIF no  suportado para gravao.</b>
+	 * dilogo informado que o formato GIF no  suportado para gravao (exceto em ambientes sem interface grfica).</b>
 	 *
 	 * @param pImage Objeto PlanarImage (JAI) contendo a imagem a ser gravada.
 	 * @param sFile Nome do arquivo de imagem a ser gravado.
@@ -96,8 +97,21 @@ public class CGIFFormat extends CFormat
 	@Override
 	public int save(PlanarImage pImage, String sFile)
 	{
-		JOptionPane.showMessageDialog(null,"Esto verso do Narciso ainda suporta salvar imagens GIF.\nDesculpe o transtorno.");
+		if(!GraphicsEnvironment.isHeadless())
+			JOptionPane.showMessageDialog(null,"Esto verso do Narciso ainda suporta salvar imagens GIF.\nDesculpe o transtorno.");
 		return CErrors.ERROR_INVALID_TYPE;
 	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat, indicando que o formato GIF  suportado apenas para leitura (veja o
+	 * mtodo save).
+	 * 
+	 * @return Sempre false.
+	 */
+	@Override
+	public boolean canSave()
+	{
+		return false;
+	}
 
 }
@@ -27,6 +27,16 @@ package core.images;
  * Os pixels so representados pela classe CPixel e so posicionados de acordo com um plano cartesiano imaginrio, 
  * de modo que seu acesso e manipulao se d atravs de duas coordenadas inteiras X e Y. O nmero de pixels em cada
  * "linha" do eixo Y  o mesmo, assim como o nmero de pixels em cada "coluna" do eixo X.
+ * 
+ * Os pixels so normalmente mantidos em memria. Imagens cujos pixels ocupariam mais do que o limite definido pelo
+ * mtodo setMappingThreshold so armazenadas em um arquivo temporrio mapeado em memria (CMappedImage), do qual
+ * apenas os blocos (tiles) recentemente utilizados so mantidos em memria. O acesso aos pixels  o mesmo nos dois
+ * casos.
+ * 
+ * As amostras so mantidas no tipo de dado e no nmero de bandas originais da imagem (por exemplo, imagens de 16
+ * bits por amostra carregadas de arquivos TIFF), sem converso para 8 bits. Os mtodos getSamples e setSamples com
+ * vetores do tipo short e float do acesso s amostras nesses tipos, enquanto os mtodos baseados em CPixel e nos
+ * valores RGB continuam a representar as cores em 8 bits, atravs do modelo de cores da imagem.
  *   
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
@@ -34,13 +44,22 @@ package core.images;
  * 
  * @see CPixel
  * @see CImageObject
+ * @see CMappedImage
  *
  */
 
-import java.awt.Color;
+import java.awt.*;
+import java.awt.color.ColorSpace;
 import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.awt.image.renderable.ParameterBlock;
 import javax.media.jai.*;
 import core.errors.*;
+import core.operations.IOperationMonitor;
 
 public class CImage
 {
@@ -65,8 +84,60 @@ public class CImage
 	/** Membro protegido utilizado para armazenar o nome do ltimo arquivo manipulado (carregado/gravado). */
 	protected String m_sCurrentFile;	
 	
-	/** Membro privado utilizado para armazenar o buffer de pixels formadores da imagem. */
-	private BufferedImage m_pBuffer;
+	/**
+	 * Membro privado utilizado para armazenar o buffer de pixels formadores da imagem.  nulo (null) enquanto a
+	 * imagem estiver representada apenas por uma imagem JAI ainda no renderizada (m_pDeferred).
+	 */
+	private volatile BufferedImage m_pBuffer;
+	
+	/**
+	 * Membro privado utilizado para armazenar a imagem JAI (tipicamente o resultado de uma cadeia de operaes
+	 * RenderedOp) que ainda no foi renderizada no buffer de pixels. A renderizao s  efetuada quando os pixels
+	 * so efetivamente acessados atravs dos mtodos da classe.
+	 */
+	private PlanarImage m_pDeferred;
+	
+	/**
+	 * Membro privado utilizado para armazenar a imagem mapeada em disco que contm os pixels formadores da imagem,
+	 * quando esses ocupariam mais memria do que o limite definido pelo mtodo setMappingThreshold. Quando no 
+	 * nulo (null), o buffer de pixels (m_pBuffer) no  utilizado.
+	 */
+	private volatile CMappedImage m_pMapped;
+	
+	/**
+	 * Membro privado utilizado para serializar a renderizao da imagem JAI pendente (m_pDeferred). Quando vrias
+	 * threads acessam ao mesmo tempo os pixels de uma imagem ainda no renderizada (como as faixas de uma operao
+	 * executada em paralelo), apenas a primeira calcula a imagem, e as demais aguardam o seu resultado. O objeto 
+	 * sempre obtido antes do monitor da prpria imagem, nunca depois.
+	 */
+	private final Object m_pRenderLock = new Object();
+	
+	/**
+	 * Membro privado utilizado para armazenar o limite (em bytes) a partir do qual os pixels das imagens so
+	 * armazenados em disco, em vez de em memria.
+	 */
+	private static volatile long m_lMappingThreshold = Runtime.getRuntime().maxMemory() / 4;
+	
+	/**
+	 * Membro privado utilizado para armazenar a verso dos pixels da imagem, incrementada a cada alterao. Permite
+	 * que informaes calculadas a partir dos pixels (como o histograma) sejam reaproveitadas enquanto a imagem no
+	 * for alterada.
+	 */
+	private final AtomicLong m_pVersion = new AtomicLong();
+	
+	/**
+	 * Membro privado utilizado para armazenar a verso dos pixels da imagem no momento do ltimo carregamento ou
+	 * gravao do arquivo representante (-1 se a imagem no corresponde a um arquivo). Permite identificar as
+	 * imagens alteradas em memria e ainda no gravadas.
+	 */
+	private volatile long m_lFileVersion = -1;
+	
+	/**
+	 * Membro privado utilizado para indicar que o buffer de pixels (m_pBuffer)  lido por outras imagens (vises de
+	 * componentes criadas por createComponentView). O buffer compartilhado  copiado antes da primeira alterao dos
+	 * pixels (cpia na escrita), de modo que as alteraes desta imagem no se refletem nas vises.
+	 */
+	private volatile boolean m_bShared;
 
 	/**
 	 * Construtor da classe CPixelArray. Inicializa a rea de armazenamento dos pixels componentes.
@@ -86,10 +157,84 @@ public class CImage
 	
 		m_bColored = bColored;
 		
-		if(m_bColored)
-			m_pBuffer = new BufferedImage(m_iWidth, m_iHeight, BufferedImage.TYPE_INT_RGB);
-		else
-			m_pBuffer = new BufferedImage(m_iWidth, m_iHeight, BufferedImage.TYPE_BYTE_GRAY);
+		long lBytes = (long) m_iWidth * m_iHeight * (m_bColored ? 4 : 1);
+		if(lBytes > m_lMappingThreshold)
+		{
+			try
+			{
+				m_pMapped = new CMappedImage(m_iWidth, m_iHeight, (m_bColored ? 3 : 1), DataBuffer.TYPE_BYTE, null);
+			}
+			catch(IOException e)
+			{
+				m_pMapped = null;
+			}
+		}
+		
+		if(m_pMapped == null)
+		{
+			if(m_bColored)
+				m_pBuffer = new BufferedImage(m_iWidth, m_iHeight, BufferedImage.TYPE_INT_RGB);
+			else
+				m_pBuffer = new BufferedImage(m_iWidth, m_iHeight, BufferedImage.TYPE_BYTE_GRAY);
+		}
+		
+		m_sCurrentFile = toString();
+	}
+	
+	/**
+	 * Construtor da classe CImage para imagens com nmero de bandas e tipo de dado arbitrrios. As amostras so
+	 * dispostas pixel a pixel (intercaladas) e inicialmente zeradas. Imagens com trs ou mais bandas so consideradas
+	 * coloridas.
+	 * 
+	 * @param iWidth Largura em pixels da imagem.
+	 * @param iHeight Altura em pixels da imagem.
+	 * @param iBands Nmero de bandas de cada pixel (de 1 a 4: escala de cinza, escala de cinza com transparncia,
+	 * RGB ou RGB com transparncia).
+	 * @param iDataType Tipo de dado das amostras, conforme definido em java.awt.image.DataBuffer (por exemplo,
+	 * DataBuffer.TYPE_USHORT para imagens de 16 bits ou DataBuffer.TYPE_FLOAT para imagens de ponto flutuante).
+	 * @throws IllegalArgumentException Se a combinao de nmero de bandas e tipo de dado no for suportada.
+	 */
+	public CImage(int iWidth, int iHeight, int iBands, int iDataType)
+	{
+		m_iWidth = iWidth;
+		m_iHeight = iHeight;
+		m_bColored = (iBands >= 3);
+		
+		SampleModel pModel = RasterFactory.createPixelInterleavedSampleModel(iDataType, iWidth, iHeight, iBands);
+		ColorModel pColorModel = PlanarImage.createColorModel(pModel);
+		if(pColorModel == null)
+			throw new IllegalArgumentException("Nmero de bandas ou tipo de dado no suportado");
+		
+		if(getByteCount(pModel, m_iWidth, m_iHeight) > m_lMappingThreshold)
+		{
+			try
+			{
+				m_pMapped = new CMappedImage(m_iWidth, m_iHeight, iBands, iDataType, pColorModel);
+			}
+			catch(IOException e)
+			{
+				m_pMapped = null;
+			}
+		}
+		
+		if(m_pMapped == null)
+			m_pBuffer = new BufferedImage(pColorModel, Raster.createWritableRaster(pModel, null), false, null);
+		
+		m_sCurrentFile = toString();
+	}
+
+	/**
+	 * Construtor privado da classe CImage, para imagens coloridas representadas por uma imagem JAI ainda no
+	 * renderizada (como as vises de componentes criadas por createComponentView).
+	 * 
+	 * @param pDeferred Objeto PlanarImage (JAI) com a imagem, com origem nas coordenadas (0, 0).
+	 */
+	private CImage(PlanarImage pDeferred)
+	{
+		m_iWidth = pDeferred.getWidth();
+		m_iHeight = pDeferred.getHeight();
+		m_pDeferred = pDeferred;
+		m_bColored = true;
 		
 		m_sCurrentFile = toString();
 	}
@@ -113,6 +258,28 @@ public class CImage
 	{
 		return m_iWidth;
 	}
+	
+	/**
+	 * Mtodo setter do limite (em bytes) a partir do qual os pixels das imagens so armazenados em um arquivo
+	 * temporrio mapeado em memria, em vez de em memria. O limite  aplicado s imagens criadas e s imagens
+	 * renderizadas aps a sua definio. O valor padro  um quarto da memria mxima da mquina virtual.
+	 * 
+	 * @param lBytes Limite em bytes. Utilize Long.MAX_VALUE para manter todas as imagens em memria.
+	 */
+	public static void setMappingThreshold(long lBytes)
+	{
+		m_lMappingThreshold = lBytes;
+	}
+	
+	/**
+	 * Mtodo getter do limite (em bytes) a partir do qual os pixels das imagens so armazenados em disco.
+	 * 
+	 * @return Limite em bytes.
+	 */
+	public static long getMappingThreshold()
+	{
+		return m_lMappingThreshold;
+	}
 
 	/**
 	 * Retorna a indicao se o objeto representa uma imagem colorida (true) ou em escala de cinza (false).
@@ -144,6 +311,134 @@ public class CImage
 		return m_sCurrentFile;
 	}
 	
+	/**
+	 * Mtodo getter da verso dos pixels da imagem. A verso  incrementada a cada alterao dos pixels (pelos
+	 * mtodos set*, setPlanarImage, load ou pelo acesso ao raster atravs de getRaster), de modo que duas leituras
+	 * com o mesmo valor garantem que a imagem no foi alterada nesse intervalo.
+	 * 
+	 * @return Valor da verso dos pixels da imagem.
+	 */
+	public long getVersion()
+	{
+		return m_pVersion.get();
+	}
+	
+	/**
+	 * Indica se os pixels da imagem correspondem ao contedo do seu arquivo representante, ou seja, se a imagem foi
+	 * carregada ou gravada e no foi alterada desde ento.
+	 * 
+	 * @return True se a imagem no foi alterada desde o ltimo carregamento ou gravao, false caso contrrio.
+	 */
+	public boolean isSavedInFile()
+	{
+		return m_lFileVersion >= 0 && m_lFileVersion == m_pVersion.get();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Registra uma alterao dos pixels da imagem, incrementando
+	 * a sua verso.
+	 */
+	private void modified()
+	{
+		m_pVersion.incrementAndGet();
+		if(m_bShared)
+			unshare();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Substitui o buffer de pixels compartilhado por uma cpia
+	 * prpria da imagem, antes da sua alterao.
+	 */
+	private synchronized void unshare()
+	{
+		if(!m_bShared)
+			return;
+		
+		if(m_pBuffer != null)
+		{
+			WritableRaster pCopy = m_pBuffer.getRaster().createCompatibleWritableRaster();
+			pCopy.setRect(m_pBuffer.getRaster());
+			m_pBuffer = new BufferedImage(m_pBuffer.getColorModel(), pCopy, m_pBuffer.isAlphaPremultiplied(), null);
+		}
+		m_bShared = false;
+	}
+	
+	/**
+	 * Cria uma viso de um componente de cor (vermelho, verde ou azul) da imagem: uma imagem RGB que contm apenas
+	 * esse componente (por exemplo, um pixel (r, g, b) resulta em (r, 0, 0) na viso do componente vermelho). A viso
+	 *  uma imagem JAI ainda no renderizada sobre o buffer de pixels desta imagem, e por isso sua criao no
+	 * depende do tamanho da imagem: as amostras s so calculadas quando a viso for lida. O buffer desta imagem 
+	 * copiado antes da sua primeira alterao (cpia na escrita), de modo que a viso mantm os pixels originais.
+	 * 
+	 * Nas imagens em escala de cinza, as trs vises so obtidas da nica banda, com o brilho obtido como no mtodo
+	 * getPixel.
+	 * 
+	 * A viso s pode ser criada para imagens RGB ou em escala de cinza de 8 bits com amostras em bandas separadas
+	 * (como as carregadas da maioria dos formatos de arquivo) e mantidas em memria. Nos demais casos (como em
+	 * imagens com os componentes empacotados em inteiros ou armazenadas em disco, CMappedImage), o retorno  null.
+	 * 
+	 * @param iComponent ndice do componente de cor: 0 para vermelho, 1 para verde e 2 para azul.
+	 * @return Objeto CImage com a viso do componente, ou null se a viso no pode ser criada.
+	 */
+	public CImage createComponentView(int iComponent)
+	{
+		if(iComponent < 0 || iComponent > 2 || getMapped() != null)
+			return null;
+		
+		CImage pRet;
+		BufferedImage pBuffer = getBuffer();
+		synchronized(this)
+		{
+			if(pBuffer != m_pBuffer)
+				return null;
+			WritableRaster pRaster = pBuffer.getRaster();
+			ColorModel pModel = pBuffer.getColorModel();
+			if(!(pModel instanceof ComponentColorModel) || pModel.isAlphaPremultiplied() || pRaster.getTransferType() != DataBuffer.TYPE_BYTE
+				|| pRaster.getSampleModel().getSampleSize(0) != 8)
+				return null;
+			
+			/*
+			 * O resultado tem sempre trs bandas de 8 bits (RGB), como as imagens coloridas criadas pelo construtor
+			 * da classe, de modo que as operaes aplicadas sobre os componentes extrados (como o histograma ou os
+			 * gradientes de bordas) os tratam como imagens coloridas.
+			 */
+			
+			ImageLayout pLayout = new ImageLayout();
+			pLayout.setSampleModel(RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, m_iWidth, m_iHeight, 3));
+			pLayout.setColorModel(new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE));
+			RenderingHints pHints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT, pLayout);
+			
+			ParameterBlock pPB = new ParameterBlock();
+			pPB.addSource(PlanarImage.wrapRenderedImage(pBuffer));
+			PlanarImage pView;
+			if(pModel.getColorSpace().isCS_sRGB() && pModel.getNumColorComponents() == 3)
+			{
+				// Matriz de combinao das bandas (a ltima coluna  uma constante somada ao resultado)
+				double aMatrix[][] = new double[3][pRaster.getNumBands() + 1];
+				aMatrix[iComponent][iComponent] = 1.0;
+				pPB.add(aMatrix);
+				pView = JAI.create("bandcombine", pPB, pHints);
+			}
+			else if(pModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY && pModel.getNumComponents() == 1)
+			{
+				byte aTable[][] = new byte[3][256];
+				for(int v = 0; v < 256; v++)
+				{
+					int iLevel = pModel.getRed(v);
+					aTable[iComponent][v] = (byte) CColorPixel.toGrayScale(iLevel, iLevel, iLevel);
+				}
+				pPB.add(new LookupTableJAI(aTable));
+				pView = JAI.create("lookup", pPB, pHints);
+			}
+			else
+				return null;
+			
+			pRet = new CImage(pView);
+			m_bShared = true;
+		}
+		return pRet;
+	}
+	
 	/**
 	 * Mtodo getter que obtm um pixel da imagem dadas suas coordenadas X e Y. O pixel da imagem
 	 * obtido ser retornado na instncia concreta da classe CColorPixel ou CGrayScalePixel, mas 
@@ -161,23 +456,27 @@ public class CImage
 		CPixel pPixel = null;
 		try
 		{
-			if(m_bColored)
-			{
-				Color pColor = new Color(m_pBuffer.getRGB(X, Y));
-				pPixel = new CColorPixel(pColor.getRed(), pColor.getGreen(), pColor.getBlue());
-			}
+			int iRGB;
+			CMappedImage pMapped = getMapped();
+			if(pMapped == null)
+				iRGB = getBuffer().getRGB(X, Y);
 			else
 			{
-				Color pColor = new Color(m_pBuffer.getRGB(X, Y));
-				CColorPixel pColorPixel = new CColorPixel(pColor.getRed(), pColor.getGreen(), pColor.getBlue());
-				pPixel = pColorPixel.toGrayScale();
+				if(X < 0 || X >= m_iWidth || Y < 0 || Y >= m_iHeight)
+					return null;
+				iRGB = pMapped.getColorModel().getRGB(pMapped.getDataElements(X, Y));
 			}
+
+			if(m_bColored)
+				pPixel = new CColorPixel(iRGB);
+			else
+				pPixel = new CGrayScalePixel(CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff));
 		}
 		catch(Exception e)
 		{
 			return null;
 		}
-		
+
 		return pPixel;
 	}
 
@@ -199,30 +498,548 @@ public class CImage
 	 */
 	public void setPixel(int X, int Y, CPixel pPixel)
 	{
+		modified();
 		if(X < 0 || X >= this.m_iWidth)
 			return;
 		if(Y < 0 || Y >= this.m_iHeight)
 			return;
 		
-		WritableRaster pRaster = m_pBuffer.getRaster();
-		
-		if(m_bColored)
+		CMappedImage pMapped = getMapped();
+		WritableRaster pRaster = (pMapped == null ? getBuffer().getRaster() : getRegion(pMapped, X, Y, 1, 1, true));
+		int iBands = Math.min(pRaster.getNumBands(), 3);
+
+		if(pRaster.getSampleModel().getSampleSize(0) != 8)
 		{
-			int aRGB[] = new int[3];
-			aRGB[0] = ((CColorPixel) pPixel).getRed();
-			aRGB[1] = ((CColorPixel) pPixel).getGreen();
-			aRGB[2] = ((CColorPixel) pPixel).getBlue();
-			pRaster.setPixel(X, Y, aRGB);
+			/*
+			 * As cores do pixel so sempre de 8 bits. Em imagens de outros tipos, elas so convertidas para as
+			 * amostras da imagem pelo modelo de cores (por exemplo, o brilho 255 corresponde a 65535 em 16 bits).
+			 */
+			
+			int iRGB;
+			if(pPixel instanceof CColorPixel)
+				iRGB = ((CColorPixel) pPixel).getRGB();
+			else
+			{
+				int iBrightness = ((CGrayScalePixel) pPixel).getBrightness();
+				iRGB = (iBrightness << 16) | (iBrightness << 8) | iBrightness;
+			}
+			ColorModel pModel = (pMapped == null ? getBuffer().getColorModel() : pMapped.getColorModel());
+			pRaster.setDataElements(X, Y, pModel.getDataElements(0xff000000 | iRGB, null));
+		}
+		else if(m_bColored)
+		{
+			CColorPixel pColorPixel = (CColorPixel) pPixel;
+			pRaster.setSample(X, Y, 0, pColorPixel.getRed());
+			if(iBands > 1)
+				pRaster.setSample(X, Y, 1, pColorPixel.getGreen());
+			if(iBands > 2)
+				pRaster.setSample(X, Y, 2, pColorPixel.getBlue());
 		}
 		else
 		{
 			int iBrightness = ((CGrayScalePixel) pPixel).getBrightness();
-			int aRGB[] = new int[3];
-			aRGB[0] = iBrightness;
-			aRGB[1] = iBrightness;
-			aRGB[2] = iBrightness;
-			pRaster.setPixel(X, Y, aRGB);
+			for(int iBand = 0; iBand < iBands; iBand++)
+				pRaster.setSample(X, Y, iBand, iBrightness);
+		}
+		
+		if(pMapped != null)
+			pMapped.setData(pRaster);
+	}
+
+	/**
+	 * Cria um cursor para o percorrimento sequencial dos pixels da imagem sem a alocao de objetos por pixel.
+	 *  a alternativa indicada aos mtodos getPixel e setPixel em rotinas que percorrem todos os pixels da imagem.
+	 *
+	 * @return Objeto CPixelCursor posicionado antes do primeiro pixel da imagem.
+	 * @see CPixelCursor
+	 */
+	public CPixelCursor createCursor()
+	{
+		return new CPixelCursor(this);
+	}
+
+	/**
+	 * Mtodo getter que obtm o nmero de bandas (componentes) armazenadas para cada pixel no buffer da imagem.
+	 *
+	 * @return Nmero de bandas da imagem (1 para imagens em escala de cinza e 3 para imagens RGB, por exemplo).
+	 */
+	public int getNumBands()
+	{
+		synchronized(this)
+		{
+			if(m_pMapped != null)
+				return m_pMapped.getSampleModel().getNumBands();
+			if(m_pBuffer == null)
+				return m_pDeferred.getSampleModel().getNumBands();
+			return m_pBuffer.getRaster().getNumBands();
+		}
+	}
+
+	/**
+	 * Mtodo getter que obtm o tipo de dado das amostras da imagem. Imagens RGB de 8 bits criadas pelo construtor
+	 * CImage(int, int, boolean) tm as trs amostras empacotadas em um inteiro, e por isso tm o tipo
+	 * DataBuffer.TYPE_INT, mas com 8 bits por amostra (veja getSampleSize).
+	 *
+	 * @return Tipo de dado das amostras, conforme definido em java.awt.image.DataBuffer.
+	 */
+	public int getDataType()
+	{
+		return getSampleModel().getDataType();
+	}
+	
+	/**
+	 * Mtodo getter que obtm o nmero de bits de uma banda da imagem.
+	 *
+	 * @param iBand ndice da banda, no intervalo de 0 a (getNumBands() - 1).
+	 * @return Nmero de bits das amostras da banda (por exemplo, 8 para imagens comuns e 16 para imagens de 16 bits).
+	 */
+	public int getSampleSize(int iBand)
+	{
+		return getSampleModel().getSampleSize(iBand);
+	}
+	
+	/**
+	 * Mtodo getter que obtm o maior valor que as amostras de uma banda podem assumir, de acordo com o tipo de dado
+	 * e o nmero de bits da banda. Para os tipos de ponto flutuante, as amostras so consideradas normalizadas no
+	 * intervalo de 0 a 1, como no modelo de cores das imagens desses tipos.
+	 *
+	 * @param iBand ndice da banda, no intervalo de 0 a (getNumBands() - 1).
+	 * @return Maior valor das amostras da banda (por exemplo, 255 para 8 bits e 65535 para 16 bits sem sinal).
+	 */
+	public double getMaxSampleValue(int iBand)
+	{
+		SampleModel pModel = getSampleModel();
+		switch(pModel.getDataType())
+		{
+			case DataBuffer.TYPE_FLOAT:
+			case DataBuffer.TYPE_DOUBLE:
+				return 1.0;
+			case DataBuffer.TYPE_SHORT:
+				return Short.MAX_VALUE;
+			case DataBuffer.TYPE_INT:
+				if(pModel.getSampleSize(iBand) >= 32)
+					return Integer.MAX_VALUE;
+				return (1L << pModel.getSampleSize(iBand)) - 1;
+			default:
+				return (1L << pModel.getSampleSize(iBand)) - 1;
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o modelo de amostras (sample model) da imagem, sem a
+	 * necessidade de renderiz-la.
+	 * 
+	 * @return Objeto SampleModel da imagem.
+	 */
+	private synchronized SampleModel getSampleModel()
+	{
+		if(m_pMapped != null)
+			return m_pMapped.getSampleModel();
+		else if(m_pBuffer == null)
+			return m_pDeferred.getSampleModel();
+		else
+			return m_pBuffer.getSampleModel();
+	}
+
+	/**
+	 * Mtodo getter que obtm o nmero de bytes ocupados pelos pixels da imagem, calculado a partir do modelo de
+	 * amostras (sample model) da imagem, sem a necessidade de renderiz-la.
+	 *
+	 * @return Nmero de bytes ocupados pelos pixels da imagem.
+	 */
+	public long getByteCount()
+	{
+		return getByteCount(getSampleModel(), m_iWidth, m_iHeight);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula o nmero de bytes ocupados pelos pixels de uma imagem
+	 * com o modelo de amostras e as dimenses dadas.
+	 * 
+	 * @param pModel Modelo de amostras (sample model) da imagem.
+	 * @param iWidth Largura em pixels da imagem.
+	 * @param iHeight Altura em pixels da imagem.
+	 * @return Nmero de bytes ocupados pelos pixels da imagem.
+	 */
+	private static long getByteCount(SampleModel pModel, int iWidth, int iHeight)
+	{
+		long lElementBytes = DataBuffer.getDataTypeSize(pModel.getDataType()) / 8;
+		return (long) iWidth * iHeight * pModel.getNumDataElements() * lElementBytes;
+	}
+
+	/**
+	 * Mtodo getter que permite o acesso direto ao raster (matriz de amostras) da imagem, para uso em rotinas que
+	 * precisam manipular as bandas sem a intermediao dos demais mtodos de acesso. As alteraes efetuadas no
+	 * raster retornado refletem imediatamente na imagem. Como as alteraes no raster no podem ser acompanhadas, a
+	 * verso da imagem (getVersion)  incrementada a cada chamada.
+	 * 
+	 * Se a imagem estiver armazenada em disco (CMappedImage), ela  antes carregada inteiramente em memria,
+	 * independentemente do limite definido em setMappingThreshold (e um aviso  exibido na sada de erros). Nas
+	 * imagens grandes, devem ser utilizados os mtodos de acesso por regio (como getSamples e setSamples), que
+	 * acessam apenas os ladrilhos (tiles) da regio dada.
+	 *
+	 * @return Objeto WritableRaster com as amostras da imagem.
+	 */
+	public WritableRaster getRaster()
+	{
+		modified();
+		return getBuffer().getRaster();
+	}
+
+	/**
+	 * Obtm os valores RGB de uma regio retangular da imagem, empacotados em inteiros no formato 0xAARRGGBB e
+	 * dispostos linha a linha. Os valores so obtidos atravs do modelo de cores da imagem, de modo que o resultado
+	 *  equivalente ao das cores retornadas pelo mtodo getPixel, mas sem a alocao de objetos por pixel.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param aBuffer Vetor para o armazenamento dos valores, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com os valores RGB da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem.
+	 */
+	public int[] getRGB(int X, int Y, int iWidth, int iHeight, int aBuffer[])
+	{
+		if(aBuffer == null)
+			aBuffer = new int[iWidth * iHeight];
+
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+		{
+			WritableRaster pRegion = getRegion(pMapped, X, Y, iWidth, iHeight, true);
+			wrapRegion(pMapped, pRegion).getRGB(0, 0, iWidth, iHeight, aBuffer, 0, iWidth);
+			return aBuffer;
+		}
+
+		BufferedImage pBuffer = getBuffer();
+		if(pBuffer.getType() == BufferedImage.TYPE_INT_RGB)
+		{
+			pBuffer.getRaster().getDataElements(X, Y, iWidth, iHeight, aBuffer);
+			for(int i = 0, iSize = iWidth * iHeight; i < iSize; i++)
+				aBuffer[i] |= 0xff000000;
+		}
+		else
+			pBuffer.getRGB(X, Y, iWidth, iHeight, aBuffer, 0, iWidth);
+
+		return aBuffer;
+	}
+
+	/**
+	 * Atualiza os valores RGB de uma regio retangular da imagem a partir de inteiros empacotados no formato
+	 * 0xAARRGGBB e dispostos linha a linha. O valor alfa  ignorado. Em imagens que no so RGB, as cores so
+	 * convertidas segundo o modelo de cores da imagem.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param aBuffer Vetor com os valores RGB da regio, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem.
+	 */
+	public void setRGB(int X, int Y, int iWidth, int iHeight, int aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+		{
+			WritableRaster pRegion = getRegion(pMapped, X, Y, iWidth, iHeight, false);
+			wrapRegion(pMapped, pRegion).setRGB(0, 0, iWidth, iHeight, aBuffer, 0, iWidth);
+			pMapped.setData(pRegion);
+			return;
+		}
+
+		BufferedImage pBuffer = getBuffer();
+		if(pBuffer.getType() == BufferedImage.TYPE_INT_RGB)
+			pBuffer.getRaster().setDataElements(X, Y, iWidth, iHeight, aBuffer);
+		else
+			pBuffer.setRGB(X, Y, iWidth, iHeight, aBuffer, 0, iWidth);
+	}
+
+	/**
+	 * Obtm as amostras de todas as bandas de uma regio retangular da imagem, dispostas pixel a pixel e linha a linha
+	 * (por exemplo, R G B R G B ... para imagens coloridas). Os valores so os armazenados no buffer da imagem, sem
+	 * qualquer converso pelo modelo de cores.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param aBuffer Vetor para o armazenamento das amostras, com tamanho mnimo de (iWidth * iHeight * getNumBands())
+	 * elementos. Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com as amostras da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem.
+	 */
+	public int[] getPixels(int X, int Y, int iWidth, int iHeight, int aBuffer[])
+	{
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+			return getRegion(pMapped, X, Y, iWidth, iHeight, true).getPixels(X, Y, iWidth, iHeight, aBuffer);
+		return getBuffer().getRaster().getPixels(X, Y, iWidth, iHeight, aBuffer);
+	}
+
+	/**
+	 * Atualiza as amostras de todas as bandas de uma regio retangular da imagem, dispostas pixel a pixel e linha a linha.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param aBuffer Vetor com as amostras da regio, com tamanho mnimo de (iWidth * iHeight * getNumBands()) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem.
+	 */
+	public void setPixels(int X, int Y, int iWidth, int iHeight, int aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+		{
+			WritableRaster pRegion = getRegion(pMapped, X, Y, iWidth, iHeight, false);
+			pRegion.setPixels(X, Y, iWidth, iHeight, aBuffer);
+			pMapped.setData(pRegion);
+		}
+		else
+			getBuffer().getRaster().setPixels(X, Y, iWidth, iHeight, aBuffer);
+	}
+
+	/**
+	 * Obtm as amostras de uma nica banda de uma regio retangular da imagem, dispostas linha a linha.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda desejada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor para o armazenamento das amostras, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com as amostras da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public int[] getSamples(int X, int Y, int iWidth, int iHeight, int iBand, int aBuffer[])
+	{
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+			return getRegion(pMapped, X, Y, iWidth, iHeight, true).getSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+		return getBuffer().getRaster().getSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+	}
+
+	/**
+	 * Atualiza as amostras de uma nica banda de uma regio retangular da imagem, dispostas linha a linha.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda a ser atualizada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor com as amostras da regio, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public void setSamples(int X, int Y, int iWidth, int iHeight, int iBand, int aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+		{
+			WritableRaster pRegion = getRegion(pMapped, X, Y, iWidth, iHeight, true);
+			pRegion.setSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+			pMapped.setData(pRegion);
+		}
+		else
+			getBuffer().getRaster().setSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+	}
+
+	/**
+	 * Obtm as amostras de uma nica banda de uma regio retangular da imagem em um vetor de bytes, dispostas
+	 * linha a linha. Os valores so truncados para 8 bits, e por isso esse mtodo  indicado para imagens cujas
+	 * amostras estejam no intervalo de 0 a 255.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda desejada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor para o armazenamento das amostras, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com as amostras da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public byte[] getSamples(int X, int Y, int iWidth, int iHeight, int iBand, byte aBuffer[])
+	{
+		CMappedImage pMapped = getMapped();
+		WritableRaster pRaster = (pMapped == null ? getBuffer().getRaster() : getRegion(pMapped, X, Y, iWidth, iHeight, true));
+
+		if(aBuffer == null)
+			aBuffer = new byte[iWidth * iHeight];
+
+		if(pRaster.getNumBands() == 1 && pRaster.getTransferType() == DataBuffer.TYPE_BYTE)
+			pRaster.getDataElements(X, Y, iWidth, iHeight, aBuffer);
+		else
+		{
+			for(int y = 0, i = 0; y < iHeight; y++)
+				for(int x = 0; x < iWidth; x++, i++)
+					aBuffer[i] = (byte) pRaster.getSample(X + x, Y + y, iBand);
+		}
+
+		return aBuffer;
+	}
+
+	/**
+	 * Atualiza as amostras de uma nica banda de uma regio retangular da imagem a partir de um vetor de bytes,
+	 * dispostos linha a linha. Os bytes so interpretados como valores sem sinal, no intervalo de 0 a 255.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda a ser atualizada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor com as amostras da regio, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public void setSamples(int X, int Y, int iWidth, int iHeight, int iBand, byte aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		WritableRaster pRaster = (pMapped == null ? getBuffer().getRaster() : getRegion(pMapped, X, Y, iWidth, iHeight, true));
+
+		if(pRaster.getNumBands() == 1 && pRaster.getTransferType() == DataBuffer.TYPE_BYTE)
+			pRaster.setDataElements(X, Y, iWidth, iHeight, aBuffer);
+		else
+		{
+			for(int y = 0, i = 0; y < iHeight; y++)
+				for(int x = 0; x < iWidth; x++, i++)
+					pRaster.setSample(X + x, Y + y, iBand, aBuffer[i] & 0xff);
+		}
+
+		if(pMapped != null)
+			pMapped.setData(pRaster);
+	}
+
+	/**
+	 * Obtm as amostras de uma nica banda de uma regio retangular da imagem em um vetor de shorts, dispostas linha
+	 * a linha.  indicado para imagens de 16 bits (DataBuffer.TYPE_USHORT ou DataBuffer.TYPE_SHORT), cujas amostras
+	 * so copiadas sem converso. Amostras de 16 bits sem sinal devem ser lidas do vetor com (aBuffer[i] &amp; 0xffff).
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda desejada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor para o armazenamento das amostras, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com as amostras da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public short[] getSamples(int X, int Y, int iWidth, int iHeight, int iBand, short aBuffer[])
+	{
+		CMappedImage pMapped = getMapped();
+		WritableRaster pRaster = (pMapped == null ? getBuffer().getRaster() : getRegion(pMapped, X, Y, iWidth, iHeight, true));
+
+		if(aBuffer == null)
+			aBuffer = new short[iWidth * iHeight];
+
+		if(pRaster.getNumBands() == 1 && isShortType(pRaster.getTransferType()))
+			pRaster.getDataElements(X, Y, iWidth, iHeight, aBuffer);
+		else
+		{
+			for(int y = 0, i = 0; y < iHeight; y++)
+				for(int x = 0; x < iWidth; x++, i++)
+					aBuffer[i] = (short) pRaster.getSample(X + x, Y + y, iBand);
 		}
+
+		return aBuffer;
+	}
+
+	/**
+	 * Atualiza as amostras de uma nica banda de uma regio retangular da imagem a partir de um vetor de shorts,
+	 * dispostos linha a linha. Em imagens de 16 bits sem sinal, os valores so interpretados sem sinal (de 0 a 65535).
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda a ser atualizada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor com as amostras da regio, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public void setSamples(int X, int Y, int iWidth, int iHeight, int iBand, short aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		WritableRaster pRaster = (pMapped == null ? getBuffer().getRaster() : getRegion(pMapped, X, Y, iWidth, iHeight, true));
+
+		if(pRaster.getNumBands() == 1 && isShortType(pRaster.getTransferType()))
+			pRaster.setDataElements(X, Y, iWidth, iHeight, aBuffer);
+		else
+		{
+			boolean bSigned = (pRaster.getTransferType() == DataBuffer.TYPE_SHORT);
+			for(int y = 0, i = 0; y < iHeight; y++)
+				for(int x = 0; x < iWidth; x++, i++)
+					pRaster.setSample(X + x, Y + y, iBand, (bSigned ? aBuffer[i] : aBuffer[i] & 0xffff));
+		}
+
+		if(pMapped != null)
+			pMapped.setData(pRaster);
+	}
+
+	/**
+	 * Obtm as amostras de uma nica banda de uma regio retangular da imagem em um vetor de floats, dispostas linha
+	 * a linha.  indicado para imagens de ponto flutuante, mas pode ser utilizado com qualquer tipo de dado (as
+	 * amostras inteiras so convertidas sem alterao de escala).
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda desejada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor para o armazenamento das amostras, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * Se nulo (null), um novo vetor  alocado.
+	 * @return Vetor com as amostras da regio (o prprio aBuffer, se informado).
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public float[] getSamples(int X, int Y, int iWidth, int iHeight, int iBand, float aBuffer[])
+	{
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+			return getRegion(pMapped, X, Y, iWidth, iHeight, true).getSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+		return getBuffer().getRaster().getSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+	}
+
+	/**
+	 * Atualiza as amostras de uma nica banda de uma regio retangular da imagem a partir de um vetor de floats,
+	 * dispostos linha a linha. Em imagens de tipos inteiros, os valores so truncados.
+	 *
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param iBand ndice da banda a ser atualizada, no intervalo de 0 a (getNumBands() - 1).
+	 * @param aBuffer Vetor com as amostras da regio, com tamanho mnimo de (iWidth * iHeight) elementos.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem ou a banda for invlida.
+	 */
+	public void setSamples(int X, int Y, int iWidth, int iHeight, int iBand, float aBuffer[])
+	{
+		modified();
+		CMappedImage pMapped = getMapped();
+		if(pMapped != null)
+		{
+			WritableRaster pRegion = getRegion(pMapped, X, Y, iWidth, iHeight, true);
+			pRegion.setSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+			pMapped.setData(pRegion);
+		}
+		else
+			getBuffer().getRaster().setSamples(X, Y, iWidth, iHeight, iBand, aBuffer);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Indica se um tipo de dado  de 16 bits.
+	 * 
+	 * @param iDataType Tipo de dado, conforme definido em java.awt.image.DataBuffer.
+	 * @return True se o tipo for DataBuffer.TYPE_USHORT ou DataBuffer.TYPE_SHORT, false caso contrrio.
+	 */
+	private static boolean isShortType(int iDataType)
+	{
+		return iDataType == DataBuffer.TYPE_USHORT || iDataType == DataBuffer.TYPE_SHORT;
 	}
 
 	/**
@@ -238,14 +1055,50 @@ public class CImage
 	 * @see errors.CErrors
 	 */
 	public int save(String sFile, CFormatFactory.CFormatEnum eFormat) {
+		return save(sFile, eFormat, null);
+	}
+
+	/**
+	 * Utiliza as classes CFormatFactory e CFormat para salvar a imagem em um arquivo segundo o formato indicado,
+	 * com parmetros de codificao especficos do formato (como a qualidade da compresso JPEG).
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para gravao da imagem.
+	 * @param eFormat Formato do arquivo a ser gravado, conforme definido em CFormatFactory.CFormatEnum.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Cdigo de erro indicando o resultado da operao, conforme definido em CErrors.
+	 * 
+	 * @see CFormat#save(PlanarImage, String, java.util.Properties)
+	 */
+	public int save(String sFile, CFormatFactory.CFormatEnum eFormat, Properties pParams)
+	{
 		CFormatFactory pFactory = CFormatFactory.getInstance();
 		CFormat pFormat = pFactory.getFormat(eFormat);
 		
 		if(pFormat == null)
 			return CErrors.ERROR_INVALID_TYPE;
 		
-		setCurrentFileName(sFile) ;	
-		return pFormat.save(PlanarImage.wrapRenderedImage(m_pBuffer), sFile);
+		setCurrentFileName(sFile);
+		long lVersion = m_pVersion.get();
+		int iRet = pFormat.save(getPlanarImage(), sFile, pParams);
+		CImageCache.getInstance().invalidate(sFile);
+		m_lFileVersion = (iRet == CErrors.SUCCESS ? lVersion : -1);
+		return iRet;
+	}
+
+	/**
+	 * Salva a imagem em segundo plano, atravs do conjunto de threads de gravao (CImageWriter). A imagem no deve
+	 * ser alterada at o trmino da gravao.
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para gravao da imagem.
+	 * @param eFormat Formato do arquivo a ser gravado, conforme definido em CFormatFactory.CFormatEnum.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Objeto Future com o cdigo de erro da gravao, conforme definido em CErrors.
+	 * 
+	 * @see CImageWriter
+	 */
+	public Future<Integer> saveAsync(String sFile, CFormatFactory.CFormatEnum eFormat, Properties pParams)
+	{
+		return CImageWriter.getInstance().save(this, sFile, eFormat, pParams);
 	}
 
 	/**
@@ -261,18 +1114,89 @@ public class CImage
 	 * @see errors.CErrors
 	 */
 	public int load(String sFile, CFormatFactory.CFormatEnum eFormat)
+	{
+		return load(sFile, eFormat, null, 1);
+	}
+	
+	/**
+	 * Utiliza as classes CFormatFactory e CFormat para carregar apenas uma regio de um arquivo de imagem existente
+	 * e/ou uma verso reduzida por amostragem (subsampling), sem a decodificao dos demais pixels sempre que o
+	 * formato permitir.
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para carregamento da imagem.
+	 * @param eFormat Formato do arquivo a ser carregado, conforme definido em CFormatFactory.CFormatEnum.
+	 * @param pRegion Regio da imagem a ser carregada, ou null para a imagem inteira.
+	 * @param iSubsampling Fator de amostragem (1 para a carga de todos os pixels da regio).
+	 * @return Cdigo de erro indicando o resultado da operao, conforme definido em CErrors.
+	 * 
+	 * @see CFormat#load(String, java.awt.Rectangle, int)
+	 */
+	public int load(String sFile, CFormatFactory.CFormatEnum eFormat, Rectangle pRegion, int iSubsampling)
 	{
 		CFormatFactory pFactory = CFormatFactory.getInstance();
-		CFormat pFormat = pFactory.getFormat(eFormat);
-		
+		return load(pFactory.getFormat(eFormat), sFile, pRegion, iSubsampling);
+	}
+	
+	/**
+	 * Carrega um arquivo de imagem existente, obtendo o formato a partir do contedo do arquivo (e no da extenso
+	 * do seu nome).
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para carregamento da imagem.
+	 * @return Cdigo de erro indicando o resultado da operao, conforme definido em CErrors. O cdigo
+	 * CErrors.ERROR_INVALID_TYPE indica que o contedo do arquivo no  de nenhum formato reconhecido.
+	 * 
+	 * @see CFormatFactory#getFormatByContent(String)
+	 */
+	public int load(String sFile)
+	{
+		return load(sFile, null, 1);
+	}
+	
+	/**
+	 * Carrega apenas uma regio de um arquivo de imagem existente e/ou uma verso reduzida por amostragem
+	 * (subsampling), obtendo o formato a partir do contedo do arquivo (e no da extenso do seu nome).
+	 * 
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para carregamento da imagem.
+	 * @param pRegion Regio da imagem a ser carregada, ou null para a imagem inteira.
+	 * @param iSubsampling Fator de amostragem (1 para a carga de todos os pixels da regio).
+	 * @return Cdigo de erro indicando o resultado da operao, conforme definido em CErrors. O cdigo
+	 * CErrors.ERROR_INVALID_TYPE indica que o contedo do arquivo no  de nenhum formato reconhecido, e o cdigo
+	 * CErrors.ERROR_READING_FILE indica que o arquivo no existe ou no pde ser lido.
+	 * 
+	 * @see CFormatFactory#getFormatByContent(String)
+	 */
+	public int load(String sFile, Rectangle pRegion, int iSubsampling)
+	{
+		CFormatFactory pFactory = CFormatFactory.getInstance();
+		CFormat pFormat = pFactory.getFormatByContent(sFile);
+		if(pFormat == null && !new File(sFile).canRead())
+			return CErrors.ERROR_READING_FILE;
+		return load(pFormat, sFile, pRegion, iSubsampling);
+	}
+	
+	/**
+	 * Carrega um arquivo de imagem existente atravs da classe de formato dada. Utilizado pelos demais mtodos de
+	 * carregamento e por CImageLoader, que j obteve a classe de formato do arquivo. A imagem  obtida atravs do
+	 * cache de imagens decodificadas (CImageCache), de modo que um arquivo j carregado e no alterado no 
+	 * decodificado novamente.
+	 * 
+	 * @param pFormat Objeto CFormat com o formato do arquivo, ou null se o formato no foi reconhecido.
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para carregamento da imagem.
+	 * @param pRegion Regio da imagem a ser carregada, ou null para a imagem inteira.
+	 * @param iSubsampling Fator de amostragem (1 para a carga de todos os pixels da regio).
+	 * @return Cdigo de erro indicando o resultado da operao, conforme definido em CErrors.
+	 */
+	int load(CFormat pFormat, String sFile, Rectangle pRegion, int iSubsampling)
+	{
 		if(pFormat == null)
 			return CErrors.ERROR_INVALID_TYPE;
 		
-		PlanarImage pImage = pFormat.load(sFile);
+		PlanarImage pImage = CImageCache.getInstance().load(pFormat, sFile, pRegion, iSubsampling);
 		if(pImage != null)
 		{
 			setCurrentFileName(sFile);
 			setPlanarImage(pImage);
+			m_lFileVersion = m_pVersion.get();
 			return CErrors.SUCCESS;
 		}
 		else
@@ -282,28 +1206,57 @@ public class CImage
 	/**
 	 * Mtodo setter que altera o objeto CImage do Narciso a partir de um objeto PlanarImage do JAI.
 	 * 
+	 * A imagem dada no  renderizada imediatamente: ela  mantida como est (por exemplo, como o resultado ainda
+	 * no calculado de uma cadeia de operaes JAI) e s  renderizada no buffer de pixels quando esses forem
+	 * acessados. Enquanto isso, o mtodo getPlanarImage retorna a prpria imagem dada, de modo que as operaes
+	 * seguintes sobre esse CImage so encadeadas a ela e todo o encadeamento  calculado de uma s vez, bloco a
+	 * bloco (tile a tile), no momento da renderizao ou da gravao em arquivo. Por isso, as imagens de origem
+	 * da imagem dada no devem ser alteradas antes da renderizao.
+	 * 
 	 * @param pImagePlan Objeto PlanarImage (JAI) para configurao do CImage.
 	 */
 	public void setPlanarImage(PlanarImage pImagePlan)
 	{
-		m_iWidth = pImagePlan.getWidth();		
-		m_iHeight = pImagePlan.getHeight();
+		/*
+		 * A imagem  sempre mantida com origem nas coordenadas (0, 0), como ocorre com o buffer de pixels. 
+		 */
 		
-		m_pBuffer = pImagePlan.getAsBufferedImage();
-		ColorModel pModel = m_pBuffer.getColorModel();
-		int iColorType = pModel.getColorSpace().getType();
-		switch(iColorType)
-		{
-			case BufferedImage.TYPE_BYTE_BINARY:
-			case BufferedImage.TYPE_BYTE_GRAY:
-			case BufferedImage.TYPE_BYTE_INDEXED:
-			case BufferedImage.TYPE_USHORT_GRAY:
-				m_bColored = false;
-				break;
-			default:
-				m_bColored = true;
-				break;
+		if(pImagePlan.getMinX() != 0 || pImagePlan.getMinY() != 0)
+		{
+			ParameterBlock pPB = new ParameterBlock();
+			pPB.addSource(pImagePlan);
+			pPB.add((float) -pImagePlan.getMinX());
+			pPB.add((float) -pImagePlan.getMinY());
+			pImagePlan = JAI.create("translate", pPB, null);
 		}
+		
+		CMappedImage pOldMapped;
+		synchronized(this)
+		{
+			m_iWidth = pImagePlan.getWidth();		
+			m_iHeight = pImagePlan.getHeight();
+			m_pDeferred = pImagePlan;
+			m_pBuffer = null;
+			pOldMapped = m_pMapped;
+			m_pMapped = null;
+			m_bShared = false;
+		}
+		releaseMapped(pOldMapped);
+		modified();
+		
+		/*
+		 * A imagem  colorida se o seu espao de cores tiver mais de um componente. Imagens indexadas (com paleta)
+		 * so consideradas coloridas, pois a paleta pode conter cores. Imagens sem modelo de cores so classificadas
+		 * pelo nmero de bandas.
+		 */
+		
+		ColorModel pModel = pImagePlan.getColorModel();
+		if(pModel == null)
+			m_bColored = (pImagePlan.getSampleModel().getNumBands() >= 3);
+		else if(pModel instanceof IndexColorModel)
+			m_bColored = true;
+		else
+			m_bColored = (pModel.getColorSpace().getNumComponents() > 1);
 	}
 	
 	/**
@@ -311,11 +1264,257 @@ public class CImage
 	 * 
 	 * @return Objeto PlanarImage do JAI obtido a partir do objeto CImage do Narciso
 	 */
-	public PlanarImage getPlanarImage()
+	public synchronized PlanarImage getPlanarImage()
 	{
+		if(m_pMapped != null)
+			return m_pMapped;
+		if(m_pBuffer == null)
+			return m_pDeferred;
 		return PlanarImage.wrapRenderedImage(m_pBuffer);
 	}
 	
+	/**
+	 * Fora a renderizao da imagem no buffer de pixels, caso ela ainda esteja representada apenas por uma imagem
+	 * JAI no renderizada. Se os pixels ocuparem mais do que o limite definido em setMappingThreshold, a imagem 
+	 * renderizada em um arquivo temporrio mapeado em memria (CMappedImage). Deve ser utilizado quando a imagem for acessada repetidamente por rotinas externas
+	 * (como na exibio em tela), de modo que o encadeamento de operaes seja calculado uma nica vez.
+	 */
+	public void render()
+	{
+		render(null);
+	}
+	
+	/**
+	 * Fora a renderizao da imagem no buffer de pixels, permitindo o seu cancelamento. A imagem JAI pendente 
+	 * calculada ladrilho (tile) a ladrilho, e o objeto de acompanhamento dado  consultado antes do clculo de cada
+	 * ladrilho. Se a renderizao for cancelada, a imagem permanece no renderizada.
+	 * 
+	 * @param pMonitor Objeto IOperationMonitor consultado para o cancelamento, ou null para a renderizao sem
+	 * possibilidade de cancelamento.
+	 * @return True se a imagem est renderizada, false se a renderizao foi cancelada.
+	 */
+	public boolean render(IOperationMonitor pMonitor)
+	{
+		if(m_pBuffer != null || m_pMapped != null)
+			return true;
+		
+		synchronized(m_pRenderLock)
+		{
+			return renderDeferred(pMonitor);
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Renderiza a imagem JAI pendente, se ela ainda no foi
+	 * renderizada (por exemplo, por outra thread enquanto esta aguardava o objeto m_pRenderLock). Deve ser chamado
+	 * apenas com o objeto m_pRenderLock obtido.
+	 * 
+	 * @param pMonitor Objeto IOperationMonitor consultado para o cancelamento, ou null.
+	 * @return True se a imagem est renderizada, false se a renderizao foi cancelada.
+	 */
+	private boolean renderDeferred(IOperationMonitor pMonitor)
+	{
+		PlanarImage pDeferred;
+		synchronized(this)
+		{
+			if(m_pBuffer != null || m_pMapped != null)
+				return true;
+			pDeferred = m_pDeferred;
+		}
+		
+		if(getByteCount(pDeferred.getSampleModel(), pDeferred.getWidth(), pDeferred.getHeight()) > m_lMappingThreshold)
+		{
+			CMappedImage pMapped = null;
+			try
+			{
+				pMapped = CMappedImage.create(pDeferred, pMonitor);
+				if(pMapped == null)
+					return false;
+			}
+			catch(IOException e)
+			{
+				pMapped = null;
+			}
+			catch(IllegalArgumentException e)
+			{
+				pMapped = null;
+			}
+			
+			if(pMapped != null)
+			{
+				synchronized(this)
+				{
+					if(m_pBuffer == null && m_pMapped == null && m_pDeferred == pDeferred)
+					{
+						m_pMapped = pMapped;
+						m_pDeferred = null;
+						return true;
+					}
+				}
+				pMapped.dispose();
+				return true;
+			}
+		}
+		
+		ColorModel pModel = pDeferred.getColorModel();
+		if(pMonitor == null || pModel == null)
+		{
+			getBuffer();
+			return true;
+		}
+		
+		SampleModel pSampleModel = pDeferred.getSampleModel().createCompatibleSampleModel(pDeferred.getWidth(), pDeferred.getHeight());
+		WritableRaster pRaster = Raster.createWritableRaster(pSampleModel, null);
+		for(int iTileY = pDeferred.getMinTileY(); iTileY <= pDeferred.getMaxTileY(); iTileY++)
+		{
+			for(int iTileX = pDeferred.getMinTileX(); iTileX <= pDeferred.getMaxTileX(); iTileX++)
+			{
+				if(pMonitor.isCancelled())
+					return false;
+				pRaster.setRect(pDeferred.getTile(iTileX, iTileY));
+			}
+		}
+		
+		synchronized(this)
+		{
+			if(m_pBuffer == null && m_pDeferred == pDeferred)
+			{
+				m_pBuffer = new BufferedImage(pModel, pRaster, pModel.isAlphaPremultiplied(), null);
+				m_pDeferred = null;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Indica se a imagem ainda est representada apenas por uma imagem JAI no renderizada.
+	 * 
+	 * @return True se a imagem ainda no foi renderizada no buffer de pixels, false caso contrrio.
+	 */
+	public synchronized boolean isDeferred()
+	{
+		return m_pBuffer == null && m_pMapped == null;
+	}
+	
+	/**
+	 * Indica se os pixels da imagem esto armazenados em um arquivo temporrio mapeado em memria (CMappedImage).
+	 * 
+	 * @return True se a imagem est armazenada em disco, false caso contrrio.
+	 */
+	public boolean isMapped()
+	{
+		return m_pMapped != null;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o buffer de pixels da imagem, renderizando antes a
+	 * imagem JAI pendente, se houver. Se a imagem estiver armazenada em disco, ela  carregada inteiramente em
+	 * memria, e um aviso  exibido na sada de erros: os demais mtodos da classe acessam as imagens em disco por
+	 * regio (veja getRegion), e apenas o mtodo getRaster chega a esse caso.
+	 * 
+	 * @return Objeto BufferedImage com os pixels da imagem.
+	 */
+	private BufferedImage getBuffer()
+	{
+		BufferedImage pBuffer = m_pBuffer;
+		if(pBuffer != null)
+			return pBuffer;
+		
+		synchronized(m_pRenderLock)
+		{
+			synchronized(this)
+			{
+				if(m_pBuffer == null)
+				{
+					if(m_pMapped != null)
+					{
+						System.err.println("Aviso: a imagem armazenada em disco (" + getByteCount(m_pMapped.getSampleModel(), m_iWidth, m_iHeight)
+								+ " bytes) foi carregada inteiramente em memria, acima do limite de " + m_lMappingThreshold + " bytes.");
+						m_pBuffer = m_pMapped.getAsBufferedImage();
+						releaseMapped(m_pMapped);
+						m_pMapped = null;
+					}
+					else
+					{
+						m_pBuffer = m_pDeferred.getAsBufferedImage();
+						m_pDeferred = null;
+					}
+				}
+				return m_pBuffer;
+			}
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Descarta uma imagem mapeada em disco que deixou de armazenar os
+	 * pixels da imagem, removendo o seu arquivo temporrio. Se a imagem mapeada ainda for a origem de imagens JAI
+	 * (como o resultado no renderizado de uma operao sobre essa imagem), ela no  descartada, e o arquivo 
+	 * removido apenas quando ela for coletada pelo coletor de lixo.
+	 * 
+	 * @param pMapped Objeto CMappedImage a ser descartado, ou null.
+	 */
+	private static void releaseMapped(CMappedImage pMapped)
+	{
+		if(pMapped == null)
+			return;
+		if(pMapped.getSinks() == null || pMapped.getSinks().isEmpty())
+			pMapped.dispose();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Renderiza a imagem JAI pendente, se houver, e obtm a imagem
+	 * mapeada em disco que armazena os pixels da imagem. Os membros m_pBuffer e m_pMapped so volteis, e por isso
+	 * podem ser consultados sem o monitor da imagem; a renderizao  serializada pelo mtodo render.
+	 * 
+	 * @return Objeto CMappedImage com os pixels da imagem, ou null se os pixels so mantidos no buffer em memria.
+	 */
+	private CMappedImage getMapped()
+	{
+		if(m_pBuffer == null && m_pMapped == null)
+			render(null);
+		return m_pMapped;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria um raster com uma cpia de uma regio retangular de uma
+	 * imagem mapeada em disco, posicionado nas coordenadas da regio. As alteraes efetuadas no raster devem ser
+	 * gravadas na imagem atravs do mtodo CMappedImage.setData.
+	 * 
+	 * @param pMapped Objeto CMappedImage com os pixels da imagem.
+	 * @param X Valor da coordenada X do canto superior esquerdo da regio.
+	 * @param Y Valor da coordenada Y do canto superior esquerdo da regio.
+	 * @param iWidth Largura em pixels da regio.
+	 * @param iHeight Altura em pixels da regio.
+	 * @param bRead Valor lgico (true ou false) indicando se os pixels da regio devem ser copiados para o raster.
+	 * @return Objeto WritableRaster com a regio da imagem.
+	 * @throws ArrayIndexOutOfBoundsException Se a regio extrapolar os limites da imagem.
+	 */
+	private WritableRaster getRegion(CMappedImage pMapped, int X, int Y, int iWidth, int iHeight, boolean bRead)
+	{
+		if(X < 0 || Y < 0 || iWidth < 0 || iHeight < 0 || X + iWidth > m_iWidth || Y + iHeight > m_iHeight)
+			throw new ArrayIndexOutOfBoundsException("Regio fora dos limites da imagem");
+		
+		SampleModel pModel = pMapped.getSampleModel().createCompatibleSampleModel(Math.max(iWidth, 1), Math.max(iHeight, 1));
+		WritableRaster pRegion = Raster.createWritableRaster(pModel, new Point(X, Y));
+		if(bRead)
+			pMapped.copyData(pRegion);
+		return pRegion;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria um objeto BufferedImage sobre um raster obtido atravs do
+	 * mtodo getRegion, de modo que os valores RGB da regio sejam convertidos pelo modelo de cores da imagem.
+	 * 
+	 * @param pMapped Objeto CMappedImage com os pixels da imagem.
+	 * @param pRegion Objeto WritableRaster com a regio da imagem.
+	 * @return Objeto BufferedImage com a regio, posicionada na coordenada (0, 0).
+	 */
+	private static BufferedImage wrapRegion(CMappedImage pMapped, WritableRaster pRegion)
+	{
+		ColorModel pModel = pMapped.getColorModel();
+		return new BufferedImage(pModel, pRegion.createWritableTranslatedChild(0, 0), pModel.isAlphaPremultiplied(), null);
+	}
+	
 	/**
 	 * Mtodo definido para adicionar objetos segmentados a partir da imagem. Ainda no est implementado
 	 * na verso atual do sistema.
@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import javax.media.jai.PlanarImage;
+
+/**
+ * CImageCache  a classe que implementa o cache das imagens decodificadas a partir de arquivos, de modo que a
+ * reabertura de um mesmo arquivo (na janela de comparao, na reexecuo de roteiros sobre as mesmas entradas ou na
+ * pr-visualizao da janela de seleo de arquivos) no exija uma nova decodificao.
+ * 
+ * As imagens so identificadas pelo caminho cannico do arquivo, pela regio e pelo fator de amostragem carregados
+ * e pela classe de formato utilizada. A data de modificao e o tamanho do arquivo so verificados a cada consulta,
+ * de modo que uma imagem cujo arquivo foi alterado  descartada e decodificada novamente.
+ * 
+ * O cache  limitado pelo nmero de bytes ocupados pelos pixels das imagens. Quando esse limite  atingido, as
+ * imagens utilizadas h mais tempo so descartadas (LRU). Imagens maiores do que o limite, ou do que o limite de
+ * armazenamento em disco definido em CImage.setMappingThreshold, no so mantidas no cache.
+ * 
+ * As imagens do cache so compartilhadas pelos objetos CImage que carregam o mesmo arquivo, mas nunca so alteradas
+ * por eles: cada CImage copia os pixels para o seu prprio buffer no primeiro acesso (cpia na escrita).
+ * 
+ * Segue o padro de design Singleton.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImage#load(String)
+ * @see CFormat#load(String, Rectangle, int)
+ */
+
+public class CImageCache
+{
+	/** Membro privado esttico utilizado para armazenar uma instncia nica (singleton) da classe. */
+	private static CImageCache m_pInstance;
+	
+	/** Membro privado utilizado para armazenar as imagens em cache, em ordem de utilizao (da mais antiga para a mais recente). */
+	private LinkedHashMap<CKey, CEntry> m_pEntries;
+	
+	/** Membro privado utilizado para armazenar o limite (em bytes) do cache. */
+	private long m_lCapacity;
+	
+	/** Membro privado utilizado para armazenar o nmero de bytes ocupados pelas imagens em cache. */
+	private long m_lSize;
+	
+	/** Membro privado utilizado para contar as consultas atendidas pelo cache. */
+	private long m_lHits;
+	
+	/** Membro privado utilizado para contar as consultas que exigiram a decodificao do arquivo. */
+	private long m_lMisses;
+	
+	/** Membro privado utilizado para contar as imagens descartadas por falta de espao ou por alterao do arquivo. */
+	private long m_lEvictions;
+	
+	/**
+	 * Construtor da classe CImageCache.
+	 * 
+	 * @param lCapacity Limite (em bytes) do cache.
+	 */
+	protected CImageCache(long lCapacity)
+	{
+		m_pEntries = new LinkedHashMap<CKey, CEntry>(16, 0.75f, true);
+		m_lCapacity = lCapacity;
+	}
+	
+	/**
+	 * Mtodo esttico utilizado para obter a instncia nica (singleton) da classe. O limite do cache  igual a um
+	 * oitavo da memria mxima da mquina virtual.
+	 * 
+	 * @return Objeto da classe CImageCache com a instncia nica.
+	 */
+	public static synchronized CImageCache getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CImageCache(Runtime.getRuntime().maxMemory() / 8);
+		return m_pInstance;
+	}
+	
+	/**
+	 * Carrega uma imagem atravs da classe de formato dada, utilizando a imagem em cache se o arquivo j foi
+	 * carregado (com a mesma regio e amostragem) e no foi alterado desde ento.
+	 * 
+	 * @param pFormat Objeto CFormat com o formato do arquivo.
+	 * @param sFile Nome do arquivo da imagem.
+	 * @param pRegion Regio da imagem a ser carregada, ou null para a imagem inteira.
+	 * @param iSubsampling Fator de amostragem (1 para a carga de todos os pixels da regio).
+	 * @return Objeto PlanarImage com a imagem, ou null se a imagem no pode ser carregada.
+	 */
+	public PlanarImage load(CFormat pFormat, String sFile, Rectangle pRegion, int iSubsampling)
+	{
+		if(getCapacity() <= 0)
+			return pFormat.load(sFile, pRegion, iSubsampling);
+		
+		File fFile = new File(sFile);
+		CKey pKey;
+		try
+		{
+			pKey = new CKey(fFile.getCanonicalPath(), pFormat.getClass().getName(), pRegion, iSubsampling);
+		}
+		catch(IOException e)
+		{
+			return pFormat.load(sFile, pRegion, iSubsampling);
+		}
+		long lModified = fFile.lastModified();
+		long lLength = fFile.length();
+		
+		synchronized(this)
+		{
+			CEntry pEntry = m_pEntries.get(pKey);
+			if(pEntry != null)
+			{
+				if(pEntry.m_lModified == lModified && pEntry.m_lLength == lLength)
+				{
+					m_lHits++;
+					return pEntry.m_pImage;
+				}
+				remove(pKey);
+				m_lEvictions++;
+			}
+			m_lMisses++;
+		}
+		
+		PlanarImage pImage = pFormat.load(sFile, pRegion, iSubsampling);
+		if(pImage == null)
+			return null;
+		
+		long lBytes = getByteCount(pImage);
+		if(lBytes > getCapacity() || lBytes > CImage.getMappingThreshold())
+			return pImage;
+		
+		/*
+		 * A imagem  decodificada por completo antes de ser mantida em cache, pois as imagens JAI carregadas dos
+		 * arquivos s so decodificadas sob demanda (e mantm o arquivo aberto at l).
+		 */
+		
+		try
+		{
+			pImage = PlanarImage.wrapRenderedImage(pImage.getAsBufferedImage());
+		}
+		catch(RuntimeException e)
+		{
+			return null;
+		}
+		
+		synchronized(this)
+		{
+			if(!m_pEntries.containsKey(pKey))
+			{
+				m_pEntries.put(pKey, new CEntry(pImage, lModified, lLength, lBytes));
+				m_lSize += lBytes;
+				trim();
+			}
+		}
+		return pImage;
+	}
+	
+	/**
+	 * Descarta do cache todas as imagens carregadas do arquivo dado.  utilizado quando o arquivo  regravado.
+	 * 
+	 * @param sFile Nome do arquivo.
+	 */
+	public void invalidate(String sFile)
+	{
+		String sPath;
+		try
+		{
+			sPath = new File(sFile).getCanonicalPath();
+		}
+		catch(IOException e)
+		{
+			return;
+		}
+		
+		synchronized(this)
+		{
+			Vector<CKey> vKeys = new Vector<CKey>();
+			for(CKey pKey: m_pEntries.keySet())
+			{
+				if(pKey.m_sPath.equals(sPath))
+					vKeys.add(pKey);
+			}
+			for(CKey pKey: vKeys)
+				remove(pKey);
+		}
+	}
+	
+	/**
+	 * Descarta todas as imagens do cache. Os contadores de consultas no so alterados.
+	 */
+	public synchronized void clear()
+	{
+		m_pEntries.clear();
+		m_lSize = 0;
+	}
+	
+	/**
+	 * Mtodo setter do limite do cache. Se o novo limite for menor do que o espao ocupado, as imagens utilizadas h
+	 * mais tempo so descartadas.
+	 * 
+	 * @param lBytes Limite (em bytes) do cache. O valor zero desabilita o cache.
+	 */
+	public synchronized void setCapacity(long lBytes)
+	{
+		m_lCapacity = Math.max(lBytes, 0);
+		trim();
+	}
+	
+	/**
+	 * Mtodo getter do limite do cache.
+	 * 
+	 * @return Limite (em bytes) do cache.
+	 */
+	public synchronized long getCapacity()
+	{
+		return m_lCapacity;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de bytes ocupados pelas imagens em cache.
+	 * 
+	 * @return Nmero de bytes ocupados.
+	 */
+	public synchronized long getSize()
+	{
+		return m_lSize;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de imagens em cache.
+	 * 
+	 * @return Nmero de imagens em cache.
+	 */
+	public synchronized int getCount()
+	{
+		return m_pEntries.size();
+	}
+	
+	/**
+	 * Mtodo getter do nmero de consultas atendidas pelo cache.
+	 * 
+	 * @return Nmero de acertos.
+	 */
+	public synchronized long getHits()
+	{
+		return m_lHits;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de consultas que exigiram a decodificao do arquivo.
+	 * 
+	 * @return Nmero de falhas.
+	 */
+	public synchronized long getMisses()
+	{
+		return m_lMisses;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de imagens descartadas por falta de espao ou por alterao do arquivo.
+	 * 
+	 * @return Nmero de descartes.
+	 */
+	public synchronized long getEvictions()
+	{
+		return m_lEvictions;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Remove uma imagem do cache.
+	 * 
+	 * @param pKey Chave da imagem.
+	 */
+	private void remove(CKey pKey)
+	{
+		CEntry pEntry = m_pEntries.remove(pKey);
+		if(pEntry != null)
+			m_lSize -= pEntry.m_lBytes;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Descarta as imagens utilizadas h mais tempo at que o espao
+	 * ocupado respeite o limite do cache.
+	 */
+	private void trim()
+	{
+		Iterator<Map.Entry<CKey, CEntry>> pIt = m_pEntries.entrySet().iterator();
+		while(m_lSize > m_lCapacity && pIt.hasNext())
+		{
+			m_lSize -= pIt.next().getValue().m_lBytes;
+			pIt.remove();
+			m_lEvictions++;
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula o nmero de bytes ocupados pelos pixels de uma imagem,
+	 * a partir do seu modelo de amostras, sem a necessidade de decodific-la.
+	 * 
+	 * @param pImage Imagem JAI.
+	 * @return Nmero de bytes ocupados pelos pixels da imagem.
+	 */
+	private static long getByteCount(PlanarImage pImage)
+	{
+		SampleModel pModel = pImage.getSampleModel();
+		long lElementBytes = Math.max(DataBuffer.getDataTypeSize(pModel.getDataType()) / 8, 1);
+		return (long) pImage.getWidth() * pImage.getHeight() * pModel.getNumDataElements() * lElementBytes;
+	}
+	
+	/**
+	 * Classe privada utilizada como chave das imagens em cache.
+	 */
+	private static class CKey
+	{
+		/** Membro privado utilizado para armazenar o caminho cannico do arquivo. */
+		private String m_sPath;
+		
+		/** Membro privado utilizado para armazenar o nome da classe de formato. */
+		private String m_sFormat;
+		
+		/** Membro privado utilizado para armazenar a regio carregada, ou null para a imagem inteira. */
+		private Rectangle m_pRegion;
+		
+		/** Membro privado utilizado para armazenar o fator de amostragem. */
+		private int m_iSubsampling;
+		
+		/**
+		 * Construtor da classe CKey.
+		 * 
+		 * @param sPath Caminho cannico do arquivo.
+		 * @param sFormat Nome da classe de formato.
+		 * @param pRegion Regio carregada, ou null para a imagem inteira.
+		 * @param iSubsampling Fator de amostragem.
+		 */
+		public CKey(String sPath, String sFormat, Rectangle pRegion, int iSubsampling)
+		{
+			m_sPath = sPath;
+			m_sFormat = sFormat;
+			m_pRegion = (pRegion == null ? null : new Rectangle(pRegion));
+			m_iSubsampling = Math.max(iSubsampling, 1);
+		}
+		
+		/**
+		 * Compara a chave com outro objeto.
+		 * 
+		 * @param pObj Objeto a ser comparado.
+		 * @return True se o objeto for uma chave com os mesmos valores, false caso contrrio.
+		 */
+		@Override
+		public boolean equals(Object pObj)
+		{
+			if(!(pObj instanceof CKey))
+				return false;
+			CKey pKey = (CKey) pObj;
+			if(m_pRegion == null ? pKey.m_pRegion != null : !m_pRegion.equals(pKey.m_pRegion))
+				return false;
+			return m_iSubsampling == pKey.m_iSubsampling && m_sPath.equals(pKey.m_sPath) && m_sFormat.equals(pKey.m_sFormat);
+		}
+		
+		/**
+		 * Calcula o cdigo hash da chave.
+		 * 
+		 * @return Cdigo hash da chave.
+		 */
+		@Override
+		public int hashCode()
+		{
+			int iHash = m_sPath.hashCode() * 31 + m_sFormat.hashCode();
+			iHash = iHash * 31 + (m_pRegion == null ? 0 : m_pRegion.hashCode());
+			return iHash * 31 + m_iSubsampling;
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para armazenar uma imagem em cache e a verso do arquivo da qual ela foi carregada.
+	 */
+	private static class CEntry
+	{
+		/** Membro privado utilizado para armazenar a imagem decodificada. */
+		private PlanarImage m_pImage;
+		
+		/** Membro privado utilizado para armazenar a data de modificao do arquivo. */
+		private long m_lModified;
+		
+		/** Membro privado utilizado para armazenar o tamanho do arquivo. */
+		private long m_lLength;
+		
+		/** Membro privado utilizado para armazenar o nmero de bytes ocupados pelos pixels da imagem. */
+		private long m_lBytes;
+		
+		/**
+		 * Construtor da classe CEntry.
+		 * 
+		 * @param pImage Imagem decodificada.
+		 * @param lModified Data de modificao do arquivo.
+		 * @param lLength Tamanho do arquivo.
+		 * @param lBytes Nmero de bytes ocupados pelos pixels da imagem.
+		 */
+		public CEntry(PlanarImage pImage, long lModified, long lLength, long lBytes)
+		{
+			m_pImage = pImage;
+			m_lModified = lModified;
+			m_lLength = lLength;
+			m_lBytes = lBytes;
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+import java.awt.Dimension;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.errors.CErrors;
+
+/**
+ * CImageLoader  a classe que implementa o carregamento de vrios arquivos de imagem em segundo plano, atravs de
+ * um conjunto (pool) limitado de threads dedicadas  decodificao dos arquivos. Cada imagem  entregue ao objeto
+ * IImageLoadListener assim que  carregada, sem aguardar pelas demais.
+ * 
+ * Para que a decodificao em paralelo de imagens grandes no esgote a memria, o carregamento respeita um
+ * oramento de memria: antes de decodificar um arquivo, a thread reserva o nmero de bytes estimado para os seus
+ * pixels (a partir das dimenses lidas no cabealho do arquivo) e s o libera ao trmino da decodificao. Quando o
+ * oramento est esgotado, as threads aguardam a concluso dos carregamentos em andamento. Uma imagem maior do que
+ * o prprio oramento  carregada sozinha.
+ * 
+ * Os formatos so obtidos de CFormatFactory, de modo que as mesmas instncias de CFormat so compartilhadas por
+ * todas as threads.
+ * 
+ * Segue o padro de design Singleton.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see IImageLoadListener
+ * @see CImage#load(String, CFormatFactory.CFormatEnum)
+ */
+
+public class CImageLoader
+{
+	/** Membro privado esttico utilizado para armazenar uma instncia nica (singleton) da classe. */
+	private static CImageLoader m_pInstance;
+	
+	/** Membro privado esttico e final com o nmero de bytes de cada unidade (permisso) do oramento de memria. */
+	private static final int BUDGET_UNIT = 1024;
+	
+	/** Membro privado esttico e final com o nmero de bytes por pixel assumido na estimativa da memria de uma imagem. */
+	private static final int BYTES_PER_PIXEL = 4;
+	
+	/** Membro privado utilizado para armazenar o conjunto de threads de carregamento. */
+	private ThreadPoolExecutor m_pPool;
+	
+	/** Membro privado utilizado para armazenar o oramento de memria, em unidades de BUDGET_UNIT bytes. */
+	private int m_iBudgetUnits;
+	
+	/** Membro privado utilizado para armazenar a parte reservada do oramento de memria, em unidades de BUDGET_UNIT bytes. */
+	private long m_lReservedUnits;
+	
+	/** Membro privado utilizado para numerar as reservas na ordem de solicitao. */
+	private long m_lNextTicket;
+	
+	/** Membro privado utilizado para armazenar o nmero da prxima reserva a ser atendida (atendimento em ordem de chegada). */
+	private long m_lServingTicket;
+	
+	/** Membro privado utilizado para armazenar os nmeros das reservas interrompidas antes da sua vez. */
+	private Set<Long> m_pAbandoned;
+	
+	/**
+	 * Construtor da classe CImageLoader.
+	 * 
+	 * @param iThreads Nmero de threads de carregamento.
+	 * @param lBudget Oramento de memria, em bytes, para as imagens em decodificao.
+	 */
+	protected CImageLoader(int iThreads, long lBudget)
+	{
+		m_pPool = new ThreadPoolExecutor(iThreads, iThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new CLoaderThreadFactory());
+		m_iBudgetUnits = toUnits(lBudget);
+		m_lReservedUnits = 0;
+		m_lNextTicket = 0;
+		m_lServingTicket = 0;
+		m_pAbandoned = new HashSet<Long>();
+	}
+	
+	/**
+	 * Mtodo esttico utilizado para obter a instncia nica (singleton) da classe. O nmero de threads de
+	 * carregamento  igual ao nmero de processadores disponveis, e o oramento de memria  igual a um quarto da
+	 * memria mxima da mquina virtual.
+	 * 
+	 * @return Objeto da classe CImageLoader com a instncia nica.
+	 */
+	public static synchronized CImageLoader getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CImageLoader(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 4);
+		return m_pInstance;
+	}
+	
+	/**
+	 * Mtodo setter do nmero de threads de carregamento.
+	 * 
+	 * @param iThreads Nmero de threads de carregamento (pelo menos 1).
+	 */
+	public synchronized void setThreads(int iThreads)
+	{
+		iThreads = Math.max(iThreads, 1);
+		if(iThreads > m_pPool.getMaximumPoolSize())
+		{
+			m_pPool.setMaximumPoolSize(iThreads);
+			m_pPool.setCorePoolSize(iThreads);
+		}
+		else
+		{
+			m_pPool.setCorePoolSize(iThreads);
+			m_pPool.setMaximumPoolSize(iThreads);
+		}
+	}
+	
+	/**
+	 * Mtodo getter do nmero de threads de carregamento.
+	 * 
+	 * @return Nmero de threads de carregamento.
+	 */
+	public synchronized int getThreads()
+	{
+		return m_pPool.getMaximumPoolSize();
+	}
+	
+	/**
+	 * Mtodo setter do oramento de memria para as imagens em decodificao. A alterao  aplicada aos prximos
+	 * carregamentos, sem afetar os que estiverem em andamento (se o oramento for reduzido abaixo da memria j
+	 * reservada, os prximos carregamentos aguardam a liberao do excedente). O mtodo nunca bloqueia.
+	 * 
+	 * @param lBudget Oramento de memria, em bytes.
+	 */
+	public synchronized void setMemoryBudget(long lBudget)
+	{
+		m_iBudgetUnits = toUnits(lBudget);
+		notifyAll();
+	}
+	
+	/**
+	 * Mtodo getter do oramento de memria para as imagens em decodificao.
+	 * 
+	 * @return Oramento de memria, em bytes.
+	 */
+	public synchronized long getMemoryBudget()
+	{
+		return (long) m_iBudgetUnits * BUDGET_UNIT;
+	}
+	
+	/**
+	 * Solicita o carregamento em segundo plano dos arquivos dados. O formato de cada arquivo  obtido do seu
+	 * contedo, e os arquivos de contedo no reconhecido so rejeitados sem tentativa de decodificao. O mtodo
+	 * retorna imediatamente; as imagens (ou os erros) so entregues ao objeto dado  medida que cada carregamento 
+	 * concludo.
+	 * 
+	 * @param vFiles Vetor com os nomes dos arquivos (incluindo diretrio completo) a serem carregados.
+	 * @param pListener Objeto IImageLoadListener que recebe as imagens carregadas.
+	 */
+	public void load(Vector<String> vFiles, IImageLoadListener pListener)
+	{
+		AtomicInteger pDone = new AtomicInteger(0);
+		for(String sFile: vFiles)
+			m_pPool.execute(new CLoadTask(this, sFile, pListener, pDone, vFiles.size()));
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Reserva do oramento de memria a estimativa de memria
+	 * do arquivo dado. A reserva  limitada ao oramento total, de modo que uma imagem maior do que ele aguarda
+	 * apenas a liberao de todo o oramento. A limitao e a verificao da memria disponvel so feitas sobre o
+	 * mesmo valor do oramento, e refeitas a cada alterao dele, de modo que a reduo do oramento durante a espera
+	 * no impede a reserva. As reservas so atendidas na ordem de solicitao, de modo que as imagens grandes no
+	 * so preteridas pelas pequenas.
+	 * 
+	 * @param sFile Nome do arquivo a ser carregado.
+	 * @param pFormat Objeto CFormat com o formato do arquivo.
+	 * @return Nmero de unidades reservadas, a ser informado em release.
+	 * @throws InterruptedException Se a thread for interrompida durante a espera.
+	 */
+	private int reserve(String sFile, CFormat pFormat) throws InterruptedException
+	{
+		long lBytes = BUDGET_UNIT;
+		Dimension pSize = pFormat.getDimension(sFile);
+		if(pSize != null)
+			lBytes = Math.max(lBytes, (long) pSize.width * pSize.height * BYTES_PER_PIXEL);
+		
+		int iRequested = toUnits(lBytes);
+		synchronized(this)
+		{
+			long lTicket = m_lNextTicket++;
+			try
+			{
+				int iUnits = Math.min(iRequested, m_iBudgetUnits);
+				while(lTicket != m_lServingTicket || m_lReservedUnits + iUnits > m_iBudgetUnits)
+				{
+					wait();
+					iUnits = Math.min(iRequested, m_iBudgetUnits);
+				}
+				m_lReservedUnits += iUnits;
+				return iUnits;
+			}
+			finally
+			{
+				// A vez  passada  prxima reserva tanto aps o atendimento quanto aps a interrupo da espera
+				skipTicket(lTicket);
+			}
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Encerra a vez de uma reserva. Se a reserva for interrompida
+	 * antes da sua vez, o seu nmero  registrado para ser ignorado quando a vez chegar.
+	 * 
+	 * @param lTicket Nmero da reserva.
+	 */
+	private synchronized void skipTicket(long lTicket)
+	{
+		if(lTicket == m_lServingTicket)
+		{
+			m_lServingTicket++;
+			while(m_pAbandoned.remove(Long.valueOf(m_lServingTicket)))
+				m_lServingTicket++;
+		}
+		else
+			m_pAbandoned.add(Long.valueOf(lTicket));
+		notifyAll();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Libera unidades reservadas do oramento de memria.
+	 * 
+	 * @param iUnits Nmero de unidades a liberar, conforme retornado por reserve.
+	 */
+	private synchronized void release(int iUnits)
+	{
+		m_lReservedUnits -= iUnits;
+		notifyAll();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Converte um nmero de bytes em unidades do oramento de
+	 * memria (arredondado para cima e limitado ao intervalo de 1 a Integer.MAX_VALUE).
+	 * 
+	 * @param lBytes Nmero de bytes.
+	 * @return Nmero de unidades.
+	 */
+	private static int toUnits(long lBytes)
+	{
+		long lUnits = (lBytes + BUDGET_UNIT - 1) / BUDGET_UNIT;
+		return (int) Math.max(1, Math.min(lUnits, Integer.MAX_VALUE));
+	}
+	
+	/**
+	 * Classe privada utilizada para o carregamento de um arquivo por uma thread do conjunto.
+	 */
+	private static class CLoadTask implements Runnable
+	{
+		/** Membro privado utilizado para armazenar o objeto de carregamento que criou a tarefa. */
+		private CImageLoader m_pLoader;
+		
+		/** Membro privado utilizado para armazenar o nome do arquivo a ser carregado. */
+		private String m_sFile;
+		
+		/** Membro privado utilizado para armazenar o objeto que recebe a imagem carregada. */
+		private IImageLoadListener m_pListener;
+		
+		/** Membro privado utilizado para contar os arquivos concludos da mesma solicitao. */
+		private AtomicInteger m_pDone;
+		
+		/** Membro privado utilizado para armazenar o nmero total de arquivos da mesma solicitao. */
+		private int m_iTotal;
+		
+		/** Membro privado utilizado para armazenar a imagem carregada. */
+		private CImage m_pImage;
+		
+		/**
+		 * Construtor da classe CLoadTask.
+		 * 
+		 * @param pLoader Objeto CImageLoader que criou a tarefa.
+		 * @param sFile Nome do arquivo a ser carregado.
+		 * @param pListener Objeto que recebe a imagem carregada.
+		 * @param pDone Contador dos arquivos concludos da mesma solicitao.
+		 * @param iTotal Nmero total de arquivos da mesma solicitao.
+		 */
+		public CLoadTask(CImageLoader pLoader, String sFile, IImageLoadListener pListener, AtomicInteger pDone, int iTotal)
+		{
+			m_pLoader = pLoader;
+			m_sFile = sFile;
+			m_pListener = pListener;
+			m_pDone = pDone;
+			m_iTotal = iTotal;
+		}
+		
+		/**
+		 * Efetua o carregamento do arquivo e notifica o resultado.
+		 */
+		public void run()
+		{
+			CImage pImage = null;
+			int iRet;
+			try
+			{
+				iRet = load();
+				if(iRet == CErrors.SUCCESS)
+					pImage = m_pImage;
+			}
+			catch(InterruptedException e)
+			{
+				iRet = CErrors.ERROR_OPERATION_CANCELLED;
+			}
+			catch(RuntimeException e)
+			{
+				iRet = CErrors.ERROR_READING_FILE;
+			}
+			catch(OutOfMemoryError e)
+			{
+				iRet = CErrors.ERROR_UNEXPECTED_ERROR;
+			}
+			
+			int iDone = m_pDone.incrementAndGet();
+			if(pImage != null)
+				m_pListener.imageLoaded(m_sFile, pImage, iDone, m_iTotal);
+			else
+				m_pListener.imageFailed(m_sFile, iRet, iDone, m_iTotal);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Reserva o oramento de memria, carrega e decodifica o
+		 * arquivo.
+		 * 
+		 * @return Cdigo de erro do carregamento, conforme definido em CErrors.
+		 * @throws InterruptedException Se a thread for interrompida durante a espera pelo oramento.
+		 */
+		private int load() throws InterruptedException
+		{
+			CFormat pFormat = CFormatFactory.getInstance().getFormatByContent(m_sFile);
+			if(pFormat == null)
+				return CErrors.ERROR_INVALID_TYPE;
+			
+			int iUnits = m_pLoader.reserve(m_sFile, pFormat);
+			try
+			{
+				CImage pImage = new CImage(10, 10, true);
+				int iRet = pImage.load(pFormat, m_sFile, null, 1);
+				if(iRet != CErrors.SUCCESS)
+					return iRet;
+				
+				/*
+				 * A decodificao das imagens JAI  adiada at o primeiro acesso aos pixels. A renderizao 
+				 * forada aqui para que ela ocorra nessa thread, e no na thread que receber a imagem.
+				 */
+				pImage.render();
+				m_pImage = pImage;
+				return CErrors.SUCCESS;
+			}
+			finally
+			{
+				m_pLoader.release(iUnits);
+			}
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para criar as threads de carregamento, que so threads de servio (daemon) e portanto
+	 * no impedem o encerramento do sistema.
+	 */
+	private static class CLoaderThreadFactory implements ThreadFactory
+	{
+		/** Membro privado utilizado para numerar as threads criadas. */
+		private int m_iCount = 0;
+		
+		/**
+		 * Cria uma nova thread de carregamento.
+		 * 
+		 * @param pTask Tarefa a ser executada pela thread.
+		 * @return Objeto Thread criado.
+		 */
+		public synchronized Thread newThread(Runnable pTask)
+		{
+			Thread pThread = new Thread(pTask, "Narciso-ImageLoader-" + (++m_iCount));
+			pThread.setDaemon(true);
+			return pThread;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+import java.util.Properties;
+import java.util.concurrent.*;
+
+/**
+ * CImageWriter  a classe que implementa a gravao de imagens em segundo plano, atravs de um conjunto (pool) de
+ * threads dedicadas  codificao e gravao dos arquivos. Dessa forma, quem produz as imagens (como o
+ * processamento em lote) pode continuar o seu trabalho enquanto as imagens anteriores so gravadas, e a
+ * codificao de vrias imagens  efetuada em paralelo.
+ * 
+ * A fila de gravaes pendentes  limitada: quando ela est cheia, a gravao  efetuada pela prpria thread que a
+ * solicitou, de modo que o nmero de imagens aguardando gravao (e mantidas em memria) no cresce indefinidamente.
+ * 
+ * Segue o padro de design Singleton.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImage#saveAsync(String, CFormatFactory.CFormatEnum, Properties)
+ */
+
+public class CImageWriter
+{
+	/** Membro privado esttico utilizado para armazenar uma instncia nica (singleton) da classe. */
+	private static CImageWriter m_pInstance;
+	
+	/** Membro privado utilizado para armazenar o conjunto de threads de gravao. */
+	private ThreadPoolExecutor m_pPool;
+	
+	/**
+	 * Construtor da classe CImageWriter.
+	 * 
+	 * @param iThreads Nmero de threads de gravao.
+	 */
+	protected CImageWriter(int iThreads)
+	{
+		m_pPool = new ThreadPoolExecutor(iThreads, iThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(iThreads * 2),
+				new CWriterThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+	
+	/**
+	 * Mtodo esttico utilizado para obter a instncia nica (singleton) da classe. O nmero de threads de gravao
+	 *  igual ao nmero de processadores disponveis.
+	 * 
+	 * @return Objeto da classe CImageWriter com a instncia nica.
+	 */
+	public static synchronized CImageWriter getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CImageWriter(Runtime.getRuntime().availableProcessors());
+		return m_pInstance;
+	}
+	
+	/**
+	 * Mtodo setter do nmero de threads de gravao.
+	 * 
+	 * @param iThreads Nmero de threads de gravao (pelo menos 1).
+	 */
+	public synchronized void setThreads(int iThreads)
+	{
+		iThreads = Math.max(iThreads, 1);
+		if(iThreads > m_pPool.getMaximumPoolSize())
+		{
+			m_pPool.setMaximumPoolSize(iThreads);
+			m_pPool.setCorePoolSize(iThreads);
+		}
+		else
+		{
+			m_pPool.setCorePoolSize(iThreads);
+			m_pPool.setMaximumPoolSize(iThreads);
+		}
+	}
+	
+	/**
+	 * Mtodo getter do nmero de threads de gravao.
+	 * 
+	 * @return Nmero de threads de gravao.
+	 */
+	public synchronized int getThreads()
+	{
+		return m_pPool.getMaximumPoolSize();
+	}
+	
+	/**
+	 * Solicita a gravao de uma imagem em segundo plano. A imagem no deve ser alterada at o trmino da gravao.
+	 * 
+	 * @param pImage Objeto CImage com a imagem a ser gravada.
+	 * @param sFile Nome do arquivo (incluindo diretrio completo) para gravao da imagem.
+	 * @param eFormat Formato do arquivo a ser gravado, conforme definido em CFormatFactory.CFormatEnum.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Objeto Future com o cdigo de erro da gravao, conforme definido em CErrors.
+	 */
+	public Future<Integer> save(CImage pImage, String sFile, CFormatFactory.CFormatEnum eFormat, Properties pParams)
+	{
+		return m_pPool.submit(new CSaveTask(pImage, sFile, eFormat, pParams));
+	}
+	
+	/**
+	 * Classe privada utilizada para a gravao de uma imagem por uma thread do conjunto.
+	 */
+	private static class CSaveTask implements Callable<Integer>
+	{
+		/** Membro privado utilizado para armazenar a imagem a ser gravada. */
+		private CImage m_pImage;
+		
+		/** Membro privado utilizado para armazenar o nome do arquivo de gravao. */
+		private String m_sFile;
+		
+		/** Membro privado utilizado para armazenar o formato de gravao. */
+		private CFormatFactory.CFormatEnum m_eFormat;
+		
+		/** Membro privado utilizado para armazenar os parmetros de codificao. */
+		private Properties m_pParams;
+		
+		/**
+		 * Construtor da classe CSaveTask.
+		 * 
+		 * @param pImage Objeto CImage com a imagem a ser gravada.
+		 * @param sFile Nome do arquivo de gravao.
+		 * @param eFormat Formato de gravao.
+		 * @param pParams Parmetros de codificao, ou null.
+		 */
+		public CSaveTask(CImage pImage, String sFile, CFormatFactory.CFormatEnum eFormat, Properties pParams)
+		{
+			m_pImage = pImage;
+			m_sFile = sFile;
+			m_eFormat = eFormat;
+			m_pParams = pParams;
+		}
+		
+		/**
+		 * Efetua a gravao da imagem.
+		 * 
+		 * @return Cdigo de erro da gravao, conforme definido em CErrors.
+		 */
+		public Integer call()
+		{
+			return Integer.valueOf(m_pImage.save(m_sFile, m_eFormat, m_pParams));
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para criar as threads de gravao, que so threads de servio (daemon) e portanto
+	 * no impedem o encerramento do sistema.
+	 */
+	private static class CWriterThreadFactory implements ThreadFactory
+	{
+		/** Membro privado utilizado para numerar as threads criadas. */
+		private int m_iCount = 0;
+		
+		/**
+		 * Cria uma nova thread de gravao.
+		 * 
+		 * @param pTask Tarefa a ser executada pela thread.
+		 * @return Objeto Thread criado.
+		 */
+		public synchronized Thread newThread(Runnable pTask)
+		{
+			Thread pThread = new Thread(pTask, "Narciso-ImageWriter-" + (++m_iCount));
+			pThread.setDaemon(true);
+			return pThread;
+		}
+	}
+}
@@ -25,11 +25,13 @@ package core.images;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Properties;
+
+import javax.imageio.ImageWriteParam;
 
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 
-import com.sun.media.jai.codec.JPEGEncodeParam;
 import com.sun.media.jai.codec.SeekableStream;
 
 import core.errors.CErrors;
@@ -92,15 +94,49 @@ public class CJPEGFormat extends CFormat
 	@Override
 	public int save(PlanarImage pImage, String sFile)
 	{
-		ParameterBlock pPB = new ParameterBlock() ;
-		pPB.addSource(pImage) ;
-		pPB.add(sFile) ;
-		pPB.add("jpeg") ;
-		pPB.add(new JPEGEncodeParam());
-		
-		JAI.create("filestore",pPB);		
+		return save(pImage, sFile, null);
+	}
 	
-		return CErrors.SUCCESS;
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para implementar a gravao do arquivo de imagem com o nome dado, no formato JPEG,
+	 * com os parmetros de codificao dados.
+	 * 
+	 * Parmetros de codificao aceitos:
+	 * <ul>
+	 * <li>quality: qualidade da compresso, de 0 (menor arquivo) a 100 (melhor qualidade). O valor padro  75.</li>
+	 * </ul>
+	 *
+	 * @param pImage Objeto PlanarImage (JAI) contendo a imagem a ser gravada.
+	 * @param sFile Nome do arquivo de imagem a ser gravado.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	@Override
+	public int save(PlanarImage pImage, String sFile, Properties pParams)
+	{
+		return write(pImage, sFile, "jpeg", pParams, false);
+	}
+
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para aplicar a qualidade da compresso (parmetro quality) ao escritor.
+	 * 
+	 * @param pParam Parmetros do escritor Image I/O a serem configurados.
+	 * @param pParams Parmetros de codificao (nome=valor) informados na gravao.
+	 * @throws IllegalArgumentException Se a qualidade for invlida.
+	 */
+	@Override
+	protected void configure(ImageWriteParam pParam, Properties pParams)
+	{
+		String sQuality = pParams.getProperty("quality");
+		if(sQuality == null)
+			return;
+		
+		int iQuality = Integer.parseInt(sQuality.trim());
+		if(iQuality < 0 || iQuality > 100)
+			throw new IllegalArgumentException("Qualidade invlida: " + iQuality);
+		
+		pParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		pParam.setCompressionQuality(iQuality / 100.0f);
 	}
 
 }
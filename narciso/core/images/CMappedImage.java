@@ -0,0 +1,614 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.io.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import javax.media.jai.*;
+
+import core.operations.IOperationMonitor;
+
+/**
+ * CMappedImage  a classe para o armazenamento em disco dos pixels de imagens muito grandes para serem mantidas
+ * inteiramente na memria. Os pixels so gravados em um arquivo temporrio dividido em ladrilhos (tiles) de tamanho
+ * fixo, e o arquivo  acessado atravs do mapeamento em memria (memory-mapped file) do sistema operacional.
+ * 
+ * Apenas um nmero limitado de ladrilhos (os mais recentemente utilizados)  mantido em memria, em rasters
+ * convencionais do Java. Quando a capacidade  excedida, o ladrilho menos recentemente utilizado  descartado, e as
+ * suas alteraes (se houver) so antes gravadas de volta no arquivo. Os pixels so armazenados com o nmero de
+ * bandas e o tipo de dado da imagem original (por exemplo, 3 bytes por pixel em imagens RGB de 8 bits).
+ * 
+ * Como a classe  uma PlanarImage do JAI, ela pode ser utilizada diretamente como origem de operaes JAI e para a
+ * exibio em tela, que obtm os pixels ladrilho a ladrilho. O arquivo temporrio  fechado, tem os seus segmentos
+ * desmapeados e  removido quando a imagem  descartada (mtodo dispose). Se a imagem deixar de ser utilizada sem
+ * ser descartada, isso ocorre aps a sua coleta pelo coletor de lixo, na prxima criao ou descarte de uma imagem
+ * mapeada (veja CMappedFile), ou ainda, em ltimo caso, ao final da execuo do sistema.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ * 
+ * @see CImage
+ */
+
+public class CMappedImage extends PlanarImage
+{
+	/** Constante com a largura e altura padro (em pixels) dos ladrilhos. */
+	public static final int DEFAULT_TILE_SIZE = 512;
+	
+	/** Constante com a capacidade padro (em bytes) dos ladrilhos mantidos em memria por cada imagem. */
+	public static final long DEFAULT_CACHE_CAPACITY = 64L * 1024 * 1024;
+	
+	/** Constante com o tamanho mximo (em bytes) de cada segmento mapeado do arquivo. */
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+	
+	/** Membro privado utilizado para armazenar a capacidade (em bytes) dos ladrilhos mantidos em memria. */
+	private static volatile long m_lDefaultCapacity = DEFAULT_CACHE_CAPACITY;
+	
+	/** Membro privado utilizado para receber as referncias s imagens coletadas pelo coletor de lixo. */
+	private static final ReferenceQueue<CMappedImage> m_pCollected = new ReferenceQueue<CMappedImage>();
+	
+	/** Membro privado utilizado para manter as referncias aos arquivos das imagens ainda no descartadas. */
+	private static final Set<CMappedFile> m_pOpenFiles = Collections.synchronizedSet(new HashSet<CMappedFile>());
+	
+	/** Membro privado utilizado para armazenar o mtodo de desmapeamento de segmentos (sun.misc.Unsafe.invokeCleaner), ou null. */
+	private static Method m_pInvokeCleaner;
+	
+	/** Membro privado utilizado para armazenar a instncia de sun.misc.Unsafe utilizada no desmapeamento, ou null. */
+	private static Object m_pUnsafe;
+	
+	static
+	{
+		try
+		{
+			Class<?> pClass = Class.forName("sun.misc.Unsafe");
+			Field pField = pClass.getDeclaredField("theUnsafe");
+			pField.setAccessible(true);
+			m_pUnsafe = pField.get(null);
+			m_pInvokeCleaner = pClass.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch(Exception e)
+		{
+			// Sem o desmapeamento explcito, os segmentos so liberados pelo coletor de lixo
+			m_pUnsafe = null;
+			m_pInvokeCleaner = null;
+		}
+	}
+	
+	/** Membro privado utilizado para armazenar o arquivo temporrio com os pixels da imagem. */
+	private File m_pFile;
+	
+	/** Membro privado utilizado para armazenar o acesso aleatrio ao arquivo temporrio. */
+	private RandomAccessFile m_pAccess;
+	
+	/** Membro privado utilizado para armazenar os segmentos mapeados do arquivo, criados sob demanda. */
+	private MappedByteBuffer m_aSegments[];
+	
+	/** Membro privado utilizado para armazenar o nmero de ladrilhos em cada segmento mapeado. */
+	private int m_iTilesPerSegment;
+	
+	/** Membro privado utilizado para armazenar o nmero de bytes ocupados por cada ladrilho no arquivo. */
+	private int m_iTileBytes;
+	
+	/** Membro privado utilizado para armazenar o nmero de colunas de ladrilhos da imagem. */
+	private int m_iTilesX;
+	
+	/** Membro privado utilizado para armazenar o nmero de linhas de ladrilhos da imagem. */
+	private int m_iTilesY;
+	
+	/**
+	 * Membro privado utilizado para armazenar os ladrilhos mantidos em memria, indexados pela sua posio e
+	 * ordenados do menos recentemente utilizado para o mais recentemente utilizado.
+	 */
+	private LinkedHashMap<Integer, CTile> m_pResident;
+	
+	/** Membro privado utilizado para armazenar a capacidade (em bytes) dos ladrilhos mantidos em memria. */
+	private long m_lCapacity;
+	
+	/** Membro privado utilizado para armazenar a referncia que libera o arquivo temporrio da imagem. */
+	private CMappedFile m_pMappedFile;
+	
+	/**
+	 * Construtor da classe CMappedImage. Cria o arquivo temporrio para uma imagem com as dimenses, o nmero de
+	 * bandas e o tipo de dado dados. Os pixels da imagem so inicialmente zerados.
+	 * 
+	 * @param iWidth Largura em pixels da imagem.
+	 * @param iHeight Altura em pixels da imagem.
+	 * @param iBands Nmero de bandas de cada pixel.
+	 * @param iDataType Tipo de dado das amostras, conforme definido em java.awt.image.DataBuffer.
+	 * @param pColorModel Modelo de cores da imagem, ou null para a utilizao de um modelo de cores padro
+	 * (escala de cinza para imagens com uma banda e RGB para imagens com trs bandas).
+	 * @throws IOException Se o arquivo temporrio no puder ser criado.
+	 * @throws IllegalArgumentException Se no for possvel utilizar ou criar o modelo de cores da imagem.
+	 */
+	public CMappedImage(int iWidth, int iHeight, int iBands, int iDataType, ColorModel pColorModel) throws IOException
+	{
+		int iTileWidth = Math.min(iWidth, DEFAULT_TILE_SIZE);
+		int iTileHeight = Math.min(iHeight, DEFAULT_TILE_SIZE);
+		
+		int aOffsets[] = new int[iBands];
+		for(int i = 0; i < iBands; i++)
+			aOffsets[i] = i;
+		SampleModel pSampleModel = new PixelInterleavedSampleModel(iDataType, iTileWidth, iTileHeight, iBands, iTileWidth * iBands, aOffsets);
+		
+		if(pColorModel == null || !pColorModel.isCompatibleSampleModel(pSampleModel))
+			pColorModel = PlanarImage.createColorModel(pSampleModel);
+		if(pColorModel == null)
+			throw new IllegalArgumentException("Modelo de cores no suportado");
+		
+		setImageLayout(new ImageLayout(0, 0, iWidth, iHeight, 0, 0, iTileWidth, iTileHeight, pSampleModel, pColorModel));
+		
+		m_iTilesX = (iWidth + iTileWidth - 1) / iTileWidth;
+		m_iTilesY = (iHeight + iTileHeight - 1) / iTileHeight;
+		m_iTileBytes = iTileWidth * iTileHeight * iBands * (DataBuffer.getDataTypeSize(iDataType) / 8);
+		m_iTilesPerSegment = (int) Math.max(1, MAX_SEGMENT_SIZE / m_iTileBytes);
+		m_aSegments = new MappedByteBuffer[(m_iTilesX * m_iTilesY + m_iTilesPerSegment - 1) / m_iTilesPerSegment];
+		
+		m_pResident = new LinkedHashMap<Integer, CTile>(16, 0.75f, true);
+		m_lCapacity = m_lDefaultCapacity;
+		
+		releaseCollected();
+		
+		m_pFile = File.createTempFile("narciso", ".tiles");
+		m_pFile.deleteOnExit();
+		try
+		{
+			m_pAccess = new RandomAccessFile(m_pFile, "rw");
+			m_pAccess.setLength((long) m_iTilesX * m_iTilesY * m_iTileBytes);
+		}
+		catch(IOException e)
+		{
+			if(m_pAccess != null)
+				m_pAccess.close();
+			m_pFile.delete();
+			throw e;
+		}
+		
+		m_pMappedFile = new CMappedFile(this, m_pFile, m_pAccess, m_aSegments);
+		m_pOpenFiles.add(m_pMappedFile);
+	}
+	
+	/**
+	 * Mtodo setter da capacidade padro (em bytes) dos ladrilhos mantidos em memria pelas imagens criadas a
+	 * partir de ento.
+	 * 
+	 * @param lBytes Capacidade em bytes. Pelo menos um ladrilho  sempre mantido em memria.
+	 */
+	public static void setDefaultCacheCapacity(long lBytes)
+	{
+		m_lDefaultCapacity = lBytes;
+	}
+	
+	/**
+	 * Mtodo getter da capacidade padro (em bytes) dos ladrilhos mantidos em memria.
+	 * 
+	 * @return Capacidade em bytes.
+	 */
+	public static long getDefaultCacheCapacity()
+	{
+		return m_lDefaultCapacity;
+	}
+	
+	/**
+	 * Cria uma imagem mapeada em disco com os pixels da imagem dada. A imagem dada  obtida ladrilho a ladrilho,
+	 * de modo que ela nunca  mantida inteiramente em memria.
+	 * 
+	 * @param pSource Imagem com os pixels a serem copiados.
+	 * @param pMonitor Objeto IOperationMonitor consultado para o cancelamento antes da cpia de cada ladrilho, ou
+	 * null para a cpia sem possibilidade de cancelamento.
+	 * @return Objeto CMappedImage com a cpia da imagem dada, ou null se a cpia foi cancelada.
+	 * @throws IOException Se o arquivo temporrio no puder ser criado.
+	 */
+	public static CMappedImage create(RenderedImage pSource, IOperationMonitor pMonitor) throws IOException
+	{
+		SampleModel pModel = pSource.getSampleModel();
+		CMappedImage pImage = new CMappedImage(pSource.getWidth(), pSource.getHeight(), pModel.getNumBands(), pModel.getDataType(), pSource.getColorModel());
+		
+		Rectangle pBounds = new Rectangle(pSource.getMinX(), pSource.getMinY(), pSource.getWidth(), pSource.getHeight());
+		for(int iTileY = 0; iTileY < pImage.m_iTilesY; iTileY++)
+		{
+			for(int iTileX = 0; iTileX < pImage.m_iTilesX; iTileX++)
+			{
+				if(pMonitor != null && pMonitor.isCancelled())
+				{
+					pImage.dispose();
+					return null;
+				}
+				
+				Rectangle pRect = pImage.getTileRect(iTileX, iTileY);
+				WritableRaster pTarget = pImage.getTileRaster(iTileX, iTileY, true);
+				Raster pData = pSource.getData(new Rectangle(pRect.x + pBounds.x, pRect.y + pBounds.y, pRect.width, pRect.height));
+				pTarget.setRect(-pBounds.x, -pBounds.y, pData);
+			}
+		}
+		return pImage;
+	}
+	
+	/**
+	 * Mtodo getter que obtm um ladrilho da imagem. O ladrilho  carregado do arquivo caso no esteja em memria.
+	 * O raster retornado no deve ser alterado; as alteraes devem ser efetuadas atravs do mtodo setData.
+	 * 
+	 * @param iTileX Coluna do ladrilho.
+	 * @param iTileY Linha do ladrilho.
+	 * @return Objeto Raster com os pixels do ladrilho, ou null se o ladrilho no existe na imagem.
+	 */
+	public Raster getTile(int iTileX, int iTileY)
+	{
+		if(iTileX < 0 || iTileX >= m_iTilesX || iTileY < 0 || iTileY >= m_iTilesY)
+			return null;
+		return getTileRaster(iTileX, iTileY, false);
+	}
+	
+	/**
+	 * Atualiza os pixels da imagem com os valores do raster dado. Apenas a rea do raster que intercepta a imagem 
+	 * atualizada, e os ladrilhos alterados so gravados no arquivo quando forem descartados da memria.
+	 * 
+	 * @param pRaster Objeto Raster com os novos valores, posicionado nas coordenadas da imagem.
+	 */
+	public synchronized void setData(Raster pRaster)
+	{
+		Rectangle pRect = pRaster.getBounds().intersection(getBounds());
+		if(pRect.isEmpty())
+			return;
+		
+		for(int iTileY = YToTileY(pRect.y); iTileY <= YToTileY(pRect.y + pRect.height - 1); iTileY++)
+			for(int iTileX = XToTileX(pRect.x); iTileX <= XToTileX(pRect.x + pRect.width - 1); iTileX++)
+				getTileRaster(iTileX, iTileY, true).setRect(pRaster);
+	}
+	
+	/**
+	 * Obtm os elementos de dado de um pixel da imagem, no formato utilizado pelo modelo de cores
+	 * (ColorModel.getRGB(Object), por exemplo).
+	 * 
+	 * @param X Valor da coordenada X do pixel.
+	 * @param Y Valor da coordenada Y do pixel.
+	 * @return Vetor com os elementos de dado do pixel, do tipo primitivo correspondente ao tipo de dado da imagem.
+	 */
+	public Object getDataElements(int X, int Y)
+	{
+		return getTileRaster(XToTileX(X), YToTileY(Y), false).getDataElements(X, Y, null);
+	}
+	
+	/**
+	 * Grava no arquivo as alteraes pendentes de todos os ladrilhos mantidos em memria.
+	 */
+	public synchronized void flush()
+	{
+		Iterator<Map.Entry<Integer, CTile>> it = m_pResident.entrySet().iterator();
+		while(it.hasNext())
+		{
+			Map.Entry<Integer, CTile> pEntry = it.next();
+			writeTile(pEntry.getKey(), pEntry.getValue());
+		}
+	}
+	
+	/**
+	 * Descarta a imagem, liberando os ladrilhos mantidos em memria, desmapeando os segmentos do arquivo temporrio,
+	 * fechando-o e removendo-o. A imagem no deve ser utilizada aps a chamada a esse mtodo.
+	 */
+	public synchronized void dispose()
+	{
+		if(m_pAccess == null)
+			return;
+		
+		m_pResident.clear();
+		m_pMappedFile.release();
+		m_pAccess = null;
+		super.dispose();
+		
+		releaseCollected();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Libera os arquivos temporrios das imagens que foram coletadas
+	 * pelo coletor de lixo sem terem sido descartadas.
+	 */
+	private static void releaseCollected()
+	{
+		Reference<? extends CMappedImage> pReference;
+		while((pReference = m_pCollected.poll()) != null)
+			((CMappedFile) pReference).release();
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Desmapeia um segmento do arquivo imediatamente, sem aguardar
+	 * a sua coleta pelo coletor de lixo (o que  necessrio para que o arquivo possa ser removido em alguns sistemas
+	 * operacionais). O segmento no pode mais ser acessado aps a chamada a esse mtodo.
+	 * 
+	 * @param pSegment Segmento mapeado do arquivo.
+	 */
+	private static void unmap(MappedByteBuffer pSegment)
+	{
+		if(m_pInvokeCleaner == null)
+			return;
+		try
+		{
+			m_pInvokeCleaner.invoke(m_pUnsafe, pSegment);
+		}
+		catch(Exception e)
+		{
+			// O segmento ser liberado pelo coletor de lixo
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o raster de um ladrilho mantido em memria, carregando-o
+	 * do arquivo se necessrio e descartando os ladrilhos menos recentemente utilizados se a capacidade for
+	 * excedida.
+	 * 
+	 * @param iTileX Coluna do ladrilho.
+	 * @param iTileY Linha do ladrilho.
+	 * @param bWrite Valor lgico (true ou false) indicando se o ladrilho ser alterado.
+	 * @return Objeto WritableRaster com os pixels do ladrilho.
+	 */
+	private synchronized WritableRaster getTileRaster(int iTileX, int iTileY, boolean bWrite)
+	{
+		Integer iKey = Integer.valueOf(iTileY * m_iTilesX + iTileX);
+		CTile pTile = m_pResident.get(iKey);
+		if(pTile == null)
+		{
+			pTile = readTile(iKey.intValue(), iTileX, iTileY);
+			
+			Iterator<Map.Entry<Integer, CTile>> it = m_pResident.entrySet().iterator();
+			while(it.hasNext() && (long) (m_pResident.size() + 1) * m_iTileBytes > m_lCapacity)
+			{
+				Map.Entry<Integer, CTile> pEntry = it.next();
+				writeTile(pEntry.getKey(), pEntry.getValue());
+				it.remove();
+			}
+			m_pResident.put(iKey, pTile);
+		}
+		
+		if(bWrite)
+			pTile.m_bDirty = true;
+		return pTile.m_pRaster;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm a rea do arquivo mapeado correspondente a um ladrilho,
+	 * mapeando o segmento do arquivo que o contm se necessrio.
+	 * 
+	 * @param iIndex ndice do ladrilho.
+	 * @return Objeto ByteBuffer posicionado e limitado  rea do ladrilho.
+	 */
+	private ByteBuffer getTileBuffer(int iIndex)
+	{
+		int iSegment = iIndex / m_iTilesPerSegment;
+		if(m_aSegments[iSegment] == null)
+		{
+			long lStart = (long) iSegment * m_iTilesPerSegment * m_iTileBytes;
+			long lSize = Math.min((long) m_iTilesPerSegment * m_iTileBytes, (long) m_iTilesX * m_iTilesY * m_iTileBytes - lStart);
+			try
+			{
+				m_aSegments[iSegment] = m_pAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, lStart, lSize);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException("Erro ao mapear o arquivo [" + m_pFile + "]: " + e.getMessage());
+			}
+		}
+		
+		ByteBuffer pBuffer = m_aSegments[iSegment].duplicate();
+		int iOffset = (iIndex % m_iTilesPerSegment) * m_iTileBytes;
+		pBuffer.position(iOffset);
+		pBuffer.limit(iOffset + m_iTileBytes);
+		return pBuffer.slice().order(ByteOrder.nativeOrder());
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Carrega um ladrilho do arquivo mapeado para a memria.
+	 * 
+	 * @param iIndex ndice do ladrilho.
+	 * @param iTileX Coluna do ladrilho.
+	 * @param iTileY Linha do ladrilho.
+	 * @return Objeto CTile com o ladrilho carregado.
+	 */
+	private CTile readTile(int iIndex, int iTileX, int iTileY)
+	{
+		ByteBuffer pBuffer = getTileBuffer(iIndex);
+		int iSize = sampleModel.getNumDataElements() * tileWidth * tileHeight;
+		DataBuffer pData;
+		
+		switch(sampleModel.getDataType())
+		{
+			case DataBuffer.TYPE_BYTE:
+				byte aBytes[] = new byte[iSize];
+				pBuffer.get(aBytes);
+				pData = new DataBufferByte(aBytes, iSize);
+				break;
+			case DataBuffer.TYPE_USHORT:
+				short aUShorts[] = new short[iSize];
+				pBuffer.asShortBuffer().get(aUShorts);
+				pData = new DataBufferUShort(aUShorts, iSize);
+				break;
+			case DataBuffer.TYPE_SHORT:
+				short aShorts[] = new short[iSize];
+				pBuffer.asShortBuffer().get(aShorts);
+				pData = new DataBufferShort(aShorts, iSize);
+				break;
+			case DataBuffer.TYPE_INT:
+				int aInts[] = new int[iSize];
+				pBuffer.asIntBuffer().get(aInts);
+				pData = new DataBufferInt(aInts, iSize);
+				break;
+			case DataBuffer.TYPE_FLOAT:
+				float aFloats[] = new float[iSize];
+				pBuffer.asFloatBuffer().get(aFloats);
+				pData = new DataBufferFloat(aFloats, iSize);
+				break;
+			default:
+				double aDoubles[] = new double[iSize];
+				pBuffer.asDoubleBuffer().get(aDoubles);
+				pData = new DataBufferDouble(aDoubles, iSize);
+				break;
+		}
+		
+		return new CTile(Raster.createWritableRaster(sampleModel, pData, new Point(tileXToX(iTileX), tileYToY(iTileY))));
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Grava um ladrilho no arquivo mapeado, caso ele tenha sido
+	 * alterado desde a ltima gravao.
+	 * 
+	 * @param iIndex ndice do ladrilho.
+	 * @param pTile Objeto CTile com o ladrilho a ser gravado.
+	 */
+	private void writeTile(int iIndex, CTile pTile)
+	{
+		if(!pTile.m_bDirty)
+			return;
+		pTile.m_bDirty = false;
+		
+		ByteBuffer pBuffer = getTileBuffer(iIndex);
+		DataBuffer pData = pTile.m_pRaster.getDataBuffer();
+		
+		switch(pData.getDataType())
+		{
+			case DataBuffer.TYPE_BYTE:
+				pBuffer.put(((DataBufferByte) pData).getData());
+				break;
+			case DataBuffer.TYPE_USHORT:
+				pBuffer.asShortBuffer().put(((DataBufferUShort) pData).getData());
+				break;
+			case DataBuffer.TYPE_SHORT:
+				pBuffer.asShortBuffer().put(((DataBufferShort) pData).getData());
+				break;
+			case DataBuffer.TYPE_INT:
+				pBuffer.asIntBuffer().put(((DataBufferInt) pData).getData());
+				break;
+			case DataBuffer.TYPE_FLOAT:
+				pBuffer.asFloatBuffer().put(((DataBufferFloat) pData).getData());
+				break;
+			default:
+				pBuffer.asDoubleBuffer().put(((DataBufferDouble) pData).getData());
+				break;
+		}
+	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai. A imagem mapeada no possui imagens de origem.
+	 * 
+	 * @return Vetor com as imagens de origem, conforme PlanarImage.getSources.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Vector<RenderedImage> getSources()
+	{
+		return super.getSources();
+	}
+	
+	/**
+	 * Classe privada utilizada para liberar o arquivo temporrio de uma imagem mapeada, tanto no descarte da imagem
+	 * (mtodo dispose) quanto aps a sua coleta pelo coletor de lixo, quando a referncia  enfileirada. A
+	 * referncia no mantm a imagem acessvel, apenas o arquivo, o seu acesso aleatrio e os segmentos mapeados.
+	 */
+	private static class CMappedFile extends PhantomReference<CMappedImage>
+	{
+		/** Membro utilizado para armazenar o arquivo temporrio. */
+		private File m_pFile;
+		
+		/** Membro utilizado para armazenar o acesso aleatrio ao arquivo temporrio, ou null se j foi liberado. */
+		private RandomAccessFile m_pAccess;
+		
+		/** Membro utilizado para armazenar os segmentos mapeados do arquivo (o mesmo vetor utilizado pela imagem). */
+		private MappedByteBuffer m_aSegments[];
+		
+		/**
+		 * Construtor da classe CMappedFile.
+		 * 
+		 * @param pImage Imagem mapeada.
+		 * @param pFile Arquivo temporrio da imagem.
+		 * @param pAccess Acesso aleatrio ao arquivo temporrio.
+		 * @param aSegments Vetor com os segmentos mapeados do arquivo.
+		 */
+		CMappedFile(CMappedImage pImage, File pFile, RandomAccessFile pAccess, MappedByteBuffer aSegments[])
+		{
+			super(pImage, m_pCollected);
+			m_pFile = pFile;
+			m_pAccess = pAccess;
+			m_aSegments = aSegments;
+		}
+		
+		/**
+		 * Desmapeia os segmentos, fecha o canal e o arquivo e remove o arquivo temporrio. Chamadas seguintes no tm
+		 * efeito.
+		 */
+		synchronized void release()
+		{
+			if(m_pAccess == null)
+				return;
+			
+			for(int i = 0; i < m_aSegments.length; i++)
+			{
+				if(m_aSegments[i] != null)
+				{
+					unmap(m_aSegments[i]);
+					m_aSegments[i] = null;
+				}
+			}
+			try
+			{
+				m_pAccess.getChannel().close();
+				m_pAccess.close();
+			}
+			catch(IOException e)
+			{
+			}
+			m_pAccess = null;
+			m_pFile.delete();
+			m_pOpenFiles.remove(this);
+		}
+	}
+	
+	/**
+	 * Classe privada utilizada para armazenar um ladrilho mantido em memria e a indicao de que ele foi alterado
+	 * e precisa ser gravado de volta no arquivo.
+	 */
+	private static class CTile
+	{
+		/** Membro utilizado para armazenar o raster com os pixels do ladrilho. */
+		WritableRaster m_pRaster;
+		
+		/** Membro utilizado para indicar se o ladrilho foi alterado desde a ltima gravao. */
+		boolean m_bDirty;
+		
+		/**
+		 * Construtor da classe CTile.
+		 * 
+		 * @param pRaster Objeto WritableRaster com os pixels do ladrilho.
+		 */
+		CTile(WritableRaster pRaster)
+		{
+			m_pRaster = pRaster;
+			m_bDirty = false;
+		}
+	}
+}
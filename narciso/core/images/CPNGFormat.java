@@ -25,11 +25,13 @@ package core.images;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Properties;
+
+import javax.imageio.ImageWriteParam;
 
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 
-import com.sun.media.jai.codec.PNGEncodeParam;
 import com.sun.media.jai.codec.SeekableStream;
 
 import core.errors.CErrors;
@@ -92,14 +94,54 @@ public class CPNGFormat extends CFormat
 	@Override
 	public int save(PlanarImage pImage, String sFile)
 	{
-		ParameterBlock pPB = new ParameterBlock() ;
-		pPB.addSource(pImage) ;
-		pPB.add(sFile) ;
-		pPB.add("png") ;
-		pPB.add(PNGEncodeParam.getDefaultEncodeParam(pImage));
-		JAI.create("filestore",pPB);
+		return save(pImage, sFile, null);
+	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para implementar a gravao do arquivo de imagem com o nome dado, no formato PNG,
+	 * com os parmetros de codificao dados.
+	 * 
+	 * Parmetros de codificao aceitos:
+	 * <ul>
+	 * <li>compression: nvel de compresso (deflate), de 0 (sem compresso, gravao mais rpida) a 9 (maior compresso).</li>
+	 * </ul>
+	 *
+	 * @param pImage Objeto PlanarImage (JAI) contendo a imagem a ser gravada.
+	 * @param sFile Nome do arquivo de imagem a ser gravado.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	@Override
+	public int save(PlanarImage pImage, String sFile, Properties pParams)
+	{
+		return write(pImage, sFile, "png", pParams, false);
+	}
+
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para aplicar o nvel de compresso (parmetro compression) ao escritor.
+	 * 
+	 * @param pParam Parmetros do escritor Image I/O a serem configurados.
+	 * @param pParams Parmetros de codificao (nome=valor) informados na gravao.
+	 * @throws IllegalArgumentException Se o nvel de compresso for invlido.
+	 */
+	@Override
+	protected void configure(ImageWriteParam pParam, Properties pParams)
+	{
+		String sLevel = pParams.getProperty("compression");
+		if(sLevel == null)
+			return;
+		
+		int iLevel = Integer.parseInt(sLevel.trim());
+		if(iLevel < 0 || iLevel > 9)
+			throw new IllegalArgumentException("Nvel de compresso invlido: " + iLevel);
 		
-		return CErrors.SUCCESS;
+		/*
+		 * O escritor PNG do Image I/O obtm o nvel de compresso a partir de 9 * (1 - qualidade). A qualidade 
+		 * calculada para o centro inferior de cada nvel (nvel + 0,25), pois o valor exato do nvel pode resultar
+		 * no nvel anterior devido ao arredondamento em ponto flutuante (por exemplo, 0,9999999 para o nvel 1).
+		 */
+		pParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		pParam.setCompressionQuality(Math.max(0.0f, 1.0f - (iLevel + 0.25f) / 9.0f));
 	}
 
 }
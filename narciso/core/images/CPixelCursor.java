@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+/**
+ * CPixelCursor  a classe para o percorrimento sequencial dos pixels de uma imagem sem a alocao de objetos por
+ * pixel. O cursor mantm em memria a linha corrente da imagem (com as cores empacotadas no formato 0xAARRGGBB)
+ * e um nico objeto CColorPixel reaproveitado, cujos valores HLS s so calculados quando consultados.
+ *
+ * As alteraes efetuadas atravs do cursor so gravadas na imagem quando o cursor avana para a prxima linha,
+ * ou quando o mtodo flush  chamado. O percorrimento  feito linha a linha, da esquerda para a direita e de cima
+ * para baixo:
+ *
+ * <pre>
+ * CPixelCursor pCursor = pImage.createCursor();
+ * while(pCursor.next())
+ *     pCursor.setRGB(255 - pCursor.getRed(), 255 - pCursor.getGreen(), 255 - pCursor.getBlue());
+ * pCursor.flush();
+ * </pre>
+ *
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImage
+ * @see CColorPixel
+ *
+ */
+
+public class CPixelCursor
+{
+	/** Membro privado utilizado para armazenar a imagem percorrida pelo cursor. */
+	private CImage m_pImage;
+
+	/** Membro privado utilizado para armazenar os valores RGB empacotados da linha corrente. */
+	private int m_aRow[];
+
+	/**
+	 * Membro privado utilizado para armazenar as amostras da linha corrente em imagens em escala de cinza, de modo
+	 * que apenas os pixels efetivamente alterados tenham seu brilho modificado na gravao.
+	 */
+	private int m_aGrayRow[];
+	
+	/**
+	 * Membro privado utilizado para indicar se as amostras da imagem so acessadas diretamente (imagens em escala de
+	 * cinza de 8 bits), em vez de atravs dos valores RGB.
+	 */
+	private boolean m_bGraySamples;
+
+	/** Membro privado utilizado para armazenar o pixel reaproveitado para a consulta e alterao dos valores HLS. */
+	private CColorPixel m_pPixel;
+
+	/** Membro privado utilizado para indicar se o pixel reaproveitado contm os valores do pixel corrente. */
+	private boolean m_bPixelLoaded;
+
+	/** Membro privado utilizado para indicar se a linha corrente foi alterada e precisa ser gravada na imagem. */
+	private boolean m_bRowChanged;
+
+	/** Membro privado utilizado para armazenar a coordenada X do pixel corrente. */
+	private int m_iX;
+
+	/** Membro privado utilizado para armazenar a coordenada Y do pixel corrente. */
+	private int m_iY;
+
+	/**
+	 * Construtor da classe CPixelCursor. O cursor  criado posicionado antes do primeiro pixel da imagem, de modo
+	 * que o mtodo next deve ser chamado antes do acesso ao primeiro pixel.
+	 *
+	 * @param pImage Objeto CImage com a imagem a ser percorrida.
+	 */
+	public CPixelCursor(CImage pImage)
+	{
+		m_pImage = pImage;
+		m_aRow = new int[pImage.getWidth()];
+		m_pPixel = new CColorPixel(0, 0, 0);
+		m_bGraySamples = !pImage.IsColored() && pImage.getSampleSize(0) == 8;
+		reset();
+	}
+
+	/**
+	 * Reposiciona o cursor antes do primeiro pixel da imagem, gravando antes as alteraes pendentes.
+	 */
+	public void reset()
+	{
+		flush();
+		m_iX = m_aRow.length;
+		m_iY = -1;
+		m_bPixelLoaded = false;
+	}
+
+	/**
+	 * Avana o cursor para o prximo pixel da imagem. Ao final de cada linha as alteraes pendentes so gravadas
+	 * na imagem e a prxima linha  carregada.
+	 *
+	 * @return Valor lgico (true ou false) indicando se o cursor est posicionado em um pixel vlido, ou se a
+	 * imagem j foi totalmente percorrida.
+	 */
+	public boolean next()
+	{
+		m_bPixelLoaded = false;
+		if(++m_iX < m_aRow.length)
+			return true;
+
+		flush();
+		if(m_iY + 1 >= m_pImage.getHeight())
+		{
+			m_iY = m_pImage.getHeight();
+			return false;
+		}
+		m_iY++;
+		m_iX = 0;
+		m_pImage.getRGB(0, m_iY, m_aRow.length, 1, m_aRow);
+		if(m_bGraySamples)
+			m_aGrayRow = m_pImage.getSamples(0, m_iY, m_aRow.length, 1, 0, m_aGrayRow);
+		return m_aRow.length > 0;
+	}
+
+	/**
+	 * Grava na imagem as alteraes pendentes da linha corrente. Deve ser chamado ao final do percorrimento se o
+	 * cursor no tiver atingido o final da imagem.
+	 */
+	public void flush()
+	{
+		if(!m_bRowChanged)
+			return;
+		m_bRowChanged = false;
+
+		if(!m_bGraySamples)
+			m_pImage.setRGB(0, m_iY, m_aRow.length, 1, m_aRow);
+		else
+		{
+			// Apenas a primeira banda contm o brilho; a segunda, se houver,  a transparncia (alfa)
+			m_pImage.setSamples(0, m_iY, m_aRow.length, 1, 0, m_aGrayRow);
+		}
+	}
+
+	/**
+	 * Mtodo getter da coordenada X do pixel corrente.
+	 *
+	 * @return Valor da coordenada X do pixel corrente.
+	 */
+	public int getX()
+	{
+		return m_iX;
+	}
+
+	/**
+	 * Mtodo getter da coordenada Y do pixel corrente.
+	 *
+	 * @return Valor da coordenada Y do pixel corrente.
+	 */
+	public int getY()
+	{
+		return m_iY;
+	}
+
+	/**
+	 * Mtodo getter dos valores RGB do pixel corrente, empacotados em um nico inteiro (0xAARRGGBB).
+	 *
+	 * @return Valor das cores empacotadas.
+	 */
+	public int getRGB()
+	{
+		return m_aRow[m_iX];
+	}
+
+	/**
+	 * Mtodo getter da cor vermelha do pixel corrente.
+	 *
+	 * @return Valor do vermelho, no intervalo de 0 a 255.
+	 */
+	public int getRed()
+	{
+		return (m_aRow[m_iX] >> 16) & 0xff;
+	}
+
+	/**
+	 * Mtodo getter da cor verde do pixel corrente.
+	 *
+	 * @return Valor do verde, no intervalo de 0 a 255.
+	 */
+	public int getGreen()
+	{
+		return (m_aRow[m_iX] >> 8) & 0xff;
+	}
+
+	/**
+	 * Mtodo getter da cor azul do pixel corrente.
+	 *
+	 * @return Valor do azul, no intervalo de 0 a 255.
+	 */
+	public int getBlue()
+	{
+		return m_aRow[m_iX] & 0xff;
+	}
+
+	/**
+	 * Mtodo getter do brilho do pixel corrente, calculado da mesma forma que na converso para escala de cinza
+	 * efetuada pela classe CColorPixel.
+	 *
+	 * @return Valor do brilho, no intervalo de 0 a 255.
+	 */
+	public int getBrightness()
+	{
+		int iRGB = m_aRow[m_iX];
+		return CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff);
+	}
+
+	/**
+	 * Mtodo getter da matiz do pixel corrente. A converso para HLS  efetuada apenas na primeira consulta a
+	 * cada pixel.
+	 *
+	 * @return Valor da matiz, no intervalo de 0.0 a (2.0 * Math.PI).
+	 */
+	public double getHue()
+	{
+		return getPixel().getHue();
+	}
+
+	/**
+	 * Mtodo getter da luminosidade do pixel corrente. A converso para HLS  efetuada apenas na primeira consulta
+	 * a cada pixel.
+	 *
+	 * @return Valor da luminosidade, no intervalo de 0.0 a 1.0.
+	 */
+	public double getLightness()
+	{
+		return getPixel().getLightness();
+	}
+
+	/**
+	 * Mtodo getter da saturao do pixel corrente. A converso para HLS  efetuada apenas na primeira consulta
+	 * a cada pixel.
+	 *
+	 * @return Valor da saturao, no intervalo de 0.0 a 1.0.
+	 */
+	public double getSaturation()
+	{
+		return getPixel().getSaturation();
+	}
+
+	/**
+	 * Obtm o objeto CColorPixel com os valores do pixel corrente. O objeto retornado  reaproveitado pelo cursor
+	 * a cada pixel e no deve ser armazenado; alteraes nele efetuadas s so refletidas na imagem atravs do
+	 * mtodo setPixel.
+	 *
+	 * @return Objeto CColorPixel com os valores do pixel corrente.
+	 */
+	public CColorPixel getPixel()
+	{
+		if(!m_bPixelLoaded)
+		{
+			m_pPixel.setRGB(m_aRow[m_iX]);
+			m_bPixelLoaded = true;
+		}
+		return m_pPixel;
+	}
+
+	/**
+	 * Atualiza o pixel corrente com os valores RGB empacotados em um nico inteiro (0xAARRGGBB).
+	 *
+	 * @param iRGB Valor das cores empacotadas. O componente alfa  ignorado.
+	 */
+	public void setRGB(final int iRGB)
+	{
+		m_aRow[m_iX] = 0xff000000 | iRGB;
+		if(m_aGrayRow != null)
+			m_aGrayRow[m_iX] = CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff);
+		m_bPixelLoaded = false;
+		m_bRowChanged = true;
+	}
+
+	/**
+	 * Atualiza o pixel corrente com os valores RGB dados.
+	 *
+	 * @param iRed Valor para a cor vermelha, no intervalo de 0 a 255.
+	 * @param iGreen Valor para a cor verde, no intervalo de 0 a 255.
+	 * @param iBlue Valor para a cor azul, no intervalo de 0 a 255.
+	 */
+	public void setRGB(final int iRed, final int iGreen, final int iBlue)
+	{
+		setRGB(((iRed & 0xff) << 16) | ((iGreen & 0xff) << 8) | (iBlue & 0xff));
+	}
+
+	/**
+	 * Atualiza o pixel corrente com os valores HLS dados, convertidos para RGB da mesma forma que na classe
+	 * CColorPixel.
+	 *
+	 * @param dHue Valor para a matiz, no intervalo de 0.0 a (2.0 * Math.PI).
+	 * @param dLightness Valor para a luminosidade, no intervalo de 0.0 a 1.0.
+	 * @param dSaturation Valor para a saturao, no intervalo de 0.0 a 1.0.
+	 */
+	public void setHLS(final double dHue, final double dLightness, final double dSaturation)
+	{
+		m_pPixel.setHLS(dHue, dLightness, dSaturation);
+		setRGB(m_pPixel.getRGB());
+	}
+
+	/**
+	 * Atualiza o pixel corrente com os valores de um objeto CPixel. Em imagens em escala de cinza, objetos
+	 * CGrayScalePixel tambm so aceitos.
+	 *
+	 * @param pPixel Objeto CPixel com os novos valores do pixel.
+	 */
+	public void setPixel(CPixel pPixel)
+	{
+		if(pPixel instanceof CColorPixel)
+			setRGB(((CColorPixel) pPixel).getRGB());
+		else
+		{
+			int iBrightness = ((CGrayScalePixel) pPixel).getBrightness();
+			setRGB(iBrightness, iBrightness, iBrightness);
+		}
+	}
+}
@@ -23,14 +23,15 @@
 package core.images;
 
 import java.awt.image.renderable.ParameterBlock;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.util.Properties;
+
+import javax.imageio.ImageWriteParam;
 
 import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 
+import com.sun.media.jai.codec.FileSeekableStream;
 import com.sun.media.jai.codec.SeekableStream;
-import com.sun.media.jai.codec.TIFFEncodeParam;
 
 import core.errors.CErrors;
 
@@ -68,8 +69,9 @@ public class CTIFFFormat extends CFormat
 		PlanarImage pImage;
 		try
 		{
-			InputStream pInput = new FileInputStream(sFile);
-			SeekableStream pStream = SeekableStream.wrapInputStream(pInput, false);
+			// O ndice (IFD) de um arquivo TIFF pode estar aps os dados da imagem, e por isso o fluxo precisa
+			// permitir o retorno a posies anteriores
+			SeekableStream pStream = new FileSeekableStream(sFile);
 			ParameterBlock pBlock = new ParameterBlock();
 			pBlock.add(pStream);
 			pImage = JAI.create("TIFF", pBlock);
@@ -92,16 +94,71 @@ public class CTIFFFormat extends CFormat
 	@Override
 	public int save(PlanarImage pImage, String sFile)
 	{
+		return save(pImage, sFile, null);
+	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para implementar a gravao do arquivo de imagem com o nome dado, no formato TIFF,
+	 * com os parmetros de codificao dados.
+	 * 
+	 * Parmetros de codificao aceitos:
+	 * <ul>
+	 * <li>compression: tipo de compresso, dentre none (padro), lzw, deflate, packbits e jpeg.</li>
+	 * <li>tilesize: largura e altura (em pixels) dos blocos (tiles) do arquivo. Se no informado, o arquivo 
+	 * gravado em faixas (strips).</li>
+	 * </ul>
+	 *
+	 * @param pImage Objeto PlanarImage (JAI) contendo a imagem a ser gravada.
+	 * @param sFile Nome do arquivo de imagem a ser gravado.
+	 * @param pParams Parmetros de codificao (nome=valor), ou null para a utilizao dos valores padro.
+	 * @return Retorna CErrors.SUCCESS se a gravao foi realizada com sucesso, ou um cdigo com o erro ocorrido.
+	 */
+	@Override
+	public int save(PlanarImage pImage, String sFile, Properties pParams)
+	{
+		return write(pImage, sFile, "tiff", pParams, true);
+	}
 
-		ParameterBlock pPB = new ParameterBlock() ;
-		pPB.addSource(pImage) ;
-		pPB.add(sFile) ;
-		pPB.add("tiff") ;
-		pPB.add(new TIFFEncodeParam());
+	/**
+	 * Mtodo sobrescrito da classe pai CFormat para aplicar o tipo de compresso (parmetro compression) e o tamanho
+	 * dos blocos (parmetro tilesize) ao escritor.
+	 * 
+	 * @param pParam Parmetros do escritor Image I/O a serem configurados.
+	 * @param pParams Parmetros de codificao (nome=valor) informados na gravao.
+	 * @throws IllegalArgumentException Se o tipo de compresso ou o tamanho dos blocos for invlido.
+	 */
+	@Override
+	protected void configure(ImageWriteParam pParam, Properties pParams)
+	{
+		String sCompression = pParams.getProperty("compression");
+		if(sCompression != null && !sCompression.trim().equalsIgnoreCase("none"))
+		{
+			String sType = sCompression.trim().toLowerCase();
+			if(sType.equals("lzw"))
+				sType = "LZW";
+			else if(sType.equals("deflate"))
+				sType = "Deflate";
+			else if(sType.equals("packbits"))
+				sType = "PackBits";
+			else if(sType.equals("jpeg"))
+				sType = "JPEG";
+			else
+				throw new IllegalArgumentException("Tipo de compresso invlido: " + sCompression);
+			
+			pParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			pParam.setCompressionType(sType);
+		}
 		
-		JAI.create("filestore",pPB);		
-	
-		return CErrors.SUCCESS;
+		String sTileSize = pParams.getProperty("tilesize");
+		if(sTileSize != null)
+		{
+			int iTileSize = Integer.parseInt(sTileSize.trim());
+			if(iTileSize <= 0 || iTileSize % 16 != 0)
+				throw new IllegalArgumentException("Tamanho de bloco invlido: " + iTileSize);
+			
+			pParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+			pParam.setTiling(iTileSize, iTileSize, 0, 0);
+		}
 	}
 
 }
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+
+/**
+ * CThumbnailGenerator  a classe que implementa a gerao de miniaturas de imagens, utilizada pela janela de
+ * miniaturas e pela pr-visualizao da janela de seleo de arquivos.
+ * 
+ * A reduo  feita em uma nica passagem pelas linhas da imagem, com a mdia das reas (area average) de blocos
+ * de N x N pixels, seguida de um redimensionamento bilinear final de menos de duas vezes para o tamanho exato. Como
+ * as linhas so lidas uma a uma, a gerao no exige a cpia da imagem inteira (inclusive das imagens armazenadas
+ * em disco, CMappedImage). As miniaturas de arquivos ainda no carregados so geradas a partir de uma verso
+ * reduzida por amostragem (subsampling) lida diretamente do arquivo.
+ * 
+ * As miniaturas de arquivos so mantidas em um cache em disco, identificadas pelo caminho cannico, pela data de
+ * modificao e pelo tamanho do arquivo, de modo que as miniaturas de arquivos j vistos so apenas lidas do cache.
+ * Os mtodos desta classe podem ser chamados de qualquer thread, e devem ser chamados fora da thread de eventos.
+ * 
+ * Segue o padro de design Singleton.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImage
+ * @see CFormat#load(String, Rectangle, int)
+ */
+
+public class CThumbnailGenerator
+{
+	/** Membro privado esttico utilizado para armazenar uma instncia nica (singleton) da classe. */
+	private static CThumbnailGenerator m_pInstance;
+	
+	/** Membro privado utilizado para armazenar o diretrio do cache em disco, ou null se o cache estiver desabilitado. */
+	private File m_fCacheDir;
+	
+	/**
+	 * Construtor da classe CThumbnailGenerator.
+	 * 
+	 * @param fCacheDir Diretrio do cache em disco, ou null para desabilitar o cache.
+	 */
+	protected CThumbnailGenerator(File fCacheDir)
+	{
+		m_fCacheDir = fCacheDir;
+	}
+	
+	/**
+	 * Mtodo esttico utilizado para obter a instncia nica (singleton) da classe. O cache em disco  mantido no
+	 * diretrio .narciso/thumbnails do diretrio do usurio.
+	 * 
+	 * @return Objeto da classe CThumbnailGenerator com a instncia nica.
+	 */
+	public static synchronized CThumbnailGenerator getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CThumbnailGenerator(new File(System.getProperty("user.home"), ".narciso" + File.separator + "thumbnails"));
+		return m_pInstance;
+	}
+	
+	/**
+	 * Mtodo setter do diretrio do cache em disco.
+	 * 
+	 * @param fCacheDir Diretrio do cache em disco, ou null para desabilitar o cache.
+	 */
+	public synchronized void setCacheDirectory(File fCacheDir)
+	{
+		m_fCacheDir = fCacheDir;
+	}
+	
+	/**
+	 * Mtodo getter do diretrio do cache em disco.
+	 * 
+	 * @return Diretrio do cache em disco, ou null se o cache estiver desabilitado.
+	 */
+	public synchronized File getCacheDirectory()
+	{
+		return m_fCacheDir;
+	}
+	
+	/**
+	 * Gera a miniatura de uma imagem. Se a imagem foi carregada de um arquivo (e tem as mesmas dimenses que ele)
+	 * e no foi alterada em memria desde ento, a miniatura  obtida do cache em disco, ou gravada nele aps a
+	 * gerao.
+	 * 
+	 * @param pImage Objeto CImage com a imagem.
+	 * @param iSize Tamanho mximo, em pixels, da largura e da altura da miniatura. A proporo da imagem  mantida.
+	 * @return Objeto BufferedImage (RGB) com a miniatura.
+	 */
+	public BufferedImage getThumbnail(CImage pImage, int iSize)
+	{
+		File fCache = getCacheFile(pImage, iSize);
+		BufferedImage pRet = readCache(fCache);
+		if(pRet != null)
+			return pRet;
+		
+		pRet = createThumbnail(pImage, iSize);
+		writeCache(fCache, pRet);
+		return pRet;
+	}
+	
+	/**
+	 * Gera a miniatura de um arquivo de imagem, sem carregar a imagem inteira: apenas uma verso reduzida por
+	 * amostragem  lida do arquivo. A miniatura  obtida do cache em disco, ou gravada nele aps a gerao.
+	 * 
+	 * @param sFile Nome do arquivo da imagem.
+	 * @param iSize Tamanho mximo, em pixels, da largura e da altura da miniatura. A proporo da imagem  mantida.
+	 * @return Objeto BufferedImage (RGB) com a miniatura, ou null se o arquivo no pode ser carregado.
+	 */
+	public BufferedImage getThumbnail(String sFile, int iSize)
+	{
+		File fCache = getCacheFile(new File(sFile), iSize);
+		BufferedImage pRet = readCache(fCache);
+		if(pRet != null)
+			return pRet;
+		
+		PlanarImage pSubsampled;
+		CFormat pFormat = CFormatFactory.getInstance().getFormatByContent(sFile);
+		if(pFormat != null)
+		{
+			Dimension pSize = pFormat.getDimension(sFile);
+			int iSubsampling = (pSize == null ? 1 : Math.max(1, Math.max(pSize.width, pSize.height) / Math.max(iSize, 1)));
+			pSubsampled = CImageCache.getInstance().load(pFormat, sFile, null, iSubsampling);
+		}
+		else
+		{
+			// Formato no reconhecido pelo contedo: tenta a leitura completa pelos decodificadores do JAI
+			try
+			{
+				pSubsampled = JAI.create("fileload", sFile);
+				pSubsampled.getWidth();
+			}
+			catch(RuntimeException e)
+			{
+				pSubsampled = null;
+			}
+		}
+		if(pSubsampled == null)
+			return null;
+		
+		CImage pImage = new CImage(1, 1, true);
+		pImage.setPlanarImage(pSubsampled);
+		pRet = createThumbnail(pImage, iSize);
+		writeCache(fCache, pRet);
+		return pRet;
+	}
+	
+	/**
+	 * Gera a miniatura de uma imagem, sem utilizar o cache em disco.
+	 * 
+	 * @param pImage Objeto CImage com a imagem.
+	 * @param iSize Tamanho mximo, em pixels, da largura e da altura da miniatura. A proporo da imagem  mantida.
+	 * Imagens menores do que esse tamanho no so ampliadas.
+	 * @return Objeto BufferedImage (RGB) com a miniatura.
+	 */
+	public static BufferedImage createThumbnail(CImage pImage, int iSize)
+	{
+		int iWidth = pImage.getWidth();
+		int iHeight = pImage.getHeight();
+		iSize = Math.max(iSize, 1);
+		
+		/*
+		 * Primeira etapa: mdia de blocos de iFactor x iFactor pixels, com o maior fator que mantm a miniatura com
+		 * pelo menos o tamanho desejado. As somas das cores de cada linha da miniatura so acumuladas enquanto as
+		 * linhas correspondentes da imagem so lidas.
+		 */
+		
+		int iFactor = Math.max(1, Math.max(iWidth, iHeight) / iSize);
+		int iBoxWidth = (iWidth + iFactor - 1) / iFactor;
+		int iBoxHeight = (iHeight + iFactor - 1) / iFactor;
+		
+		int aRow[] = new int[iWidth];
+		int aRed[] = new int[iBoxWidth];
+		int aGreen[] = new int[iBoxWidth];
+		int aBlue[] = new int[iBoxWidth];
+		int aBox[] = new int[iBoxWidth * iBoxHeight];
+		
+		for(int y = 0; y < iBoxHeight; y++)
+		{
+			Arrays.fill(aRed, 0);
+			Arrays.fill(aGreen, 0);
+			Arrays.fill(aBlue, 0);
+			
+			int iFirstRow = y * iFactor;
+			int iRows = Math.min(iFactor, iHeight - iFirstRow);
+			for(int iRow = iFirstRow; iRow < iFirstRow + iRows; iRow++)
+			{
+				pImage.getRGB(0, iRow, iWidth, 1, aRow);
+				for(int x = 0; x < iWidth; x++)
+				{
+					int iRGB = aRow[x];
+					int iBox = x / iFactor;
+					aRed[iBox] += (iRGB >> 16) & 0xff;
+					aGreen[iBox] += (iRGB >> 8) & 0xff;
+					aBlue[iBox] += iRGB & 0xff;
+				}
+			}
+			
+			for(int x = 0; x < iBoxWidth; x++)
+			{
+				int iCount = iRows * Math.min(iFactor, iWidth - x * iFactor);
+				aBox[y * iBoxWidth + x] = ((aRed[x] / iCount) << 16) | ((aGreen[x] / iCount) << 8) | (aBlue[x] / iCount);
+			}
+		}
+		
+		BufferedImage pBox = new BufferedImage(iBoxWidth, iBoxHeight, BufferedImage.TYPE_INT_RGB);
+		pBox.setRGB(0, 0, iBoxWidth, iBoxHeight, aBox, 0, iBoxWidth);
+		
+		/*
+		 * Segunda etapa: redimensionamento bilinear (de menos de duas vezes) para o tamanho exato da miniatura.
+		 */
+		
+		if(iBoxWidth <= iSize && iBoxHeight <= iSize)
+			return pBox;
+		
+		double dScale = Math.min(iSize / (double) iBoxWidth, iSize / (double) iBoxHeight);
+		int iThumbWidth = Math.max(1, (int) Math.round(iBoxWidth * dScale));
+		int iThumbHeight = Math.max(1, (int) Math.round(iBoxHeight * dScale));
+		
+		BufferedImage pRet = new BufferedImage(iThumbWidth, iThumbHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D pGraph = pRet.createGraphics();
+		pGraph.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		pGraph.drawImage(pBox, 0, 0, iThumbWidth, iThumbHeight, null);
+		pGraph.dispose();
+		return pRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o arquivo do cache em disco para a miniatura de uma
+	 * imagem, se ela foi carregada de um arquivo, no foi alterada em memria desde o carregamento ou a gravao
+	 * e tem as mesmas dimenses que ele (ou seja, no foi carregada apenas uma regio ou uma verso reduzida do
+	 * arquivo).
+	 * 
+	 * @param pImage Objeto CImage com a imagem.
+	 * @param iSize Tamanho da miniatura.
+	 * @return Arquivo do cache em disco, ou null se a miniatura da imagem no deve ser mantida em cache.
+	 */
+	private File getCacheFile(CImage pImage, int iSize)
+	{
+		String sFile = pImage.getCurrentFileName();
+		if(sFile == null || !pImage.isSavedInFile() || !new File(sFile).isFile())
+			return null;
+		
+		CFormat pFormat = CFormatFactory.getInstance().getFormatByContent(sFile);
+		Dimension pSize = (pFormat == null ? null : pFormat.getDimension(sFile));
+		if(pSize == null || pSize.width != pImage.getWidth() || pSize.height != pImage.getHeight())
+			return null;
+		
+		return getCacheFile(new File(sFile), iSize);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o arquivo do cache em disco para a miniatura de um
+	 * arquivo de imagem. O nome do arquivo do cache  o resumo (SHA-1) do caminho cannico, da data de modificao
+	 * e do tamanho do arquivo de imagem e do tamanho da miniatura.
+	 * 
+	 * @param fFile Arquivo da imagem.
+	 * @param iSize Tamanho da miniatura.
+	 * @return Arquivo do cache em disco, ou null se o cache estiver desabilitado.
+	 */
+	private File getCacheFile(File fFile, int iSize)
+	{
+		File fCacheDir = getCacheDirectory();
+		if(fCacheDir == null || !fFile.isFile())
+			return null;
+		
+		try
+		{
+			String sKey = fFile.getCanonicalPath() + "|" + fFile.lastModified() + "|" + fFile.length() + "|" + iSize;
+			byte aDigest[] = MessageDigest.getInstance("SHA-1").digest(sKey.getBytes("UTF-8"));
+			StringBuffer sName = new StringBuffer();
+			for(int i = 0; i < aDigest.length; i++)
+				sName.append(String.format("%02x", aDigest[i] & 0xff));
+			return new File(fCacheDir, sName.toString() + ".png");
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. L uma miniatura do cache em disco.
+	 * 
+	 * @param fCache Arquivo do cache em disco, ou null.
+	 * @return Objeto BufferedImage com a miniatura, ou null se ela no est no cache.
+	 */
+	private static BufferedImage readCache(File fCache)
+	{
+		if(fCache == null || !fCache.isFile())
+			return null;
+		try
+		{
+			return ImageIO.read(fCache);
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Grava uma miniatura no cache em disco. A miniatura  gravada
+	 * em um arquivo temporrio e ento renomeada, de modo que uma gravao interrompida no deixe no cache um
+	 * arquivo incompleto. Falhas na gravao so ignoradas.
+	 * 
+	 * @param fCache Arquivo do cache em disco, ou null.
+	 * @param pThumbnail Objeto BufferedImage com a miniatura.
+	 */
+	private static void writeCache(File fCache, BufferedImage pThumbnail)
+	{
+		if(fCache == null)
+			return;
+		
+		File fTemp = null;
+		try
+		{
+			File fDir = fCache.getParentFile();
+			if(!fDir.isDirectory() && !fDir.mkdirs())
+				return;
+			fTemp = File.createTempFile("thumb", ".tmp", fDir);
+			if(ImageIO.write(pThumbnail, "png", fTemp) && fTemp.renameTo(fCache))
+				fTemp = null;
+		}
+		catch(IOException e)
+		{
+			// O cache em disco  apenas uma otimizao: a miniatura gerada continua vlida
+		}
+		finally
+		{
+			if(fTemp != null)
+				fTemp.delete();
+		}
+	}
+}
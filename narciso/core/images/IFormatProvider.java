@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+/**
+ * Essa interface define os mtodos a serem implementados pelos provedores de formatos de imagem adicionais, que
+ * estendem os formatos reconhecidos pela classe CFormatFactory sem a necessidade de alter-la.
+ * 
+ * Os provedores so descobertos atravs do mecanismo de servios do Java (java.util.ServiceLoader): a classe do
+ * provedor deve possuir um construtor pblico sem parmetros e estar relacionada no arquivo
+ * META-INF/services/core.images.IFormatProvider de algum dos arquivos jar (ou diretrios) do classpath.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CFormatFactory#getFormatByContent(String)
+ */
+
+public interface IFormatProvider
+{
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para indicar se o
+	 * cabealho dado (os primeiros bytes de um arquivo) pertence ao formato do provedor.
+	 * 
+	 * @param aHeader Vetor com os primeiros bytes do arquivo.
+	 * @param iLength Nmero de bytes vlidos no vetor (pode ser menor do que CFormatFactory.HEADER_SIZE, se o
+	 * arquivo for menor).
+	 * @return True se o cabealho pertence ao formato do provedor, false caso contrrio.
+	 */
+	public abstract boolean matches(byte[] aHeader, int iLength);
+	
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para criar o objeto de
+	 * leitura e gravao do formato do provedor.  chamado uma nica vez, e o objeto criado  compartilhado por
+	 * todas as threads, de modo que ele no deve manter estado entre os carregamentos.
+	 * 
+	 * @return Objeto CFormat do formato do provedor.
+	 */
+	public abstract CFormat createFormat();
+}
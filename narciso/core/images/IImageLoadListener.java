@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.images;
+
+/**
+ * Essa interface define os mtodos a serem implementados pelos objetos que recebem as imagens carregadas em
+ * segundo plano pela classe CImageLoader.
+ * 
+ * Os mtodos de notificao so chamados a partir das threads de carregamento (inclusive concorrentemente) e na
+ * ordem em que os carregamentos so concludos, que no  necessariamente a ordem dos arquivos solicitados. Por
+ * isso, implementaes ligadas a interfaces grficas devem repassar as notificaes  thread de eventos.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CImageLoader
+ */
+
+public interface IImageLoadListener
+{
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para receber cada imagem
+	 * carregada com sucesso. A imagem recebida j est decodificada (renderizada).
+	 * 
+	 * @param sFile Nome do arquivo carregado.
+	 * @param pImage Objeto CImage com a imagem carregada.
+	 * @param iDone Nmero de arquivos j concludos (com sucesso ou no), incluindo esse.
+	 * @param iTotal Nmero total de arquivos solicitados.
+	 */
+	public abstract void imageLoaded(String sFile, CImage pImage, int iDone, int iTotal);
+	
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para receber a
+	 * notificao de cada arquivo que no pde ser carregado.
+	 * 
+	 * @param sFile Nome do arquivo que no pde ser carregado.
+	 * @param iError Cdigo de erro do carregamento, conforme definido em CErrors.
+	 * @param iDone Nmero de arquivos j concludos (com sucesso ou no), incluindo esse.
+	 * @param iTotal Nmero total de arquivos solicitados.
+	 */
+	public abstract void imageFailed(String sFile, int iError, int iDone, int iTotal);
+}
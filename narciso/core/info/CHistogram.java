@@ -24,13 +24,24 @@ package core.info;
 
 import java.awt.*;
 import java.awt.image.*;
-import java.awt.image.renderable.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.media.jai.*;
 import core.images.*;
+import core.operations.CStripScheduler;
+import core.operations.IStripKernel;
 
 /**
  * Classe utilizada para a gerao de histogramas de imagens.
  * 
+ * A contagem  feita em paralelo, em faixas de linhas da imagem (atravs da classe CStripScheduler): cada thread
+ * acumula um histograma parcial prprio, e os histogramas parciais so somados ao final. As contagens so
+ * armazenadas banda a banda em um nico vetor, de modo que os bins de uma mesma banda so contguos.
+ * 
+ * O histograma pode ser atualizado de forma incremental quando uma regio da imagem  alterada, atravs dos
+ * mtodos removeRegion (chamado antes da alterao) e addRegion (chamado depois dela). O mtodo esttico
+ * getHistogram reaproveita o histograma j calculado de uma imagem enquanto ela no for alterada.
+ * 
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
  * @version 1.0
@@ -47,47 +58,142 @@ public class CHistogram
 	/** Membro privado utilizado para armazenar o nmero de bins do histograma. */
 	private int m_iNumBins;
 	
-	/** Membro privado utilizado para armazenar a contagem do histogram. */
-	private int m_aData[][];
+	/**
+	 * Membro privado utilizado para armazenar a contagem do histograma, banda a banda: a contagem do bin i da banda
+	 * b est na posio (b * m_iNumBins + i).
+	 */
+	private int m_aData[];
+	
+	/** Membro privado utilizado para armazenar a largura (no valor das amostras) de cada bin. */
+	private double m_dBinWidth;
+	
+	/** Membro privado utilizado para armazenar a verso da imagem (CImage.getVersion) refletida pelo histograma. */
+	private volatile long m_lVersion;
+	
+	/** Membro privado esttico utilizado para armazenar os histogramas j calculados, por imagem e nmero de bins. */
+	private static Map<CImage, Map<Integer, CHistogram>> m_mCache = new WeakHashMap<CImage, Map<Integer, CHistogram>>();
 	
 	/**
-	 * Construtor da classe.
+	 * Construtor da classe. O histograma  calculado sobre as amostras da imagem no seu tipo original. Em imagens de
+	 * 8 bits, cada bin corresponde a um valor de amostra (de 0 a iNumBins - 1). Em imagens de outros tipos, a largura
+	 * dos bins  multiplicada na mesma proporo da escala das amostras (por exemplo, com 256 bins, cada bin de uma
+	 * imagem de 16 bits corresponde a 256 valores, e os bins de uma imagem de ponto flutuante cobrem o intervalo de
+	 * 0 a 1).
 	 * 
 	 * @param iNumBins Valor com o nmero de bins para a gerao do histograma.
 	 * @param pImage Imagem (CImage) para a gerao do histograma.
 	 */
 	public CHistogram(int iNumBins, CImage pImage)
 	{
-	    ParameterBlock pPB = new ParameterBlock();
-	    pPB.addSource(pImage.getPlanarImage());
-	    pPB.add(null);
-	    pPB.add(1);
-	    pPB.add(1);
-	    pPB.add(new int[]{iNumBins});
-	    pPB.add(new double[]{0});
-	    pPB.add(new double[]{iNumBins});
-	    PlanarImage pPlanImg = JAI.create("histogram", pPB);
+	    /*
+	     * O limite superior do intervalo  exclusivo. Nos tipos de ponto flutuante, ele  levemente aumentado para
+	     * que as amostras com o valor mximo (1.0) sejam contabilizadas no ltimo bin.
+	     */
+		
+	    double dScale = (pImage.getMaxSampleValue(0) + 1.0) / 256.0;
+	    double dHigh = iNumBins * dScale;
+	    int iDataType = pImage.getDataType();
+	    if(iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE)
+	    {
+	    	dScale = 1.0 / 256.0;
+	    	dHigh = Math.nextUp(iNumBins * dScale);
+	    }
 	    
-	    m_iNumBands = pImage.getPlanarImage().getNumBands();
+	    m_iNumBands = pImage.getNumBands();
 	    m_iNumBins = iNumBins;
+	    m_dBinWidth = dHigh / iNumBins;
+	    m_aData = new int[m_iNumBands * m_iNumBins];
 	    
-	    Histogram pHistogram = (javax.media.jai.Histogram) pPlanImg.getProperty("histogram");
-
-	    m_aData = new int[m_iNumBins][m_iNumBands];
-	    
-	    boolean bFirstTime = true;
-	    
-	    for(int i = 0; i < iNumBins; i++)
-	    {
-    		for(int iBand = 0; iBand < m_iNumBands; iBand++)
-    		{
-    			if(bFirstTime)
-    				m_aData[i][iBand] = pHistogram.getBins(iBand)[i];
-    			else
-    				m_aData[i][iBand] += pHistogram.getBins(iBand)[i];
-    		}
-    		bFirstTime = false;
-	    }
+	    addRegion(pImage, new Rectangle(0, 0, pImage.getWidth(), pImage.getHeight()));
+	}
+	
+	/**
+	 * Obtm o histograma de uma imagem, reaproveitando o histograma calculado anteriormente com o mesmo nmero de
+	 * bins se a imagem no foi alterada desde ento (ou se o histograma foi atualizado com as alteraes, atravs dos
+	 * mtodos removeRegion e addRegion). O histograma retornado  compartilhado, e por isso no deve ser alterado
+	 * por outros motivos que no a atualizao em relao  prpria imagem.
+	 * 
+	 * @param iNumBins Valor com o nmero de bins para a gerao do histograma.
+	 * @param pImage Imagem (CImage) para a gerao do histograma.
+	 * @return Objeto CHistogram com o histograma da imagem.
+	 */
+	public static CHistogram getHistogram(int iNumBins, CImage pImage)
+	{
+		Map<Integer, CHistogram> mHistograms;
+		synchronized(m_mCache)
+		{
+			mHistograms = m_mCache.get(pImage);
+			if(mHistograms == null)
+			{
+				mHistograms = new HashMap<Integer, CHistogram>();
+				m_mCache.put(pImage, mHistograms);
+			}
+			
+			CHistogram pHist = mHistograms.get(iNumBins);
+			if(pHist != null && pHist.m_lVersion == pImage.getVersion())
+				return pHist;
+		}
+		
+		// O clculo  feito fora do bloqueio, para no bloquear os histogramas de outras imagens
+		CHistogram pHist = new CHistogram(iNumBins, pImage);
+		synchronized(m_mCache)
+		{
+			mHistograms.put(iNumBins, pHist);
+		}
+		return pHist;
+	}
+	
+	/**
+	 * Acrescenta ao histograma as amostras de uma regio da imagem. Utilizado, junto com removeRegion, para a
+	 * atualizao incremental do histograma quando uma regio da imagem  alterada: removeRegion deve ser chamado
+	 * antes da alterao e addRegion depois dela. Ao final, o histograma passa a refletir a verso atual da imagem.
+	 * 
+	 * @param pImage Imagem (CImage) do histograma.
+	 * @param pRegion Regio da imagem, que  limitada s dimenses da imagem.
+	 */
+	public synchronized void addRegion(CImage pImage, Rectangle pRegion)
+	{
+		long lVersion = pImage.getVersion();
+		accumulate(pImage, pRegion, 1);
+		m_lVersion = lVersion;
+	}
+	
+	/**
+	 * Retira do histograma as amostras de uma regio da imagem. Deve ser chamado antes da alterao da regio, e
+	 * seguido da chamada a addRegion aps a alterao.
+	 * 
+	 * @param pImage Imagem (CImage) do histograma.
+	 * @param pRegion Regio da imagem, que  limitada s dimenses da imagem.
+	 */
+	public synchronized void removeRegion(CImage pImage, Rectangle pRegion)
+	{
+		accumulate(pImage, pRegion, -1);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Conta as amostras de uma regio da imagem, em paralelo, e
+	 * soma as contagens (multiplicadas pelo sinal dado) ao histograma.
+	 * 
+	 * @param pImage Imagem (CImage) do histograma.
+	 * @param pRegion Regio da imagem.
+	 * @param iSign Valor 1 para acrescentar as amostras, ou -1 para retir-las.
+	 */
+	private void accumulate(CImage pImage, Rectangle pRegion, int iSign)
+	{
+		Rectangle pArea = pRegion.intersection(new Rectangle(0, 0, pImage.getWidth(), pImage.getHeight()));
+		if(pArea.isEmpty())
+			return;
+		
+		CHistogramKernel pKernel = new CHistogramKernel(this, pImage, pArea);
+		CStripScheduler.execute(pArea.width, pArea.height, pKernel);
+		
+		Iterator<int[]> pIt = pKernel.getPartials().iterator();
+		while(pIt.hasNext())
+		{
+			int aPartial[] = pIt.next();
+			for(int i = 0; i < m_aData.length; i++)
+				m_aData[i] += iSign * aPartial[i];
+		}
 	}
 
 	/**
@@ -124,7 +230,23 @@ public class CHistogram
 		else if(iBand < 0 || iBand >= m_iNumBands)
 			return -1;
 		else
-			return m_aData[iValue][iBand];
+			return m_aData[iBand * m_iNumBins + iValue];
+	}
+	
+	/**
+	 * Mtodo getter de obteno das contagens de todos os bins de uma banda do histograma.
+	 * 
+	 * @param iBand Nmero da banda.
+	 * @return Vetor (cpia) com as contagens dos bins da banda, ou null se a banda estiver fora dos limites do histograma.
+	 */
+	public int[] getBins(int iBand)
+	{
+		if(iBand < 0 || iBand >= m_iNumBands)
+			return null;
+		
+		int aRet[] = new int[m_iNumBins];
+		System.arraycopy(m_aData, iBand * m_iNumBins, aRet, 0, m_iNumBins);
+		return aRet;
 	}
 
 	/**
@@ -161,7 +283,8 @@ public class CHistogram
 		int iAreaHeight = pArea.bottom - pArea.top;
 		int iAreaWidth = pArea.right - pArea.left;
 		
-		int iNumBins = m_aData.length;
+		int iNumBins = m_iNumBins;
+		int iOffset = iBand * m_iNumBins;
 
 		int iBinWidth = (int) Math.ceil((pArea.right - pArea.left) / (1.0 * iNumBins));
 		
@@ -210,8 +333,8 @@ public class CHistogram
 		/* Obteno do maior valor de contagem de pixels */
 		
 	    double dMaxCount = Integer.MIN_VALUE;
-	    for(int i = 0; i < m_aData.length; i++)
-	    	dMaxCount = Math.max(dMaxCount, m_aData[i][iBand]);
+	    for(int i = 0; i < iNumBins; i++)
+	    	dMaxCount = Math.max(dMaxCount, m_aData[iOffset + i]);
 		
 	    /* Desenho das barras com as contagens dos pixels (bins) */
 	    
@@ -219,7 +342,7 @@ public class CHistogram
 		for(int i = 0; i < iNumBins; i++)
 		{
 			int x = pArea.left + i * iBinWidth;
-			int iBarHeight = (int) (m_aData[i][iBand] * iAreaHeight / (1.0 * dMaxCount));
+			int iBarHeight = (int) (m_aData[iOffset + i] * iAreaHeight / (1.0 * dMaxCount));
 			int iBarTop = pArea.bottom - iBarHeight;
 			pGraph.drawRect(x, iBarTop, iBinWidth, iBarHeight);
 		}
@@ -301,4 +424,155 @@ public class CHistogram
 		
 		return pRet;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Classe interna com o ncleo de contagem das amostras de uma faixa de linhas da regio da imagem. Cada thread
+	 * acumula as contagens em um histograma parcial prprio, de modo que as faixas no compartilham estado.
+	 */
+	private static class CHistogramKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem. */
+		private CImage m_pImage;
+		
+		/** Membro privado utilizado para armazenar a regio da imagem. */
+		private Rectangle m_pArea;
+		
+		/** Membro privado utilizado para armazenar o nmero de bins do histograma. */
+		private int m_iNumBins;
+		
+		/** Membro privado utilizado para armazenar o nmero de bandas do histograma. */
+		private int m_iNumBands;
+		
+		/** Membro privado utilizado para armazenar a largura dos bins. */
+		private double m_dBinWidth;
+		
+		/** Membro privado utilizado para armazenar a indicao de amostras de ponto flutuante. */
+		private boolean m_bFloat;
+		
+		/**
+		 * Membro privado utilizado para armazenar a tabela com o bin de cada valor de amostra (ou -1 se o valor
+		 * estiver fora do histograma), para as imagens de amostras inteiras sem sinal de at 16 bits.
+		 */
+		private int m_aBinOf[];
+		
+		/** Membro privado utilizado para armazenar os histogramas parciais de cada thread. */
+		private ConcurrentHashMap<Thread, int[]> m_mPartials = new ConcurrentHashMap<Thread, int[]>();
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pHist Histograma a ser calculado.
+		 * @param pImage Imagem (CImage) do histograma.
+		 * @param pArea Regio da imagem, dentro dos seus limites.
+		 */
+		public CHistogramKernel(CHistogram pHist, CImage pImage, Rectangle pArea)
+		{
+			m_pImage = pImage;
+			m_pArea = pArea;
+			m_iNumBins = pHist.m_iNumBins;
+			m_iNumBands = pHist.m_iNumBands;
+			m_dBinWidth = pHist.m_dBinWidth;
+			
+			int iDataType = pImage.getDataType();
+			m_bFloat = (iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE);
+			
+			double dMax = pImage.getMaxSampleValue(0);
+			if(!m_bFloat && iDataType != DataBuffer.TYPE_SHORT && dMax <= 65535)
+			{
+				m_aBinOf = new int[(int) dMax + 1];
+				for(int v = 0; v < m_aBinOf.length; v++)
+					m_aBinOf[v] = getBin(v);
+			}
+		}
+		
+		/**
+		 * Obtm os histogramas parciais calculados pelas threads.
+		 * 
+		 * @return Coleo com os histogramas parciais.
+		 */
+		public Collection<int[]> getPartials()
+		{
+			return m_mPartials.values();
+		}
+		
+		/**
+		 * Obtm o bin de um valor de amostra.
+		 * 
+		 * @param dValue Valor da amostra.
+		 * @return ndice do bin, ou -1 se o valor estiver fora do histograma.
+		 */
+		private int getBin(double dValue)
+		{
+			if(!(dValue >= 0))
+				return -1;
+			int iBin = (int) (dValue / m_dBinWidth);
+			return (iBin < m_iNumBins ? iBin : -1);
+		}
+		
+		/**
+		 * Conta as amostras de uma faixa de linhas da regio, no histograma parcial da thread corrente.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive), relativo  regio.
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive), relativo  regio.
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			int aCounts[] = m_mPartials.get(Thread.currentThread());
+			if(aCounts == null)
+			{
+				aCounts = new int[m_iNumBands * m_iNumBins];
+				m_mPartials.put(Thread.currentThread(), aCounts);
+			}
+			
+			int X = m_pArea.x;
+			int Y = m_pArea.y + iFirstRow;
+			int iWidth = m_pArea.width;
+			int iHeight = iLastRow - iFirstRow;
+			int iSize = iWidth * iHeight;
+			
+			if(m_bFloat)
+			{
+				float aSamples[] = new float[iSize];
+				for(int iBand = 0; iBand < m_iNumBands; iBand++)
+				{
+					m_pImage.getSamples(X, Y, iWidth, iHeight, iBand, aSamples);
+					int iOffset = iBand * m_iNumBins;
+					for(int i = 0; i < iSize; i++)
+					{
+						int iBin = getBin(aSamples[i]);
+						if(iBin >= 0)
+							aCounts[iOffset + iBin]++;
+					}
+				}
+			}
+			else
+			{
+				int aSamples[] = new int[iSize];
+				for(int iBand = 0; iBand < m_iNumBands; iBand++)
+				{
+					m_pImage.getSamples(X, Y, iWidth, iHeight, iBand, aSamples);
+					int iOffset = iBand * m_iNumBins;
+					if(m_aBinOf != null)
+					{
+						for(int i = 0; i < iSize; i++)
+						{
+							int v = aSamples[i];
+							int iBin = (v >= 0 && v < m_aBinOf.length ? m_aBinOf[v] : -1);
+							if(iBin >= 0)
+								aCounts[iOffset + iBin]++;
+						}
+					}
+					else
+					{
+						for(int i = 0; i < iSize; i++)
+						{
+							int iBin = getBin(aSamples[i]);
+							if(iBin >= 0)
+								aCounts[iOffset + iBin]++;
+						}
+					}
+				}
+			}
+		}
+	}
+}
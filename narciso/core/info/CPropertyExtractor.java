@@ -115,7 +115,7 @@ public abstract class CPropertyExtractor
 		 * Histograma da imagem
 		 */
 
-		CHistogram pHist = new CHistogram(iNumBins, pImage);
+		CHistogram pHist = CHistogram.getHistogram(iNumBins, pImage);
 		int iBands = pHist.getNumBands();
 		
 		for(int iBand = 0; iBand < iBands; iBand++)
@@ -75,7 +75,7 @@ public class CArithmeticAddOperation extends COperation
 			return null;
 		}
 			
-		PlanarImage pSrc1 = ((CImage) pObj).getPlanarImage();
+		CImage pImage1 = (CImage) pObj;
 
 		pObj = pSource.get(1);
 		if(!(pObj instanceof CImage))
@@ -84,18 +84,33 @@ public class CArithmeticAddOperation extends COperation
 			return null;
 		}
 			
-		PlanarImage pSrc2 = ((CImage) pObj).getPlanarImage();
+		CImage pImage2 = (CImage) pObj;
+		
+		Vector<Object> pRet = new Vector<Object>();
+		
+		// Imagens de 8 bits em escala de cinza ou RGB so processadas diretamente pela classe CPointwiseEngine
+		if(CPointwiseEngine.isSupported(pImage1, pImage2))
+		{
+			CImage pTarget = CPointwiseEngine.execute(pImage1, pImage2, CPointwiseEngine.COperatorEnum.ADD, getMonitor(pParams));
+			if(pTarget == null)
+			{
+				pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+				return null;
+			}
+			
+			pRet.add((Object) pTarget);
+			return pRet;
+		}
 
 		ParameterBlock pPB = new ParameterBlock();
-		pPB.addSource(pSrc1);
-		pPB.addSource(pSrc2);
+		pPB.addSource(pImage1.getPlanarImage());
+		pPB.addSource(pImage2.getPlanarImage());
 		
 		PlanarImage pTemp = JAI.create("add", pPB, null);
 		
 		CImage pTarget = new CImage(10, 10, false);
 		pTarget.setPlanarImage(pTemp);
 
-		Vector<Object> pRet = new Vector<Object>();
 		pRet.add((Object) pTarget);
 		
 		return pRet;
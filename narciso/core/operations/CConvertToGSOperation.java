@@ -50,6 +50,18 @@ public class CConvertToGSOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -73,7 +85,6 @@ public class CConvertToGSOperation extends COperation
 		for(i = 0; i < pSource.size(); i++)
 		{
 			int iWidth, iHeight;
-			int x, y;
 			
 			Object pObj = pSource.get(i);
 			if(!(pObj instanceof CImage))
@@ -84,27 +95,20 @@ public class CConvertToGSOperation extends COperation
 			
 			CImage pSrcImage = (CImage) pObj;
 
-			if(!pSrcImage.IsColored())
-			{
-				pParams.put("error", String.valueOf(CErrors.ERROR_WRONG_SOURCE_TYPE));
-				return null;
-			}
+			/*
+			 * Imagens em escala de cinza tambm so aceitas: imagens de 8 bits so apenas copiadas, e imagens de
+			 * outros tipos (como as de 16 bits) so convertidas para 8 bits atravs do seu modelo de cores.
+			 */
 			
 			iWidth = pSrcImage.getWidth();
 			iHeight = pSrcImage.getHeight();
 
 			CImage pTgtImage = new CImage(iWidth, iHeight, false);
 			
-			for(x = 0; x < iWidth; x++)
+			if(!CStripScheduler.execute(iWidth, iHeight, new CConvertToGSKernel(pSrcImage, pTgtImage), getMonitor(pParams)))
 			{
-				for(y = 0; y < iHeight; y++)
-				{
-					CGrayScalePixel pSrcPixel = null;
-					CColorPixel pAux = (CColorPixel) pSrcImage.getPixel(x, y); 
-					if(pAux != null)
-						pSrcPixel = pAux.toGrayScale();
-					pTgtImage.setPixel(x, y, pSrcPixel);
-				}
+				pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+				return null;
 			}
 			
 			pRet.add((Object) pTgtImage);
@@ -112,5 +116,63 @@ public class CConvertToGSOperation extends COperation
 		
 		return pRet;
 	}
+	
+	/**
+	 * Classe interna para a implementao do ncleo de converso para escala de cinza, executado em paralelo sobre
+	 * faixas de linhas da imagem pela classe CStripScheduler.
+	 */
+	private static class CConvertToGSKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem de origem. */
+		private CImage m_pSrcImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino. */
+		private CImage m_pTgtImage;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrcImage Imagem de origem.
+		 * @param pTgtImage Imagem de destino, com as mesmas dimenses da imagem de origem.
+		 */
+		public CConvertToGSKernel(CImage pSrcImage, CImage pTgtImage)
+		{
+			m_pSrcImage = pSrcImage;
+			m_pTgtImage = pTgtImage;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para a converso das linhas da faixa dada.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			int x, y;
+			
+			/*
+			 * A faixa  percorrida linha a linha, utilizando sempre os mesmos vetores para leitura
+			 * e gravao dos pixels, de modo a evitar a criao de objetos para cada pixel.
+			 */
+			
+			int aSrcRow[] = new int[iWidth];
+			int aTgtRow[] = new int[iWidth];
+			
+			for(y = iFirstRow; y < iLastRow; y++)
+			{
+				m_pSrcImage.getRGB(0, y, iWidth, 1, aSrcRow);
+				
+				for(x = 0; x < iWidth; x++)
+				{
+					int iRGB = aSrcRow[x];
+					aTgtRow[x] = CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff);
+				}
+				
+				m_pTgtImage.setSamples(0, y, iWidth, 1, 0, aTgtRow);
+			}
+		}
+	}
 }
  
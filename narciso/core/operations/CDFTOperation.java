@@ -64,6 +64,18 @@ public class CDFTOperation extends COperation
 		super(sName,sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -49,6 +49,18 @@ public class CExtractHLSImagesOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -73,7 +85,6 @@ public class CExtractHLSImagesOperation extends COperation
 		for(i = 0; i < pSource.size(); i++)
 		{
 			int iWidth, iHeight;
-			int x, y;
 			
 			Object pObj = pSource.get(i);
 			if(!(pObj instanceof CImage))
@@ -91,20 +102,10 @@ public class CExtractHLSImagesOperation extends COperation
 			CImage pLightnessImage = new CImage(iWidth, iHeight, true);
 			CImage pSaturationImage = new CImage(iWidth, iHeight, true);
 			
-			for(x = 0; x < iWidth; x++)
+			if(!CStripScheduler.execute(iWidth, iHeight, new CExtractHLSKernel(pSrcImage, pHueImage, pLightnessImage, pSaturationImage), getMonitor(pParams)))
 			{
-				for(y = 0; y < iHeight; y++)
-				{
-					CColorPixel pSrcPixel = (CColorPixel) pSrcImage.getPixel(x, y);
-					
-					CColorPixel pHuePixel = new CColorPixel(pSrcPixel.getHue(), 0.5, 1.0);
-					CColorPixel pLightnessPixel = new CColorPixel(2.0 * Math.PI, pSrcPixel.getLightness(), 1.0);
-					CColorPixel pSaturationPixel = new CColorPixel(2.0 * Math.PI, 0.5, pSrcPixel.getSaturation());
-					
-					pHueImage.setPixel(x, y, pHuePixel);
-					pLightnessImage.setPixel(x, y, pLightnessPixel);
-					pSaturationImage.setPixel(x, y, pSaturationPixel);
-				}
+				pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+				return null;
 			}
 			
 			pRet.add((Object) pHueImage);
@@ -114,5 +115,70 @@ public class CExtractHLSImagesOperation extends COperation
 		
 		return pRet;
 	}
-}
- 
+	
+	/**
+	 * Classe interna para a implementao do ncleo de extrao dos componentes HLS, executado em paralelo sobre
+	 * faixas de linhas da imagem pela classe CStripScheduler.
+	 */
+	private static class CExtractHLSKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem de origem. */
+		private CImage m_pSrcImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino com o componente de matiz. */
+		private CImage m_pHueImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino com o componente de luminosidade. */
+		private CImage m_pLightnessImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino com o componente de saturao. */
+		private CImage m_pSaturationImage;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrcImage Imagem de origem.
+		 * @param pHueImage Imagem de destino para o componente de matiz.
+		 * @param pLightnessImage Imagem de destino para o componente de luminosidade.
+		 * @param pSaturationImage Imagem de destino para o componente de saturao.
+		 */
+		public CExtractHLSKernel(CImage pSrcImage, CImage pHueImage, CImage pLightnessImage, CImage pSaturationImage)
+		{
+			m_pSrcImage = pSrcImage;
+			m_pHueImage = pHueImage;
+			m_pLightnessImage = pLightnessImage;
+			m_pSaturationImage = pSaturationImage;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para a extrao dos componentes das linhas da faixa dada.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			
+			int aSrcRow[] = new int[iWidth];
+			int aHueRow[] = new int[iWidth];
+			int aLightnessRow[] = new int[iWidth];
+			int aSaturationRow[] = new int[iWidth];
+			
+			/*
+			 * Cada linha  convertida de uma s vez nos trs planos, com a luminosidade e a saturao obtidas das
+			 * tabelas de CColorConverter (veja CColorConverter.toHLSPlanes).
+			 */
+			
+			for(int y = iFirstRow; y < iLastRow; y++)
+			{
+				m_pSrcImage.getRGB(0, y, iWidth, 1, aSrcRow);
+				CColorConverter.toHLSPlanes(aSrcRow, iWidth, aHueRow, aLightnessRow, aSaturationRow);
+				
+				m_pHueImage.setRGB(0, y, iWidth, 1, aHueRow);
+				m_pLightnessImage.setRGB(0, y, iWidth, 1, aLightnessRow);
+				m_pSaturationImage.setRGB(0, y, iWidth, 1, aSaturationRow);
+			}
+		}
+	}
+}
\ No newline at end of file
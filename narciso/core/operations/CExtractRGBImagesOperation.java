@@ -49,6 +49,18 @@ public class CExtractRGBImagesOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -72,9 +84,6 @@ public class CExtractRGBImagesOperation extends COperation
 		
 		for(i = 0; i < pSource.size(); i++)
 		{
-			int iWidth, iHeight;
-			int x, y;
-			
 			Object pObj = pSource.get(i);
 			if(!(pObj instanceof CImage))
 			{
@@ -83,35 +92,81 @@ public class CExtractRGBImagesOperation extends COperation
 			}
 			
 			CImage pSrcImage = (CImage) pObj;
-
-			iWidth = pSrcImage.getWidth();
-			iHeight = pSrcImage.getHeight();
-
-			CImage pRedImage = new CImage(iWidth, iHeight, true);
-			CImage pGreenImage = new CImage(iWidth, iHeight, true);
-			CImage pBlueImage = new CImage(iWidth, iHeight, true);
 			
-			for(x = 0; x < iWidth; x++)
+			CImage aImages[] = extractViews(pSrcImage);
+			if(aImages == null)
+				aImages = extractCopies(pSrcImage);
+			
+			pRet.add((Object) aImages[0]);
+			pRet.add((Object) aImages[1]);
+			pRet.add((Object) aImages[2]);
+		}
+		
+		return pRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Extrai os componentes vermelho, verde e azul de uma imagem
+	 * como vises (veja CImage.createComponentView), imagens RGB calculadas sob demanda a partir dos pixels da
+	 * imagem original. A extrao no depende, portanto, do tamanho da imagem.
+	 * 
+	 * @param pSrcImage Imagem de origem.
+	 * @return Vetor com as imagens dos componentes vermelho, verde e azul, ou null se as vises no podem ser criadas.
+	 */
+	private CImage[] extractViews(CImage pSrcImage)
+	{
+		CImage aRet[] = new CImage[3];
+		for(int c = 0; c < 3; c++)
+		{
+			aRet[c] = pSrcImage.createComponentView(c);
+			if(aRet[c] == null)
+				return null;
+		}
+		return aRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Extrai os componentes vermelho, verde e azul de uma imagem em
+	 * trs novas imagens coloridas, copiando as cores linha a linha. Utilizado quando as vises das bandas no podem
+	 * ser criadas (como em imagens com paleta, com componentes empacotados, com amostras de 16 bits ou armazenadas
+	 * em disco).
+	 * 
+	 * @param pSrcImage Imagem de origem.
+	 * @return Vetor com as imagens dos componentes vermelho, verde e azul.
+	 */
+	private CImage[] extractCopies(CImage pSrcImage)
+	{
+		int iWidth = pSrcImage.getWidth();
+		int iHeight = pSrcImage.getHeight();
+		boolean bColored = pSrcImage.IsColored();
+		
+		CImage aRet[] = new CImage[3];
+		for(int c = 0; c < 3; c++)
+			aRet[c] = new CImage(iWidth, iHeight, true);
+		
+		int aRow[] = new int[iWidth];
+		int aChannel[] = new int[iWidth];
+		for(int y = 0; y < iHeight; y++)
+		{
+			pSrcImage.getRGB(0, y, iWidth, 1, aRow);
+			if(!bColored)
 			{
-				for(y = 0; y < iHeight; y++)
+				// Como em getPixel, o brilho das imagens em escala de cinza  obtido das componentes RGB
+				for(int x = 0; x < iWidth; x++)
 				{
-					CColorPixel pSrcPixel = (CColorPixel) pSrcImage.getPixel(x, y);
-					
-					CColorPixel pRedPixel = new CColorPixel(pSrcPixel.getRed(), 0, 0);
-					CColorPixel pGreenPixel = new CColorPixel(0, pSrcPixel.getGreen(), 0);
-					CColorPixel pBluePixel = new CColorPixel(0, 0, pSrcPixel.getBlue());
-					
-					pRedImage.setPixel(x, y, pRedPixel);
-					pGreenImage.setPixel(x, y, pGreenPixel);
-					pBlueImage.setPixel(x, y, pBluePixel);
+					int iBrightness = CColorPixel.toGrayScale((aRow[x] >> 16) & 0xff, (aRow[x] >> 8) & 0xff, aRow[x] & 0xff);
+					aRow[x] = (iBrightness << 16) | (iBrightness << 8) | iBrightness;
 				}
 			}
 			
-			pRet.add((Object) pRedImage);
-			pRet.add((Object) pGreenImage);
-			pRet.add((Object) pBlueImage);
+			for(int c = 0; c < 3; c++)
+			{
+				int iMask = 0xff << (16 - 8 * c);
+				for(int x = 0; x < iWidth; x++)
+					aChannel[x] = aRow[x] & iMask;
+				aRet[c].setRGB(0, y, iWidth, 1, aChannel);
+			}
 		}
-		
-		return pRet;
+		return aRet;
 	}
-}
\ No newline at end of file
+}
@@ -23,7 +23,6 @@
 package core.operations;
 
 import java.util.*;
-import javax.media.jai.*;
 import core.errors.*;
 import core.images.*;
 
@@ -52,33 +51,44 @@ public class CFreiAndChenEdgeGradientOperation extends COperation
 	}
 
 	/**
-	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
+	/**
+	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao. O gradiente  calculado pela
+	 * classe CGradientEngine.
 	 * 
 	 *  @param pSource Vetor de objetos bsicos do Java, contendo instncias de uma ou mais imagens (CImage).
-	 *  @param Objeto Properties do Java apenas para conter o cdigo de erro caso a execuo da operao no seja bem sucedida.
-	 *  @return Vetor de objetos bsicos do Java contendo o mesmo nmero de imagens de entrada, resultado da aplicao
-	 *  da deteco de bordas segundo a mscara de Frei e Chen em cada uma delas. Se um erro ocorrer, o retorno ser null e o cdigo de
-	 *  erro poder ser obtido no parmetro "error" definido em pParams.
+	 *  @param Objeto Properties do Java para conter o cdigo de erro caso a execuo da operao no seja bem sucedida.
+	 *  Opcionalmente, esse objeto pode conter a seguinte propriedade: direction (true para gerar tambm a imagem com a
+	 *  direo do gradiente, em radianos, ou false, o valor padro).
+	 *  @return Vetor de objetos bsicos do Java contendo o mesmo nmero de imagens de entrada (ou o dobro, se a direo
+	 *  for solicitada: a magnitude seguida da direo para cada imagem), resultado da aplicao da deteco de bordas
+	 *  segundo a mscara de Frei e Chen em cada uma delas. Se um erro ocorrer, o retorno ser null e o cdigo de erro poder
+	 *  ser obtido no parmetro "error" definido em pParams.
+	 * 
+	 * @see CGradientEngine
 	 */
 	@Override
 	public Vector<Object> execute(Vector<Object> pSource, Properties pParams)
 	{
 		Vector<Object> pRet = new Vector<Object>();
-		float aHMask[] = new float[]
-		                           {
-				                      1.0F,   0.0F, -1.0F,
-				                      1.414F, 0.0F, -1.414F,
-				                      1.0F,   0.0F, -1.0F
-		                           };
-		float aVMask[] = new float[]
-		                           {
-									  -1.0F, -1.414F, -1.0F,
-									   0.0F,  0.0F,    0.0F,
-									   1.0F,  1.414F,  1.0F
-		                           };
 		
-		KernelJAI pHKernel = new KernelJAI(3, 3, aHMask);
-		KernelJAI pVKernel = new KernelJAI(3, 3, aVMask);		
+		String sDirection = pParams.getProperty("direction", "false");
+		if(!sDirection.equals("true") && !sDirection.equals("false"))
+		{
+			pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
+			return null;
+		}
+		boolean bDirection = sDirection.equals("true");
 		
 		for(int i = 0; i < pSource.size(); i++)
 		{
@@ -90,13 +100,16 @@ public class CFreiAndChenEdgeGradientOperation extends COperation
 			}
 			
 			CImage pSrcImage = (CImage) pObj;
-
-			PlanarImage pTemp = (PlanarImage) JAI.create("gradientmagnitude", pSrcImage.getPlanarImage(), pHKernel, pVKernel);
-						
-			CImage pTarget = new CImage(pTemp.getWidth(), pTemp.getHeight(), true);
-			pTarget.setPlanarImage(pTemp);
 			
-			pRet.add(pTarget);
+			CImage aTargets[] = CGradientEngine.execute(pSrcImage, CGradientEngine.CMaskEnum.FREI_AND_CHEN, bDirection, getMonitor(pParams));
+			if(aTargets == null)
+			{
+				pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+				return null;
+			}
+			
+			for(int j = 0; j < aTargets.length; j++)
+				pRet.add(aTargets[j]);
 		}
 		
 		if(pRet.size() <= 0)
@@ -104,4 +117,4 @@ public class CFreiAndChenEdgeGradientOperation extends COperation
 		else
 			return pRet;
 	}
-}
\ No newline at end of file
+}
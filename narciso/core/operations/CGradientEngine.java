@@ -0,0 +1,509 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.operations;
+
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import core.images.*;
+
+/**
+ * Essa classe implementa o clculo do gradiente de bordas (magnitude e, opcionalmente, direo) com as mscaras 3x3
+ * de Sobel, Prewitt, Frei e Chen e em cruz de Roberts. As derivadas horizontal (Gx) e vertical (Gy) so obtidas em
+ * uma nica varredura das linhas da imagem, executada em paralelo sobre faixas de linhas pela classe CStripScheduler.
+ * 
+ * As mscaras de Sobel, Prewitt e Frei e Chen so separveis: cada uma  o produto de uma diferena [-1 0 1] em uma
+ * direo por uma suavizao [1 c 1] na outra (com c igual a 2, 1 e raiz de 2, respectivamente). As diferenas e as
+ * suavizaes horizontais so calculadas uma nica vez para cada linha lida, e reaproveitadas pelas trs linhas de
+ * sada que dependem dela. Nas imagens com amostras inteiras de at 16 bits, as mscaras de Sobel, Prewitt e Roberts
+ * so calculadas em aritmtica inteira; a mscara de Frei e Chen e as imagens de ponto flutuante utilizam float.
+ * 
+ * Como na operao "gradientmagnitude" da JAI, cada banda  processada independentemente, a magnitude  arredondada e
+ * limitada ao maior valor das amostras (exceto em imagens de ponto flutuante) e a moldura de um pixel da imagem, onde
+ * a mscara no cabe inteira,  zerada. A direo  dada em radianos (de -PI a PI, como em Math.atan2(Gy, Gx)), com
+ * Gx crescente da esquerda para a direita e Gy crescente de cima para baixo, em uma imagem de ponto flutuante.
+ * 
+ * As imagens com paleta de cores (como as carregadas de arquivos GIF ou PNG indexados) tm a paleta expandida para
+ * as bandas RGB (ou RGBA, se a paleta tiver transparncia) antes do clculo, como ocorre na JAI, pois as amostras
+ * dessas imagens so ndices de cores e no tm relao com o brilho dos pixels.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CStripScheduler
+ */
+
+public class CGradientEngine
+{
+	/**
+	 * Enumerao das mscaras de gradiente suportadas.
+	 */
+	public static enum CMaskEnum { SOBEL, PREWITT, FREI_AND_CHEN, ROBERTS_CROSS };
+	
+	/** Peso da linha (ou coluna) central na suavizao da mscara de Frei e Chen. */
+	private static final float FREI_AND_CHEN_WEIGHT = 1.414F;
+	
+	/**
+	 * Construtor privado, pois a classe possui apenas mtodos estticos.
+	 */
+	private CGradientEngine()
+	{
+	}
+	
+	/**
+	 * Calcula o gradiente de bordas da imagem dada.
+	 * 
+	 * @param pSrcImage Imagem de origem.
+	 * @param eMask Mscara de gradiente, conforme definido em CMaskEnum.
+	 * @param bDirection Indica se a imagem com a direo do gradiente tambm deve ser gerada.
+	 * @param pMonitor Monitor para o acompanhamento e o cancelamento da execuo, ou null.
+	 * @return Vetor com a imagem da magnitude do gradiente (com o mesmo nmero de bandas e tipo de dado da imagem de
+	 * origem) e, se solicitada, a imagem da direo do gradiente (com uma banda de ponto flutuante para cada banda da
+	 * imagem de origem), ou null se a execuo for cancelada.
+	 */
+	public static CImage[] execute(CImage pSrcImage, CMaskEnum eMask, boolean bDirection, IOperationMonitor pMonitor)
+	{
+		ColorModel pModel = pSrcImage.getPlanarImage().getColorModel();
+		if(pModel instanceof IndexColorModel)
+			pSrcImage = expandPalette(pSrcImage, (IndexColorModel) pModel);
+		
+		int iWidth = pSrcImage.getWidth();
+		int iHeight = pSrcImage.getHeight();
+		int iBands = pSrcImage.getNumBands();
+		int iDataType = pSrcImage.getDataType();
+		boolean bFloat = (iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE);
+		
+		boolean b8Bits = !bFloat;
+		boolean bInteger = !bFloat && eMask != CMaskEnum.FREI_AND_CHEN;
+		for(int b = 0; b < iBands; b++)
+		{
+			if(pSrcImage.getSampleSize(b) != 8)
+				b8Bits = false;
+			if(pSrcImage.getSampleSize(b) > 16)
+				bInteger = false;
+		}
+		
+		/*
+		 * As imagens de 8 bits em escala de cinza ou RGB geram imagens no formato padro da classe CImage. As demais
+		 * mantm o nmero de bandas e o tipo de dado da imagem de origem.
+		 */
+		
+		CImage pMagnitude;
+		if(b8Bits && iBands == 1)
+			pMagnitude = new CImage(iWidth, iHeight, false);
+		else if(b8Bits && iBands == 3)
+			pMagnitude = new CImage(iWidth, iHeight, true);
+		else
+			pMagnitude = new CImage(iWidth, iHeight, iBands, iDataType);
+		
+		CImage pDirection = null;
+		if(bDirection)
+			pDirection = new CImage(iWidth, iHeight, iBands, DataBuffer.TYPE_FLOAT);
+		
+		CGradientKernel pKernel = new CGradientKernel(pSrcImage, pMagnitude, pDirection, eMask, bInteger, bFloat);
+		if(!CStripScheduler.execute(iWidth, iHeight, pKernel, pMonitor))
+			return null;
+		
+		if(bDirection)
+			return new CImage[] { pMagnitude, pDirection };
+		else
+			return new CImage[] { pMagnitude };
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria uma cpia RGB (ou RGBA, se a paleta tiver transparncia)
+	 * de 8 bits de uma imagem com paleta de cores, substituindo os ndices pelas cores da paleta linha a linha.
+	 * 
+	 * @param pSrcImage Imagem de origem, com paleta de cores.
+	 * @param pModel Paleta de cores da imagem de origem.
+	 * @return Imagem com as cores da paleta em bandas separadas.
+	 */
+	private static CImage expandPalette(CImage pSrcImage, IndexColorModel pModel)
+	{
+		int iWidth = pSrcImage.getWidth();
+		int iHeight = pSrcImage.getHeight();
+		int iBands = (pModel.hasAlpha() ? 4 : 3);
+		
+		int aPalette[] = new int[pModel.getMapSize()];
+		pModel.getRGBs(aPalette);
+		
+		CImage pRet = new CImage(iWidth, iHeight, iBands, DataBuffer.TYPE_BYTE);
+		int aIndexes[] = new int[iWidth];
+		int aPixels[] = new int[iWidth * iBands];
+		for(int y = 0; y < iHeight; y++)
+		{
+			pSrcImage.getSamples(0, y, iWidth, 1, 0, aIndexes);
+			for(int x = 0, i = 0; x < iWidth; x++)
+			{
+				// ndices fora da paleta so tratados como a cor preta (transparente, se houver transparncia)
+				int iARGB = (aIndexes[x] < aPalette.length ? aPalette[aIndexes[x]] : 0);
+				aPixels[i++] = (iARGB >> 16) & 0xff;
+				aPixels[i++] = (iARGB >> 8) & 0xff;
+				aPixels[i++] = iARGB & 0xff;
+				if(iBands == 4)
+					aPixels[i++] = iARGB >>> 24;
+			}
+			pRet.setPixels(0, y, iWidth, 1, aPixels);
+		}
+		return pRet;
+	}
+	
+	/**
+	 * Classe interna para a implementao do ncleo de clculo do gradiente, executado em paralelo sobre faixas de
+	 * linhas da imagem pela classe CStripScheduler. Cada faixa l tambm as linhas imediatamente acima e abaixo dela.
+	 */
+	private static class CGradientKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem de origem. */
+		private CImage m_pSrcImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino com a magnitude do gradiente. */
+		private CImage m_pMagnitude;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino com a direo do gradiente, ou null. */
+		private CImage m_pDirection;
+		
+		/** Membro privado utilizado para armazenar a mscara de gradiente. */
+		private CMaskEnum m_eMask;
+		
+		/** Membro privado utilizado para indicar se o clculo  efetuado em aritmtica inteira. */
+		private boolean m_bInteger;
+		
+		/** Membro privado utilizado para indicar se as amostras da imagem so de ponto flutuante. */
+		private boolean m_bFloat;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrcImage Imagem de origem.
+		 * @param pMagnitude Imagem de destino para a magnitude do gradiente.
+		 * @param pDirection Imagem de destino para a direo do gradiente, ou null.
+		 * @param eMask Mscara de gradiente.
+		 * @param bInteger Indica se o clculo deve ser efetuado em aritmtica inteira.
+		 * @param bFloat Indica se as amostras da imagem so de ponto flutuante.
+		 */
+		public CGradientKernel(CImage pSrcImage, CImage pMagnitude, CImage pDirection, CMaskEnum eMask, boolean bInteger, boolean bFloat)
+		{
+			m_pSrcImage = pSrcImage;
+			m_pMagnitude = pMagnitude;
+			m_pDirection = pDirection;
+			m_eMask = eMask;
+			m_bInteger = bInteger;
+			m_bFloat = bFloat;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para o clculo do gradiente das linhas da faixa dada, banda a banda.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			for(int b = 0; b < m_pSrcImage.getNumBands(); b++)
+			{
+				if(m_bInteger)
+					processIntegerBand(iFirstRow, iLastRow, b);
+				else
+					processFloatBand(iFirstRow, iLastRow, b);
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Calcula o gradiente de uma banda das linhas da faixa dada
+		 * em aritmtica inteira (mscaras de Sobel, Prewitt e Roberts em imagens de at 16 bits).
+		 * 
+		 * As trs ltimas linhas lidas so mantidas em um buffer circular, juntamente com a sua diferena horizontal
+		 * (aDiff[x] = p[x + 1] - p[x - 1]) e a sua suavizao horizontal (aSum[x] = p[x - 1] + c * p[x] + p[x + 1]).
+		 * Assim, Gx  a suavizao vertical das diferenas e Gy a diferena vertical das suavizaes.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 * @param iBand ndice da banda.
+		 */
+		private void processIntegerBand(int iFirstRow, int iLastRow, int iBand)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			int iHeight = m_pSrcImage.getHeight();
+			int iWeight = (m_eMask == CMaskEnum.SOBEL ? 2 : 1);
+			boolean bRoberts = (m_eMask == CMaskEnum.ROBERTS_CROSS);
+			int iMax = (int) m_pSrcImage.getMaxSampleValue(iBand);
+			double dClamp = (iMax + 0.5) * (iMax + 0.5);
+			
+			int aRows[][] = new int[3][iWidth];
+			int aDiff[][] = new int[3][iWidth];
+			int aSum[][] = new int[3][iWidth];
+			int aMagnitude[] = new int[iWidth];
+			float aDirection[] = (m_pDirection != null ? new float[iWidth] : null);
+			int iLoaded = -1;
+			
+			for(int y = iFirstRow; y < iLastRow; y++)
+			{
+				if(y == 0 || y == iHeight - 1 || iWidth < 3)
+				{
+					writeBorderRow(y, iBand, aMagnitude, aDirection);
+					continue;
+				}
+				
+				// Leitura das linhas (y - 1), y e (y + 1) que ainda no esto no buffer circular
+				for(int r = Math.max(iLoaded + 1, y - 1); r <= y + 1; r++)
+				{
+					int aRow[] = aRows[r % 3];
+					m_pSrcImage.getSamples(0, r, iWidth, 1, iBand, aRow);
+					if(!bRoberts)
+					{
+						int aRowDiff[] = aDiff[r % 3];
+						int aRowSum[] = aSum[r % 3];
+						for(int x = 1; x < iWidth - 1; x++)
+						{
+							aRowDiff[x] = aRow[x + 1] - aRow[x - 1];
+							aRowSum[x] = aRow[x - 1] + iWeight * aRow[x] + aRow[x + 1];
+						}
+					}
+				}
+				iLoaded = y + 1;
+				
+				int aPrev[] = aRows[(y - 1) % 3];
+				int aCurr[] = aRows[y % 3];
+				int aPrevDiff[] = aDiff[(y - 1) % 3];
+				int aCurrDiff[] = aDiff[y % 3];
+				int aNextDiff[] = aDiff[(y + 1) % 3];
+				int aPrevSum[] = aSum[(y - 1) % 3];
+				int aNextSum[] = aSum[(y + 1) % 3];
+				
+				for(int x = 1; x < iWidth - 1; x++)
+				{
+					int iGx, iGy;
+					if(bRoberts)
+					{
+						iGx = aPrev[x + 1] - aCurr[x];
+						iGy = aCurr[x] - aPrev[x - 1];
+					}
+					else
+					{
+						iGx = aPrevDiff[x] + iWeight * aCurrDiff[x] + aNextDiff[x];
+						iGy = aNextSum[x] - aPrevSum[x];
+					}
+					
+					double dSquare = (double) iGx * iGx + (double) iGy * iGy;
+					if(dSquare >= dClamp)
+						aMagnitude[x] = iMax;
+					else
+						aMagnitude[x] = (int) (Math.sqrt(dSquare) + 0.5);
+					
+					if(aDirection != null)
+						aDirection[x] = (float) Math.atan2(iGy, iGx);
+				}
+				
+				writeRow(y, iBand, aMagnitude, aDirection);
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Calcula o gradiente de uma banda das linhas da faixa dada
+		 * em ponto flutuante (mscara de Frei e Chen, imagens de ponto flutuante ou de mais de 16 bits), da mesma
+		 * forma que o mtodo processIntegerBand.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 * @param iBand ndice da banda.
+		 */
+		private void processFloatBand(int iFirstRow, int iLastRow, int iBand)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			int iHeight = m_pSrcImage.getHeight();
+			float fWeight;
+			if(m_eMask == CMaskEnum.SOBEL)
+				fWeight = 2.0F;
+			else if(m_eMask == CMaskEnum.FREI_AND_CHEN)
+				fWeight = FREI_AND_CHEN_WEIGHT;
+			else
+				fWeight = 1.0F;
+			boolean bRoberts = (m_eMask == CMaskEnum.ROBERTS_CROSS);
+			double dMax = m_pSrcImage.getMaxSampleValue(iBand);
+			
+			float aRows[][] = new float[3][iWidth];
+			float aDiff[][] = new float[3][iWidth];
+			float aSum[][] = new float[3][iWidth];
+			float aMagnitude[] = new float[iWidth];
+			int aIntMagnitude[] = (m_bFloat ? null : new int[iWidth]);
+			float aDirection[] = (m_pDirection != null ? new float[iWidth] : null);
+			int iLoaded = -1;
+			
+			for(int y = iFirstRow; y < iLastRow; y++)
+			{
+				if(y == 0 || y == iHeight - 1 || iWidth < 3)
+				{
+					if(m_bFloat)
+						writeBorderRow(y, iBand, aMagnitude, aDirection);
+					else
+						writeBorderRow(y, iBand, aIntMagnitude, aDirection);
+					continue;
+				}
+				
+				for(int r = Math.max(iLoaded + 1, y - 1); r <= y + 1; r++)
+				{
+					float aRow[] = aRows[r % 3];
+					m_pSrcImage.getSamples(0, r, iWidth, 1, iBand, aRow);
+					if(!bRoberts)
+					{
+						float aRowDiff[] = aDiff[r % 3];
+						float aRowSum[] = aSum[r % 3];
+						for(int x = 1; x < iWidth - 1; x++)
+						{
+							aRowDiff[x] = aRow[x + 1] - aRow[x - 1];
+							aRowSum[x] = aRow[x - 1] + fWeight * aRow[x] + aRow[x + 1];
+						}
+					}
+				}
+				iLoaded = y + 1;
+				
+				float aPrev[] = aRows[(y - 1) % 3];
+				float aCurr[] = aRows[y % 3];
+				float aPrevDiff[] = aDiff[(y - 1) % 3];
+				float aCurrDiff[] = aDiff[y % 3];
+				float aNextDiff[] = aDiff[(y + 1) % 3];
+				float aPrevSum[] = aSum[(y - 1) % 3];
+				float aNextSum[] = aSum[(y + 1) % 3];
+				
+				for(int x = 1; x < iWidth - 1; x++)
+				{
+					float fGx, fGy;
+					if(bRoberts)
+					{
+						fGx = aPrev[x + 1] - aCurr[x];
+						fGy = aCurr[x] - aPrev[x - 1];
+					}
+					else
+					{
+						fGx = aPrevDiff[x] + fWeight * aCurrDiff[x] + aNextDiff[x];
+						fGy = aNextSum[x] - aPrevSum[x];
+					}
+					
+					double dMagnitude = Math.sqrt((double) fGx * fGx + (double) fGy * fGy);
+					if(m_bFloat)
+						aMagnitude[x] = (float) dMagnitude;
+					else
+						aIntMagnitude[x] = (int) Math.min(dMagnitude + 0.5, dMax);
+					
+					if(aDirection != null)
+						aDirection[x] = (float) Math.atan2(fGy, fGx);
+				}
+				
+				if(m_bFloat)
+					writeRow(y, iBand, aMagnitude, aDirection);
+				else
+					writeRow(y, iBand, aIntMagnitude, aDirection);
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Grava uma linha da moldura da imagem, com magnitude e
+		 * direo nulas.
+		 * 
+		 * @param y ndice da linha.
+		 * @param iBand ndice da banda.
+		 * @param aMagnitude Vetor de trabalho para a magnitude, com o tamanho da largura da imagem.
+		 * @param aDirection Vetor de trabalho para a direo, ou null se a direo no foi solicitada.
+		 */
+		private void writeBorderRow(int y, int iBand, int aMagnitude[], float aDirection[])
+		{
+			Arrays.fill(aMagnitude, 0);
+			if(aDirection != null)
+				Arrays.fill(aDirection, 0.0F);
+			writeRow(y, iBand, aMagnitude, aDirection);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Grava uma linha da moldura da imagem, com magnitude e
+		 * direo nulas, em imagens de ponto flutuante.
+		 * 
+		 * @param y ndice da linha.
+		 * @param iBand ndice da banda.
+		 * @param aMagnitude Vetor de trabalho para a magnitude, com o tamanho da largura da imagem.
+		 * @param aDirection Vetor de trabalho para a direo, ou null se a direo no foi solicitada.
+		 */
+		private void writeBorderRow(int y, int iBand, float aMagnitude[], float aDirection[])
+		{
+			Arrays.fill(aMagnitude, 0.0F);
+			if(aDirection != null)
+				Arrays.fill(aDirection, 0.0F);
+			writeRow(y, iBand, aMagnitude, aDirection);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Grava uma linha do gradiente nas imagens de destino. As
+		 * colunas da moldura (primeira e ltima) so zeradas.
+		 * 
+		 * @param y ndice da linha.
+		 * @param iBand ndice da banda.
+		 * @param aMagnitude Vetor com a magnitude da linha.
+		 * @param aDirection Vetor com a direo da linha, ou null se a direo no foi solicitada.
+		 */
+		private void writeRow(int y, int iBand, int aMagnitude[], float aDirection[])
+		{
+			int iWidth = aMagnitude.length;
+			aMagnitude[0] = 0;
+			aMagnitude[iWidth - 1] = 0;
+			m_pMagnitude.setSamples(0, y, iWidth, 1, iBand, aMagnitude);
+			writeDirection(y, iBand, aDirection);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Grava uma linha do gradiente nas imagens de destino de
+		 * ponto flutuante. As colunas da moldura (primeira e ltima) so zeradas.
+		 * 
+		 * @param y ndice da linha.
+		 * @param iBand ndice da banda.
+		 * @param aMagnitude Vetor com a magnitude da linha.
+		 * @param aDirection Vetor com a direo da linha, ou null se a direo no foi solicitada.
+		 */
+		private void writeRow(int y, int iBand, float aMagnitude[], float aDirection[])
+		{
+			int iWidth = aMagnitude.length;
+			aMagnitude[0] = 0.0F;
+			aMagnitude[iWidth - 1] = 0.0F;
+			m_pMagnitude.setSamples(0, y, iWidth, 1, iBand, aMagnitude);
+			writeDirection(y, iBand, aDirection);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Grava uma linha da direo do gradiente, se solicitada.
+		 * 
+		 * @param y ndice da linha.
+		 * @param iBand ndice da banda.
+		 * @param aDirection Vetor com a direo da linha, ou null se a direo no foi solicitada.
+		 */
+		private void writeDirection(int y, int iBand, float aDirection[])
+		{
+			if(aDirection == null)
+				return;
+			int iWidth = aDirection.length;
+			aDirection[0] = 0.0F;
+			aDirection[iWidth - 1] = 0.0F;
+			m_pDirection.setSamples(0, y, iWidth, 1, iBand, aDirection);
+		}
+	}
+}
@@ -51,6 +51,18 @@ public class CHistogramImageOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -115,7 +127,7 @@ public class CHistogramImageOperation extends COperation
 			
 			CImage pSrcImage = (CImage) pObj;
 
-			CHistogram pHist = new CHistogram(iNumBins, pSrcImage);
+			CHistogram pHist = CHistogram.getHistogram(iNumBins, pSrcImage);
 		
 			File pFile = new File(pSrcImage.getCurrentFileName());
 			
@@ -53,6 +53,18 @@ public class CLogicalNotOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
@@ -82,10 +94,24 @@ public class CLogicalNotOperation extends COperation
 				return null;
 			}
 			
-			PlanarImage pSrcImage = ((CImage) pObj).getPlanarImage();
+			CImage pSrcImage = (CImage) pObj;
+			
+			// Imagens de 8 bits em escala de cinza ou RGB so processadas diretamente pela classe CPointwiseEngine
+			if(CPointwiseEngine.isSupported(pSrcImage, null))
+			{
+				CImage pTgtImage = CPointwiseEngine.execute(pSrcImage, null, CPointwiseEngine.COperatorEnum.NOT, getMonitor(pParams));
+				if(pTgtImage == null)
+				{
+					pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+					return null;
+				}
+				
+				pRet.add((Object) pTgtImage);
+				continue;
+			}
 			
 			ParameterBlock pPB = new ParameterBlock();
-			pPB.addSource(pSrcImage);
+			pPB.addSource(pSrcImage.getPlanarImage());
 						
 			PlanarImage pTemp = JAI.create("Not", pPB, null);
 			
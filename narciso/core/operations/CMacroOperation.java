@@ -24,6 +24,7 @@ package core.operations;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.*;
@@ -51,6 +52,18 @@ public class CMacroOperation extends COperation
 	
 	/** Membro privado utilizado para armazenar o nmero de iteraes para cada operao contida no roteiro. */
 	private Map<String, Integer> m_aIterations;
+	
+	/**
+	 * Membro privado utilizado para indicar se o roteiro deve ser executado em modo de encadeamento (pipeline),
+	 * no qual cada imagem percorre as operaes de forma independente das demais.
+	 */
+	private boolean m_bPipelined;
+	
+	/**
+	 * Membro privado esttico com a capacidade das filas entre os estgios do encadeamento. Limita o nmero de
+	 * resultados intermedirios mantidos em memria entre duas operaes consecutivas do roteiro.
+	 */
+	private static final int PIPELINE_QUEUE_CAPACITY = 2;
 
 	/**
 	 * Cosntrutor da classe.
@@ -63,6 +76,34 @@ public class CMacroOperation extends COperation
 		super(sName, sDesc);
 		m_aOperations = new LinkedHashMap<String, COperation>();
 		m_aIterations = new LinkedHashMap<String, Integer>();
+		m_bPipelined = false;
+	}
+	
+	/**
+	 * Mtodo setter do modo de encadeamento (pipeline) do roteiro. Nesse modo, cada operao do roteiro (e cada
+	 * uma de suas iteraes)  executada por uma thread prpria, e as imagens fluem individualmente de uma operao
+	 * para a seguinte atravs de filas de capacidade limitada: enquanto uma imagem est na terceira operao, a
+	 * imagem seguinte pode estar na primeira. Assim, o consumo de memria com os resultados intermedirios 
+	 * proporcional ao nmero de operaes do roteiro, e no ao nmero de imagens.
+	 * 
+	 * O modo s  utilizado se todas as operaes do roteiro forem independentes por imagem (veja
+	 * isImageIndependent); caso contrrio o roteiro  executado da forma tradicional.
+	 * 
+	 * @param bPipelined Valor lgico (true ou false) indicando se o modo de encadeamento deve ser utilizado.
+	 */
+	public void setPipelined(boolean bPipelined)
+	{
+		m_bPipelined = bPipelined;
+	}
+	
+	/**
+	 * Mtodo getter do modo de encadeamento (pipeline) do roteiro.
+	 * 
+	 * @return Valor lgico (true ou false) indicando se o modo de encadeamento est configurado.
+	 */
+	public boolean isPipelined()
+	{
+		return m_bPipelined;
 	}
 
 	/**
@@ -337,6 +378,27 @@ public class CMacroOperation extends COperation
 		m_aIterations.put(sName, iIter);
 	}
 	
+	/**
+	 * Mtodo sobrescrito da classe pai. Um roteiro  independente por imagem se todas as operaes nele contidas
+	 * o forem; nesse caso o roteiro completo pode ser executado em paralelo para cada imagem.
+	 * 
+	 * @return True se todas as operaes do roteiro so independentes por imagem, false caso contrrio.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		if(m_aOperations.isEmpty())
+			return false;
+		
+		Iterator<COperation> it = m_aOperations.values().iterator();
+		while(it.hasNext())
+		{
+			if(!it.next().isImageIndependent())
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Executa o roteiro, executando cada uma das operaes nele contidas. Se uma das operaes for tambm
 	 * um Roteiro, este ser executado recursivamente, segundo o padro de design utilizado.
@@ -347,6 +409,12 @@ public class CMacroOperation extends COperation
 	 * o roteiro termina, e o parmetro de erro (definido pela chave "error") contido em pParams indicar o cdigo de erro
 	 * da ltima operao executada.
 	 * 
+	 * Se o modo de encadeamento estiver configurado (veja setPipelined), o roteiro  executado atravs do mtodo
+	 * executePipelined.
+	 * 
+	 * Se um objeto de acompanhamento for informado em pParams (veja COperation.MONITOR_PARAM), ele  notificado do
+	 * incio de cada etapa (iterao de uma operao), e o cancelamento  verificado antes de cada etapa.
+	 * 
 	 * <b>Importante:</b> Como a sada de uma operao  a entrada para a seguinte, deve-se ter ateno aos parmetros e nmero de objetos de entrada
 	 * requeridos e gerados por cada operao.
 	 * 
@@ -357,12 +425,17 @@ public class CMacroOperation extends COperation
 	@Override
 	public Vector<Object> execute(Vector<Object> pSource, Properties pParams)
 	{
+		if(m_bPipelined && pSource.size() > 1 && isImageIndependent())
+			return executePipelined(pSource, pParams);
+		
 		Map.Entry pPair;
 		COperation pCur;
-		int iIter, i;		
+		int iIter, i, iStep = 0;		
 		Vector<Object> pObjects = pSource;
 		Iterator itOper = m_aOperations.entrySet().iterator();
 		Iterator itIter = m_aIterations.entrySet().iterator();
+		IOperationMonitor pMonitor = COperation.getMonitor(pParams);
+		int iSteps = getStepCount();
 		
 		while(itOper.hasNext())
 		{
@@ -380,11 +453,388 @@ public class CMacroOperation extends COperation
 			
 			for(i = 0; i < iIter; i++)
 			{
-				pObjects = pCur.execute(pObjects, pParams);
+				if(COperation.checkCancelled(pParams))
+					return null;
+				iStep++;
+				if(pMonitor != null)
+					pMonitor.stepStarted(pCur.getName(), iStep, iSteps);
+				
+				pObjects = pCur.executeInstrumented(pObjects, pParams, getName(), iStep);
 				if(pObjects == null)
 					return null;
 			}
 		}
 		return pObjects;
 	}
+	
+	/**
+	 * Mtodo getter para a obteno do nmero total de etapas do roteiro, isto , da soma do nmero de iteraes
+	 * de todas as operaes nele contidas.
+	 * 
+	 * @return Nmero total de etapas.
+	 */
+	public int getStepCount()
+	{
+		int iSteps = 0;
+		Iterator<Integer> it = m_aIterations.values().iterator();
+		while(it.hasNext())
+			iSteps += it.next();
+		return iSteps;
+	}
+	
+	/**
+	 * Mtodo sobrescrito da classe pai. Se o modo de encadeamento estiver configurado, o roteiro j distribui o
+	 * processamento entre as threads dos estgios, e por isso  executado diretamente atravs do mtodo
+	 * executePipelined, que repassa os resultados de cada imagem ao objeto de acompanhamento, se houver.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, a serem passados para o roteiro.
+	 * @param pParams Objeto Properties do Java com os parmetros para a execuo das operaes.
+	 * @return Retorna um vetor com os objetos gerados pela ltima operao executada, ou null se ocorreu um erro.
+	 */
+	@Override
+	public Vector<Object> executeParallel(Vector<Object> pSource, Properties pParams)
+	{
+		if(m_bPipelined && pSource.size() > 1 && isImageIndependent())
+			return executePipelined(pSource, pParams, COperation.getMonitor(pParams));
+		return super.executeParallel(pSource, pParams);
+	}
+	
+	/**
+	 * Executa o roteiro em modo de encadeamento (pipeline). Cada iterao de cada operao do roteiro constitui um
+	 * estgio, executado por uma thread prpria, e os estgios so ligados por filas de capacidade limitada. Cada
+	 * objeto-fonte  enviado separadamente ao primeiro estgio, e o vetor resultante de cada estgio  passado como
+	 * uma unidade ao estgio seguinte. As imagens resultantes so renderizadas no prprio estgio, de modo que o
+	 * processamento de cada operao ocorra de fato na thread do seu estgio.
+	 * 
+	 * O resultado  o mesmo da execuo tradicional para roteiros formados apenas por operaes independentes por
+	 * imagem, com os objetos na ordem original. Se um erro ocorrer, o encadeamento  interrompido e o parmetro
+	 * "error" contido em pParams indicar o cdigo de erro ocorrido com o primeiro objeto-fonte que falhou.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, a serem passados para o roteiro.
+	 * @param pParams Objeto Properties do Java com os parmetros para a execuo das operaes.
+	 * @return Retorna um vetor com os objetos gerados pela ltima operao executada, ou null se ocorreu um erro.
+	 */
+	public Vector<Object> executePipelined(Vector<Object> pSource, Properties pParams)
+	{
+		return executePipelined(pSource, pParams, null);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa o roteiro em modo de encadeamento (veja o mtodo
+	 * pblico executePipelined), repassando opcionalmente os resultados de cada objeto-fonte, na ordem original,
+	 * ao objeto de acompanhamento dado.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, a serem passados para o roteiro.
+	 * @param pParams Objeto Properties do Java com os parmetros para a execuo das operaes.
+	 * @param pResultMonitor Objeto de acompanhamento que recebe os resultados de cada objeto-fonte, ou null.
+	 * @return Retorna um vetor com os objetos gerados pela ltima operao executada, ou null se ocorreu um erro.
+	 */
+	private Vector<Object> executePipelined(Vector<Object> pSource, Properties pParams, IOperationMonitor pResultMonitor)
+	{
+		Vector<COperation> vStages = new Vector<COperation>();
+		Iterator<Map.Entry<String, COperation>> itOper = m_aOperations.entrySet().iterator();
+		while(itOper.hasNext())
+		{
+			Map.Entry<String, COperation> pPair = itOper.next();
+			Integer iIter = m_aIterations.get(pPair.getKey());
+			if(iIter == null)
+			{
+				pParams.put("error", String.valueOf(CErrors.ERROR_UNEXPECTED_ERROR));
+				return null;
+			}
+			for(int i = 0; i < iIter; i++)
+				vStages.add(pPair.getValue());
+		}
+		
+		CPipeline pPipeline = new CPipeline();
+		Vector<Thread> vThreads = new Vector<Thread>();
+		BlockingQueue<CPipelineItem> pInput = new ArrayBlockingQueue<CPipelineItem>(PIPELINE_QUEUE_CAPACITY);
+		
+		vThreads.add(new CPipelineFeeder(pPipeline, pSource, pInput));
+		for(int i = 0; i < vStages.size(); i++)
+		{
+			BlockingQueue<CPipelineItem> pOutput = new ArrayBlockingQueue<CPipelineItem>(PIPELINE_QUEUE_CAPACITY);
+			vThreads.add(new CPipelineStage(pPipeline, getName(), vStages.get(i), pParams, pInput, pOutput, i + 1, vStages.size()));
+			pInput = pOutput;
+		}
+		
+		for(int i = 0; i < vThreads.size(); i++)
+			vThreads.get(i).start();
+		
+		/*
+		 * Os itens chegam ao final do encadeamento na ordem original dos objetos-fonte, pois cada estgio 
+		 * executado por uma nica thread. Em caso de erro, a fila final continua a ser esvaziada at o
+		 * item de trmino, de modo que nenhum estgio fique bloqueado.
+		 */
+		
+		Vector<Object> pRet = new Vector<Object>();
+		CPipelineItem pError = null;
+		int iDone = 0;
+		try
+		{
+			while(true)
+			{
+				CPipelineItem pItem = pInput.take();
+				if(pItem == CPipelineItem.END)
+					break;
+				if(pError != null)
+					continue;
+				if(pItem.m_pObjects == null)
+				{
+					pError = pItem;
+					pPipeline.m_bAborted = true;
+				}
+				else
+				{
+					pRet.addAll(pItem.m_pObjects);
+					if(pResultMonitor != null)
+						pResultMonitor.resultAvailable(pItem.m_pObjects, ++iDone, pSource.size());
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			pPipeline.m_bAborted = true;
+			for(int i = 0; i < vThreads.size(); i++)
+				vThreads.get(i).interrupt();
+			Thread.currentThread().interrupt();
+			pParams.put("error", String.valueOf(CErrors.ERROR_UNEXPECTED_ERROR));
+			return null;
+		}
+		
+		if(pError != null)
+		{
+			if(pError.m_pException instanceof RuntimeException)
+				throw (RuntimeException) pError.m_pException;
+			if(pError.m_pException instanceof Error)
+				throw (Error) pError.m_pException;
+			if(pError.m_sError != null)
+				pParams.put("error", pError.m_sError);
+			return null;
+		}
+		return pRet;
+	}
+	
+	/**
+	 * Classe interna utilizada para armazenar o estado compartilhado entre os estgios de uma execuo em modo
+	 * de encadeamento.
+	 */
+	private static class CPipeline
+	{
+		/** Membro utilizado para indicar que a execuo foi interrompida por um erro, e que novos objetos-fonte no devem mais ser enviados. */
+		public volatile boolean m_bAborted = false;
+	}
+	
+	/**
+	 * Classe interna utilizada para representar os itens que fluem entre os estgios do encadeamento: o vetor de
+	 * objetos derivado de um mesmo objeto-fonte, ou a indicao do erro ocorrido em seu processamento.
+	 */
+	private static class CPipelineItem
+	{
+		/** Item especial utilizado para indicar o trmino dos itens de uma fila. */
+		public static final CPipelineItem END = new CPipelineItem(null, null, null);
+		
+		/** Vetor de objetos do item, ou null se ocorreu um erro. */
+		public Vector<Object> m_pObjects;
+		
+		/** Cdigo do erro ocorrido, se houver. */
+		public String m_sError;
+		
+		/** Exceo ocorrida, se houver. */
+		public Throwable m_pException;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pObjects Vetor de objetos do item, ou null se ocorreu um erro.
+		 * @param sError Cdigo do erro ocorrido, se houver.
+		 * @param pException Exceo ocorrida, se houver.
+		 */
+		public CPipelineItem(Vector<Object> pObjects, String sError, Throwable pException)
+		{
+			m_pObjects = pObjects;
+			m_sError = sError;
+			m_pException = pException;
+		}
+	}
+	
+	/**
+	 * Classe interna para a implementao da thread que alimenta o primeiro estgio do encadeamento com os
+	 * objetos-fonte, um a um.
+	 */
+	private static class CPipelineFeeder extends Thread
+	{
+		/** Membro privado utilizado para armazenar o estado compartilhado da execuo. */
+		private CPipeline m_pPipeline;
+		
+		/** Membro privado utilizado para armazenar os objetos-fonte do roteiro. */
+		private Vector<Object> m_pSource;
+		
+		/** Membro privado utilizado para armazenar a fila de entrada do primeiro estgio. */
+		private BlockingQueue<CPipelineItem> m_pOutput;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pPipeline Estado compartilhado da execuo.
+		 * @param pSource Objetos-fonte do roteiro.
+		 * @param pOutput Fila de entrada do primeiro estgio.
+		 */
+		public CPipelineFeeder(CPipeline pPipeline, Vector<Object> pSource, BlockingQueue<CPipelineItem> pOutput)
+		{
+			super("Narciso-Pipeline-0");
+			setDaemon(true);
+			m_pPipeline = pPipeline;
+			m_pSource = pSource;
+			m_pOutput = pOutput;
+		}
+		
+		/**
+		 * Envia cada objeto-fonte ao primeiro estgio e, ao final, o item de trmino.
+		 */
+		@Override
+		public void run()
+		{
+			try
+			{
+				for(int i = 0; i < m_pSource.size() && !m_pPipeline.m_bAborted; i++)
+				{
+					Vector<Object> vItem = new Vector<Object>(1);
+					vItem.add(m_pSource.get(i));
+					m_pOutput.put(new CPipelineItem(vItem, null, null));
+				}
+				m_pOutput.put(CPipelineItem.END);
+			}
+			catch(InterruptedException e)
+			{
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Classe interna para a implementao da thread de um estgio do encadeamento, que executa uma operao sobre
+	 * cada item recebido e repassa o resultado ao estgio seguinte.
+	 */
+	private static class CPipelineStage extends Thread
+	{
+		/** Membro privado utilizado para armazenar o estado compartilhado da execuo. */
+		private CPipeline m_pPipeline;
+		
+		/** Membro privado utilizado para armazenar o nome do roteiro, utilizado nas medies de execuo. */
+		private String m_sMacro;
+		
+		/** Membro privado utilizado para armazenar a operao executada pelo estgio. */
+		private COperation m_pOperation;
+		
+		/** Membro privado utilizado para armazenar os parmetros originais do roteiro. */
+		private Properties m_pParams;
+		
+		/** Membro privado utilizado para armazenar a fila de entrada do estgio. */
+		private BlockingQueue<CPipelineItem> m_pInput;
+		
+		/** Membro privado utilizado para armazenar a fila de sada do estgio. */
+		private BlockingQueue<CPipelineItem> m_pOutput;
+		
+		/** Membro privado utilizado para armazenar o ndice do estgio (iniciando em 1). */
+		private int m_iIndex;
+		
+		/** Membro privado utilizado para armazenar o nmero total de estgios do encadeamento. */
+		private int m_iStages;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pPipeline Estado compartilhado da execuo.
+		 * @param sMacro Nome do roteiro.
+		 * @param pOperation Operao executada pelo estgio.
+		 * @param pParams Parmetros do roteiro. Cada execuo da operao recebe uma cpia prpria.
+		 * @param pInput Fila de entrada do estgio.
+		 * @param pOutput Fila de sada do estgio.
+		 * @param iIndex ndice do estgio, utilizado no nome da thread e na notificao de progresso.
+		 * @param iStages Nmero total de estgios do encadeamento.
+		 */
+		public CPipelineStage(CPipeline pPipeline, String sMacro, COperation pOperation, Properties pParams, BlockingQueue<CPipelineItem> pInput, BlockingQueue<CPipelineItem> pOutput, int iIndex, int iStages)
+		{
+			super("Narciso-Pipeline-" + iIndex);
+			setDaemon(true);
+			m_pPipeline = pPipeline;
+			m_sMacro = sMacro;
+			m_pOperation = pOperation;
+			m_pParams = pParams;
+			m_pInput = pInput;
+			m_pOutput = pOutput;
+			m_iIndex = iIndex;
+			m_iStages = iStages;
+		}
+		
+		/**
+		 * Processa os itens da fila de entrada at o recebimento do item de trmino. Os itens com erro so
+		 * repassados sem processamento. Os itens j em andamento no momento de um erro continuam a ser
+		 * processados, de modo que o erro reportado seja sempre o do primeiro objeto-fonte que falhou.
+		 */
+		@Override
+		public void run()
+		{
+			try
+			{
+				while(true)
+				{
+					CPipelineItem pItem = m_pInput.take();
+					if(pItem == CPipelineItem.END)
+						break;
+					
+					if(pItem.m_pObjects == null)
+						m_pOutput.put(pItem);
+					else
+						m_pOutput.put(process(pItem));
+				}
+				m_pOutput.put(CPipelineItem.END);
+			}
+			catch(InterruptedException e)
+			{
+				return;
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Executa a operao do estgio sobre um item.
+		 * 
+		 * @param pItem Item com os objetos a serem processados.
+		 * @return Novo item com os objetos resultantes, ou com a indicao do erro ocorrido.
+		 */
+		private CPipelineItem process(CPipelineItem pItem)
+		{
+			Properties pParams = new Properties();
+			pParams.putAll(m_pParams);
+			
+			try
+			{
+				IOperationMonitor pMonitor = COperation.getMonitor(pParams);
+				if(pMonitor != null)
+					pMonitor.stepStarted(m_pOperation.getName(), m_iIndex, m_iStages);
+				
+				Vector<Object> vResult = null;
+				if(!COperation.checkCancelled(pParams))
+					vResult = m_pOperation.executeInstrumented(pItem.m_pObjects, pParams, m_sMacro, m_iIndex);
+				if(vResult == null)
+				{
+					m_pPipeline.m_bAborted = true;
+					return new CPipelineItem(null, pParams.getProperty("error"), null);
+				}
+				
+				if(!COperation.renderResults(vResult, pMonitor))
+				{
+					m_pPipeline.m_bAborted = true;
+					return new CPipelineItem(null, String.valueOf(CErrors.ERROR_OPERATION_CANCELLED), null);
+				}
+				return new CPipelineItem(vResult, null, null);
+			}
+			catch(Throwable e)
+			{
+				m_pPipeline.m_bAborted = true;
+				return new CPipelineItem(null, String.valueOf(CErrors.ERROR_UNEXPECTED_ERROR), e);
+			}
+		}
+	}
 }
\ No newline at end of file
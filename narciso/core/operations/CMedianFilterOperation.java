@@ -22,6 +22,8 @@
  
 package core.operations;
 
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
 import java.awt.image.renderable.ParameterBlock;
 import java.util.*;
 
@@ -44,6 +46,18 @@ import core.images.*;
 
 public class CMedianFilterOperation extends COperation
 {
+	/** Tamanho padro da janela do filtro. */
+	private static final int DEFAULT_SIZE = 3;
+	
+	/** Tamanho mximo da janela do filtro. */
+	private static final int MAX_SIZE = 255;
+	
+	/** Nmero mnimo de linhas dos blocos processados em paralelo. */
+	private static final int BLOCK_ROWS = 32;
+	
+	/** Nmero mnimo de colunas das faixas verticais processadas em cada bloco. */
+	private static final int TILE_COLUMNS = 480;
+	
 	/**
 	 * Construtor da classe. Executa o construtor da classe pai.
 	 * 
@@ -55,19 +69,55 @@ public class CMedianFilterOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
+	 * Nas imagens de 8 bits sem paleta de cores, a mediana  calculada com histogramas deslizantes (algoritmo de
+	 * Perreault e Hbert), com custo por pixel independente do tamanho da janela: um histograma  mantido para
+	 * cada coluna da imagem, atualizado com a entrada e a sada de uma linha a cada linha processada, e o histograma
+	 * da janela  atualizado com a entrada e a sada de uma coluna a cada pixel. Os pixels das bordas so replicados
+	 * para completar a janela. As demais imagens so processadas pela operao "medianfilter" da JAI.
+	 * 
 	 *  @param pSource Vetor de objetos bsicos do Java, contendo instncias de uma ou mais imagens (CImage).
-	 *  @param Objeto Properties do Java apenas para conter o cdigo de erro caso a execuo da operao no seja bem sucedida.
+	 *  @param Objeto Properties do Java para conter o cdigo de erro caso a execuo da operao no seja bem sucedida.
+	 *  Opcionalmente, esse objeto pode conter a seguinte propriedade: size (tamanho da janela quadrada do filtro, um
+	 *  nmero mpar entre 3 e 255; o valor padro  3).
 	 *  @return Vetor de objetos bsicos do Java contendo o mesmo nmero de imagens de entrada, resultado da aplicao do filtro de mediana em cada uma delas. Se um erro
 	 *  ocorrer, o retorno ser null e o cdigo de erro poder ser obtido no parmetro "error" definido em pParams.
 	 */
 	@Override
 	public Vector<Object> execute(Vector<Object> pSource, Properties pParams)
 	{
-		int i;
+		int i, iSize;
 		Vector<Object> pRet = new Vector<Object>();
+		
+		try
+		{
+			iSize = Integer.parseInt(pParams.getProperty("size", String.valueOf(DEFAULT_SIZE)));
+		}
+		catch(NumberFormatException e)
+		{
+			pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
+			return null;
+		}
+		
+		if(iSize < 3 || iSize > MAX_SIZE || iSize % 2 == 0)
+		{
+			pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
+			return null;
+		}
 
 		if(pSource.size() <= 0)
 		{
@@ -84,12 +134,45 @@ public class CMedianFilterOperation extends COperation
 				return null;
 			}
 			
-			PlanarImage pSrcImage = ((CImage) pObj).getPlanarImage();
+			CImage pSrcImage = (CImage) pObj;
+			
+			if(is8Bits(pSrcImage))
+			{
+				int iWidth = pSrcImage.getWidth();
+				int iHeight = pSrcImage.getHeight();
+				int iBands = pSrcImage.getNumBands();
+				
+				CImage pTgtImage;
+				if(iBands == 1)
+					pTgtImage = new CImage(iWidth, iHeight, false);
+				else if(iBands == 3)
+					pTgtImage = new CImage(iWidth, iHeight, true);
+				else
+					pTgtImage = new CImage(iWidth, iHeight, iBands, pSrcImage.getDataType());
+				
+				/*
+				 * A imagem  dividida em blocos de linhas, de modo que a inicializao dos histogramas das colunas
+				 * (com as linhas da janela acima de cada bloco) seja diluda no processamento do bloco. Cada bloco 
+				 * tratado pelo escalonador como uma nica "linha" da imagem.
+				 */
+				
+				int iBlockRows = Math.max(BLOCK_ROWS, 4 * iSize);
+				int iBlocks = (iHeight + iBlockRows - 1) / iBlockRows;
+				CMedianKernel pKernel = new CMedianKernel(pSrcImage, pTgtImage, iSize, iBlockRows);
+				if(!CStripScheduler.execute(iWidth * iBlockRows, iBlocks, pKernel, getMonitor(pParams)))
+				{
+					pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+					return null;
+				}
+				
+				pRet.add((Object) pTgtImage);
+				continue;
+			}
 			
 			ParameterBlock pPB = new ParameterBlock();
-			pPB.addSource(pSrcImage);
+			pPB.addSource(pSrcImage.getPlanarImage());
 			pPB.add(MedianFilterDescriptor.MEDIAN_MASK_SQUARE);
-			pPB.add(3);
+			pPB.add(iSize);
 			
 			PlanarImage pTemp = JAI.create("medianfilter", pPB, null);
 			
@@ -101,5 +184,225 @@ public class CMedianFilterOperation extends COperation
 		
 		return pRet;
 	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Verifica se a imagem pode ser processada pelos histogramas
+	 * deslizantes: imagens com amostras inteiras de 8 bits em todas as bandas, sem paleta de cores.
+	 * 
+	 * @param pImage Imagem a ser verificada.
+	 * @return True se a imagem pode ser processada pelos histogramas deslizantes, false caso contrrio.
+	 */
+	private static boolean is8Bits(CImage pImage)
+	{
+		int iDataType = pImage.getDataType();
+		if(iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE)
+			return false;
+		for(int b = 0; b < pImage.getNumBands(); b++)
+			if(pImage.getSampleSize(b) != 8)
+				return false;
+		return !(pImage.getPlanarImage().getColorModel() instanceof IndexColorModel);
+	}
+	
+	/**
+	 * Classe interna para a implementao do ncleo do filtro de mediana com histogramas deslizantes, executado em
+	 * paralelo sobre blocos de linhas da imagem pela classe CStripScheduler.
+	 * 
+	 * Os histogramas tm dois nveis: um histograma grosso, com 16 faixas de 16 valores, e um histograma fino, com
+	 * os 256 valores. O histograma grosso da janela  atualizado a cada pixel e localiza a faixa da mediana; o
+	 * histograma fino da janela s  atualizado nessa faixa, com as colunas que entraram e saram da janela desde a
+	 * ltima vez em que a faixa foi consultada.
+	 */
+	private static class CMedianKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem de origem. */
+		private CImage m_pSrcImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino. */
+		private CImage m_pTgtImage;
+		
+		/** Membro privado utilizado para armazenar o tamanho da janela do filtro. */
+		private int m_iSize;
+		
+		/** Membro privado utilizado para armazenar o nmero de linhas de cada bloco. */
+		private int m_iBlockRows;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrcImage Imagem de origem.
+		 * @param pTgtImage Imagem de destino, com as mesmas dimenses e nmero de bandas da imagem de origem.
+		 * @param iSize Tamanho (mpar) da janela quadrada do filtro.
+		 * @param iBlockRows Nmero de linhas de cada bloco.
+		 */
+		public CMedianKernel(CImage pSrcImage, CImage pTgtImage, int iSize, int iBlockRows)
+		{
+			m_pSrcImage = pSrcImage;
+			m_pTgtImage = pTgtImage;
+			m_iSize = iSize;
+			m_iBlockRows = iBlockRows;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para a aplicao do filtro sobre os blocos de linhas dados, banda a banda
+		 * e em faixas verticais de colunas, de modo que os histogramas das colunas de cada faixa caibam na memria
+		 * cache do processador.
+		 * 
+		 * @param iFirstBlock ndice do primeiro bloco (inclusive).
+		 * @param iLastBlock ndice do ltimo bloco (exclusive).
+		 */
+		public void processStrip(int iFirstBlock, int iLastBlock)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			int iFirstRow = iFirstBlock * m_iBlockRows;
+			int iLastRow = Math.min(iLastBlock * m_iBlockRows, m_pSrcImage.getHeight());
+			int iTileWidth = Math.max(TILE_COLUMNS, 4 * m_iSize);
+			
+			for(int b = 0; b < m_pSrcImage.getNumBands(); b++)
+				for(int x = 0; x < iWidth; x += iTileWidth)
+					processTile(iFirstRow, iLastRow, x, Math.min(x + iTileWidth, iWidth), b);
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Aplica o filtro sobre uma banda de uma regio da imagem.
+		 * 
+		 * Os histogramas das colunas so mantidos para as colunas da regio acrescidas do raio da janela de cada lado
+		 * (replicando as colunas das bordas da imagem), de forma que a janela nunca extrapole os histogramas.
+		 * 
+		 * @param iFirstRow ndice da primeira linha (inclusive).
+		 * @param iLastRow ndice da ltima linha (exclusive).
+		 * @param iFirstCol ndice da primeira coluna (inclusive).
+		 * @param iLastCol ndice da ltima coluna (exclusive).
+		 * @param iBand ndice da banda.
+		 */
+		private void processTile(int iFirstRow, int iLastRow, int iFirstCol, int iLastCol, int iBand)
+		{
+			int iRadius = m_iSize / 2;
+			int iRank = (m_iSize * m_iSize) / 2;
+			int iTargetWidth = iLastCol - iFirstCol;
+			int iColumns = iTargetWidth + 2 * iRadius;
+			
+			// Histogramas (fino e grosso) de cada coluna, para as linhas da janela centrada na linha corrente
+			short aColFine[] = new short[iColumns * 256];
+			short aColCoarse[] = new short[iColumns * 16];
+			
+			// Histogramas da janela centrada no pixel corrente
+			int aFine[] = new int[256];
+			int aCoarse[] = new int[16];
+			int aLastUpdate[] = new int[16];
+			
+			int aRow[] = new int[iColumns];
+			int aTarget[] = new int[iTargetWidth];
+			
+			for(int r = iFirstRow - iRadius; r <= iFirstRow + iRadius; r++)
+				updateColumns(r, iFirstCol - iRadius, iBand, aRow, aColFine, aColCoarse, 1);
+			
+			for(int y = iFirstRow; y < iLastRow; y++)
+			{
+				if(y > iFirstRow)
+				{
+					updateColumns(y - iRadius - 1, iFirstCol - iRadius, iBand, aRow, aColFine, aColCoarse, -1);
+					updateColumns(y + iRadius, iFirstCol - iRadius, iBand, aRow, aColFine, aColCoarse, 1);
+				}
+				
+				// A janela do pixel x (relativo  regio)  formada pelas colunas x a (x + 2 * iRadius) dos histogramas
+				Arrays.fill(aCoarse, 0);
+				Arrays.fill(aLastUpdate, Integer.MIN_VALUE / 2);
+				for(int i = 0; i < 2 * iRadius * 16; i++)
+					aCoarse[i & 15] += aColCoarse[i];
+				
+				for(int x = 0; x < iTargetWidth; x++)
+				{
+					int iAdd = (x + 2 * iRadius) * 16;
+					int iSub = (x - 1) * 16;
+					if(x > 0)
+					{
+						for(int k = 0; k < 16; k++)
+							aCoarse[k] += aColCoarse[iAdd + k] - aColCoarse[iSub + k];
+					}
+					else
+					{
+						for(int k = 0; k < 16; k++)
+							aCoarse[k] += aColCoarse[iAdd + k];
+					}
+					
+					// Localizao da faixa da mediana no histograma grosso
+					int iCount = 0;
+					int k = 0;
+					while(iCount + aCoarse[k] <= iRank)
+						iCount += aCoarse[k++];
+					
+					// Atualizao da faixa no histograma fino: incremental, ou completa se a janela j mudou inteira
+					int iBase = k * 16;
+					if(x - aLastUpdate[k] > 2 * iRadius)
+					{
+						Arrays.fill(aFine, iBase, iBase + 16, 0);
+						for(int iCol = x * 256 + iBase; iCol <= (x + 2 * iRadius) * 256 + iBase; iCol += 256)
+						{
+							for(int v = 0; v < 16; v++)
+								aFine[iBase + v] += aColFine[iCol + v];
+						}
+					}
+					else
+					{
+						for(int j = aLastUpdate[k] + 1; j <= x; j++)
+						{
+							int iColAdd = (j + 2 * iRadius) * 256 + iBase;
+							int iColSub = (j - 1) * 256 + iBase;
+							for(int v = 0; v < 16; v++)
+								aFine[iBase + v] += aColFine[iColAdd + v] - aColFine[iColSub + v];
+						}
+					}
+					aLastUpdate[k] = x;
+					
+					// Localizao da mediana na faixa do histograma fino
+					int iValue = iBase;
+					while(iCount + aFine[iValue] <= iRank)
+						iCount += aFine[iValue++];
+					aTarget[x] = iValue;
+				}
+				
+				m_pTgtImage.setSamples(iFirstCol, y, iTargetWidth, 1, iBand, aTarget);
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Adiciona (ou remove) uma linha da imagem dos histogramas
+		 * das colunas. As linhas e colunas fora da imagem so substitudas pelas das bordas.
+		 * 
+		 * @param iRow ndice da linha.
+		 * @param iFirstCol ndice da coluna da imagem correspondente ao primeiro histograma (pode ser negativo).
+		 * @param iBand ndice da banda.
+		 * @param aRow Vetor de trabalho para a leitura da linha, com um elemento por histograma de coluna.
+		 * @param aColFine Histogramas finos das colunas.
+		 * @param aColCoarse Histogramas grossos das colunas.
+		 * @param iDelta 1 para adicionar a linha, -1 para remov-la.
+		 */
+		private void updateColumns(int iRow, int iFirstCol, int iBand, int aRow[], short aColFine[], short aColCoarse[], int iDelta)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			int iColumns = aRow.length;
+			int iStart = Math.max(iFirstCol, 0);
+			int iEnd = Math.min(iFirstCol + iColumns, iWidth);
+			
+			m_pSrcImage.getSamples(iStart, clamp(iRow, m_pSrcImage.getHeight()), iEnd - iStart, 1, iBand, aRow);
+			for(int x = 0; x < iColumns; x++)
+			{
+				int iValue = aRow[clamp(iFirstCol + x, iWidth) - iStart];
+				aColFine[x * 256 + iValue] += iDelta;
+				aColCoarse[x * 16 + (iValue >> 4)] += iDelta;
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. Limita um ndice de linha ou coluna ao intervalo da imagem.
+		 * 
+		 * @param i ndice.
+		 * @param iSize Nmero de linhas ou colunas da imagem.
+		 * @return ndice limitado ao intervalo de 0 a (iSize - 1).
+		 */
+		private static int clamp(int i, int iSize)
+		{
+			return Math.min(Math.max(i, 0), iSize - 1);
+		}
+	}
 }
- 
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.operations;
+
+import java.util.*;
+
+/**
+ * Essa classe implementa o registro em memria das medies de execuo das operaes. O registro mantm as
+ * medies individuais mais recentes (at a capacidade configurada) e o resumo acumulado de todas as medies
+ * recebidas, agrupadas por roteiro, etapa e operao. O contedo pode ser gravado em arquivo atravs da classe
+ * core.exporting.CMetricsCSVExporter.
+ * 
+ * Utilizao tpica:
+ * 
+ * <pre>
+ * COperation.setMetricsSink(CMetricsRegistry.getInstance());
+ * ... execuo das operaes ...
+ * new CMetricsCSVExporter().exportSummary(CMetricsRegistry.getInstance(), "resumo.csv");
+ * </pre>
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see IMetricsSink
+ * @see COperationMetrics
+ */
+
+public class CMetricsRegistry implements IMetricsSink
+{
+	/** Membro privado esttico com a capacidade padro de medies individuais mantidas no registro. */
+	private static final int DEFAULT_CAPACITY = 10000;
+	
+	/** Membro privado utilizado para armazenar as medies individuais mais recentes. */
+	private LinkedList<COperationMetrics> m_lsRecords;
+	
+	/** Membro privado utilizado para armazenar o resumo acumulado das medies, na ordem de primeira ocorrncia. */
+	private LinkedHashMap<String, COperationMetrics> m_mSummary;
+	
+	/** Membro privado utilizado para armazenar a capacidade de medies individuais mantidas no registro. */
+	private int m_iCapacity;
+	
+	/**
+	 * Membro privado esttico utilizado para conter a instncia nica (singleton) da classe CMetricsRegistry. 
+	 */
+	private static CMetricsRegistry m_pInstance = null;
+	
+	/**
+	 * Construtor da classe.
+	 */
+	public CMetricsRegistry()
+	{
+		m_lsRecords = new LinkedList<COperationMetrics>();
+		m_mSummary = new LinkedHashMap<String, COperationMetrics>();
+		m_iCapacity = DEFAULT_CAPACITY;
+	}
+	
+	/**
+	 * Mtodo esttico utilizado na obteno da instncia padro (singleton) do registro.
+	 * 
+	 * @return Retorna a instncia do objeto CMetricsRegistry.
+	 */
+	public static synchronized CMetricsRegistry getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CMetricsRegistry();
+		return m_pInstance;
+	}
+	
+	/**
+	 * Mtodo setter da capacidade de medies individuais mantidas no registro. As medies mais antigas so
+	 * descartadas quando a capacidade  excedida; o resumo acumulado no  afetado.
+	 * 
+	 * @param iCapacity Nmero mximo de medies individuais (maior ou igual a 0).
+	 */
+	public synchronized void setCapacity(int iCapacity)
+	{
+		m_iCapacity = Math.max(0, iCapacity);
+		while(m_lsRecords.size() > m_iCapacity)
+			m_lsRecords.removeFirst();
+	}
+	
+	/**
+	 * Mtodo getter da capacidade de medies individuais mantidas no registro.
+	 * 
+	 * @return Nmero mximo de medies individuais.
+	 */
+	public synchronized int getCapacity()
+	{
+		return m_iCapacity;
+	}
+	
+	/**
+	 * Registra a medio de uma execuo de operao.
+	 * 
+	 * @param pMetrics Objeto COperationMetrics com a medio da execuo.
+	 */
+	public synchronized void operationExecuted(COperationMetrics pMetrics)
+	{
+		if(m_iCapacity > 0)
+		{
+			if(m_lsRecords.size() >= m_iCapacity)
+				m_lsRecords.removeFirst();
+			m_lsRecords.addLast(pMetrics);
+		}
+		
+		String sKey = pMetrics.getParent() + "\u0000" + pMetrics.getStep() + "\u0000" + pMetrics.getOperation();
+		COperationMetrics pSummary = m_mSummary.get(sKey);
+		if(pSummary == null)
+			m_mSummary.put(sKey, new COperationMetrics(pMetrics));
+		else
+			pSummary.add(pMetrics);
+	}
+	
+	/**
+	 * Obtm as medies individuais mantidas no registro, na ordem em que foram recebidas.
+	 * 
+	 * @return Vetor com cpias das medies individuais.
+	 */
+	public synchronized Vector<COperationMetrics> getRecords()
+	{
+		return new Vector<COperationMetrics>(m_lsRecords);
+	}
+	
+	/**
+	 * Obtm o resumo acumulado das medies, agrupadas por roteiro, etapa e operao, na ordem de primeira
+	 * ocorrncia.
+	 * 
+	 * @return Vetor com cpias das medies acumuladas (veja COperationMetrics.getCount).
+	 */
+	public synchronized Vector<COperationMetrics> getSummary()
+	{
+		Vector<COperationMetrics> vRet = new Vector<COperationMetrics>(m_mSummary.size());
+		Iterator<COperationMetrics> it = m_mSummary.values().iterator();
+		while(it.hasNext())
+			vRet.add(new COperationMetrics(it.next()));
+		return vRet;
+	}
+	
+	/**
+	 * Remove todas as medies do registro.
+	 */
+	public synchronized void clear()
+	{
+		m_lsRecords.clear();
+		m_mSummary.clear();
+	}
+}
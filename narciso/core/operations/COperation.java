@@ -22,8 +22,13 @@
  
 package core.operations;
 
+import java.lang.management.*;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.*;
+
+import core.errors.CErrors;
+import core.images.CImage;
 
 /**
  * Classe bsica para a implementao de operaes sobre imagens no sistema Narciso.
@@ -38,11 +43,37 @@ import java.util.Vector;
 
 public abstract class COperation
 {
+	/**
+	 * Membro pblico e esttico com o nome do parmetro de execuo utilizado para informar s operaes o objeto
+	 * de acompanhamento da execuo (veja IOperationMonitor). O valor desse parmetro no  um texto, e por isso
+	 * deve ser obtido atravs do mtodo getMonitor.
+	 */
+	public static final String MONITOR_PARAM = "monitor";
+	
 	/** Membro privado utilizado para armazenar o nome da operao. */
 	private String m_sName;
 	
 	/** Membro privado utilizado para armazenar a descrio da operao. */
 	private String m_sDescription;
+	
+	/**
+	 * Membro privado esttico utilizado para armazenar o pool de threads compartilhado por todas as operaes na
+	 * execuo paralela por imagem.  criado apenas na primeira utilizao.
+	 */
+	private static ExecutorService m_pImagePool = null;
+	
+	/**
+	 * Membro privado esttico utilizado para indicar se a thread corrente pertence ao pool de execuo paralela por
+	 * imagem. Nesse caso as execues aninhadas so feitas de forma sequencial, evitando que as threads do pool
+	 * fiquem bloqueadas aguardando tarefas que nunca seriam executadas.
+	 */
+	private static final ThreadLocal<Boolean> m_pInImagePool = new ThreadLocal<Boolean>();
+	
+	/**
+	 * Membro privado esttico utilizado para armazenar o destino das medies de execuo das operaes, ou null
+	 * se as medies esto desabilitadas (o padro).
+	 */
+	private static volatile IMetricsSink m_pMetricsSink = null;
 	 
 	/**
 	 * Construtor da classe.
@@ -115,5 +146,385 @@ public abstract class COperation
 	 * um erro ocorreu. No caso de erro ocorrido, o parmetro "error" deve ter sido disponibilizado no parmetro pParams.
 	 */
 	public abstract Vector<Object> execute(Vector<Object> pSource, Properties pParams);
-}
- 
+	
+	/**
+	 * Executa a operao atravs do mtodo execute, gerando a medio da execuo para o destino configurado
+	 * atravs do mtodo setMetricsSink. Se nenhum destino estiver configurado, equivale ao mtodo execute.
+	 * 
+	 * Com as medies habilitadas, as imagens resultantes so renderizadas antes do trmino da medio, de modo
+	 * que o processamento das operaes baseadas no JAI (adiado at a utilizao dos pixels) seja atribudo 
+	 * operao que o gerou, e no  operao seguinte.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, com os objetos sobre os quais a operao ser executada.
+	 * @param pParams Objeto Properties do Java contendo parmetros para a execuo da operao.
+	 * @return Vetor de objetos bsicos do Java, contendo os objetos resultantes da execuo da operao, ou null se 
+	 * um erro ocorreu.
+	 */
+	public Vector<Object> executeInstrumented(Vector<Object> pSource, Properties pParams)
+	{
+		return executeInstrumented(pSource, pParams, null, 0);
+	}
+	
+	/**
+	 * Executa a operao atravs do mtodo execute, gerando a medio da execuo como uma etapa de um roteiro.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, com os objetos sobre os quais a operao ser executada.
+	 * @param pParams Objeto Properties do Java contendo parmetros para a execuo da operao.
+	 * @param sParent Nome do roteiro que executa a operao, ou null.
+	 * @param iStep ndice da etapa no roteiro (iniciando em 1), ou 0.
+	 * @return Vetor de objetos bsicos do Java, contendo os objetos resultantes da execuo da operao, ou null se 
+	 * um erro ocorreu.
+	 */
+	protected Vector<Object> executeInstrumented(Vector<Object> pSource, Properties pParams, String sParent, int iStep)
+	{
+		IMetricsSink pSink = m_pMetricsSink;
+		if(pSink == null)
+			return execute(pSource, pParams);
+		
+		long lStartTime = System.currentTimeMillis();
+		long lAllocated = COperation.getAllocatedBytes();
+		long lStart = System.nanoTime();
+		
+		Vector<Object> vResult = execute(pSource, pParams);
+		if(vResult != null && !COperation.renderResults(vResult, COperation.getMonitor(pParams)))
+		{
+			pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+			vResult = null;
+		}
+		
+		long lElapsed = System.nanoTime() - lStart;
+		if(lAllocated >= 0)
+			lAllocated = COperation.getAllocatedBytes() - lAllocated;
+		
+		long lPixelsIn = 0, lPixelsOut = 0, lBytesOut = 0;
+		int i;
+		for(i = 0; i < pSource.size(); i++)
+		{
+			if(pSource.get(i) instanceof CImage)
+			{
+				CImage pImage = (CImage) pSource.get(i);
+				lPixelsIn += (long) pImage.getWidth() * pImage.getHeight();
+			}
+		}
+		for(i = 0; vResult != null && i < vResult.size(); i++)
+		{
+			if(vResult.get(i) instanceof CImage)
+			{
+				CImage pImage = (CImage) vResult.get(i);
+				lPixelsOut += (long) pImage.getWidth() * pImage.getHeight();
+				lBytesOut += pImage.getByteCount();
+			}
+		}
+		
+		pSink.operationExecuted(new COperationMetrics(getName(), sParent, iStep, lStartTime, lElapsed, pSource.size(), lPixelsIn, (vResult == null ? 0 : vResult.size()), lPixelsOut, lBytesOut, lAllocated, vResult == null));
+		return vResult;
+	}
+	
+	/**
+	 * Configura o destino das medies de execuo das operaes. As medies so geradas pelas execues
+	 * efetuadas atravs dos mtodos executeInstrumented e executeParallel, inclusive para cada etapa dos roteiros.
+	 * 
+	 * @param pSink Objeto IMetricsSink que receber as medies (por exemplo, CMetricsRegistry.getInstance()), ou
+	 * null para desabilitar as medies.
+	 */
+	public static void setMetricsSink(IMetricsSink pSink)
+	{
+		m_pMetricsSink = pSink;
+	}
+	
+	/**
+	 * Obtm o destino das medies de execuo das operaes.
+	 * 
+	 * @return Objeto IMetricsSink configurado, ou null se as medies esto desabilitadas.
+	 */
+	public static IMetricsSink getMetricsSink()
+	{
+		return m_pMetricsSink;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Obtm o nmero de bytes j alocados pela thread corrente.
+	 * 
+	 * @return Nmero de bytes alocados, ou -1 se a mquina virtual no disponibiliza essa informao.
+	 */
+	private static long getAllocatedBytes()
+	{
+		ThreadMXBean pBean = ManagementFactory.getThreadMXBean();
+		if(!(pBean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		
+		com.sun.management.ThreadMXBean pSunBean = (com.sun.management.ThreadMXBean) pBean;
+		if(!pSunBean.isThreadAllocatedMemorySupported() || !pSunBean.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return pSunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Indica se a operao processa cada uma das imagens dadas de forma independente das demais, isto , se o
+	 * resultado da execuo sobre um vetor de imagens  a concatenao (na mesma ordem) dos resultados da execuo
+	 * sobre cada imagem isoladamente. As operaes que atendem a essa condio devem sobrescrever esse mtodo,
+	 * permitindo sua execuo paralela por imagem atravs do mtodo executeParallel.
+	 * 
+	 * @return True se a operao  independente por imagem, false caso contrrio (o padro).
+	 */
+	public boolean isImageIndependent()
+	{
+		return false;
+	}
+	
+	/**
+	 * Executa a operao distribuindo as imagens dadas entre as threads de um pool de tamanho limitado (uma thread
+	 * por processador disponvel), quando a operao  independente por imagem (veja isImageIndependent). Cada
+	 * imagem  processada em uma chamada separada ao mtodo execute, com sua prpria cpia de pParams, e as imagens
+	 * resultantes so renderizadas na prpria thread de execuo. Os resultados so reunidos na ordem original
+	 * dos objetos-fonte.
+	 * 
+	 * Se a operao no for independente por imagem, ou se houver apenas um objeto-fonte, o mtodo simplesmente
+	 * executa o mtodo execute na thread chamadora.
+	 * 
+	 * Se um objeto de acompanhamento for informado em pParams (veja MONITOR_PARAM), os resultados de cada imagem
+	 * so renderizados e repassados a ele  medida que so concludos, na ordem original dos objetos-fonte, e o
+	 * cancelamento da execuo  verificado antes do processamento de cada imagem e durante a renderizao.
+	 * 
+	 * @param pSource Vetor de objetos bsicos do Java, com os objetos sobre os quais a operao ser executada.
+	 * @param pParams Objeto Properties do Java contendo parmetros para a execuo da operao. Se ocorrer erro no
+	 * processamento de mais de uma imagem, o parmetro "error" conter o cdigo de erro da primeira delas, segundo
+	 * a ordem dos objetos-fonte.
+	 * @return Vetor de objetos bsicos do Java, contendo os objetos resultantes da execuo da operao, ou null se 
+	 * um erro ocorreu.
+	 */
+	public Vector<Object> executeParallel(Vector<Object> pSource, Properties pParams)
+	{
+		if(m_pInImagePool.get() != null)
+			return execute(pSource, pParams);
+		
+		IOperationMonitor pMonitor = COperation.getMonitor(pParams);
+		if(!isImageIndependent() || pSource.size() <= 1)
+		{
+			if(COperation.checkCancelled(pParams))
+				return null;
+			
+			Vector<Object> vResult = executeInstrumented(pSource, pParams);
+			if(vResult != null && pMonitor != null)
+			{
+				if(!COperation.renderResults(vResult, pMonitor))
+				{
+					pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+					return null;
+				}
+				pMonitor.resultAvailable(vResult, pSource.size(), pSource.size());
+			}
+			return vResult;
+		}
+		
+		ExecutorService pPool = COperation.getImagePool();
+		Vector<Future<Vector<Object>>> vTasks = new Vector<Future<Vector<Object>>>(pSource.size());
+		Vector<Properties> vParams = new Vector<Properties>(pSource.size());
+		int i;
+		
+		for(i = 0; i < pSource.size(); i++)
+		{
+			Vector<Object> vTaskSource = new Vector<Object>(1);
+			vTaskSource.add(pSource.get(i));
+			
+			Properties pTaskParams = new Properties();
+			pTaskParams.putAll(pParams);
+			vParams.add(pTaskParams);
+			
+			vTasks.add(pPool.submit(new CImageTask(this, vTaskSource, pTaskParams)));
+		}
+		
+		Vector<Object> pRet = new Vector<Object>();
+		try
+		{
+			for(i = 0; i < vTasks.size(); i++)
+			{
+				Vector<Object> vResult = vTasks.get(i).get();
+				if(vResult == null)
+				{
+					cancelTasks(vTasks);
+					String sError = vParams.get(i).getProperty("error");
+					if(sError != null)
+						pParams.put("error", sError);
+					return null;
+				}
+				pRet.addAll(vResult);
+				if(pMonitor != null)
+					pMonitor.resultAvailable(vResult, i + 1, vTasks.size());
+			}
+		}
+		catch(InterruptedException e)
+		{
+			cancelTasks(vTasks);
+			Thread.currentThread().interrupt();
+			pParams.put("error", String.valueOf(CErrors.ERROR_UNEXPECTED_ERROR));
+			return null;
+		}
+		catch(ExecutionException e)
+		{
+			cancelTasks(vTasks);
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			pParams.put("error", String.valueOf(CErrors.ERROR_UNEXPECTED_ERROR));
+			return null;
+		}
+		
+		return pRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cancela as tarefas de execuo por imagem ainda no concludas.
+	 * 
+	 * @param vTasks Vetor com as tarefas submetidas ao pool.
+	 */
+	private static void cancelTasks(Vector<Future<Vector<Object>>> vTasks)
+	{
+		for(int i = 0; i < vTasks.size(); i++)
+			vTasks.get(i).cancel(false);
+	}
+	
+	/**
+	 * Obtm o objeto de acompanhamento da execuo informado nos parmetros dados.
+	 * 
+	 * @param pParams Objeto Properties com os parmetros de execuo de uma operao.
+	 * @return Objeto IOperationMonitor informado no parmetro MONITOR_PARAM, ou null se no houver.
+	 */
+	public static IOperationMonitor getMonitor(Properties pParams)
+	{
+		Object pMonitor = pParams.get(MONITOR_PARAM);
+		if(pMonitor instanceof IOperationMonitor)
+			return (IOperationMonitor) pMonitor;
+		return null;
+	}
+	
+	/**
+	 * Mtodo esttico e protegido, utilizado pelas operaes para verificar se a execuo foi cancelada atravs do
+	 * objeto de acompanhamento informado nos parmetros. Em caso de cancelamento, o parmetro "error"  definido
+	 * com o cdigo CErrors.ERROR_OPERATION_CANCELLED.
+	 * 
+	 * @param pParams Objeto Properties com os parmetros de execuo da operao.
+	 * @return True se a execuo foi cancelada, false caso contrrio.
+	 */
+	protected static boolean checkCancelled(Properties pParams)
+	{
+		IOperationMonitor pMonitor = COperation.getMonitor(pParams);
+		if(pMonitor == null || !pMonitor.isCancelled())
+			return false;
+		
+		pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+		return true;
+	}
+	
+	/**
+	 * Mtodo esttico e protegido, utilizado para renderizar as imagens resultantes de uma execuo, de modo que o
+	 * processamento das imagens JAI pendentes seja efetuado na thread chamadora.
+	 * 
+	 * @param vResult Vetor com os objetos resultantes da execuo.
+	 * @param pMonitor Objeto de acompanhamento consultado durante a renderizao, ou null se no houver.
+	 * @return True se todas as imagens foram renderizadas, false se a renderizao foi cancelada.
+	 */
+	protected static boolean renderResults(Vector<Object> vResult, IOperationMonitor pMonitor)
+	{
+		for(int i = 0; i < vResult.size(); i++)
+		{
+			if(vResult.get(i) instanceof CImage && !((CImage) vResult.get(i)).render(pMonitor))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Mtodo esttico e protegido, utilizado para a obteno do pool de threads da execuo paralela por imagem.
+	 * O pool  criado na primeira chamada, com uma thread para cada processador disponvel.
+	 * 
+	 * @return Objeto ExecutorService com o pool de threads.
+	 */
+	protected static synchronized ExecutorService getImagePool()
+	{
+		if(m_pImagePool == null)
+			m_pImagePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new CImageThreadFactory());
+		return m_pImagePool;
+	}
+	
+	/**
+	 * Classe interna para a implementao da tarefa de execuo de uma operao sobre uma nica imagem.
+	 */
+	private static class CImageTask implements Callable<Vector<Object>>
+	{
+		/** Membro privado utilizado para armazenar a operao a ser executada. */
+		private COperation m_pOperation;
+		
+		/** Membro privado utilizado para armazenar o vetor com o objeto-fonte da tarefa. */
+		private Vector<Object> m_pSource;
+		
+		/** Membro privado utilizado para armazenar a cpia dos parmetros da tarefa. */
+		private Properties m_pParams;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pOperation Operao a ser executada.
+		 * @param pSource Vetor com o objeto-fonte da tarefa.
+		 * @param pParams Cpia dos parmetros de execuo, exclusiva da tarefa.
+		 */
+		public CImageTask(COperation pOperation, Vector<Object> pSource, Properties pParams)
+		{
+			m_pOperation = pOperation;
+			m_pSource = pSource;
+			m_pParams = pParams;
+		}
+		
+		/**
+		 * Executa a operao e renderiza as imagens resultantes, de modo que todo o processamento seja efetuado na
+		 * thread do pool.
+		 * 
+		 * @return Vetor com os objetos resultantes, ou null se ocorreu um erro ou se a execuo foi cancelada.
+		 */
+		public Vector<Object> call()
+		{
+			if(COperation.checkCancelled(m_pParams))
+				return null;
+			
+			m_pInImagePool.set(Boolean.TRUE);
+			try
+			{
+				Vector<Object> vResult = m_pOperation.executeInstrumented(m_pSource, m_pParams);
+				if(vResult != null && !COperation.renderResults(vResult, COperation.getMonitor(m_pParams)))
+				{
+					m_pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+					return null;
+				}
+				return vResult;
+			}
+			finally
+			{
+				m_pInImagePool.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Classe interna para a criao das threads do pool de execuo paralela por imagem. As threads so criadas
+	 * como daemon, de modo a no impedir o encerramento da aplicao.
+	 */
+	private static class CImageThreadFactory implements ThreadFactory
+	{
+		/** Membro privado utilizado para a numerao das threads criadas. */
+		private int m_iCount = 0;
+		
+		/**
+		 * Cria uma nova thread para o pool.
+		 * 
+		 * @param pTask Tarefa a ser executada pela thread.
+		 * @return Nova thread.
+		 */
+		public synchronized Thread newThread(Runnable pTask)
+		{
+			Thread pThread = new Thread(pTask, "Narciso-Image-" + (++m_iCount));
+			pThread.setDaemon(true);
+			return pThread;
+		}
+	}
+}
\ No newline at end of file
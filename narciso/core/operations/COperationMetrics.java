@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.operations;
+
+/**
+ * Essa classe armazena a medio de uma execuo de operao: tempo de execuo, nmero de pixels processados,
+ * memria alocada e tamanho dos resultados. Quando obtida a partir do resumo de um CMetricsRegistry, a medio
+ * representa a soma de vrias execues da mesma operao (veja getCount).
+ * 
+ * A memria alocada corresponde s alocaes efetuadas pela thread que executou a operao, quando a mquina
+ * virtual disponibiliza essa informao. As alocaes efetuadas por outras threads em favor da operao (como as
+ * faixas de linhas processadas pelo CStripScheduler) no so contabilizadas.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see IMetricsSink
+ * @see CMetricsRegistry
+ */
+
+public class COperationMetrics
+{
+	/** Membro privado utilizado para armazenar o nome da operao. */
+	private String m_sOperation;
+	
+	/** Membro privado utilizado para armazenar o nome do roteiro que executou a operao, ou null. */
+	private String m_sParent;
+	
+	/** Membro privado utilizado para armazenar o ndice da etapa no roteiro (iniciando em 1), ou 0. */
+	private int m_iStep;
+	
+	/** Membro privado utilizado para armazenar o instante do incio da execuo, em milissegundos. */
+	private long m_lStartTime;
+	
+	/** Membro privado utilizado para armazenar o nmero de execues representadas pela medio. */
+	private int m_iCount;
+	
+	/** Membro privado utilizado para armazenar o tempo de execuo, em nanossegundos. */
+	private long m_lElapsed;
+	
+	/** Membro privado utilizado para armazenar o nmero de objetos-fonte. */
+	private long m_lSources;
+	
+	/** Membro privado utilizado para armazenar o nmero de pixels das imagens de entrada. */
+	private long m_lPixelsIn;
+	
+	/** Membro privado utilizado para armazenar o nmero de objetos resultantes. */
+	private long m_lResults;
+	
+	/** Membro privado utilizado para armazenar o nmero de pixels das imagens resultantes. */
+	private long m_lPixelsOut;
+	
+	/** Membro privado utilizado para armazenar o nmero de bytes ocupados pelas imagens resultantes. */
+	private long m_lBytesOut;
+	
+	/** Membro privado utilizado para armazenar o nmero de bytes alocados na execuo, ou -1 se indisponvel. */
+	private long m_lAllocated;
+	
+	/** Membro privado utilizado para armazenar o nmero de execues que terminaram com erro. */
+	private int m_iErrors;
+	
+	/**
+	 * Construtor da classe, para a medio de uma nica execuo.
+	 * 
+	 * @param sOperation Nome da operao.
+	 * @param sParent Nome do roteiro que executou a operao, ou null.
+	 * @param iStep ndice da etapa no roteiro (iniciando em 1), ou 0.
+	 * @param lStartTime Instante do incio da execuo, em milissegundos.
+	 * @param lElapsed Tempo de execuo, em nanossegundos.
+	 * @param lSources Nmero de objetos-fonte.
+	 * @param lPixelsIn Nmero de pixels das imagens de entrada.
+	 * @param lResults Nmero de objetos resultantes.
+	 * @param lPixelsOut Nmero de pixels das imagens resultantes.
+	 * @param lBytesOut Nmero de bytes ocupados pelas imagens resultantes.
+	 * @param lAllocated Nmero de bytes alocados, ou -1 se indisponvel.
+	 * @param bError Indica se a execuo terminou com erro.
+	 */
+	public COperationMetrics(String sOperation, String sParent, int iStep, long lStartTime, long lElapsed, long lSources, long lPixelsIn, long lResults, long lPixelsOut, long lBytesOut, long lAllocated, boolean bError)
+	{
+		m_sOperation = sOperation;
+		m_sParent = sParent;
+		m_iStep = iStep;
+		m_lStartTime = lStartTime;
+		m_iCount = 1;
+		m_lElapsed = lElapsed;
+		m_lSources = lSources;
+		m_lPixelsIn = lPixelsIn;
+		m_lResults = lResults;
+		m_lPixelsOut = lPixelsOut;
+		m_lBytesOut = lBytesOut;
+		m_lAllocated = lAllocated;
+		m_iErrors = (bError ? 1 : 0);
+	}
+	
+	/**
+	 * Construtor de cpia da classe.
+	 * 
+	 * @param pOther Medio a ser copiada.
+	 */
+	public COperationMetrics(COperationMetrics pOther)
+	{
+		m_sOperation = pOther.m_sOperation;
+		m_sParent = pOther.m_sParent;
+		m_iStep = pOther.m_iStep;
+		m_lStartTime = pOther.m_lStartTime;
+		m_iCount = pOther.m_iCount;
+		m_lElapsed = pOther.m_lElapsed;
+		m_lSources = pOther.m_lSources;
+		m_lPixelsIn = pOther.m_lPixelsIn;
+		m_lResults = pOther.m_lResults;
+		m_lPixelsOut = pOther.m_lPixelsOut;
+		m_lBytesOut = pOther.m_lBytesOut;
+		m_lAllocated = pOther.m_lAllocated;
+		m_iErrors = pOther.m_iErrors;
+	}
+	
+	/**
+	 * Acumula nessa medio os valores da medio dada. O instante de incio passa a ser o mais antigo dos dois.
+	 * 
+	 * @param pOther Medio a ser acumulada.
+	 */
+	public void add(COperationMetrics pOther)
+	{
+		m_lStartTime = Math.min(m_lStartTime, pOther.m_lStartTime);
+		m_iCount += pOther.m_iCount;
+		m_lElapsed += pOther.m_lElapsed;
+		m_lSources += pOther.m_lSources;
+		m_lPixelsIn += pOther.m_lPixelsIn;
+		m_lResults += pOther.m_lResults;
+		m_lPixelsOut += pOther.m_lPixelsOut;
+		m_lBytesOut += pOther.m_lBytesOut;
+		if(m_lAllocated < 0 || pOther.m_lAllocated < 0)
+			m_lAllocated = -1;
+		else
+			m_lAllocated += pOther.m_lAllocated;
+		m_iErrors += pOther.m_iErrors;
+	}
+	
+	/**
+	 * Mtodo getter do nome da operao.
+	 * @return Nome da operao.
+	 */
+	public String getOperation()
+	{
+		return m_sOperation;
+	}
+	
+	/**
+	 * Mtodo getter do nome do roteiro que executou a operao.
+	 * @return Nome do roteiro, ou null se a operao no foi executada como etapa de um roteiro.
+	 */
+	public String getParent()
+	{
+		return m_sParent;
+	}
+	
+	/**
+	 * Mtodo getter do ndice da etapa no roteiro.
+	 * @return ndice da etapa (iniciando em 1), ou 0 se a operao no foi executada como etapa de um roteiro.
+	 */
+	public int getStep()
+	{
+		return m_iStep;
+	}
+	
+	/**
+	 * Mtodo getter do instante do incio da execuo.
+	 * @return Instante do incio, em milissegundos (conforme System.currentTimeMillis).
+	 */
+	public long getStartTime()
+	{
+		return m_lStartTime;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de execues representadas pela medio.
+	 * @return Nmero de execues.
+	 */
+	public int getCount()
+	{
+		return m_iCount;
+	}
+	
+	/**
+	 * Mtodo getter do tempo de execuo.
+	 * @return Tempo de execuo, em nanossegundos.
+	 */
+	public long getElapsed()
+	{
+		return m_lElapsed;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de objetos-fonte.
+	 * @return Nmero de objetos-fonte.
+	 */
+	public long getSources()
+	{
+		return m_lSources;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de pixels das imagens de entrada.
+	 * @return Nmero de pixels processados.
+	 */
+	public long getPixelsIn()
+	{
+		return m_lPixelsIn;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de objetos resultantes.
+	 * @return Nmero de objetos resultantes.
+	 */
+	public long getResults()
+	{
+		return m_lResults;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de pixels das imagens resultantes.
+	 * @return Nmero de pixels gerados.
+	 */
+	public long getPixelsOut()
+	{
+		return m_lPixelsOut;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de bytes ocupados pelas imagens resultantes.
+	 * @return Nmero de bytes dos resultados.
+	 */
+	public long getBytesOut()
+	{
+		return m_lBytesOut;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de bytes alocados pela thread executora.
+	 * @return Nmero de bytes alocados, ou -1 se a informao no est disponvel.
+	 */
+	public long getAllocated()
+	{
+		return m_lAllocated;
+	}
+	
+	/**
+	 * Mtodo getter do nmero de execues que terminaram com erro.
+	 * @return Nmero de execues com erro.
+	 */
+	public int getErrors()
+	{
+		return m_iErrors;
+	}
+}
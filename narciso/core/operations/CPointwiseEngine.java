@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.operations;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import core.images.*;
+
+/**
+ * Essa classe implementa as operaes aritmticas (adio, subtrao, multiplicao e diviso) e lgicas (e, ou, ou
+ * exclusivo e no) pixel a pixel sobre imagens de 8 bits em escala de cinza ou RGB, com o mesmo resultado das
+ * operaes correspondentes da JAI: as operaes aritmticas so saturadas no intervalo de 0 a 255, a diviso 
+ * arredondada e a diviso por zero resulta em 255 (ou 0, se o dividendo tambm for zero).
+ * 
+ * As linhas das imagens so lidas em blocos, com as amostras de cada pixel empacotadas em um nico inteiro
+ * (0x00RRGGBB), ou com as amostras de trs pixels consecutivos empacotadas da mesma forma em escala de cinza. A adio, a subtrao e as operaes lgicas
+ * processam as trs amostras de uma s vez, com operaes inteiras sem desvios (SWAR: SIMD dentro de um registro),
+ * em laos que o compilador da mquina virtual pode vetorizar. A multiplicao satura cada amostra e a diviso 
+ * obtida de uma tabela pr-calculada. Os blocos so processados em paralelo pela classe CStripScheduler.
+ * 
+ * Imagens com outros formatos (outros tipos de dado, paleta de cores, transparncia ou dimenses diferentes) no so
+ * suportadas (veja isSupported), e devem ser processadas pelas operaes da JAI.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CStripScheduler
+ */
+
+public class CPointwiseEngine
+{
+	/**
+	 * Enumerao das operaes suportadas.
+	 */
+	public static enum COperatorEnum { ADD, SUBTRACT, MULTIPLY, DIVIDE, AND, OR, XOR, NOT };
+	
+	/** Nmero mximo de pixels lidos de cada vez em um bloco de linhas. */
+	private static final int BLOCK_PIXELS = 16384;
+	
+	/** Mscara das trs amostras empacotadas. */
+	private static final int SAMPLES_MASK = 0x00ffffff;
+	
+	/** Mscara das amostras vermelha e azul, com espao para o transporte (carry) de cada uma. */
+	private static final int RB_MASK = 0x00ff00ff;
+	
+	/** Mscara da amostra verde, com espao para o seu transporte (carry). */
+	private static final int G_MASK = 0x0000ff00;
+	
+	/**
+	 * Construtor privado, pois a classe possui apenas mtodos estticos.
+	 */
+	private CPointwiseEngine()
+	{
+	}
+	
+	/**
+	 * Verifica se as imagens dadas podem ser processadas por esta classe: imagens de 8 bits por amostra, em escala de
+	 * cinza (com uma banda) ou RGB (com trs bandas, no espao de cores sRGB), sem paleta de cores, e com as mesmas
+	 * dimenses e nmero de bandas.
+	 * 
+	 * @param pSrc1 Primeira imagem de origem.
+	 * @param pSrc2 Segunda imagem de origem, ou null para as operaes sobre uma nica imagem (NOT).
+	 * @return True se as imagens so suportadas, false caso contrrio.
+	 */
+	public static boolean isSupported(CImage pSrc1, CImage pSrc2)
+	{
+		if(!isSupported(pSrc1))
+			return false;
+		if(pSrc2 == null)
+			return true;
+		
+		return isSupported(pSrc2) && pSrc1.getWidth() == pSrc2.getWidth() && pSrc1.getHeight() == pSrc2.getHeight()
+		       && pSrc1.getNumBands() == pSrc2.getNumBands();
+	}
+	
+	/**
+	 * Executa a operao dada sobre as imagens.
+	 * 
+	 * @param pSrc1 Primeira imagem de origem.
+	 * @param pSrc2 Segunda imagem de origem, ou null para as operaes sobre uma nica imagem (NOT).
+	 * @param eOperator Operao, conforme definido em COperatorEnum.
+	 * @param pMonitor Monitor para o acompanhamento e o cancelamento da execuo, ou null.
+	 * @return Imagem com o resultado da operao, com as mesmas dimenses e nmero de bandas das imagens de origem,
+	 * ou null se a execuo for cancelada.
+	 * @throws IllegalArgumentException Se as imagens no forem suportadas (veja isSupported).
+	 */
+	public static CImage execute(CImage pSrc1, CImage pSrc2, COperatorEnum eOperator, IOperationMonitor pMonitor)
+	{
+		if(!isSupported(pSrc1, pSrc2) || (pSrc2 == null) != (eOperator == COperatorEnum.NOT))
+			throw new IllegalArgumentException("Imagens no suportadas pela operao");
+		
+		int iWidth = pSrc1.getWidth();
+		int iHeight = pSrc1.getHeight();
+		CImage pTarget = new CImage(iWidth, iHeight, pSrc1.getNumBands() == 3);
+		
+		if(!CStripScheduler.execute(iWidth, iHeight, new CPointwiseKernel(pSrc1, pSrc2, pTarget, eOperator), pMonitor))
+			return null;
+		return pTarget;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Verifica se uma imagem  suportada (veja isSupported).
+	 * 
+	 * @param pImage Imagem a ser verificada.
+	 * @return True se a imagem  suportada, false caso contrrio.
+	 */
+	private static boolean isSupported(CImage pImage)
+	{
+		int iBands = pImage.getNumBands();
+		if(iBands != 1 && iBands != 3)
+			return false;
+		
+		int iDataType = pImage.getDataType();
+		if(iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE)
+			return false;
+		for(int b = 0; b < iBands; b++)
+			if(pImage.getSampleSize(b) != 8)
+				return false;
+		
+		ColorModel pModel = pImage.getPlanarImage().getColorModel();
+		if(pModel == null || pModel instanceof IndexColorModel || pModel.hasAlpha())
+			return false;
+		if(iBands == 3)
+			return pModel.getColorSpace().isCS_sRGB();
+		else
+			return pModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Aplica a operao dada sobre um bloco de pixels empacotados.
+	 * 
+	 * @param eOperator Operao.
+	 * @param aSrc1 Vetor com os pixels da primeira imagem.
+	 * @param aSrc2 Vetor com os pixels da segunda imagem (ignorado na operao NOT).
+	 * @param iCount Nmero de pixels do bloco.
+	 * @param aTarget Vetor para o retorno do resultado (pode ser o prprio aSrc1).
+	 */
+	private static void apply(COperatorEnum eOperator, int aSrc1[], int aSrc2[], int iCount, int aTarget[])
+	{
+		switch(eOperator)
+		{
+			case ADD:
+				for(int i = 0; i < iCount; i++)
+				{
+					// Cada amostra  somada com um bit livre acima dela; o transporte (carry) satura a amostra em 255
+					int iRB = (aSrc1[i] & RB_MASK) + (aSrc2[i] & RB_MASK);
+					int iG = (aSrc1[i] & G_MASK) + (aSrc2[i] & G_MASK);
+					int iRBCarry = iRB & 0x01000100;
+					int iGCarry = iG & 0x00010000;
+					aTarget[i] = ((iRB | (iRBCarry - (iRBCarry >>> 8))) & RB_MASK) | ((iG | (iGCarry - (iGCarry >>> 8))) & G_MASK);
+				}
+				break;
+				
+			case SUBTRACT:
+				for(int i = 0; i < iCount; i++)
+				{
+					// Cada amostra  subtrada de um bit de guarda acima dela; o emprstimo (borrow) satura a amostra em 0
+					int iRB = ((aSrc1[i] & RB_MASK) | 0x01000100) - (aSrc2[i] & RB_MASK);
+					int iG = ((aSrc1[i] & G_MASK) | 0x00010000) - (aSrc2[i] & G_MASK);
+					int iRBGuard = iRB & 0x01000100;
+					int iGGuard = iG & 0x00010000;
+					aTarget[i] = (iRB & (iRBGuard - (iRBGuard >>> 8)) & RB_MASK) | (iG & (iGGuard - (iGGuard >>> 8)) & G_MASK);
+				}
+				break;
+				
+			case MULTIPLY:
+				for(int i = 0; i < iCount; i++)
+				{
+					int iA = aSrc1[i];
+					int iB = aSrc2[i];
+					int iRed = Math.min(((iA >> 16) & 0xff) * ((iB >> 16) & 0xff), 255);
+					int iGreen = Math.min(((iA >> 8) & 0xff) * ((iB >> 8) & 0xff), 255);
+					int iBlue = Math.min((iA & 0xff) * (iB & 0xff), 255);
+					aTarget[i] = (iRed << 16) | (iGreen << 8) | iBlue;
+				}
+				break;
+				
+			case DIVIDE:
+				byte aTable[] = CDivisionTable.TABLE;
+				for(int i = 0; i < iCount; i++)
+				{
+					int iA = aSrc1[i];
+					int iB = aSrc2[i];
+					int iRed = aTable[((iA >> 8) & 0xff00) | ((iB >> 16) & 0xff)] & 0xff;
+					int iGreen = aTable[(iA & 0xff00) | ((iB >> 8) & 0xff)] & 0xff;
+					int iBlue = aTable[((iA << 8) & 0xff00) | (iB & 0xff)] & 0xff;
+					aTarget[i] = (iRed << 16) | (iGreen << 8) | iBlue;
+				}
+				break;
+				
+			case AND:
+				for(int i = 0; i < iCount; i++)
+					aTarget[i] = aSrc1[i] & aSrc2[i] & SAMPLES_MASK;
+				break;
+				
+			case OR:
+				for(int i = 0; i < iCount; i++)
+					aTarget[i] = (aSrc1[i] | aSrc2[i]) & SAMPLES_MASK;
+				break;
+				
+			case XOR:
+				for(int i = 0; i < iCount; i++)
+					aTarget[i] = (aSrc1[i] ^ aSrc2[i]) & SAMPLES_MASK;
+				break;
+				
+			case NOT:
+				for(int i = 0; i < iCount; i++)
+					aTarget[i] = ~aSrc1[i] & SAMPLES_MASK;
+				break;
+		}
+	}
+	
+	/**
+	 * Classe interna com a tabela de diviso das amostras de 8 bits, indexada por (dividendo << 8) | divisor. A
+	 * tabela (de 64 KB) s  calculada no primeiro uso.
+	 */
+	private static class CDivisionTable
+	{
+		/** Tabela com os quocientes arredondados e saturados. */
+		private static final byte TABLE[] = new byte[256 * 256];
+		
+		static
+		{
+			for(int iA = 0; iA < 256; iA++)
+			{
+				for(int iB = 0; iB < 256; iB++)
+				{
+					int iQuotient;
+					if(iB == 0)
+						iQuotient = (iA == 0 ? 0 : 255);
+					else
+						iQuotient = Math.min((2 * iA + iB) / (2 * iB), 255);
+					TABLE[(iA << 8) | iB] = (byte) iQuotient;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Classe interna para a implementao do ncleo das operaes, executado em paralelo sobre faixas de linhas
+	 * da imagem pela classe CStripScheduler.
+	 */
+	private static class CPointwiseKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a primeira imagem de origem. */
+		private CImage m_pSrc1;
+		
+		/** Membro privado utilizado para armazenar a segunda imagem de origem, ou null. */
+		private CImage m_pSrc2;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino. */
+		private CImage m_pTarget;
+		
+		/** Membro privado utilizado para armazenar a operao. */
+		private COperatorEnum m_eOperator;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrc1 Primeira imagem de origem.
+		 * @param pSrc2 Segunda imagem de origem, ou null.
+		 * @param pTarget Imagem de destino, com as mesmas dimenses e nmero de bandas das imagens de origem.
+		 * @param eOperator Operao.
+		 */
+		public CPointwiseKernel(CImage pSrc1, CImage pSrc2, CImage pTarget, COperatorEnum eOperator)
+		{
+			m_pSrc1 = pSrc1;
+			m_pSrc2 = pSrc2;
+			m_pTarget = pTarget;
+			m_eOperator = eOperator;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para a aplicao da operao sobre as linhas da faixa dada, em blocos de
+		 * linhas com at BLOCK_PIXELS pixels.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			int iWidth = m_pSrc1.getWidth();
+			boolean bColored = (m_pSrc1.getNumBands() == 3);
+			int iBlockRows = Math.max(1, Math.min(BLOCK_PIXELS / Math.max(iWidth, 1), iLastRow - iFirstRow));
+			
+			int aSrc1[] = new int[iBlockRows * iWidth];
+			int aSrc2[] = (m_pSrc2 != null ? new int[iBlockRows * iWidth] : null);
+			byte aGray[] = (bColored ? null : new byte[iBlockRows * iWidth]);
+			
+			for(int y = iFirstRow; y < iLastRow; y += iBlockRows)
+			{
+				int iRows = Math.min(iBlockRows, iLastRow - y);
+				int iCount = iRows * iWidth;
+				
+				int iPacked = read(m_pSrc1, y, iRows, aSrc1, aGray);
+				if(m_pSrc2 != null)
+					read(m_pSrc2, y, iRows, aSrc2, aGray);
+				
+				apply(m_eOperator, aSrc1, aSrc2, iPacked, aSrc1);
+				
+				if(bColored)
+					m_pTarget.setRGB(0, y, iWidth, iRows, aSrc1);
+				else
+				{
+					// Desempacotamento das amostras de trs pixels de cada inteiro
+					int i = 0, j = 0;
+					for(; i + 2 < iCount; i += 3, j++)
+					{
+						aGray[i] = (byte) (aSrc1[j] >> 16);
+						aGray[i + 1] = (byte) (aSrc1[j] >> 8);
+						aGray[i + 2] = (byte) aSrc1[j];
+					}
+					for(int iShift = 16; i < iCount; i++, iShift -= 8)
+						aGray[i] = (byte) (aSrc1[j] >> iShift);
+					m_pTarget.setSamples(0, y, iWidth, iRows, 0, aGray);
+				}
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe. L um bloco de linhas de uma imagem, com as amostras de cada
+		 * pixel empacotadas em um inteiro.
+		 * 
+		 * @param pImage Imagem de origem.
+		 * @param y ndice da primeira linha do bloco.
+		 * @param iRows Nmero de linhas do bloco.
+		 * @param aPixels Vetor para o retorno dos pixels empacotados.
+		 * @param aGray Vetor de trabalho para a leitura das amostras de imagens em escala de cinza (ou null para
+		 * imagens coloridas).
+		 * @return Nmero de inteiros empacotados (o nmero de pixels do bloco, em imagens coloridas, ou a tera parte
+		 * dele, arredondada para cima, em imagens em escala de cinza).
+		 */
+		private int read(CImage pImage, int y, int iRows, int aPixels[], byte aGray[])
+		{
+			int iWidth = pImage.getWidth();
+			int iCount = iRows * iWidth;
+			if(aGray == null)
+			{
+				pImage.getRGB(0, y, iWidth, iRows, aPixels);
+				return iCount;
+			}
+			
+			pImage.getSamples(0, y, iWidth, iRows, 0, aGray);
+			
+			int i = 0, j = 0;
+			for(; i + 2 < iCount; i += 3, j++)
+				aPixels[j] = ((aGray[i] & 0xff) << 16) | ((aGray[i + 1] & 0xff) << 8) | (aGray[i + 2] & 0xff);
+			if(i < iCount)
+			{
+				int iLast = 0;
+				for(int iShift = 16; i < iCount; i++, iShift -= 8)
+					iLast |= (aGray[i] & 0xff) << iShift;
+				aPixels[j++] = iLast;
+			}
+			return j;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.operations;
+
+import java.util.concurrent.*;
+
+/**
+ * Essa classe implementa o escalonador de execuo paralela das operaes que percorrem as imagens pixel a pixel.
+ * A imagem  dividida recursivamente em faixas horizontais de linhas, que so processadas em paralelo pelas threads
+ * de um pool fork-join compartilhado por todas as operaes do sistema. O processamento de cada faixa  delegado a
+ * um ncleo (kernel) definido pela operao atravs da interface IStripKernel.
+ * 
+ * O percorrimento em faixas de linhas respeita a organizao dos buffers de imagem (linha a linha), de modo que
+ * cada thread trabalha sobre uma regio contgua de memria.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see IStripKernel
+ */
+
+public class CStripScheduler
+{
+	/**
+	 * Membro privado esttico com o nmero mnimo de pixels de uma faixa. Faixas menores do que esse valor no
+	 * so subdivididas, pois o custo do escalonamento superaria o ganho com o paralelismo.
+	 */
+	private static final int MIN_STRIP_PIXELS = 16384;
+
+	/** Membro privado utilizado para armazenar o pool de threads utilizado na execuo das faixas. */
+	private ForkJoinPool m_pPool;
+
+	/**
+	 * Membro privado esttico utilizado para conter a instncia nica (singleton) da classe CStripScheduler. 
+	 */
+	private static CStripScheduler m_pInstance = null;
+
+	/**
+	 * Construtor da classe CStripScheduler. O pool  criado com uma thread para cada processador disponvel.
+	 */
+	protected CStripScheduler()
+	{
+		m_pPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Mtodo esttico e protegido, utilizado na criao da nica instncia (singleton) da classe.
+	 * 
+	 * @return Retorna a instncia do objeto CStripScheduler.
+	 */
+	protected static synchronized CStripScheduler getInstance()
+	{
+		if(m_pInstance == null)
+			m_pInstance = new CStripScheduler();
+		return m_pInstance;
+	}
+
+	/**
+	 * Mtodo setter do nmero de threads utilizadas na execuo das faixas. As execues j iniciadas no so
+	 * afetadas pela alterao.
+	 * 
+	 * @param iParallelism Nmero de threads (maior ou igual a 1). O valor 1 faz com que as operaes sejam
+	 * executadas de forma sequencial, na prpria thread chamadora.
+	 */
+	public static synchronized void setParallelism(int iParallelism)
+	{
+		if(iParallelism < 1)
+			iParallelism = 1;
+		
+		CStripScheduler pScheduler = CStripScheduler.getInstance();
+		if(pScheduler.m_pPool.getParallelism() != iParallelism)
+		{
+			pScheduler.m_pPool.shutdown();
+			pScheduler.m_pPool = new ForkJoinPool(iParallelism);
+		}
+	}
+
+	/**
+	 * Mtodo getter do nmero de threads utilizadas na execuo das faixas.
+	 * 
+	 * @return Nmero de threads do pool.
+	 */
+	public static int getParallelism()
+	{
+		return CStripScheduler.getInstance().m_pPool.getParallelism();
+	}
+
+	/**
+	 * Executa o ncleo dado sobre todas as linhas de uma imagem, dividindo-a em faixas processadas em paralelo.
+	 * O mtodo s retorna aps o processamento de todas as faixas. Se o processamento de alguma faixa gerar
+	 * uma exceo, ela  repassada  rotina chamadora.
+	 * 
+	 * @param iWidth Largura em pixels da imagem, utilizada para o clculo do tamanho mnimo das faixas.
+	 * @param iHeight Altura em pixels (nmero de linhas) da imagem.
+	 * @param pKernel Objeto que implementa a interface IStripKernel, com o processamento de cada faixa.
+	 */
+	public static void execute(int iWidth, int iHeight, IStripKernel pKernel)
+	{
+		execute(iWidth, iHeight, pKernel, null);
+	}
+	
+	/**
+	 * Executa o ncleo dado sobre todas as linhas de uma imagem, dividindo-a em faixas processadas em paralelo, e
+	 * permitindo o cancelamento cooperativo da execuo: o objeto de acompanhamento dado  consultado antes do
+	 * processamento de cada faixa, e as faixas restantes so descartadas quando a execuo  cancelada.
+	 * 
+	 * @param iWidth Largura em pixels da imagem, utilizada para o clculo do tamanho mnimo das faixas.
+	 * @param iHeight Altura em pixels (nmero de linhas) da imagem.
+	 * @param pKernel Objeto que implementa a interface IStripKernel, com o processamento de cada faixa.
+	 * @param pMonitor Objeto IOperationMonitor consultado para o cancelamento, ou null se no houver.
+	 * @return True se todas as faixas foram processadas, false se a execuo foi cancelada.
+	 */
+	public static boolean execute(int iWidth, int iHeight, IStripKernel pKernel, IOperationMonitor pMonitor)
+	{
+		if(iHeight <= 0)
+			return true;
+		
+		int iMinRows = Math.max(1, MIN_STRIP_PIXELS / Math.max(1, iWidth));
+		ForkJoinPool pPool = CStripScheduler.getInstance().m_pPool;
+		
+		if(iHeight <= iMinRows || pPool.getParallelism() == 1)
+		{
+			for(int iRow = 0; iRow < iHeight; iRow += iMinRows)
+			{
+				if(pMonitor != null && pMonitor.isCancelled())
+					return false;
+				pKernel.processStrip(iRow, Math.min(iRow + iMinRows, iHeight));
+			}
+		}
+		else
+			pPool.invoke(new CStripTask(pKernel, pMonitor, 0, iHeight, iMinRows));
+		
+		return pMonitor == null || !pMonitor.isCancelled();
+	}
+
+	/**
+	 * Classe interna para a implementao da tarefa fork-join de processamento de uma faixa de linhas. A faixa 
+	 * dividida ao meio at atingir o nmero mnimo de linhas, quando ento  processada pelo ncleo.
+	 */
+	private static class CStripTask extends RecursiveAction
+	{
+		/** Identificador de verso para serializao. */
+		private static final long serialVersionUID = 1L;
+
+		/** Membro privado utilizado para armazenar o ncleo de processamento das faixas. */
+		private IStripKernel m_pKernel;
+
+		/** Membro privado utilizado para armazenar o objeto de acompanhamento consultado para o cancelamento, ou null. */
+		private IOperationMonitor m_pMonitor;
+
+		/** Membro privado utilizado para armazenar a primeira linha da faixa (inclusive). */
+		private int m_iFirstRow;
+
+		/** Membro privado utilizado para armazenar a ltima linha da faixa (exclusive). */
+		private int m_iLastRow;
+
+		/** Membro privado utilizado para armazenar o nmero mnimo de linhas de uma faixa. */
+		private int m_iMinRows;
+
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pKernel Ncleo de processamento das faixas.
+		 * @param pMonitor Objeto de acompanhamento consultado para o cancelamento, ou null se no houver.
+		 * @param iFirstRow Primeira linha da faixa (inclusive).
+		 * @param iLastRow ltima linha da faixa (exclusive).
+		 * @param iMinRows Nmero mnimo de linhas de uma faixa.
+		 */
+		public CStripTask(IStripKernel pKernel, IOperationMonitor pMonitor, int iFirstRow, int iLastRow, int iMinRows)
+		{
+			m_pKernel = pKernel;
+			m_pMonitor = pMonitor;
+			m_iFirstRow = iFirstRow;
+			m_iLastRow = iLastRow;
+			m_iMinRows = iMinRows;
+		}
+
+		/**
+		 * Mtodo sobrescrito da classe pai, para a diviso ou o processamento da faixa.
+		 */
+		@Override
+		protected void compute()
+		{
+			int iRows = m_iLastRow - m_iFirstRow;
+			if(m_pMonitor != null && m_pMonitor.isCancelled())
+				return;
+			
+			if(iRows <= m_iMinRows)
+			{
+				m_pKernel.processStrip(m_iFirstRow, m_iLastRow);
+				return;
+			}
+			
+			int iMiddle = m_iFirstRow + (iRows / 2);
+			invokeAll(new CStripTask(m_pKernel, m_pMonitor, m_iFirstRow, iMiddle, m_iMinRows),
+					  new CStripTask(m_pKernel, m_pMonitor, iMiddle, m_iLastRow, m_iMinRows));
+		}
+	}
+}
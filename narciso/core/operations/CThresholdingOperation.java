@@ -22,6 +22,8 @@
  
 package core.operations;
 
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
 import java.util.*;
 
 import core.errors.CErrors;
@@ -30,6 +32,12 @@ import core.images.*;
 /**
  * Classe para a implementao da operao de limiarizao (thresholding) sobre todas as imagens dadas.
  * 
+ * Em imagens de at 8 bits por amostra e em imagens com paleta de cores (incluindo as binrias), o limiar 
+ * comparado ao brilho de cada pixel, calculado a partir das suas cores RGB. Em imagens com amostras de mais de 8
+ * bits (como as de 16 bits ou de ponto flutuante), o limiar  comparado diretamente s amostras da imagem (ou ao
+ * brilho calculado a partir delas, em imagens coloridas), sem converso prvia para 8 bits, e por isso  informado
+ * na escala das amostras (de 0 a CImage.getMaxSampleValue).
+ * 
  * @author Kiran Mantripragada
  * @author Luiz Carlos Vieira
  * @version 1.0
@@ -50,13 +58,26 @@ public class CThresholdingOperation extends COperation
 		super(sName, sDescription);
 	}
 
+	/**
+	 * Mtodo sobrescrito da classe pai, indicando que a operao processa cada uma das imagens dadas de forma
+	 * independente, o que permite sua execuo paralela por imagem (veja COperation.executeParallel).
+	 * 
+	 * @return Sempre true.
+	 */
+	@Override
+	public boolean isImageIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * Mtodo sobrescrito da classe pai, para a implementao da execuo da operao.
 	 * 
 	 *  @param pSource Vetor de objetos bsicos do Java, contendo instncias de uma ou mais imagens (CImage).
 	 *  @param Objeto Properties do Java para conter o cdigo de erro caso a execuo da operao no seja bem sucedida.
 	 *  No momento da execuo, esse objeto deve conter a seguinte propriedade: threshold (valor para limiarizao, entre
-	 *  0 e 255).
+	 *  0 e 255 para imagens de at 8 bits ou com paleta, ou entre 0 e o maior valor das amostras para imagens com
+	 *  amostras de mais de 8 bits).
 	 *  @return Vetor de objetos bsicos do Java contendo o mesmo nmero de imagens de entrada, resultado da operao de limiarizao em cada uma delas. Se um erro
 	 *  ocorrer, o retorno ser null e o cdigo de erro poder ser obtido no parmetro "error" definido em pParams.
 	 */
@@ -71,10 +92,21 @@ public class CThresholdingOperation extends COperation
 			return null;
 		}
 		
-		int i, iThreshold = Integer.parseInt(sThreshold);
+		int i;
+		double dThreshold;
 		Vector<Object> pRet = new Vector<Object>();
 		
-		if(iThreshold < 0 || iThreshold > 255)
+		try
+		{
+			dThreshold = Double.parseDouble(sThreshold);
+		}
+		catch(NumberFormatException e)
+		{
+			pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
+			return null;
+		}
+		
+		if(dThreshold < 0)
 		{
 			pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
 			return null;
@@ -89,7 +121,6 @@ public class CThresholdingOperation extends COperation
 		for(i = 0; i < pSource.size(); i++)
 		{
 			int iWidth, iHeight;
-			int x, y;
 			
 			Object pObj = pSource.get(i);
 			if(!(pObj instanceof CImage))
@@ -99,42 +130,175 @@ public class CThresholdingOperation extends COperation
 			}
 			
 			CImage pSrcImage = (CImage) pObj;
+			boolean bNative = isNative(pSrcImage);
+			
+			if(dThreshold > (bNative ? pSrcImage.getMaxSampleValue(0) : 255))
+			{
+				pParams.put("error", String.valueOf(CErrors.ERROR_INVALID_PARAMETER));
+				return null;
+			}
 			
 			iWidth = pSrcImage.getWidth();
 			iHeight = pSrcImage.getHeight();
 
 			CImage pTgtImage = new CImage(iWidth, iHeight, false);
 			
-			for(x = 0; x < iWidth; x++)
+			if(!CStripScheduler.execute(iWidth, iHeight, new CThresholdingKernel(pSrcImage, pTgtImage, dThreshold, bNative), getMonitor(pParams)))
+			{
+				pParams.put("error", String.valueOf(CErrors.ERROR_OPERATION_CANCELLED));
+				return null;
+			}
+			
+			pRet.add((Object) pTgtImage);
+		}
+		
+		return pRet;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Verifica se a imagem deve ser limiarizada na escala das suas
+	 * amostras: imagens sem paleta de cores, com amostras de ponto flutuante ou com mais de 8 bits. As demais
+	 * imagens (inclusive as binrias e as com paleta, cujas amostras so ndices) so limiarizadas pelo brilho das
+	 * suas cores RGB, no intervalo de 0 a 255.
+	 * 
+	 * @param pImage Imagem a ser verificada.
+	 * @return True se a imagem deve ser limiarizada na escala das suas amostras, false caso contrrio.
+	 */
+	private static boolean isNative(CImage pImage)
+	{
+		if(pImage.getPlanarImage().getColorModel() instanceof IndexColorModel)
+			return false;
+		
+		int iDataType = pImage.getDataType();
+		if(iDataType == DataBuffer.TYPE_FLOAT || iDataType == DataBuffer.TYPE_DOUBLE)
+			return true;
+		
+		for(int b = 0; b < pImage.getNumBands(); b++)
+			if(pImage.getSampleSize(b) > 8)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Classe interna para a implementao do ncleo de limiarizao, executado em paralelo sobre faixas de linhas
+	 * da imagem pela classe CStripScheduler.
+	 */
+	private static class CThresholdingKernel implements IStripKernel
+	{
+		/** Membro privado utilizado para armazenar a imagem de origem. */
+		private CImage m_pSrcImage;
+		
+		/** Membro privado utilizado para armazenar a imagem de destino. */
+		private CImage m_pTgtImage;
+		
+		/** Membro privado utilizado para armazenar o valor de limiarizao. */
+		private double m_dThreshold;
+		
+		/** Membro privado utilizado para indicar se a limiarizao  feita na escala das amostras da imagem. */
+		private boolean m_bNative;
+		
+		/**
+		 * Construtor da classe.
+		 * 
+		 * @param pSrcImage Imagem de origem.
+		 * @param pTgtImage Imagem de destino, com as mesmas dimenses da imagem de origem.
+		 * @param dThreshold Valor para limiarizao, na escala das amostras da imagem de origem.
+		 * @param bNative Indica se a limiarizao  feita na escala das amostras (true) ou do brilho RGB (false).
+		 */
+		public CThresholdingKernel(CImage pSrcImage, CImage pTgtImage, double dThreshold, boolean bNative)
+		{
+			m_pSrcImage = pSrcImage;
+			m_pTgtImage = pTgtImage;
+			m_dThreshold = dThreshold;
+			m_bNative = bNative;
+		}
+		
+		/**
+		 * Mtodo da interface IStripKernel, para a limiarizao das linhas da faixa dada.
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		public void processStrip(int iFirstRow, int iLastRow)
+		{
+			if(m_bNative)
+			{
+				processNativeStrip(iFirstRow, iLastRow);
+				return;
+			}
+			
+			int iWidth = m_pSrcImage.getWidth();
+			int x, y;
+			
+			/*
+			 * A faixa  percorrida linha a linha, utilizando sempre os mesmos vetores para leitura
+			 * e gravao dos pixels, de modo a evitar a criao de objetos para cada pixel.
+			 */
+			
+			int aSrcRow[] = new int[iWidth];
+			int aTgtRow[] = new int[iWidth];
+			
+			for(y = iFirstRow; y < iLastRow; y++)
 			{
-				for(y = 0; y < iHeight; y++)
+				m_pSrcImage.getRGB(0, y, iWidth, 1, aSrcRow);
+				
+				for(x = 0; x < iWidth; x++)
 				{
-					CPixel pTgtPixel;
-					CGrayScalePixel pSrcPixel = null;
-					
-					if(pSrcImage.IsColored())
-					{
-						CColorPixel pAux = (CColorPixel) pSrcImage.getPixel(x, y); 
-						if(pAux != null)
-							pSrcPixel = pAux.toGrayScale();
-					}
+					int iRGB = aSrcRow[x];
+					int iBrightness = CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff);
+					if(iBrightness <= m_dThreshold)
+						aTgtRow[x] = 0;
 					else
-						pSrcPixel = (CGrayScalePixel) pSrcImage.getPixel(x, y);
+						aTgtRow[x] = 255;
+				}
+				
+				m_pTgtImage.setSamples(0, y, iWidth, 1, 0, aTgtRow);
+			}
+		}
+		
+		/**
+		 * Mtodo privado de utilizao interna da classe, para a limiarizao de imagens na escala das amostras. As
+		 * amostras so lidas no seu tipo original (convertidas para float sem alterao de escala). Em imagens
+		 * coloridas, o brilho  calculado como em CColorPixel.toGrayScale (mdia entre a maior e a menor componente).
+		 * 
+		 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+		 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+		 */
+		private void processNativeStrip(int iFirstRow, int iLastRow)
+		{
+			int iWidth = m_pSrcImage.getWidth();
+			boolean bColored = m_pSrcImage.IsColored() && m_pSrcImage.getNumBands() >= 3;
+			int x, y;
+			
+			float aRed[] = new float[iWidth];
+			float aGreen[] = (bColored ? new float[iWidth] : null);
+			float aBlue[] = (bColored ? new float[iWidth] : null);
+			int aTgtRow[] = new int[iWidth];
+			
+			for(y = iFirstRow; y < iLastRow; y++)
+			{
+				m_pSrcImage.getSamples(0, y, iWidth, 1, 0, aRed);
+				if(bColored)
+				{
+					m_pSrcImage.getSamples(0, y, iWidth, 1, 1, aGreen);
+					m_pSrcImage.getSamples(0, y, iWidth, 1, 2, aBlue);
+				}
+				
+				for(x = 0; x < iWidth; x++)
+				{
+					double dValue = aRed[x];
+					if(bColored)
+						dValue = (Math.max(Math.max(aRed[x], aGreen[x]), aBlue[x]) + Math.min(Math.min(aRed[x], aGreen[x]), aBlue[x])) / 2.0;
 					
-					int iBrightness = pSrcPixel.getBrightness();
-					if(iBrightness <= iThreshold)
-						pTgtPixel = new CGrayScalePixel(0);
+					if(dValue <= m_dThreshold)
+						aTgtRow[x] = 0;
 					else
-						pTgtPixel = new CGrayScalePixel(255);
-					
-					pTgtImage.setPixel(x, y, pTgtPixel);
+						aTgtRow[x] = 255;
 				}
+				
+				m_pTgtImage.setSamples(0, y, iWidth, 1, 0, aTgtRow);
 			}
-			
-			pRet.add((Object) pTgtImage);
 		}
-		
-		return pRet;
 	}
 }
  
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package core.operations;
+
+/**
+ * Essa interface define o mtodo a ser implementado pelos destinos (sinks) das medies de execuo das operaes.
+ * Quando um destino  configurado atravs do mtodo COperation.setMetricsSink, cada execuo de operao efetuada
+ * pelo sistema (inclusive cada etapa de um roteiro) gera um objeto COperationMetrics que  entregue ao destino.
+ * 
+ * As medies podem ser entregues a partir de qualquer thread, inclusive concorrentemente, de modo que as
+ * implementaes devem ser seguras para utilizao por mltiplas threads.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see COperationMetrics
+ * @see CMetricsRegistry
+ */
+
+public interface IMetricsSink
+{
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para receber a medio
+	 * de uma execuo de operao.
+	 * 
+	 * @param pMetrics Objeto COperationMetrics com a medio da execuo.
+	 */
+	public abstract void operationExecuted(COperationMetrics pMetrics);
+}
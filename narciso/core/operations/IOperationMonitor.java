@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.operations;
+
+import java.util.Vector;
+
+/**
+ * Essa interface define os mtodos a serem implementados pelos objetos de acompanhamento (monitores) da execuo
+ * de operaes, utilizados para a exibio do progresso, para a obteno incremental dos resultados e para o
+ * cancelamento cooperativo da execuo.
+ * 
+ * O monitor  informado s operaes atravs do parmetro de execuo de nome COperation.MONITOR_PARAM. Os
+ * mtodos de notificao podem ser chamados a partir de qualquer thread (inclusive concorrentemente), de modo
+ * que implementaes ligadas a interfaces grficas devem repassar as notificaes  thread de eventos.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see COperation
+ * @see CStripScheduler
+ */
+
+public interface IOperationMonitor
+{
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para indicar se a
+	 * execuo deve ser cancelada.  consultado periodicamente pelas operaes (entre faixas de linhas, ladrilhos
+	 * de imagens JAI, imagens e etapas de roteiros).
+	 * 
+	 * @return True se a execuo deve ser cancelada, false caso contrrio.
+	 */
+	public abstract boolean isCancelled();
+	
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para receber a
+	 * notificao do incio de cada etapa (iterao de uma operao) de um roteiro.
+	 * 
+	 * @param sOperation Nome da operao da etapa.
+	 * @param iStep ndice da etapa (iniciando em 1).
+	 * @param iSteps Nmero total de etapas do roteiro.
+	 */
+	public abstract void stepStarted(String sOperation, int iStep, int iSteps);
+	
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para receber os objetos
+	 * resultantes  medida que o processamento de cada imagem  concludo. As notificaes ocorrem na ordem
+	 * original dos objetos-fonte.
+	 * 
+	 * @param vResult Vetor com os objetos resultantes do processamento de uma imagem (ou de todas, se a operao
+	 * no for independente por imagem).
+	 * @param iDone Nmero de imagens j concludas.
+	 * @param iTotal Nmero total de imagens.
+	 */
+	public abstract void resultAvailable(Vector<Object> vResult, int iDone, int iTotal);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.operations;
+
+/**
+ * Essa interface define o mtodo a ser implementado pelos ncleos (kernels) de processamento das operaes que
+ * percorrem as imagens pixel a pixel, para sua execuo paralela em faixas de linhas pela classe CStripScheduler.
+ * 
+ * Cada faixa  processada por uma nica thread, e as faixas de uma mesma imagem nunca se sobrepem. Assim, uma
+ * implementao pode gravar livremente nas linhas da faixa recebida, mas no deve manter estado compartilhado
+ * entre faixas (como vetores de linha) sem a devida sincronizao.
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CStripScheduler
+ */
+
+public interface IStripKernel
+{
+	/**
+	 * Esse mtodo deve ser sempre publicado nas classes que implementarem essa interface, para prover
+	 * o processamento de uma faixa de linhas da imagem.
+	 * 
+	 * @param iFirstRow ndice da primeira linha da faixa (inclusive).
+	 * @param iLastRow ndice da ltima linha da faixa (exclusive).
+	 */
+	public abstract void processStrip(int iFirstRow, int iLastRow);
+}
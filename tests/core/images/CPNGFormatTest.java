@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.images;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.media.jai.PlanarImage;
+
+import core.errors.CErrors;
+
+/**
+ * Teste de regresso da gravao de imagens no formato PNG (CPNGFormat). Verifica que cada nvel de compresso
+ * (de 0 a 9) corresponde ao mesmo nvel no escritor PNG do Image I/O, sem que nveis vizinhos resultem na mesma
+ * configurao, e que as falhas de gravao so informadas com o cdigo de erro de gravao.
+ * 
+ * Utilizao, a partir do diretrio dos binrios (o cdigo de sada  diferente de zero se algum caso falhar):
+ * 
+ * <pre>
+ * java -Djava.awt.headless=true -cp Narciso.jar;tests core.images.CPNGFormatTest
+ * </pre>
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CPNGFormat
+ */
+
+public class CPNGFormatTest
+{
+	/** Membro privado utilizado para armazenar o nmero de casos que falharam. */
+	private static int m_iFailures = 0;
+	
+	/**
+	 * Mtodo principal do teste.
+	 * 
+	 * @param aArgs Argumentos da linha de comando (no utilizados).
+	 */
+	public static void main(String aArgs[])
+	{
+		testLevels();
+		testSizes();
+		testWriteError();
+		
+		if(m_iFailures > 0)
+		{
+			System.out.println(m_iFailures + " caso(s) falharam.");
+			System.exit(1);
+		}
+		System.out.println("Todos os casos foram executados com sucesso.");
+	}
+	
+	/**
+	 * Verifica que a qualidade configurada para cada nvel resulta no mesmo nvel, tanto se o escritor truncar
+	 * quanto se arredondar o valor 9 * (1 - qualidade).
+	 */
+	private static void testLevels()
+	{
+		for(int iLevel = 0; iLevel <= 9; iLevel++)
+		{
+			ImageWriteParam pParam = ImageIO.getImageWritersByFormatName("png").next().getDefaultWriteParam();
+			Properties pParams = new Properties();
+			pParams.put("compression", String.valueOf(iLevel));
+			new CPNGFormat().configure(pParam, pParams);
+			
+			float fLevel = 9 * (1.0f - pParam.getCompressionQuality());
+			report("nvel " + iLevel, (int) fLevel == iLevel && Math.round(fLevel) == iLevel);
+		}
+	}
+	
+	/**
+	 * Verifica que os nveis 0, 1 e 9 resultam em arquivos de tamanhos diferentes.
+	 */
+	private static void testSizes()
+	{
+		BufferedImage pBuffer = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+		Random pRandom = new Random(1);
+		for(int y = 0; y < 256; y++)
+			for(int x = 0; x < 256; x++)
+				pBuffer.setRGB(x, y, ((x * y / 7) & 0xff) * 0x010101 ^ pRandom.nextInt(4));
+		PlanarImage pImage = PlanarImage.wrapRenderedImage(pBuffer);
+		
+		int aLevels[] = { 0, 1, 9 };
+		long aSizes[] = new long[aLevels.length];
+		for(int i = 0; i < aLevels.length; i++)
+		{
+			File fFile;
+			try
+			{
+				fFile = File.createTempFile("narciso", ".png");
+			}
+			catch(IOException e)
+			{
+				report("criao do arquivo temporrio", false);
+				return;
+			}
+			
+			Properties pParams = new Properties();
+			pParams.put("compression", String.valueOf(aLevels[i]));
+			int iRet = new CPNGFormat().save(pImage, fFile.getPath(), pParams);
+			aSizes[i] = fFile.length();
+			fFile.delete();
+			report("gravao com nvel " + aLevels[i], iRet == CErrors.SUCCESS);
+		}
+		
+		report("nveis 0 e 1 com tamanhos diferentes", aSizes[0] != aSizes[1]);
+		report("nveis 1 e 9 com tamanhos diferentes", aSizes[1] != aSizes[2]);
+	}
+	
+	/**
+	 * Verifica que a gravao em um diretrio inexistente  informada com o erro de gravao do arquivo.
+	 */
+	private static void testWriteError()
+	{
+		BufferedImage pBuffer = new BufferedImage(8, 8, BufferedImage.TYPE_BYTE_GRAY);
+		File fFile = new File(new File(System.getProperty("java.io.tmpdir"), "narciso-inexistente-" + System.nanoTime()), "a.png");
+		
+		int iRet = new CPNGFormat().save(PlanarImage.wrapRenderedImage(pBuffer), fFile.getPath(), null);
+		report("gravao em diretrio inexistente", iRet == CErrors.ERROR_WRITING_FILE);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Informa o resultado de um caso.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param bOk Indica se o caso foi bem sucedido.
+	 */
+	private static void report(String sCase, boolean bOk)
+	{
+		System.out.println((bOk ? "OK     " : "FALHOU ") + sCase);
+		if(!bOk)
+			m_iFailures++;
+	}
+}
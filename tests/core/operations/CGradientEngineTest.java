@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.operations;
+
+import java.awt.image.*;
+import java.util.Arrays;
+
+import javax.media.jai.PlanarImage;
+
+import core.images.*;
+
+/**
+ * Teste de regresso do clculo do gradiente de bordas (CGradientEngine) sobre imagens com paleta de cores. As
+ * amostras dessas imagens so ndices de cores, e o gradiente deve ser calculado sobre as cores da paleta, como na
+ * imagem RGB (ou RGBA) equivalente.
+ * 
+ * Utilizao, a partir do diretrio dos binrios (o cdigo de sada  diferente de zero se algum caso falhar):
+ * 
+ * <pre>
+ * java -Djava.awt.headless=true -cp Narciso.jar;tests core.operations.CGradientEngineTest
+ * </pre>
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CGradientEngine
+ */
+
+public class CGradientEngineTest
+{
+	/** Membro privado utilizado para armazenar o nmero de casos que falharam. */
+	private static int m_iFailures = 0;
+	
+	/**
+	 * Mtodo principal do teste.
+	 * 
+	 * @param aArgs Argumentos da linha de comando (no utilizados).
+	 */
+	public static void main(String aArgs[])
+	{
+		testIndexed();
+		testIndexedAlpha();
+		
+		if(m_iFailures > 0)
+		{
+			System.out.println(m_iFailures + " caso(s) falharam.");
+			System.exit(1);
+		}
+		System.out.println("Todos os casos foram executados com sucesso.");
+	}
+	
+	/**
+	 * Verifica o gradiente de imagens com paleta de cores opaca, com ndices de 8 bits (TYPE_BYTE_INDEXED) e
+	 * empacotados em 2 bits (TYPE_BYTE_BINARY), com as quatro mscaras.
+	 */
+	private static void testIndexed()
+	{
+		byte aRed[] = { (byte) 250, 10, (byte) 200, 0 };
+		byte aGreen[] = { (byte) 250, 10, 20, 0 };
+		byte aBlue[] = { (byte) 250, 10, 20, (byte) 255 };
+		IndexColorModel pModel = new IndexColorModel(2, 4, aRed, aGreen, aBlue);
+		
+		int aTypes[] = { BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY };
+		String aNames[] = { "paleta de 8 bits", "paleta de 2 bits" };
+		for(int i = 0; i < aTypes.length; i++)
+		{
+			BufferedImage pBuffer = new BufferedImage(11, 9, aTypes[i], pModel);
+			fill(pBuffer);
+			for(CGradientEngine.CMaskEnum eMask : CGradientEngine.CMaskEnum.values())
+				check(aNames[i] + ", " + eMask, pBuffer, eMask, 3);
+		}
+	}
+	
+	/**
+	 * Verifica o gradiente de uma imagem com paleta de cores com transparncia, que deve ser calculado tambm sobre
+	 * a banda de transparncia (alfa).
+	 */
+	private static void testIndexedAlpha()
+	{
+		byte aRed[] = { (byte) 250, 10, (byte) 200, 0 };
+		byte aGreen[] = { (byte) 250, 10, 20, 0 };
+		byte aBlue[] = { (byte) 250, 10, 20, (byte) 255 };
+		byte aAlpha[] = { (byte) 255, (byte) 128, 0, (byte) 255 };
+		IndexColorModel pModel = new IndexColorModel(8, 4, aRed, aGreen, aBlue, aAlpha);
+		
+		BufferedImage pBuffer = new BufferedImage(11, 9, BufferedImage.TYPE_BYTE_INDEXED, pModel);
+		fill(pBuffer);
+		check("paleta com transparncia, SOBEL", pBuffer, CGradientEngine.CMaskEnum.SOBEL, 4);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Preenche uma imagem com paleta com um padro de ndices.
+	 * 
+	 * @param pBuffer Imagem do Java com paleta de 4 cores.
+	 */
+	private static void fill(BufferedImage pBuffer)
+	{
+		for(int y = 0; y < pBuffer.getHeight(); y++)
+			for(int x = 0; x < pBuffer.getWidth(); x++)
+				pBuffer.getRaster().setSample(x, y, 0, (x * x + 3 * y) % 4);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Calcula o gradiente de uma imagem com paleta e compara o
+	 * resultado com o gradiente da imagem equivalente com as cores da paleta em bandas separadas.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param pBuffer Imagem do Java com paleta de cores.
+	 * @param eMask Mscara de gradiente.
+	 * @param iBands Nmero de bandas esperado no resultado (3 para RGB ou 4 para RGBA).
+	 */
+	private static void check(String sCase, BufferedImage pBuffer, CGradientEngine.CMaskEnum eMask, int iBands)
+	{
+		int iWidth = pBuffer.getWidth();
+		int iHeight = pBuffer.getHeight();
+		
+		CImage pIndexed = new CImage(10, 10, false);
+		pIndexed.setPlanarImage(PlanarImage.wrapRenderedImage(pBuffer));
+		
+		CImage pExpanded = new CImage(iWidth, iHeight, iBands, DataBuffer.TYPE_BYTE);
+		int aPixel[] = new int[iBands];
+		for(int y = 0; y < iHeight; y++)
+		{
+			for(int x = 0; x < iWidth; x++)
+			{
+				int iARGB = pBuffer.getRGB(x, y);
+				aPixel[0] = (iARGB >> 16) & 0xff;
+				aPixel[1] = (iARGB >> 8) & 0xff;
+				aPixel[2] = iARGB & 0xff;
+				if(iBands == 4)
+					aPixel[3] = iARGB >>> 24;
+				pExpanded.setPixels(x, y, 1, 1, aPixel);
+			}
+		}
+		
+		CImage pResult = CGradientEngine.execute(pIndexed, eMask, false, null)[0];
+		CImage pExpected = CGradientEngine.execute(pExpanded, eMask, false, null)[0];
+		
+		boolean bOk = (pResult.getNumBands() == iBands);
+		for(int b = 0; bOk && b < iBands; b++)
+		{
+			int aResult[] = pResult.getSamples(0, 0, iWidth, iHeight, b, (int[]) null);
+			int aExpected[] = pExpected.getSamples(0, 0, iWidth, iHeight, b, (int[]) null);
+			bOk = Arrays.equals(aResult, aExpected);
+		}
+		report(sCase, bOk);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Informa o resultado de um caso.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param bOk Indica se o caso foi bem sucedido.
+	 */
+	private static void report(String sCase, boolean bOk)
+	{
+		System.out.println((bOk ? "OK     " : "FALHOU ") + sCase);
+		if(!bOk)
+			m_iFailures++;
+	}
+}
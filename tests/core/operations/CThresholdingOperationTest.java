@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2006 Kiran Mantripragada & Luiz Carlos Vieira
+ * http://researcher.ibm.com/researcher/view.php?person=br-kiran
+ * http://www.luiz.vieira.nom.br
+ *
+ * This file is part of the Narciso (Ambiente de Suporte ao Processamento
+ * de Imagens para Viso Computacional).
+ *
+ * Narciso is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Narciso is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+ 
+package core.operations;
+
+import java.awt.image.*;
+import java.util.*;
+
+import javax.media.jai.PlanarImage;
+
+import core.errors.CErrors;
+import core.images.*;
+
+/**
+ * Teste de regresso da operao de limiarizao (CThresholdingOperation) sobre imagens binrias, com paleta de
+ * cores e de 16 bits. Nas imagens binrias e com paleta, as amostras so ndices de cores, e o limiar deve ser
+ * comparado ao brilho das cores (de 0 a 255), e no aos ndices.
+ * 
+ * Utilizao, a partir do diretrio dos binrios (o cdigo de sada  diferente de zero se algum caso falhar):
+ * 
+ * <pre>
+ * java -Djava.awt.headless=true -cp Narciso.jar;tests core.operations.CThresholdingOperationTest
+ * </pre>
+ * 
+ * @author Kiran Mantripragada
+ * @author Luiz Carlos Vieira
+ * @version 1.0
+ *
+ * @see CThresholdingOperation
+ */
+
+public class CThresholdingOperationTest
+{
+	/** Membro privado utilizado para armazenar o nmero de casos que falharam. */
+	private static int m_iFailures = 0;
+	
+	/**
+	 * Mtodo principal do teste.
+	 * 
+	 * @param aArgs Argumentos da linha de comando (no utilizados).
+	 */
+	public static void main(String aArgs[])
+	{
+		testBinary();
+		testIndexed();
+		testUShort();
+		
+		if(m_iFailures > 0)
+		{
+			System.out.println(m_iFailures + " caso(s) falharam.");
+			System.exit(1);
+		}
+		System.out.println("Todos os casos foram executados com sucesso.");
+	}
+	
+	/**
+	 * Verifica a limiarizao de uma imagem binria (TYPE_BYTE_BINARY), cujas amostras so de 1 bit.
+	 */
+	private static void testBinary()
+	{
+		BufferedImage pBuffer = new BufferedImage(7, 5, BufferedImage.TYPE_BYTE_BINARY);
+		for(int y = 0; y < 5; y++)
+			for(int x = 0; x < 7; x++)
+				pBuffer.setRGB(x, y, ((x + y) % 2 == 0 ? 0xffffffff : 0xff000000));
+		CImage pImage = wrap(pBuffer);
+		
+		check("binria, limiar 128", pImage, 128, pBuffer);
+		check("binria, limiar 255", pImage, 255, pBuffer);
+		checkError("binria, limiar 256", pImage, "256");
+	}
+	
+	/**
+	 * Verifica a limiarizao de imagens com paleta de cores, com ndices de 8 bits (TYPE_BYTE_INDEXED) e
+	 * empacotados em 2 bits (TYPE_BYTE_BINARY). Os ndices no tm relao com o brilho das cores.
+	 */
+	private static void testIndexed()
+	{
+		byte aRed[] = { (byte) 250, 10, (byte) 200, 0 };
+		byte aGreen[] = { (byte) 250, 10, 20, 0 };
+		byte aBlue[] = { (byte) 250, 10, 20, (byte) 255 };
+		IndexColorModel pModel = new IndexColorModel(2, 4, aRed, aGreen, aBlue);
+		
+		int aTypes[] = { BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY };
+		String aNames[] = { "paleta de 8 bits", "paleta de 2 bits" };
+		for(int i = 0; i < aTypes.length; i++)
+		{
+			BufferedImage pBuffer = new BufferedImage(9, 4, aTypes[i], pModel);
+			for(int y = 0; y < 4; y++)
+				for(int x = 0; x < 9; x++)
+					pBuffer.getRaster().setSample(x, y, 0, (x + 3 * y) % 4);
+			CImage pImage = wrap(pBuffer);
+			
+			check(aNames[i] + ", limiar 128", pImage, 128, pBuffer);
+			check(aNames[i] + ", limiar 100", pImage, 100, pBuffer);
+			checkError(aNames[i] + ", limiar 300", pImage, "300");
+		}
+	}
+	
+	/**
+	 * Verifica que uma imagem de 16 bits continua sendo limiarizada na escala das suas amostras.
+	 */
+	private static void testUShort()
+	{
+		BufferedImage pBuffer = new BufferedImage(6, 3, BufferedImage.TYPE_USHORT_GRAY);
+		for(int y = 0; y < 3; y++)
+			for(int x = 0; x < 6; x++)
+				pBuffer.getRaster().setSample(x, y, 0, 10000 * x);
+		CImage pImage = new CImage(6, 3, 1, DataBuffer.TYPE_USHORT);
+		pImage.setSamples(0, 0, 6, 3, 0, pBuffer.getRaster().getSamples(0, 0, 6, 3, 0, (int[]) null));
+		
+		CImage pResult = threshold(pImage, "30000");
+		boolean bOk = (pResult != null);
+		for(int y = 0; bOk && y < 3; y++)
+			for(int x = 0; bOk && x < 6; x++)
+				bOk = (pResult.getSamples(x, y, 1, 1, 0, (int[]) null)[0] == (10000 * x <= 30000 ? 0 : 255));
+		report("16 bits, limiar 30000", bOk);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Cria uma imagem do Narciso a partir de uma imagem do Java.
+	 * 
+	 * @param pBuffer Imagem do Java.
+	 * @return Imagem do Narciso com os mesmos pixels e o mesmo modelo de cores.
+	 */
+	private static CImage wrap(BufferedImage pBuffer)
+	{
+		CImage pImage = new CImage(10, 10, false);
+		pImage.setPlanarImage(PlanarImage.wrapRenderedImage(pBuffer));
+		return pImage;
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa a limiarizao sobre uma imagem.
+	 * 
+	 * @param pImage Imagem de origem.
+	 * @param sThreshold Valor do parmetro "threshold".
+	 * @return Imagem resultante, ou null se a operao falhou.
+	 */
+	private static CImage threshold(CImage pImage, String sThreshold)
+	{
+		Vector<Object> pSource = new Vector<Object>();
+		pSource.add(pImage);
+		Properties pParams = new Properties();
+		pParams.put("threshold", sThreshold);
+		
+		Vector<Object> pResult = new CThresholdingOperation("Thresholding", "").execute(pSource, pParams);
+		if(pResult == null)
+		{
+			System.out.println("Erro " + pParams.getProperty("error") + " na limiarizao com limiar " + sThreshold + ".");
+			return null;
+		}
+		
+		return (CImage) pResult.get(0);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Executa a limiarizao e compara o resultado com o brilho das cores
+	 * da imagem original, calculado como em CColorPixel.toGrayScale.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param pImage Imagem de origem.
+	 * @param iThreshold Valor para limiarizao.
+	 * @param pBuffer Imagem do Java com os mesmos pixels da imagem de origem.
+	 */
+	private static void check(String sCase, CImage pImage, int iThreshold, BufferedImage pBuffer)
+	{
+		CImage pResult = threshold(pImage, String.valueOf(iThreshold));
+		boolean bOk = (pResult != null);
+		for(int y = 0; bOk && y < pBuffer.getHeight(); y++)
+		{
+			for(int x = 0; bOk && x < pBuffer.getWidth(); x++)
+			{
+				int iRGB = pBuffer.getRGB(x, y);
+				int iBrightness = CColorPixel.toGrayScale((iRGB >> 16) & 0xff, (iRGB >> 8) & 0xff, iRGB & 0xff);
+				bOk = (pResult.getSamples(x, y, 1, 1, 0, (int[]) null)[0] == (iBrightness <= iThreshold ? 0 : 255));
+			}
+		}
+		report(sCase, bOk);
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Verifica que a limiarizao  rejeitada com o erro de
+	 * parmetro invlido.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param pImage Imagem de origem.
+	 * @param sThreshold Valor do parmetro "threshold", fora do intervalo aceito.
+	 */
+	private static void checkError(String sCase, CImage pImage, String sThreshold)
+	{
+		Vector<Object> pSource = new Vector<Object>();
+		pSource.add(pImage);
+		Properties pParams = new Properties();
+		pParams.put("threshold", sThreshold);
+		
+		Vector<Object> pResult = new CThresholdingOperation("Thresholding", "").execute(pSource, pParams);
+		report(sCase, pResult == null && String.valueOf(CErrors.ERROR_INVALID_PARAMETER).equals(pParams.getProperty("error")));
+	}
+	
+	/**
+	 * Mtodo privado de utilizao interna da classe. Informa o resultado de um caso.
+	 * 
+	 * @param sCase Descrio do caso.
+	 * @param bOk Indica se o caso foi bem sucedido.
+	 */
+	private static void report(String sCase, boolean bOk)
+	{
+		System.out.println((bOk ? "OK     " : "FALHOU ") + sCase);
+		if(!bOk)
+			m_iFailures++;
+	}
+}